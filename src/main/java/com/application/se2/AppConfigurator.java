@@ -53,6 +53,83 @@ public class AppConfigurator implements ComponentIntf {
 		LoggerTopics.Always
 	); 
 
+	/*
+	 * Policy when the log buffer is full: drop log entries (default) or let the
+	 * logging thread wait until the log writer has made room.
+	 */
+	public enum LoggerOverflow { Drop, Block }
+
+	/*
+	 * Parameters used by the asynchronous log writer.
+	 */
+	public static class LoggerParams {
+		public static final String LogFile = "repository_updates.log";
+		public static final int LogBufferCapacity = 8192;		// log entries, power of two
+		public static final long LogMaxFileBytes = 10L * 1024 * 1024;
+		public static final int LogBackupFiles = 5;
+		public static final LoggerOverflow LogOverflow = LoggerOverflow.Drop;
+		public static final EnumSet<LoggerTopics> LogSampledTopics = EnumSet.of( LoggerTopics.RepositoryLoaded );
+		public static final long LogSampleThreshold = 100;	// entries per second logged before sampling
+	}
+
+	/*
+	 * Optional repository modes that are enabled by adding them to RepositoryConfig.
+	 * Modes are off by default, most of them write files into RepositoryParams.DataDirectory.
+	 */
+	public enum RepositoryModes {
+		TieredCustomers,	// spill cold Customers (TERM status or idle) to an on-disk segment
+		ColumnarCustomers,	// store Customers in columns for scans (not with TieredCustomers)
+		OffHeapArticles,	// keep Article records in off-heap memory
+		IdFilters,			// answer lookups of absent ids from in-memory counting Bloom filters
+		Maintenance,		// compact and re-index repositories in the background, checkpoint with ReplicationPrimary
+		History,			// keep versions of changed entities as property deltas and periodic full versions
+		AuditJournal,		// record create, update and delete events in an indexed binary journal
+		ReplicationPrimary,	// stream repository changes to follower processes
+		ReplicationFollower	// replicate repositories from a primary process instead of building them
+	}
+
+	public static final EnumSet<RepositoryModes> RepositoryConfig = EnumSet.noneOf( RepositoryModes.class );
+	static {
+		//RepositoryConfig.add( RepositoryModes.TieredCustomers );
+		//RepositoryConfig.add( RepositoryModes.ColumnarCustomers );
+		//RepositoryConfig.add( RepositoryModes.OffHeapArticles );
+		//RepositoryConfig.add( RepositoryModes.IdFilters );
+		//RepositoryConfig.add( RepositoryModes.Maintenance );
+		//RepositoryConfig.add( RepositoryModes.History );
+		//RepositoryConfig.add( RepositoryModes.AuditJournal );
+		//RepositoryConfig.add( RepositoryModes.ReplicationPrimary );
+		//RepositoryConfig.add( RepositoryModes.ReplicationFollower );
+	}
+
+	/*
+	 * Parameters used by repository modes.
+	 */
+	public static class RepositoryParams {
+		public static final String DataDirectory = "data";
+		public static final String TieredCustomersSegment = "customers_cold.seg";
+		public static final int TieredColdAfterDays = 90;
+		public static final long TieredSpillIntervalMillis = 60 * 60 * 1000;	// period of spilling idle Customers
+		public static final String ReplicationHost = "localhost";
+		public static final int ReplicationPort = 7390;
+		public static final String ReplicationNodeIdProperty = "se2.nodeId";	// e.g. -Dse2.nodeId=1 for a follower
+		public static final int ReplicationNodeId = Integer.getInteger( ReplicationNodeIdProperty, 0 );	// unique per process, 0..HybridLogicalClock.MaxNodeId
+		public static final int ReplicationLogCapacity = 100_000;
+		public static final long ReplicationBootstrapMillis = 5000;
+		public static final int SnapshotChunkEntities = 16_384;
+		public static final double IdFilterFalsePositiveRate = 0.01;
+		public static final long MaintenanceCheckMillis = 1000;
+		public static final long MaintenanceBytesPerSecond = 16L * 1024 * 1024;
+		public static final String CheckpointDirectory = "checkpoint";
+		public static final long CheckpointChanges = 10_000;
+		public static final long CheckpointIntervalMillis = 10 * 60 * 1000;
+		public static final long CompactionMinGarbageBytes = 1024 * 1024;
+		public static final double CompactionGarbageRatio = 0.5;
+		public static final int HistoryFullVersionInterval = 16;
+		public static final int HistoryMaxVersions = 256;
+		public static final String AuditJournalFile = "audit.journal";
+		public static final int AuditBlockBytes = 64 * 1024;	// journal bytes covered by one index entry
+	}
+
 
 	/*
 	 * Keys used in component configurations.
@@ -1,6 +1,8 @@
 package com.application.se2.components;
 
-import java.util.Properties;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.application.se2.AppConfigurator;
 import com.application.se2.misc.Callback;
@@ -8,14 +10,24 @@ import com.application.se2.misc.Callback;
 
 /**
  * Base class of all component classes providing component configuration
- * information stored as key-value tuples in the configs Properties map.
+ * information stored as key-value tuples.
+ * 
+ * Values are stored in slots of an array indexed by TypedKeys such that they
+ * are read without lookup or lock. References to the logic- and view-parts of
+ * a component are resolved once when they are injected, invoking them costs a
+ * field load.
  * 
  * @author sgra64
  *
  */
 public class ComponentBase {
+	private static final Object[] NoSlots = new Object[ 0 ];
+
+	private volatile Object[] slots = NoSlots;	// configuration values indexed by TypedKey
 
-	private final Properties configs;	// key-value configuration tuples.
+	private volatile ComponentIntf.LogicIntf logic = null;
+
+	private volatile ComponentIntf.ViewIntf view = null;
 
 	/*
 	 * Class to define top-level key name space used to store config properties.
@@ -35,12 +47,85 @@ public class ComponentBase {
 		}
 	}
 
+	/*
+	 * Typed key of a configuration value. Keys are registered once per name and
+	 * hold the index of the slot in which components store values of the key.
+	 * Names used with String-based methods are registered on first configure()
+	 * with type Object.
+	 */
+	public static final class TypedKey<T> {
+		private static final ConcurrentHashMap<String, TypedKey<?>> registry = new ConcurrentHashMap<String, TypedKey<?>>();
+		private static final AtomicInteger nextIndex = new AtomicInteger( 0 );
+
+		public static final TypedKey<String> Name = of( Key.Name, String.class );
+		public static final TypedKey<ComponentIntf.LogicIntf> Logic = of( Key.Logic, ComponentIntf.LogicIntf.class );
+		public static final TypedKey<ComponentIntf.ViewIntf> View = of( Key.View, ComponentIntf.ViewIntf.class );
+
+		private final String name;
+		private final Class<T> type;
+		private final int index;
+
+		private TypedKey( final String name, final Class<T> type ) {
+			this.name = name;
+			this.type = type;
+			this.index = nextIndex.getAndIncrement();
+		}
+
+		/**
+		 * Return key registered for a name, registering it if absent.
+		 * 
+		 * @param <T> type of values stored under key.
+		 * @param name name of key.
+		 * @param type type of values stored under key.
+		 * @return key of name.
+		 * @throws IllegalArgumentException if name is registered with another type.
+		 */
+		public static <T> TypedKey<T> of( final String name, final Class<T> type ) {
+			TypedKey<?> key = registry.computeIfAbsent( name, n -> new TypedKey<T>( n, type ) );
+			if( key.type != type ) {
+				throw new IllegalArgumentException( "key \"" + name + "\" registered for " + key.type.getName() );
+			}
+			@SuppressWarnings("unchecked")
+			TypedKey<T> typedKey = (TypedKey<T>)key;
+			return typedKey;
+		}
+
+		/**
+		 * Return name of key.
+		 * @return name of key.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Return type of values stored under key.
+		 * @return type of values.
+		 */
+		public Class<T> getType() {
+			return type;
+		}
+
+		@Override
+		public String toString() {
+			return name + "<" + type.getSimpleName() + ">";
+		}
+
+		private static TypedKey<?> find( final String name ) {
+			return registry.get( name );
+		}
+
+		private static TypedKey<?> register( final String name ) {
+			TypedKey<?> key = find( name );
+			return key != null? key : of( name, Object.class );
+		}
+	}
+
 
 	/**
 	 * Public constructor.
 	 */
 	public ComponentBase() {
-		this.configs = new Properties();
 	}
 
 
@@ -49,7 +134,7 @@ public class ComponentBase {
 	 * @param view view component injected.
 	 */
 	public void inject( final ComponentIntf.ViewIntf view ) {
-		configs.put( Key.View, view );
+		configure( TypedKey.View, view );
 	}
 
 	/**
@@ -57,7 +142,7 @@ public class ComponentBase {
 	 * @param logic logic component injected.
 	 */
 	public void inject( final ComponentIntf.LogicIntf logic ) {
-		configs.put( Key.Logic, logic );
+		configure( TypedKey.Logic, logic );
 	}
 
 	/**
@@ -73,7 +158,7 @@ public class ComponentBase {
 	 * @param callOut called on ViewIntf.
 	 */
 	public static <T> void viewIntf( final ComponentBase component, final Callback<T> callOut ) {
-		ComponentBase.<T>callIntf( component, Key.View, callOut );
+		ComponentBase.<T>callIntf( component.view, callOut );
 	}
 
 	/**
@@ -85,16 +170,16 @@ public class ComponentBase {
 	 * @param callOut called onLogicIntf.
 	 */
 	public static <T> void logicIntf( final ComponentBase component, final Callback<T> callOut ) {
-		ComponentBase.<T>callIntf( component, Key.Logic, callOut );
+		ComponentBase.<T>callIntf( component.logic, callOut );
 	}
 
 	/*
 	 * Private method used by the methods above.
 	 */
-	private static <T> void callIntf( final ComponentBase instance, final String key, final Callback<T> callOut ) {
-		@SuppressWarnings("unchecked")
-		T intf = (T)instance.get( key );
-		if( intf != null ) {
+	private static <T> void callIntf( final Object ref, final Callback<T> callOut ) {
+		if( ref != null ) {
+			@SuppressWarnings("unchecked")
+			T intf = (T)ref;
 			callOut.apply( intf );
 		}
 	}
@@ -106,6 +191,7 @@ public class ComponentBase {
 	 * @param key key under which value is stored.
 	 * @param value value stored under a key.
 	 * @return this to dot-chain invocations.
+	 * @throws IllegalArgumentException if key is registered for another type of values.
 	 */
 	public ComponentBase configure( final String key, final Object value ) {
 		if( AppConfigurator.Key.TableView.equals( key ) && value != null && value instanceof Object[][] ) {
@@ -116,11 +202,24 @@ public class ComponentBase {
 				}
 			}
 		} else {
-			configs.put( key, value );
+			put( TypedKey.register( key ), value );
 		}
 		return this;
 	}
 
+	/**
+	 * Store a configuration value under a typed key.
+	 * 
+	 * @param <T> type of value.
+	 * @param key key under which value is stored.
+	 * @param value value stored under key, null removes value.
+	 * @return this to dot-chain invocations.
+	 */
+	public <T> ComponentBase configure( final TypedKey<T> key, final T value ) {
+		put( key, value );
+		return this;
+	}
+
 	/**
 	 * Configurations are stored as key-value pairs by all components.
 	 * This method returns a stored a configuration value from a key.
@@ -129,7 +228,22 @@ public class ComponentBase {
 	 * @return value value, if found or null otherwise.
 	 */
 	public Object get( final String key ) {
-		return configs.get( key );
+		TypedKey<?> typedKey = TypedKey.find( key );
+		return typedKey != null? get( typedKey ) : null;
+	}
+
+	/**
+	 * Return configuration value stored under a typed key.
+	 * 
+	 * @param <T> type of value.
+	 * @param key key for which a value is returned.
+	 * @return value, if found or null otherwise.
+	 */
+	public <T> T get( final TypedKey<T> key ) {
+		Object[] s = slots;
+		@SuppressWarnings("unchecked")
+		T value = key.index < s.length? (T)s[ key.index ] : null;		// type checked when stored
+		return value;
 	}
 
 	/**
@@ -139,10 +253,38 @@ public class ComponentBase {
 	 * @return component name stored under Key.Name or null if not present.
 	 */
 	public String getName() {
-		String name = configs.getProperty( Key.Name );
-		name = name != null? name : configs.getProperty( AppConfigurator.Key.Label );
+		String name = get( TypedKey.Name );
+		Object label = get( AppConfigurator.Key.Label );
+		name = name != null? name : label instanceof String? (String)label : null;
 		name = name != null? name : this.getClass().getSimpleName() + "." + this.hashCode();	// String.valueOf( this );
 		return name;
 	}
 
+
+	/*
+	 * Private methods.
+	 */
+
+	/*
+	 * Values are stored in place, slots are only copied when a key with a higher
+	 * index is stored. Publishing slots again makes the value visible to readers.
+	 * Logic- and view-parts are also kept in fields read by logicIntf(), viewIntf().
+	 */
+	private synchronized void put( final TypedKey<?> key, final Object value ) {
+		if( value != null && ! key.type.isInstance( value ) ) {
+			throw new IllegalArgumentException( "value of " + value.getClass().getName() + " for key " + key );
+		}
+		Object[] s = slots;
+		if( key.index >= s.length ) {
+			s = Arrays.copyOf( s, Math.max( key.index + 1, TypedKey.nextIndex.get() ) );
+		}
+		s[ key.index ] = value;
+		slots = s;
+		if( key == TypedKey.Logic ) {
+			logic = (ComponentIntf.LogicIntf)value;
+		} else if( key == TypedKey.View ) {
+			view = (ComponentIntf.ViewIntf)value;
+		}
+	}
+
 }
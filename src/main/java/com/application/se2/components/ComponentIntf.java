@@ -63,6 +63,27 @@ public interface ComponentIntf {
 		 */
 		public void refreshView();
 
+		/**
+		 * Refresh table view after a data item has been inserted or updated. Only
+		 * the row of the data item is refreshed by views that keep rows by id.
+		 * 
+		 * @param entity inserted or updated data item.
+		 * @param updates updated values of the data item.
+		 */
+		public default void refreshView( Entity entity, EntityPropertyUpdateSet updates ) {
+			refreshView();
+		}
+
+		/**
+		 * Refresh table view after data items have been removed from the source.
+		 * Only rows of removed data items are removed by views that keep rows by id.
+		 * 
+		 * @param removed id's of removed data items.
+		 */
+		public default void refreshRemoved( List<String> removed ) {
+			refreshView();
+		}
+
 	}
 
 
@@ -4,32 +4,49 @@ import com.application.se2.AppConfigurator.Table.Column;
 import com.application.se2.misc.EntityProperty;
 
 
+/**
+ * Immutable column of a compiled TableViewConfig. Label, css-id, widths and
+ * popup settings are resolved from the column configuration once.
+ * 
+ * @author sgra64
+ *
+ */
 class TableColumnProperty extends EntityProperty {
-	private int minColumnWidth = 50;
-	private int maxColumnWidth = 200;
-	private boolean editable = true;
-	private TableViewConfig popUpTableViewConfig = null;
+	private static final int DefaultMinColumnWidth = 50;
+	private static final int DefaultMaxColumnWidth = 200;
 
+	private final String label;
+	private final String cssId;
+	private final int minColumnWidth;
+	private final int maxColumnWidth;
+	private final boolean editable;
+	private final TableViewConfig popUpTableViewConfig;
+	private final String popUpButtonLabel;
+	private final int popUpShowAsText;
 
-	public TableColumnProperty( TableViewConfig tv, EntityProperty property ) {
+
+	TableColumnProperty( EntityProperty property ) {
 		super( property );
-		setColumnWidths( (String)property.getConfig( Column.COL_WIDTH ) );
+		this.label = (String)property.getConfig( Column.COL_LABEL );
+		String cssId = (String)property.getConfig( Column.COL_CSSID );
+		this.cssId = cssId == null? ( label == null? "default" : label ).toLowerCase() : cssId;
+		String widths = (String)property.getConfig( Column.COL_WIDTH );
+		this.minColumnWidth = parseColumnWidth( widths, "min", DefaultMinColumnWidth );
+		this.maxColumnWidth = parseColumnWidth( widths, "max", DefaultMaxColumnWidth );
 		Object val = property.getConfig( Column.COL_EDITABLE );
-		if( val != null ) {
-			this.editable = (boolean)val;
-		}
+		this.editable = val != null? (boolean)val : true;
 		this.popUpTableViewConfig = (TableViewConfig)property.getConfig( Column.POPUP_VIEW );
+		this.popUpButtonLabel = (String)property.getConfig( Column.POPUP_BUTTON_LABEL );
+		Object no = property.getConfig( Column.POPUP_BUTTON_SHOW_AS_TEXT );
+		this.popUpShowAsText = no != null? (int)no : 0;
 	}
 
 	public String getLabel() {
-		return (String)getConfig( Column.COL_LABEL );
+		return label;
 	}
 
 	public String getCssId() {
-		String cssId = (String)getConfig( Column.COL_CSSID );
-		String label = getLabel();
-		String ret = cssId == null? ( label == null? "default" : label ).toLowerCase() : cssId;
-		return ret;
+		return cssId;
 	}
 
 	public int getMinColumnWidth() {
@@ -39,6 +56,7 @@ class TableColumnProperty extends EntityProperty {
 	public int getMaxColumnWidth() {
 		return maxColumnWidth;
 	}
+
 	public boolean isEditable() {
 		return editable;
 	}
@@ -47,29 +65,36 @@ class TableColumnProperty extends EntityProperty {
 		return popUpTableViewConfig;
 	}
 
+	public String getPopUpButtonLabel() {
+		return popUpButtonLabel;
+	}
+
+	public int getPopUpShowAsText() {
+		return popUpShowAsText;
+	}
+
 
 	/*
 	 * Private methods.
 	 */
 
-	private void setColumnWidths( String parse ) {
+	private static int parseColumnWidth( String parse, String name, int defaultWidth ) {
 		// example parse string: "min: 50; max: 200;"
-		for( String s1 : parse.split( ";" ) ) {
-			String[] p = s1.split( ":" );
-			if( p != null && p.length >= 2 ) {
-				try {
-					if( p[0].trim().toLowerCase().startsWith( "min" ) ) {
-						this.minColumnWidth = Integer.parseInt( p[1].trim() );
-					}
-					if( p[0].trim().toLowerCase().startsWith( "max" ) ) {
-						this.maxColumnWidth = Integer.parseInt( p[1].trim() );
-					}
+		int width = defaultWidth;
+		if( parse != null ) {
+			for( String s1 : parse.split( ";" ) ) {
+				String[] p = s1.split( ":" );
+				if( p.length >= 2 && p[0].trim().toLowerCase().startsWith( name ) ) {
+					try {
+						width = Integer.parseInt( p[1].trim() );
 
-				} catch( NumberFormatException nfe ) {
-					//ignore and use default values
+					} catch( NumberFormatException nfe ) {
+						//ignore and use default values
+					}
 				}
 			}
 		}
+		return width;
 	}
 
 }
@@ -3,7 +3,10 @@ package com.application.se2.fxgui;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.application.se2.misc.EntityProperty;
 import com.application.se2.misc.EntityPropertyAccessor;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.LazyList;
 import com.application.se2.misc.Traceable;
 
 import javafx.beans.property.ListProperty;
@@ -18,12 +21,25 @@ class TableItem {
 	private static final StringProperty defaultProperty = new SimpleStringProperty( " - " );
 
 	private final TableViewImpl fxTableView;
-	private final Traceable primary;
+	private final TableViewConfig config;
+	private Traceable primary;
 	private final List<Property<?>> propertyValues;
 
 
 	TableItem( final Traceable primary, final TableViewImpl fxTableView ) {
+		this( primary, fxTableView, fxTableView.getTableViewConfig() );
+	}
+
+	/*
+	 * Row that is not shown by a TableView, e.g. to reconcile rows without a TableView.
+	 */
+	TableItem( final Traceable primary, final TableViewConfig config ) {
+		this( primary, null, config );
+	}
+
+	private TableItem( final Traceable primary, final TableViewImpl fxTableView, final TableViewConfig config ) {
 		this.fxTableView = fxTableView;
+		this.config = config;
 		this.primary = primary;	//new PrimaryObject( e, parentTableItem == null? null : parentTableItem.getPrimaryObject() );
 		this.propertyValues = new ArrayList<Property<?>>();
 		serialize();
@@ -41,31 +57,106 @@ class TableItem {
 		return primary;
 	}
 
+	/**
+	 * Re-read all property values from the primary object.
+	 * @return true if cells must be redrawn, e.g. after a list column has been refreshed.
+	 */
+	boolean refresh() {
+		return serialize();
+	}
+
+	/**
+	 * Replace the primary object by another instance of the same entity, e.g. one loaded
+	 * again from a repository tier, and re-read all property values from it. The row
+	 * keeps its position and selection.
+	 * 
+	 * @param primary primary object that replaces the current primary object.
+	 * @return true if cells must be redrawn, e.g. after a list column has been refreshed.
+	 */
+	boolean refresh( final Traceable primary ) {
+		this.primary = primary;
+		return serialize();
+	}
+
+	/**
+	 * Re-read only values of properties contained in an update set. Updates of objects
+	 * nested in the primary object refresh the column of the property that holds them.
+	 * 
+	 * @param updates updates applied to the primary object or to a nested object.
+	 * @return true if cells must be redrawn, e.g. after a list column has been refreshed.
+	 */
+	boolean refresh( final EntityPropertyUpdateSet updates ) {
+		EntityPropertyAccessor properties = config.getProperties();
+		Object obj = primary.getRootObject();
+		Traceable t = updates.getRootObject();
+		while( t != null && t.getRootObject() != obj && t.hasParent() && t.getParent().getRootObject() != obj ) {
+			t = t.getParent();
+		}
+		boolean[] redraw = { false };
+		if( t == null || t.getRootObject() == obj ) {
+			updates.iterateUpdatedProperties( ( p, before, after ) -> {
+				redraw[ 0 ] |= serialize( properties, obj, config.indexOf( p.getName() ) );
+			});
+
+		} else if( t.hasParent() ) {
+			redraw[ 0 ] = serialize( properties, obj, config.indexOf( t.getParentProperty().getName() ) );
+
+		} else {
+			redraw[ 0 ] = serialize();	// update of an unrelated object
+		}
+		return redraw[ 0 ];
+	}
+
 
 	/*
 	 * Private methods.
 	 */
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private void serialize() {
-		EntityPropertyAccessor properties = fxTableView.getTableViewConfig().getProperties();
-
+	private boolean serialize() {
+		EntityPropertyAccessor properties = config.getProperties();
+		Object obj = primary.getRootObject();
+		boolean redraw = false;
 		for( int i = 0; i < properties.size(); i++ ) {
-			Object val = properties.getPropertyValue( primary.getRootObject(), i );
+			redraw |= serialize( properties, obj, i );
+		}
+		return redraw;
+	}
 
-			if( propertyValues.size() <= i ) {
-				propertyValues.add( List.class.isAssignableFrom( val.getClass() )?
-					new SimpleListProperty<>() : new SimpleStringProperty()
-				);
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private boolean serialize( final EntityPropertyAccessor properties, final Object obj, final int i ) {
+		if( i < 0 || i >= properties.size() ) {
+			return false;
+		}
+		// values are read by generated accessors, if present, or through FieldAccessors
+		EntityProperty p = properties.getProperty( i );
+		List<?> val = p.isCollectionType()? p.getList( obj ) : null;
+
+		Property<?> current = indexInRange( propertyValues, i )? propertyValues.get( i ) : null;
+		boolean replaced = false;
+		if( current == null || ( val != null ) != ( current instanceof SimpleListProperty ) ) {
+			current = val != null? new SimpleListProperty<>() : new SimpleStringProperty();
+			replaced = propertyValues.size() > i;
+			if( replaced ) {
+				propertyValues.set( i, current );	// cells fetch the new property when redrawn
+			} else {
+				propertyValues.add( current );
 			}
+		}
 
-			if( val instanceof List ) {
-				ListProperty<?> list = ((SimpleListProperty<?>)propertyValues.get( i ));
-				list.set( FXCollections.observableArrayList( ((List)val) ) );
+		if( val != null ) {
+			ListProperty<?> list = ((SimpleListProperty<?>)current);
+			if( val instanceof LazyList && ! ((LazyList<?>)val).isLoaded() ) {
+				// wrap without copying, elements are loaded when a popup shows them
+				list.set( FXCollections.observableList( ((List)val) ) );
 
 			} else {
-				((SimpleStringProperty)propertyValues.get( i )).setValue( val.toString() );
+				list.set( FXCollections.observableArrayList( ((List)val) ) );
 			}
+			return true;
+
+		} else {
+			((SimpleStringProperty)current).setValue( p.getString( obj ) );
+			return replaced;
 		}
 	}
 
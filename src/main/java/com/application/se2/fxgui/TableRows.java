@@ -0,0 +1,131 @@
+package com.application.se2.fxgui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.Traceable;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Rows of a TableView matched with entities by id. Rows of entities that remain
+ * in the view are kept and refreshed, also when the entity has been replaced by
+ * another instance (e.g. loaded again from a repository tier), such that rows
+ * keep their position and selection.
+ *
+ * Rows are kept in the items list of the TableView, new rows are created by the
+ * row factory.
+ *
+ * @author sgra64
+ *
+ */
+final class TableRows {
+	private final List<TableItem> items;
+	private final Function<Traceable,TableItem> rowFactory;
+	private final Map<String,TableItem> rows = new HashMap<String,TableItem>();	// rows by entity id
+
+
+	/**
+	 * Package-private constructor.
+	 *
+	 * @param items items list of the TableView, e.g. an ObservableList.
+	 * @param rowFactory creates the row of an entity that is not yet shown.
+	 */
+	TableRows( final List<TableItem> items, final Function<Traceable,TableItem> rowFactory ) {
+		this.items = items;
+		this.rowFactory = rowFactory;
+	}
+
+	/**
+	 * Reconcile rows with loaded entities by id. Rows of entities that are no longer
+	 * loaded are removed, rows of new entities are appended.
+	 *
+	 * @param loaded entities shown in the view.
+	 * @return true if cells must be redrawn, e.g. after a list column has been refreshed.
+	 */
+	boolean refresh( final Iterable<? extends Entity> loaded ) {
+		Map<String,TableItem> remaining = new HashMap<String,TableItem>();
+		List<TableItem> inserted = new ArrayList<TableItem>();
+		boolean redraw = false;
+		for( Entity e : loaded ) {
+			TableItem ti = rows.get( e.getId() );
+			if( ti != null && ti.getPrimaryObject().getRootObject() == e ) {
+				redraw |= ti.refresh();
+
+			} else if( ti != null ) {
+				redraw |= ti.refresh( new Traceable( e ) );	// another instance of the entity, e.g. loaded from cold tier
+
+			} else {
+				ti = rowFactory.apply( new Traceable( e ) );
+				inserted.add( ti );
+			}
+			remaining.put( e.getId(), ti );
+		}
+		items.removeIf( ti -> remaining.get( idOf( ti ) ) != ti );
+		items.addAll( inserted );
+		rows.clear();
+		rows.putAll( remaining );
+		return redraw;
+	}
+
+	/**
+	 * Refresh the row of an updated entity, appends a row if the entity is not shown.
+	 *
+	 * @param entity updated entity.
+	 * @param updates updates applied to the entity or to an object nested in it.
+	 * @return true if cells must be redrawn, e.g. after a list column has been refreshed.
+	 */
+	boolean refresh( final Entity entity, final EntityPropertyUpdateSet updates ) {
+		TableItem ti = rows.get( entity.getId() );
+		if( ti != null && ti.getPrimaryObject().getRootObject() == entity ) {
+			// only updated properties are re-read, cells bound to them are updated
+			return ti.refresh( updates );
+
+		} else if( ti != null ) {
+			// entity has been replaced by another instance, row keeps position and selection
+			return ti.refresh( new Traceable( entity ) );
+
+		} else {
+			TableItem inserted = rowFactory.apply( new Traceable( entity ) );
+			rows.put( entity.getId(), inserted );
+			items.add( inserted );
+			return false;
+		}
+	}
+
+	/**
+	 * Remove rows of removed entities.
+	 *
+	 * @param removed ids of removed entities.
+	 */
+	void remove( final List<String> removed ) {
+		Set<TableItem> rowsRemoved = new HashSet<TableItem>();
+		for( String id : removed ) {
+			TableItem ti = rows.remove( id );
+			if( ti != null ) {
+				rowsRemoved.add( ti );
+			}
+		}
+		if( rowsRemoved.size() > 0 ) {
+			items.removeAll( rowsRemoved );	// one change event
+		}
+	}
+
+	/**
+	 * Return id of the entity shown in a row.
+	 *
+	 * @param ti row.
+	 * @return id of the entity shown in the row.
+	 */
+	static String idOf( final TableItem ti ) {
+		Object obj = ti.getPrimaryObject().getRootObject();
+		return obj instanceof Entity? ((Entity)obj).getId() : String.valueOf( obj.hashCode() );
+	}
+
+}
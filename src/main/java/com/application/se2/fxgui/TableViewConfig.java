@@ -1,29 +1,74 @@
 package com.application.se2.fxgui;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import com.application.se2.AppConfigurator;
 import com.application.se2.AppConfigurator.Table;
 import com.application.se2.AppConfigurator.Table.Column;
 import com.application.se2.components.ComponentBase;
+import com.application.se2.components.ComponentBase.TypedKey;
 import com.application.se2.misc.Callback;
 import com.application.se2.misc.EntityProperty;
 import com.application.se2.misc.EntityPropertyAccessor;
 
 
-class TableViewConfig extends ComponentBase {
-	private final ComponentBase parent;
+/**
+ * Immutable model of a TableView compiled once from the key-value configuration
+ * of a component (see AppConfigurator): label, css-id, properties of the Entity
+ * class shown in the table and one TableColumnProperty per column with parsed
+ * widths, css-id and the model of a popup view, if the column has one.
+ * 
+ * Models are stored in the component under the key Compiled and shared by all
+ * views and popups created from the same configuration.
+ * 
+ * @author sgra64
+ *
+ */
+final class TableViewConfig {
+	static final TypedKey<TableViewConfig> Compiled =
+		TypedKey.of( ComponentBase.Key.KEY( TableViewConfig.class, "compiled" ), TableViewConfig.class );
+
+	private final String label;
+	private final String cssId;
 	private final EntityPropertyAccessor propertyList;
+	private final List<TableColumnProperty> columns;
+	private final Map<String,Integer> columnIndex;
 
-	TableViewConfig( ComponentBase proto ) {
-		this.parent = proto;
 
-		Class<?> clazz = (Class<?>) get( Table.CLASS );
+	/**
+	 * Return model compiled from the configuration of a component, compiles and
+	 * stores model in component on first call.
+	 * 
+	 * @param component component with TableView configuration.
+	 * @return compiled model.
+	 */
+	static TableViewConfig of( final ComponentBase component ) {
+		TableViewConfig config = component.get( Compiled );
+		if( config == null ) {
+			config = new TableViewConfig( component );
+			component.configure( Compiled, config );
+		}
+		return config;
+	}
+
+
+	private TableViewConfig( final ComponentBase proto ) {
+		this.label = (String)proto.get( Table.LABEL );
+		this.cssId = (String)proto.get( Table.CSSID );
+		List<TableColumnProperty> columns = new ArrayList<TableColumnProperty>();
+		Map<String,Integer> columnIndex = new HashMap<String,Integer>();
+
+		Class<?> clazz = (Class<?>)proto.get( Table.CLASS );
 		if( clazz != null ) {
-			Object[][][] columns = (Object[][][])get( Table.COLUMNS );
+			Object[][][] columnConfigs = (Object[][][])proto.get( Table.COLUMNS );
 			propertyList = new EntityPropertyAccessor( clazz );
 
-			for( Object[][] colConfigs : columns ) {
+			for( Object[][] colConfigs : columnConfigs ) {
 				String propertyName = (String)find( Column.MATCHFIELD, colConfigs );
 
 				EntityProperty property = propertyList.addProperty( propertyName );
@@ -34,12 +79,9 @@ class TableViewConfig extends ComponentBase {
 						Object value = keyFilter[ 1 ];
 
 						if( key.equals( Column.POPUP_VIEW ) ) {
-							Object[][] configs2 = (Object[][])value;
-							ComponentBase newConfig = new ComponentBase();
-							newConfig.configure( AppConfigurator.Key.TableView, configs2 );
-							TableViewConfig tv2 = new TableViewConfig( newConfig );
-							value = tv2;
-							property.putConfig( key, value );
+							ComponentBase popUpConfig = new ComponentBase();
+							popUpConfig.configure( AppConfigurator.Key.TableView, (Object[][])value );
+							property.putConfig( key, of( popUpConfig ) );	// nested model compiled once
 							return false;
 						}
 						return true;
@@ -51,38 +93,47 @@ class TableViewConfig extends ComponentBase {
 					});
 				}
 			}
+			for( EntityProperty property : propertyList.getList() ) {
+				columnIndex.put( property.getName(), columns.size() );
+				columns.add( new TableColumnProperty( property ) );
+			}
 
 		} else {
 			propertyList = null;
 		}
+		this.columns = Collections.unmodifiableList( columns );
+		this.columnIndex = columnIndex;
 	}
 
 	public String getLabel() {
-		return (String)this.parent.get( Table.LABEL );
+		return label;
 	}
 
 	public String getCssId() {
-		return (String)this.parent.get( Table.CSSID );
+		return cssId;
 	}
 
 	public EntityPropertyAccessor getProperties() {
 		return propertyList;
 	}
 
-
-	@Override
-	public ComponentBase configure( final String key, final Object value ) {
-		return this.parent.configure( key, value );
+	public List<TableColumnProperty> getColumns() {
+		return columns;
 	}
 
-	@Override
-	public Object get( String key ) {
-		return this.parent.get( key );
+	public TableColumnProperty getColumn( final int i ) {
+		return columns.get( i );
 	}
 
-	@Override
-	public String getName() {
-		return this.parent.getName();
+	/**
+	 * Return index of the column that shows a property.
+	 * 
+	 * @param propertyName name of property.
+	 * @return column index, -1 if property is not shown.
+	 */
+	public int indexOf( final String propertyName ) {
+		Integer i = columnIndex.get( propertyName );
+		return i != null? i : -1;
 	}
 
 
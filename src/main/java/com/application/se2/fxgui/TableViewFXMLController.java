@@ -10,7 +10,8 @@ import java.util.function.Function;
 
 import com.application.se2.components.ComponentBase;
 import com.application.se2.components.ComponentIntf;
-import com.application.se2.components.ComponentBase.Key;
+import com.application.se2.components.ComponentBase.TypedKey;
+import com.application.se2.misc.EntityPropertyUpdateSet;
 import com.application.se2.misc.Logger;
 import com.application.se2.misc.Traceable;
 import com.application.se2.model.Entity;
@@ -34,6 +35,8 @@ public class TableViewFXMLController implements ComponentIntf.TableViewIntf, FXC
 
 	private Optional<TableViewImpl> fxTableView = Optional.empty();
 
+	private TableRows rows = null;		// rows matched with entities by id
+
 
 	@FXML
 	public AnchorPane fxTableView_AnchorPane;
@@ -98,9 +101,7 @@ public class TableViewFXMLController implements ComponentIntf.TableViewIntf, FXC
 			ObservableList<TableItem> selection = fxTableView_TableView.getSelectionModel().getSelectedItems();
 			if( selection.size() > 0 ) {
 				for( TableItem ti : selection ) {
-					Object obj = ti.getPrimaryObject().getRootObject();
-					String id = obj instanceof Entity? ((Entity)obj).getId() : String.valueOf( obj.hashCode() );
-					ids.add( id );
+					ids.add( TableRows.idOf( ti ) );
 				}
 				fxTableView_TableView.getSelectionModel().clearSelection();
 
@@ -120,11 +121,11 @@ public class TableViewFXMLController implements ComponentIntf.TableViewIntf, FXC
 
 	@Override
 	public void inject( ComponentBase component ) {
-		Object logic = component.get( Key.Logic );
+		Object logic = component.get( TypedKey.Logic );
 		if( logic != null && logic instanceof CRUDLogicIntf ) {
 			this.logic = Optional.of( (CRUDLogicIntf)logic );
 		}
-		TableViewConfig tableViewConfig = new TableViewConfig( component );
+		TableViewConfig tableViewConfig = TableViewConfig.of( component );
 		TableViewImpl fxTableView = new TableViewImpl( tableViewConfig, fxTableView_TableView, this.logic.isPresent()? this.logic.get() : null );
 		this.fxTableView = Optional.of( fxTableView );
 	}
@@ -177,26 +178,41 @@ public class TableViewFXMLController implements ComponentIntf.TableViewIntf, FXC
 
 		ObservableList<TableItem> items = FXCollections.observableArrayList();
 		fxTableView_TableView.setItems( items );
+		rows = new TableRows( items, primary -> new TableItem( primary, fxTableView.get() ) );
 		refreshView();
 	}
 
 	@Override
 	public void refreshView() {
-		ObservableList<TableItem> items = fxTableView_TableView.getItems();
-
-		items.clear();
+		// reconcile loaded entities with rows by id, rows that remain keep selection and scroll position
+		List<Entity> loaded = new ArrayList<Entity>();
 		logic.ifPresent( logic -> {
 			fxTableView.ifPresent( fxTableView -> {
 				for( Entity e : logic.findAll( "*", 1000 ) ) {
-					TableItem ti = new TableItem( new Traceable( e ), fxTableView );
-					items.add( ti );
+					loaded.add( e );
 
 					logger.log( LoggerTopics.RepositoryLoaded, null, e );
 				}
 			});
 		});
+		if( rows.refresh( loaded ) ) {
+			fxTableView_TableView.refresh();
+		}
+	}
+
+	@Override
+	public void refreshView( final Entity entity, final EntityPropertyUpdateSet updates ) {
+		fxTableView.ifPresent( fxTableView -> {
+			if( rows.refresh( entity, updates ) ) {
+				// list columns are drawn by cells not bound to properties, redraws visible rows only
+				fxTableView_TableView.refresh();
+			}
+		});
+	}
 
-		fxTableView_TableView.refresh();
+	@Override
+	public void refreshRemoved( final List<String> removed ) {
+		rows.remove( removed );
 	}
 
 
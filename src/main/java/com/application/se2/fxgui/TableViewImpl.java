@@ -5,7 +5,6 @@ import static com.application.se2.AppConfigurator.LoggerTopics;
 import java.util.HashSet;
 import java.util.Set;
 
-import com.application.se2.AppConfigurator.Table.Column;
 import com.application.se2.components.ComponentIntf.CRUDLogicIntf;
 import com.application.se2.misc.EntityProperty;
 import com.application.se2.misc.Logger;
@@ -35,17 +34,17 @@ class TableViewImpl {
 		this.tableViewConfig = config;
 		int columns = tableViewConfig.getProperties().size();
 		fxTableView_TableView.setId( tableViewConfig.getCssId() );	// set .css-#id for TableView
-		logger.log( LoggerTopics.CSSLoaded, "TableView css-setId( " + tableViewConfig.getCssId() + " )");
+		logger.log( LoggerTopics.CSSLoaded, "TableView css-setId( {} )", tableViewConfig.getCssId() );
 
 		for( int i = 0; i < columns; i++ ) {
 			EntityProperty prop = tableViewConfig.getProperties().getProperty( i );	//config.getPropertyConfig( i );
-			TableColumnProperty tableColProp = new TableColumnProperty( config, prop );
+			TableColumnProperty tableColProp = tableViewConfig.getColumn( i );		// compiled once, shared by views
 
 			TableColumn<TableItem,String> tableCol = new TableColumn<>();
 			fxTableView_TableView.getColumns().add( tableCol );
 			tableCol.setText( tableColProp.getLabel() );
 			tableCol.setId( tableColProp.getCssId() );		// set .css-#id for table column
-			logger.log( LoggerTopics.CSSLoaded, "TableCol css-setId( " + tableColProp.getCssId() + " )" );
+			logger.log( LoggerTopics.CSSLoaded, "TableCol css-setId( {} )", tableColProp.getCssId() );
 
 			//if( ep.style != null && ep.style.length() > 0 ) {
 			//	tableCol.getStyleClass().add( ep.style_cls );
@@ -103,10 +102,9 @@ class TableViewImpl {
 
 								Button btn = null;
 								//btn.getStyleClass().add( "tableview-customer" + "-column-button" );
-								String button_label = (String)prop.getConfig( Column.POPUP_BUTTON_LABEL );
+								String button_label = tableColProp.getPopUpButtonLabel();
 								int listSize = propertyList.getSize();
-								Object no = prop.getConfig( Column.POPUP_BUTTON_SHOW_AS_TEXT );
-								int n = no != null? (int)no : 0;
+								int n = tableColProp.getPopUpShowAsText();
 								int nListSize = listSize;
 								String showDirect = "";
 								if( n >= 0 ) {
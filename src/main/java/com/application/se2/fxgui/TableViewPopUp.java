@@ -101,7 +101,7 @@ class TableViewPopUp extends Stage {
 		fxTableView_TableView.getStylesheets().addAll( styleSheets );
 
 		fxTableView_TableView.setId( styleId );
-		logger.log( LoggerTopics.CSSLoaded, "TableViewPopUp css-setId( " + styleId + " )" );
+		logger.log( LoggerTopics.CSSLoaded, "TableViewPopUp css-setId( {} )", styleId );
 
 		this.scene = new Scene( layout );
 		this.setScene( this.scene );
@@ -57,14 +57,14 @@ class TableViewUpdateForm extends Stage {
 		TextField[] textFields = new TextField[ len ];
 		GridPane gp = new GridPane();
 
-		EntityPropertyUpdateSet updateSet = new EntityPropertyUpdateSet( ti.getPrimaryObject() );
+		EntityPropertyUpdateSet updateSet = new EntityPropertyUpdateSet( ti.getPrimaryObject(), len );
 
 		for( int i = 0; i < len; i++ ) {
 			// show only fields of base types in update form, not List<?> fields.
 			EntityProperty prop = props.getProperty( i );
 			boolean showFieldForUpdate = prop.isAlterableBaseType();
 
-			TableColumnProperty tcprop = new TableColumnProperty( tvc, prop );
+			TableColumnProperty tcprop = tvc.getColumn( i );
 			Object cellVal = props.getPropertyValue( updatable.getRootObject(), i );
 
 			if( prop.isCollectionType() ) {
@@ -131,19 +131,12 @@ public class ArticleCatalog implements ArticleCatalogComp.LogicIntf {
 
 		logger.log( LoggerTopics.EntityCRUD, "Update ", Article.class.getSimpleName(), ": ", customer.getId() );
 
-		updates.iterateUpdatedProperties( ( p, s ) -> {
-			//Property property = parentProperty==null? p : parentProperty;
-			//String propertyName = property.getName();
-			//String beforeValue = s[ 0 ];
-			String newValue = s[ 1 ];
-
-			p.setValue( customer, newValue );
-		});
+		updates.apply( customer );
 
 		component.invokeRepository( repository -> {
-			repository.save( customer );
+			repository.save( customer, updates );
 			ComponentBase.<ComponentIntf.TableViewIntf>viewIntf( component, view -> {
-				view.refreshView();
+				view.refreshView( customer, updates );
 			});
 			return null;
 		});
@@ -170,7 +163,7 @@ public class ArticleCatalog implements ArticleCatalogComp.LogicIntf {
 			}
 			repository.deleteAllById( selection );
 			ComponentBase.<ComponentIntf.TableViewIntf>viewIntf( component, view -> {
-				view.refreshView();
+				view.refreshRemoved( selection );
 			});
 			return null;
 		});
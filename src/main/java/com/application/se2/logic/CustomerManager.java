@@ -135,11 +135,9 @@ public class CustomerManager implements CustomerManagerComp.LogicIntf {
 
 		logger.log( LoggerTopics.EntityCRUD, "Update ", Customer.class.getSimpleName(), ": ", customer.getId() );
 
-		updates.iterateUpdatedProperties( ( p, s ) -> {
+		updates.iterateUpdatedProperties( ( p, beforeValue, newValue ) -> {
 			EntityProperty property = parentProperty==null? p : parentProperty;
 			String propertyName = property.getName();
-			String beforeValue = s[ 0 ];
-			String newValue = s[ 1 ];
 
 			switch( propertyName ) {
 
@@ -187,9 +185,9 @@ public class CustomerManager implements CustomerManagerComp.LogicIntf {
 		});
 
 		component.invokeRepository( repository -> {
-			repository.save( customer );
+			repository.save( customer, updates );
 			ComponentBase.<ComponentIntf.TableViewIntf>viewIntf( component, view -> {
-				view.refreshView();
+				view.refreshView( customer, updates );
 			});
 			return null;
 		});
@@ -216,7 +214,7 @@ public class CustomerManager implements CustomerManagerComp.LogicIntf {
 			}
 			repository.deleteAllById( selection );
 			ComponentBase.<ComponentIntf.TableViewIntf>viewIntf( component, view -> {
-				view.refreshView();
+				view.refreshRemoved( selection );
 			});
 			return null;
 		});
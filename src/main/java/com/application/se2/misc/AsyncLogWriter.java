@@ -0,0 +1,438 @@
+package com.application.se2.misc;
+
+import static com.application.se2.AppConfigurator.LoggerOverflow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.application.se2.AppConfigurator.LoggerParams;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Asynchronous writer of log lines shared by all Logger instances. Logging threads
+ * only put entries into a preallocated ring buffer, a single background thread
+ * formats entries and appends them in batches to the log file through a FileChannel.
+ * The log file is rotated when it exceeds a size, e.g. "repository_updates.log" is
+ * renamed to "repository_updates.log.1" and older files are shifted up to a number
+ * of backup files.
+ *
+ * Entries are structured: a message template and arguments that are rendered by
+ * the writer thread, each "{}" in the template is replaced by the next argument
+ * and remaining arguments are appended. Arguments are rendered with toString(),
+ * Traceables by their root object and Entities by their id. Arguments should not
+ * be altered after they have been logged.
+ *
+ * The ring buffer is a bounded multi-producer, single-consumer queue: producers
+ * claim a slot by incrementing the tail with compare-and-set and publish it by
+ * advancing the slot's sequence number, the writer consumes slots in order. When
+ * the buffer is full, entries are dropped (and the number of dropped entries is
+ * logged later) or the logging thread waits for the writer, see LoggerOverflow.
+ *
+ * @author sgra64
+ *
+ */
+class AsyncLogWriter {
+	private static final DateTimeFormatter TimeFormat =
+		DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss.SSS'ms'" ).withZone( ZoneId.systemDefault() );
+
+	private static final Object[] NoArgs = new Object[ 0 ];
+
+	private static final int BatchBytes = 64 * 1024;
+
+	private static final long IdleParkNanos = 50_000_000L;		// writer checks for entries at least every 50ms
+
+	private final Path file;
+
+	private final long maxFileBytes;
+
+	private final int backupFiles;
+
+	private final LoggerOverflow overflow;
+
+	private final int mask;
+
+	private final AtomicLongArray sequence;		// slot i is free for position p if sequence[i] == p, published if p + 1
+
+	private final long[] times;
+
+	private final String[] levels;
+
+	private final String[] sources;
+
+	private final String[] templates;
+
+	private final Object[][] args;
+
+	private final long[] numbers;		// primitive argument, not boxed
+
+	private final int[] numberIndex;	// position of primitive argument among arguments, -1 if none
+
+	private final AtomicLong tail = new AtomicLong();	// next position claimed by producers
+
+	private long head = 0;		// next position consumed by writer, only accessed by writer thread
+
+	private volatile long written = 0;	// entries before this position have been written to the file
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean idle = false;
+
+	private volatile boolean closed = false;
+
+	private final Thread writer;
+
+	private FileChannel channel;
+
+	private long fileBytes;
+
+
+	/*
+	 * Shared instance created on first use, lazy holder.
+	 */
+	private static class Shared {
+		private static final AsyncLogWriter instance = new AsyncLogWriter(
+			Paths.get( LoggerParams.LogFile ), LoggerParams.LogBufferCapacity,
+			LoggerParams.LogMaxFileBytes, LoggerParams.LogBackupFiles, LoggerParams.LogOverflow
+		);
+		static {
+			Runtime.getRuntime().addShutdownHook( new Thread( instance::close, "log-writer-shutdown" ) );
+		}
+	}
+
+
+	/**
+	 * Return writer shared by all Logger instances.
+	 *
+	 * @return shared writer.
+	 */
+	static AsyncLogWriter shared() {
+		return Shared.instance;
+	}
+
+
+	/**
+	 * Package-local constructor, starts the writer thread.
+	 *
+	 * @param file log file, appended to if it exists.
+	 * @param capacity capacity of the ring buffer, rounded up to a power of two.
+	 * @param maxFileBytes size after which the log file is rotated.
+	 * @param backupFiles number of rotated files that are kept.
+	 * @param overflow policy when the ring buffer is full.
+	 */
+	AsyncLogWriter( final Path file, final int capacity, final long maxFileBytes, final int backupFiles, final LoggerOverflow overflow ) {
+		int cap = Integer.highestOneBit( Math.max( 2, capacity ) - 1 ) << 1;
+		this.file = file;
+		this.maxFileBytes = maxFileBytes;
+		this.backupFiles = Math.max( 0, backupFiles );
+		this.overflow = overflow;
+		this.mask = cap - 1;
+		this.sequence = new AtomicLongArray( cap );
+		for( int i = 0; i < cap; i++ ) {
+			sequence.set( i, i );
+		}
+		this.times = new long[ cap ];
+		this.levels = new String[ cap ];
+		this.sources = new String[ cap ];
+		this.templates = new String[ cap ];
+		this.args = new Object[ cap ][];
+		this.numbers = new long[ cap ];
+		this.numberIndex = new int[ cap ];
+		this.writer = new Thread( this::run, "log-writer" );
+		this.writer.setDaemon( true );
+		this.writer.start();
+	}
+
+
+	/**
+	 * Put log entry into ring buffer, never waits for the file to be written.
+	 *
+	 * @param level log level, e.g. "INFO".
+	 * @param source name of the logging class.
+	 * @param msg log message.
+	 * @return true if entry was accepted, false if it was dropped.
+	 */
+	boolean append( final String level, final String source, final String msg ) {
+		return append( level, source, msg, NoArgs, 0L, -1 );
+	}
+
+
+	/**
+	 * Put log entry into ring buffer, never waits for the file to be written.
+	 *
+	 * @param level log level, e.g. "INFO".
+	 * @param source name of the logging class.
+	 * @param template log message with "{}" placeholders.
+	 * @param arguments arguments rendered by the writer thread.
+	 * @param number primitive argument.
+	 * @param index position of primitive argument among arguments, -1 if none.
+	 * @return true if entry was accepted, false if it was dropped.
+	 */
+	boolean append( final String level, final String source, final String template, final Object[] arguments, final long number, final int index ) {
+		long time = System.currentTimeMillis();
+		while( ! closed ) {
+			long pos = tail.get();
+			int i = (int)( pos & mask );
+			long seq = sequence.get( i );
+			if( seq == pos ) {
+				if( tail.compareAndSet( pos, pos + 1 ) ) {
+					times[ i ] = time;
+					levels[ i ] = level;
+					sources[ i ] = source;
+					templates[ i ] = template;
+					args[ i ] = arguments;
+					numbers[ i ] = number;
+					numberIndex[ i ] = index;
+					sequence.lazySet( i, pos + 1 );		// publish slot to writer
+					if( idle ) {
+						LockSupport.unpark( writer );
+					}
+					return true;
+				}
+
+			} else if( seq < pos ) {		// buffer full, slot not yet consumed by writer
+				if( overflow == LoggerOverflow.Drop ) {
+					dropped.incrementAndGet();
+					return false;
+				}
+				LockSupport.unpark( writer );
+				LockSupport.parkNanos( 100_000L );
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Wait until entries appended before this call have been written to the file.
+	 *
+	 * @param timeoutMillis maximum time to wait.
+	 * @return true if entries have been written, false on timeout.
+	 */
+	boolean flush( final long timeoutMillis ) {
+		long target = tail.get();
+		long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+		while( written < target ) {
+			if( System.nanoTime() > deadline || ! writer.isAlive() ) {
+				return written >= target;
+			}
+			LockSupport.unpark( writer );
+			LockSupport.parkNanos( 1_000_000L );
+		}
+		return true;
+	}
+
+
+	/**
+	 * Return number of entries dropped because the ring buffer was full.
+	 *
+	 * @return number of dropped entries.
+	 */
+	long dropped() {
+		return dropped.get();
+	}
+
+
+	/**
+	 * Write remaining entries, stop writer thread and close log file. Entries
+	 * appended after close are dropped.
+	 */
+	void close() {
+		flush( 2000 );
+		closed = true;
+		LockSupport.unpark( writer );
+		try {
+			writer.join( 2000 );
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private void run() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect( BatchBytes );
+		StringBuilder sb = new StringBuilder( 256 );
+		long reportedDrops = 0;
+		while( ! closed || head < tail.get() ) {
+			int n = 0;
+			long drops = dropped.get();
+			if( drops > reportedDrops ) {
+				line( sb, System.currentTimeMillis(), "WARN", AsyncLogWriter.class.getSimpleName(),
+					"{} log entries dropped, buffer full", NoArgs, drops - reportedDrops, 0 );
+				buffer = put( buffer, sb );
+				reportedDrops = drops;
+			}
+			for( ; ; n++ ) {
+				int i = (int)( head & mask );
+				if( sequence.get( i ) != head + 1 ) {
+					break;		// no published entry
+				}
+				line( sb, times[ i ], levels[ i ], sources[ i ], templates[ i ], args[ i ], numbers[ i ], numberIndex[ i ] );
+				levels[ i ] = sources[ i ] = templates[ i ] = null;
+				args[ i ] = null;
+				sequence.lazySet( i, head + mask + 1 );		// free slot for next round
+				head++;
+				buffer = put( buffer, sb );
+			}
+			if( buffer.position() > 0 ) {
+				write( buffer );
+			}
+			written = head;
+			if( n == 0 && ! closed ) {
+				idle = true;
+				if( head == tail.get() ) {		// re-check after announcing idle, producers unpark
+					LockSupport.parkNanos( this, IdleParkNanos );
+				}
+				idle = false;
+			}
+		}
+		closeChannel();
+	}
+
+	private static void line( final StringBuilder sb, final long time, final String level, final String source,
+			final String template, final Object[] args, final long number, final int index ) {
+		sb.setLength( 0 );
+		TimeFormat.formatTo( Instant.ofEpochMilli( time ), sb );
+		sb.append( ' ' ).append( level );
+		for( int i = level.length(); i < 5; i++ ) {
+			sb.append( ' ' );
+		}
+		sb.append( ' ' ).append( source ).append( ':' );
+		render( sb, template, args, number, index );
+		sb.append( System.lineSeparator() );
+	}
+
+	/**
+	 * Render template with arguments: each "{}" is replaced by the next argument,
+	 * remaining arguments are appended.
+	 *
+	 * @param sb builder to which the message is appended.
+	 * @param template log message with "{}" placeholders, null renders as empty.
+	 * @param args reference arguments.
+	 * @param number primitive argument.
+	 * @param index position of primitive argument among arguments, -1 if none.
+	 * @return sb
+	 */
+	static StringBuilder render( final StringBuilder sb, final String template, final Object[] args, final long number, final int index ) {
+		int n = args.length + ( index >= 0? 1 : 0 );
+		int p = 0;
+		int from = 0;
+		if( template != null ) {
+			for( int at = template.indexOf( "{}" ); at >= 0 && p < n; at = template.indexOf( "{}", from ) ) {
+				sb.append( template, from, at );
+				argument( sb, args, number, index, p++ );
+				from = at + 2;
+			}
+			sb.append( template, from, template.length() );
+		}
+		while( p < n ) {
+			argument( sb, args, number, index, p++ );
+		}
+		return sb;
+	}
+
+	private static void argument( final StringBuilder sb, final Object[] args, final long number, final int index, final int p ) {
+		if( p == index ) {
+			sb.append( number );
+			return;
+		}
+		Object arg = args[ index >= 0 && p > index? p - 1 : p ];
+		if( arg instanceof Traceable ) {
+			arg = ((Traceable)arg).getRootObject();
+		}
+		sb.append( arg instanceof Entity? ((Entity)arg).getId() : String.valueOf( arg ) );
+	}
+
+	private ByteBuffer put( final ByteBuffer buffer, final StringBuilder sb ) {
+		byte[] bytes = sb.toString().getBytes( StandardCharsets.UTF_8 );
+		if( bytes.length > buffer.remaining() ) {
+			write( buffer );
+			if( bytes.length > buffer.capacity() ) {
+				write( ByteBuffer.wrap( bytes ) );
+				return buffer;
+			}
+		}
+		buffer.put( bytes );
+		return buffer;
+	}
+
+	private void write( final ByteBuffer buffer ) {
+		boolean direct = buffer.isDirect();
+		if( direct ) {
+			buffer.flip();
+		}
+		try {
+			if( channel == null || fileBytes + buffer.remaining() > maxFileBytes ) {
+				rotate();
+			}
+			while( buffer.hasRemaining() ) {
+				fileBytes += channel.write( buffer );
+			}
+
+		} catch( IOException e ) {
+			System.err.println( "ERROR: cannot write log file " + file + ": " + e.getMessage() );
+			closeChannel();
+		}
+		buffer.clear();
+	}
+
+	private void rotate() throws IOException {
+		if( channel != null && fileBytes > 0 ) {
+			closeChannel();
+			if( backupFiles > 0 ) {
+				for( int i = backupFiles - 1; i >= 1; i-- ) {
+					Path from = backup( i );
+					if( Files.exists( from ) ) {
+						Files.move( from, backup( i + 1 ), StandardCopyOption.REPLACE_EXISTING );
+					}
+				}
+				Files.move( file, backup( 1 ), StandardCopyOption.REPLACE_EXISTING );
+
+			} else {
+				Files.deleteIfExists( file );
+			}
+		}
+		if( channel == null ) {
+			channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+			fileBytes = channel.size();
+			if( fileBytes > 0 && fileBytes >= maxFileBytes ) {
+				rotate();		// existing file exceeds size
+			}
+		}
+	}
+
+	private Path backup( final int i ) {
+		return file.resolveSibling( file.getFileName() + "." + i );
+	}
+
+	private void closeChannel() {
+		if( channel != null ) {
+			try {
+				channel.close();
+
+			} catch( IOException e ) {
+				// ignore, file is reopened with next write
+			}
+			channel = null;
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.application.se2.misc;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Thread-safe formatting and parsing of dates in the default time zone. Formatters
+ * are immutable DateTimeFormatter instances that are created once per pattern and
+ * cached, replacing shared (not thread-safe) SimpleDateFormat instances and
+ * SimpleDateFormat instances created per call.
+ *
+ * The two fixed formats DF_dd_MM_yyyy_HH_mm_ss and DF_yyyy_MM_dd_HH_mm_ss_SSS are
+ * formatted on a fast path that computes calendar fields arithmetically and writes
+ * digits into a per-thread buffer. The zone offset is cached per thread for the
+ * interval between two offset transitions.
+ *
+ * Parsing uses SimpleDateFormat instances cached per thread and pattern, which
+ * accept fields of any width (e.g. "5.6.2019, 9:4:5") as input typed by users did
+ * before. Strict DateTimeFormatter parsing rejects such input.
+ *
+ * @author sgra64
+ *
+ */
+public final class DateFormats {
+
+	public static final String DF_dd_MM_yyyy_HH_mm_ss = "dd.MM.yyyy, HH:mm:ss";			// "16.06.2019, 21:25:36"
+
+	public static final String DF_yyyy_MM_dd_HH_mm_ss_SSS = "yyyy-MM-dd, HH:mm:ss.SSS";	// "2018-04-02, 10:16:24.868"
+
+	private static final ZoneId zone = ZoneId.systemDefault();
+
+	private static final ZoneRules rules = zone.getRules();
+
+	private static final ConcurrentHashMap<String, DateTimeFormatter> formatters = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+	private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial( Buffer::new );
+
+	private static final ThreadLocal<HashMap<String, SimpleDateFormat>> parsers = ThreadLocal.withInitial( HashMap::new );
+
+	private static final long MillisPerDay = 86_400_000L;
+
+
+	/**
+	 * Private constructor, class has only static methods.
+	 */
+	private DateFormats() { }
+
+
+	/**
+	 * Return cached formatter for a pattern in the default time zone.
+	 *
+	 * @param pattern pattern as used by DateTimeFormatter.ofPattern().
+	 * @return immutable, thread-safe formatter.
+	 * @throws IllegalArgumentException if pattern is invalid.
+	 */
+	public static DateTimeFormatter getFormatter( final String pattern ) {
+		DateTimeFormatter formatter = formatters.get( pattern );
+		if( formatter == null ) {
+			formatter = formatters.computeIfAbsent( pattern, p -> DateTimeFormatter.ofPattern( p ).withZone( zone ) );
+		}
+		return formatter;
+	}
+
+
+	/**
+	 * Format date.
+	 *
+	 * @param date date to format.
+	 * @param pattern pattern or null for DF_dd_MM_yyyy_HH_mm_ss.
+	 * @return formatted date.
+	 */
+	public static String format( final Date date, final String pattern ) {
+		return format( date.getTime(), pattern );
+	}
+
+
+	/**
+	 * Format epoch milliseconds.
+	 *
+	 * @param millis epoch milliseconds.
+	 * @param pattern pattern or null for DF_dd_MM_yyyy_HH_mm_ss.
+	 * @return formatted date.
+	 */
+	public static String format( final long millis, final String pattern ) {
+		String p = pattern == null? DF_dd_MM_yyyy_HH_mm_ss : pattern;
+		String res = null;
+		if( p.equals( DF_dd_MM_yyyy_HH_mm_ss ) ) {
+			res = formatFixed( millis, true );
+
+		} else if( p.equals( DF_yyyy_MM_dd_HH_mm_ss_SSS ) ) {
+			res = formatFixed( millis, false );
+		}
+		return res != null? res : getFormatter( p ).format( Instant.ofEpochMilli( millis ) );
+	}
+
+
+	/**
+	 * Parse date from the beginning of a text, trailing text is ignored. Missing
+	 * time fields default to midnight. Fields are parsed leniently as by
+	 * SimpleDateFormat, e.g. with single digits.
+	 *
+	 * @param text text to parse.
+	 * @param pattern pattern or null for DF_dd_MM_yyyy_HH_mm_ss.
+	 * @return parsed date.
+	 * @throws ParseException if text does not start with a date matching the pattern.
+	 */
+	public static Date parse( final String text, final String pattern ) throws ParseException {
+		String p = pattern == null? DF_dd_MM_yyyy_HH_mm_ss : pattern;
+		SimpleDateFormat parser = parsers.get().computeIfAbsent( p, SimpleDateFormat::new );
+		ParsePosition pos = new ParsePosition( 0 );
+		Date date = parser.parse( text, pos );
+		if( date == null ) {
+			throw new ParseException( "Unparseable date: \"" + text + "\"", pos.getErrorIndex() );
+		}
+		return date;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Buffer {
+		private final char[] chars = new char[ 24 ];
+		private long from = 1;			// interval [from, to) with constant zone offset, initially empty
+		private long to = 0;
+		private long offsetMillis = 0;
+	}
+
+	/*
+	 * Format fixed patterns, returns null for years outside 1000..9999 that are
+	 * left to the DateTimeFormatter.
+	 */
+	private static String formatFixed( final long millis, final boolean dayFirst ) {
+		Buffer buf = buffers.get();
+		if( millis < buf.from || millis >= buf.to ) {
+			updateOffset( buf, millis );
+		}
+		long local = millis + buf.offsetMillis;
+		long days = Math.floorDiv( local, MillisPerDay );
+		int msOfDay = (int)Math.floorMod( local, MillisPerDay );
+
+		// civil date from days since epoch (H. Hinnant, chrono-compatible date algorithms)
+		long z = days + 719_468;
+		long era = Math.floorDiv( z, 146_097 );
+		int doe = (int)( z - era * 146_097 );
+		int yoe = ( doe - doe / 1460 + doe / 36_524 - doe / 146_096 ) / 365;
+		int doy = doe - ( 365 * yoe + yoe / 4 - yoe / 100 );
+		int mp = ( 5 * doy + 2 ) / 153;
+		int day = doy - ( 153 * mp + 2 ) / 5 + 1;
+		int month = mp < 10? mp + 3 : mp - 9;
+		long year = yoe + era * 400 + ( month <= 2? 1 : 0 );
+		if( year < 1000 || year > 9999 ) {
+			return null;
+		}
+
+		char[] c = buf.chars;
+		int len;
+		if( dayFirst ) {		// "dd.MM.yyyy, HH:mm:ss"
+			digits( c, 0, day, 2 );
+			c[ 2 ] = '.';
+			digits( c, 3, month, 2 );
+			c[ 5 ] = '.';
+			digits( c, 6, (int)year, 4 );
+			len = 10;
+
+		} else {				// "yyyy-MM-dd, HH:mm:ss.SSS"
+			digits( c, 0, (int)year, 4 );
+			c[ 4 ] = '-';
+			digits( c, 5, month, 2 );
+			c[ 7 ] = '-';
+			digits( c, 8, day, 2 );
+			len = 10;
+		}
+		c[ len++ ] = ',';
+		c[ len++ ] = ' ';
+		digits( c, len, msOfDay / 3_600_000, 2 );
+		c[ len + 2 ] = ':';
+		digits( c, len + 3, msOfDay / 60_000 % 60, 2 );
+		c[ len + 5 ] = ':';
+		digits( c, len + 6, msOfDay / 1000 % 60, 2 );
+		len += 8;
+		if( ! dayFirst ) {
+			c[ len ] = '.';
+			digits( c, len + 1, msOfDay % 1000, 3 );
+			len += 4;
+		}
+		return new String( c, 0, len );
+	}
+
+	private static void digits( final char[] c, final int pos, int value, final int n ) {
+		for( int i = pos + n - 1; i >= pos; i-- ) {
+			c[ i ] = (char)( '0' + value % 10 );
+			value /= 10;
+		}
+	}
+
+	/*
+	 * Look up zone offset and the interval between the surrounding offset
+	 * transitions in which the offset applies.
+	 */
+	private static void updateOffset( final Buffer buf, final long millis ) {
+		Instant instant = Instant.ofEpochMilli( millis );
+		buf.offsetMillis = rules.getOffset( instant ).getTotalSeconds() * 1000L;
+		if( rules.isFixedOffset() ) {
+			buf.from = Long.MIN_VALUE;
+			buf.to = Long.MAX_VALUE;
+			return;
+		}
+		ZoneOffsetTransition prev = rules.previousTransition( instant );
+		ZoneOffsetTransition next = rules.nextTransition( instant );
+		buf.from = prev != null && prev.getOffsetAfter().getTotalSeconds() * 1000L == buf.offsetMillis?
+			prev.toEpochSecond() * 1000 : millis;
+		buf.to = next != null? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,363 @@
+package com.application.se2.misc;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+
+/**
+ * JVM-wide, thread-safe cache of the metadata of Entity classes: declared fields
+ * with their types, accessors and type flags. Metadata of a class is collected once
+ * on first use and shared by all views and popups that show the class. Field name
+ * patterns are compiled once and lookups of fields by pattern are memoized.
+ *
+ * Values of fields marked as ViewableProperty are read and written through the
+ * GeneratedAccessor of the class, if it was generated at compile time. Other fields
+ * and classes without generated accessor are accessed through FieldAccessor.
+ *
+ * @author sgra64
+ *
+ */
+public final class EntityClassMetadata {
+
+	private static final ClassValue<EntityClassMetadata> metadata = new ClassValue<EntityClassMetadata>() {
+		@Override
+		protected EntityClassMetadata computeValue( final Class<?> clazz ) {
+			return new EntityClassMetadata( clazz );
+		}
+	};
+
+	private static final ConcurrentHashMap<String, Pattern> patterns = new ConcurrentHashMap<String, Pattern>();
+
+	private static final Logger logger = Logger.getInstance( EntityClassMetadata.class );
+
+	private final Class<?> clazz;
+
+	private final GeneratedAccessor generated;		// null if no accessor was generated for class
+
+	private final Map<String, PropertyMetadata> properties;		// by field name in declaration order
+
+	private final ConcurrentHashMap<String, Optional<PropertyMetadata>> matches = new ConcurrentHashMap<String, Optional<PropertyMetadata>>();
+
+
+	/**
+	 * Immutable metadata of a declared field.
+	 */
+	public static final class PropertyMetadata {
+		private final Field field;
+		private final GeneratedAccessor generated;		// null if field is accessed through FieldAccessor
+		private final int index;
+		private volatile FieldAccessor accessor;		// created on first use
+		private final boolean alterableBaseType;
+		private final boolean collectionType;
+		private final boolean clockType;
+
+		private PropertyMetadata( final Field field, final GeneratedAccessor generated, final int index ) {
+			Class<?> ft = field.getType();
+			this.field = field;
+			this.generated = index >= 0? generated : null;
+			this.index = index;
+			this.alterableBaseType = false
+				|| ft == String.class
+				|| ft.isPrimitive()		// byte, char, short, int, long, float, double, boolean
+				|| Number.class.isAssignableFrom( ft )	// Byte, Double, Float, Integer, Long, Short, AtomicInteger, AtomicLong, BigDecimal, BigInteger
+				|| Enum.class.isAssignableFrom( ft )
+				|| Date.class.isAssignableFrom( ft );
+			this.collectionType = Collection.class.isAssignableFrom( ft );	// alt. List.class
+			ViewableProperty viewable = field.getAnnotation( ViewableProperty.class );
+			this.clockType = ft == long.class && viewable != null && viewable.clock();
+		}
+
+		/**
+		 * Return the field.
+		 * @return field.
+		 */
+		public Field getField() {
+			return field;
+		}
+
+		/**
+		 * Return name of the field.
+		 * @return field name.
+		 */
+		public String getName() {
+			return field.getName();
+		}
+
+		/**
+		 * Return type of the field.
+		 * @return field type.
+		 */
+		public Class<?> getType() {
+			return field.getType();
+		}
+
+		/**
+		 * Return accessor of the field.
+		 * @return field accessor.
+		 */
+		public FieldAccessor getAccessor() {
+			FieldAccessor a = accessor;
+			if( a == null ) {
+				accessor = a = FieldAccessor.of( field );
+			}
+			return a;
+		}
+
+		/**
+		 * Return whether the field is accessed through a generated accessor.
+		 * @return true, if field is accessed by generated code.
+		 */
+		public boolean isGenerated() {
+			return generated != null;
+		}
+
+		/**
+		 * Return value of the field in an object.
+		 * @param obj object of which the field value is returned.
+		 * @return field value, primitive values are boxed.
+		 * @throws IllegalArgumentException if obj is not an instance of the field's class.
+		 */
+		public Object get( final Object obj ) {
+			if( generated == null ) {
+				return getAccessor().get( obj );
+			}
+			try {
+				return generated.get( obj, index );
+
+			} catch( ClassCastException e ) {
+				throw new IllegalArgumentException( "cannot get field '" + field.getName() + "' of " + className( obj ), e );
+			}
+		}
+
+		/**
+		 * Return value of the field in an object as String.
+		 * @param obj object of which the field value is returned.
+		 * @return field value as String or null if value is null.
+		 * @throws IllegalArgumentException if obj is not an instance of the field's class.
+		 */
+		public String getString( final Object obj ) {
+			if( generated == null ) {
+				Object val = getAccessor().get( obj );
+				return val == null? null : val.toString();
+			}
+			try {
+				return generated.getString( obj, index );
+
+			} catch( ClassCastException e ) {
+				throw new IllegalArgumentException( "cannot get field '" + field.getName() + "' of " + className( obj ), e );
+			}
+		}
+
+		/**
+		 * Return value of a Collection field in an object as List, values of other
+		 * Collection types are copied.
+		 * @param obj object of which the field value is returned.
+		 * @return field value as List or null if field is not a Collection or value is null.
+		 * @throws IllegalArgumentException if obj is not an instance of the field's class.
+		 */
+		public List<?> getList( final Object obj ) {
+			if( ! collectionType ) {
+				return null;
+			}
+			List<?> list = null;
+			if( generated != null ) {
+				try {
+					list = generated.getList( obj, index );
+
+				} catch( ClassCastException e ) {
+					throw new IllegalArgumentException( "cannot get field '" + field.getName() + "' of " + className( obj ), e );
+				}
+			}
+			if( list == null ) {
+				Object val = get( obj );
+				list = val == null || val instanceof List? (List<?>)val : new ArrayList<Object>( (Collection<?>)val );
+			}
+			return list;
+		}
+
+		/**
+		 * Set value of the field in an object. Fields without setter in generated
+		 * code are set through FieldAccessor.
+		 * @param obj object of which the field value is set.
+		 * @param value new value, unboxed for primitive fields.
+		 * @throws IllegalAccessException if field is not accessible or static final.
+		 * @throws IllegalArgumentException if obj is not an instance of the field's class or value does not match the field type.
+		 */
+		public void set( final Object obj, final Object value ) throws IllegalAccessException {
+			if( generated != null ) {
+				try {
+					if( generated.set( obj, index, value ) ) {
+						return;
+					}
+
+				} catch( ClassCastException | NullPointerException e ) {
+					throw new IllegalArgumentException( "cannot set field '" + field.getName() + "' of " + className( obj ) + " to " + value, e );
+				}
+			}
+			getAccessor().set( obj, value );
+		}
+
+		/**
+		 * Return whether the field type is a base type that can be altered (set) by EntityProperty.
+		 * @return true, if field type is an alterable base type.
+		 */
+		public boolean isAlterableBaseType() {
+			return alterableBaseType;
+		}
+
+		/**
+		 * Return whether the field type is a Collection type.
+		 * @return true, if field type is a Collection type.
+		 */
+		public boolean isCollectionType() {
+			return collectionType;
+		}
+
+		/**
+		 * Return whether the field holds a HybridLogicalClock timestamp shown as Date.
+		 * @return true, if field is marked as clock timestamp.
+		 */
+		public boolean isClockType() {
+			return clockType;
+		}
+	}
+
+
+	/**
+	 * Return metadata of a class, collected on first use.
+	 *
+	 * @param clazz Entity class.
+	 * @return shared metadata of class.
+	 */
+	public static EntityClassMetadata of( final Class<?> clazz ) {
+		return metadata.get( clazz );
+	}
+
+
+	/**
+	 * Return metadata of a declared field.
+	 *
+	 * @param field declared field of an Entity class.
+	 * @return shared metadata of field.
+	 */
+	public static PropertyMetadata of( final Field field ) {
+		PropertyMetadata p = of( field.getDeclaringClass() ).properties.get( field.getName() );
+		return p != null && p.field.equals( field )? p : new PropertyMetadata( field, null, -1 );
+	}
+
+
+	/**
+	 * Return compiled pattern of a regular expression, patterns are compiled once.
+	 *
+	 * @param regEx regular expression.
+	 * @return compiled pattern.
+	 */
+	public static Pattern pattern( final String regEx ) {
+		Pattern p = patterns.get( regEx );
+		if( p == null ) {
+			p = patterns.computeIfAbsent( regEx, Pattern::compile );
+		}
+		return p;
+	}
+
+
+	/**
+	 * Return the class.
+	 *
+	 * @return the class.
+	 */
+	public Class<?> getEntityClass() {
+		return clazz;
+	}
+
+
+	/**
+	 * Return whether an accessor was generated for the class.
+	 *
+	 * @return true, if the class has a generated accessor.
+	 */
+	public boolean hasGeneratedAccessor() {
+		return generated != null;
+	}
+
+
+	/**
+	 * Return metadata of declared fields (excluding inherited fields) in declaration order.
+	 *
+	 * @return metadata of declared fields.
+	 */
+	public Collection<PropertyMetadata> getProperties() {
+		return properties.values();
+	}
+
+
+	/**
+	 * Return metadata of the first declared field whose name matches a pattern.
+	 *
+	 * @param fieldnamePattern regular expression matching the whole field name.
+	 * @return metadata of matching field or empty if none matches.
+	 */
+	public Optional<PropertyMetadata> findProperty( final String fieldnamePattern ) {
+		Optional<PropertyMetadata> p = matches.get( fieldnamePattern );
+		if( p == null ) {
+			p = matches.computeIfAbsent( fieldnamePattern, fp -> {
+				Pattern pattern = pattern( fp );
+				return properties.values().stream().filter( m -> pattern.matcher( m.getName() ).matches() ).findFirst();
+			});
+		}
+		return p;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private EntityClassMetadata( final Class<?> clazz ) {
+		this.clazz = clazz;
+		this.generated = generatedAccessor( clazz );
+		List<String> names = generated == null? Collections.emptyList() : Arrays.asList( generated.getPropertyNames() );
+		Map<String, PropertyMetadata> map = new LinkedHashMap<String, PropertyMetadata>();
+		for( Field field : clazz.getDeclaredFields() ) {	// excluding inherited fields
+			map.put( field.getName(), new PropertyMetadata( field, generated, names.indexOf( field.getName() ) ) );
+		}
+		this.properties = Collections.unmodifiableMap( map );
+	}
+
+	/*
+	 * Load accessor generated for a class by misc.processor, null if none was generated.
+	 */
+	private static GeneratedAccessor generatedAccessor( final Class<?> clazz ) {
+		if( clazz.isPrimitive() || clazz.isArray() || clazz.getClassLoader() == null ) {
+			return null;
+		}
+		try {
+			Class<?> ac = Class.forName( clazz.getName() + GeneratedAccessor.Suffix, true, clazz.getClassLoader() );
+			if( GeneratedAccessor.class.isAssignableFrom( ac ) ) {
+				return (GeneratedAccessor)ac.getDeclaredConstructor().newInstance();
+			}
+
+		} catch( ClassNotFoundException e ) {
+			// no accessor generated, fields are accessed through FieldAccessor
+
+		} catch( ReflectiveOperationException | RuntimeException e ) {
+			logger.error( "cannot load generated accessor of " + clazz.getName() + ": " + e.getMessage(), e );
+		}
+		return null;
+	}
+
+	private static String className( final Object obj ) {
+		return obj == null? "null" : obj.getClass().getName();
+	}
+
+}
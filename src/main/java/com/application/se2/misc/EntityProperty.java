@@ -1,42 +1,42 @@
 package com.application.se2.misc;
 
-import static com.application.se2.AppConfigurator.LoggerTopics.FieldAccessAltered;
-
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.stream.Stream;
+import java.util.List;
 
 import com.application.se2.AppConfigurator.Table;
 
 
 /**
  * Class to wrap properties of Entity classes. It is used to extract values from
- * Entity properties and setting them using Reflection and taking care of basic
- * type conversion. It furthermore wraps configuration K/V-pairs that are applicable
- * to the EntityProperty.
+ * Entity properties and setting them through generated code or a FieldAccessor
+ * (see EntityClassMetadata.PropertyMetadata) and taking care of basic
+ * type conversion. Conversion of String values to the Field type is compiled into a
+ * Converter once per EntityProperty. It furthermore wraps configuration K/V-pairs
+ * that are applicable to the EntityProperty.
  * 
  * @author sgra64
  *
  */
 public class EntityProperty {
-	private static Logger logger = Logger.getInstance( EntityProperty.class );
-
-	public static final SimpleDateFormat DF_dd_MM_yyyy_HH_mm_ss
-		= new SimpleDateFormat( "dd.MM.yyyy, HH:mm:ss" );			// "16.06.2019 21:25:36"
-
-	public static final SimpleDateFormat DF_yyyy_MM_dd_HH_mm_ss_SSS
-		= new SimpleDateFormat( "yyyy-MM-dd, HH:mm:ss.SSS" );		// "2018-04-02 10:16:24:868"
 
 	/*
 	 * Java Field associated with the Entity property.
 	 */
 	private final Field field;
 
+	/*
+	 * Metadata of the Field (accessor, type flags), shared by all EntityProperties of the Field.
+	 */
+	private final EntityClassMetadata.PropertyMetadata metadata;
+
+	/*
+	 * Conversion of String values to the type of the Field.
+	 */
+	private final Converter converter;
+
 	/*
 	 * Configuration K/V-pairs associated with the EntityProperty.
 	 */
@@ -49,8 +49,22 @@ public class EntityProperty {
 	 * @param field field to be wrapped by EntityProperty.
 	 */
 	public EntityProperty( final Field field ) {
-		this.field = field;
+		this( EntityClassMetadata.of( field ) );
+	}
+
+
+	/**
+	 * Public constructor.
+	 * 
+	 * @param metadata shared metadata of field to be wrapped by EntityProperty.
+	 */
+	public EntityProperty( final EntityClassMetadata.PropertyMetadata metadata ) {
+		this.field = metadata.getField();
+		this.metadata = metadata;
 		this.configs = new HashMap<String,Object>();
+		this.converter = metadata.isClockType()?
+			s -> HybridLogicalClock.fromMillis( DateFormats.parse( s, (String)configs.get( Table.Column.DATEFMT ) ).getTime() )
+			: converter( field.getType() );
 	}
 
 
@@ -61,7 +75,9 @@ public class EntityProperty {
 	 */
 	public EntityProperty( final EntityProperty copy ) {
 		this.field = copy.field;
+		this.metadata = copy.metadata;
 		this.configs = copy.configs;
+		this.converter = copy.converter;
 	}
 
 
@@ -71,15 +87,7 @@ public class EntityProperty {
 	 * @return true, if type of underlying Field is an alterable base type.
 	 */
 	public boolean isAlterableBaseType() {
-		Class<?> ft = field.getType();
-		boolean isAlterableBaseType = false
-				|| ft == String.class
-				|| ft.isPrimitive()		// byte, char, short, int, long, float, double, boolean
-				|| Number.class.isAssignableFrom( ft )	// Byte, Double, Float, Integer, Long, Short, AtomicInteger, AtomicLong, BigDecimal, BigInteger
-				|| Enum.class.isAssignableFrom( ft )
-				|| Date.class.isAssignableFrom( ft )
-			;
-		return isAlterableBaseType;
+		return metadata.isAlterableBaseType();
 	}
 
 
@@ -89,9 +97,7 @@ public class EntityProperty {
 	 * @return true, if underlying Field is of a Collection type.
 	 */
 	public boolean isCollectionType() {
-		Class<?> fieldType = field.getType();
-		boolean isCollectionType = Collection.class.isAssignableFrom( fieldType );	// alt. List.class
-		return isCollectionType;
+		return metadata.isCollectionType();
 	}
 
 
@@ -114,28 +120,40 @@ public class EntityProperty {
 	public Object getValue( final Object obj ) {
 		Object val = null;
 		try {
-			val = field.get( obj );
+			val = metadata.get( obj );
 
 			if( val != null && val instanceof Date ) {
-				String df = (String)getConfig( Table.Column.DATEFMT );
-				SimpleDateFormat dateFormat = df == null? EntityProperty.DF_dd_MM_yyyy_HH_mm_ss : new SimpleDateFormat( df );
-				val = dateFormat.format( val );
+				val = DateFormats.format( (Date)val, (String)getConfig( Table.Column.DATEFMT ) );
+
+			} else if( val != null && metadata.isClockType() ) {
+				val = clockString( (Long)val );
 			}
 
-		} catch( IllegalAccessException ex1 ) {
-			/*
-			 * https://www.concretepage.com/java/how-to-access-all-private-fields-methods-and-constructors-using-java-reflection-with-example
-			 */
-			if( Modifier.isPrivate( field.getModifiers() ) ) {
-				field.setAccessible( true );
-				logger.log( FieldAccessAltered, "Field '" + field.getName() + "' set accessible." );
-				//System.out.println( "Field '" + p.field.getName() + "' set accessible." );
-				try {
-					return getValue( obj );
-
-				} catch( Exception ex2 ) {
-					ex2.printStackTrace();
-				}
+		} catch( IllegalArgumentException ex2 ) {
+
+		}
+		return val;
+	}
+
+
+	/**
+	 * Returns value of the underlying Field in the object passed as argument as String.
+	 * 
+	 * @param obj of which the value of the underlying Field will be returned.
+	 * @return value of the underlying object Field as String or null.
+	 */
+	public String getString( final Object obj ) {
+		String val = null;
+		try {
+			if( Date.class.isAssignableFrom( field.getType() ) ) {
+				Object date = metadata.get( obj );
+				val = date == null? null : DateFormats.format( (Date)date, (String)getConfig( Table.Column.DATEFMT ) );
+
+			} else if( metadata.isClockType() ) {
+				val = clockString( (Long)metadata.get( obj ) );
+
+			} else {
+				val = metadata.getString( obj );
 			}
 
 		} catch( IllegalArgumentException ex2 ) {
@@ -145,6 +163,24 @@ public class EntityProperty {
 	}
 
 
+	/**
+	 * Returns value of the underlying Collection Field in the object passed as argument as List.
+	 * 
+	 * @param obj of which the value of the underlying Field will be returned.
+	 * @return value of the underlying object Field as List or null, if Field is not of a Collection type.
+	 */
+	public List<?> getList( final Object obj ) {
+		List<?> val = null;
+		try {
+			val = metadata.getList( obj );
+
+		} catch( IllegalArgumentException ex2 ) {
+
+		}
+		return val;
+	}
+
+
 	/**
 	 * Sets the value of the underlying Field in the object passed as argument.
 	 * 
@@ -153,59 +189,8 @@ public class EntityProperty {
 	 */
 	public void setValue( final Object obj, Object value ) {
 		try {
-			Class<?>ft = field.getType();
 			if( value != null && value instanceof String ) {
-				String strVal = (String)value;
-
-				// byte, char, short, int, long, float, double, boolean
-				if( ft.isPrimitive() ) {
-					if( ft == int.class ) { value = Integer.parseInt( strVal ); } else {
-					if( ft == long.class ) { value = Long.parseLong( strVal ); } else {
-					if( ft == boolean.class ) { value = Boolean.parseBoolean( strVal ); } else {
-					if( ft == char.class ) { value = strVal.charAt( 0 ); } else {
-					if( ft == float.class ) { value = Float.parseFloat( strVal ); } else {
-					if( ft == double.class ) { value = Double.parseDouble( strVal ); } else {
-					if( ft == short.class ) { value = Short.parseShort( strVal ); } else {
-					if( ft == byte.class ) { value = Byte.parseByte( strVal ); } else {
-					}}}}}}}}
-
-				} else {
-					// Byte, Double, Float, Integer, Long, Short, AtomicInteger, AtomicLong, BigDecimal, BigInteger
-					if( Number.class.isAssignableFrom( ft ) ) {
-						if( ft.equals( Integer.class ) ) { value = Integer.parseInt( strVal ); } else {
-						if( ft.equals( Long.class ) ) { value = Long.parseLong( strVal ); } else {
-						if( ft.equals( Double.class ) ) { value = Double.parseDouble( strVal ); } else {
-						if( ft.equals( Float.class ) ) { value = Float.parseFloat( strVal ); } else {
-						if( ft.equals( Short.class ) ) { value = Short.parseShort( strVal ); } else {	
-						if( ft.equals( Byte.class ) ) { value = Byte.parseByte( strVal ); } else {
-						}}}}}}
-
-					} else {
-						if( Enum.class.isAssignableFrom( ft ) ) {
-							value = Stream.of( field.getType().getEnumConstants() ).filter(
-									// find first enum constant matching update value
-									st -> st.toString().toUpperCase().contains( strVal.toUpperCase() )
-								).findFirst().get();
-
-						} else {
-							if( Date.class.isAssignableFrom( ft ) ) {
-								/*
-								 * https://stackoverflow.com/questions/4216745/java-string-to-date-conversion
-								 */
-								String df = (String)getConfig( Table.Column.DATEFMT );
-								SimpleDateFormat dateFormat = df == null? EntityProperty.DF_dd_MM_yyyy_HH_mm_ss : new SimpleDateFormat( df );
-								value = (Date)dateFormat.parse( (String)value );
-
-							} else {
-								if( ft.equals( Boolean.class ) ) { value = Boolean.parseBoolean( strVal ); } else {
-								if( ft == Character.class ) { value = strVal.charAt( 0 ); } else {
-								}}
-							}
-						}
-					}
-				}
-
-				field.set( obj, value );
+				metadata.set( obj, converter.convert( (String)value ) );
 			}
 
 		} catch( IllegalArgumentException e ) {
@@ -217,7 +202,7 @@ public class EntityProperty {
 			e.printStackTrace();
 
 		} catch( ParseException e ) {
-			// thrown by String -> Date conversion, ignore, no value changed
+			// thrown by String -> Date or String -> Enum conversion, ignore, no value changed
 		}
 	}
 
@@ -241,4 +226,66 @@ public class EntityProperty {
 		configs.put( key, value );
 	}
 
+
+	/*
+	 * Private methods.
+	 */
+
+	/*
+	 * Format HybridLogicalClock timestamp as Date, 0 is no timestamp.
+	 */
+	private String clockString( final long timestamp ) {
+		return timestamp == 0L? null :
+			DateFormats.format( HybridLogicalClock.toMillis( timestamp ), (String)getConfig( Table.Column.DATEFMT ) );
+	}
+
+	/*
+	 * Conversion of a String value to the type of the Field.
+	 */
+	@FunctionalInterface
+	private interface Converter {
+		Object convert( String value ) throws ParseException;
+	}
+
+	/*
+	 * Compile converter for a Field type: base types are parsed, enum constants are
+	 * matched by the first constant containing the value (case-insensitive), dates
+	 * are parsed with the formatter of the configured Table.Column.DATEFMT. Values
+	 * of other types are passed unchanged.
+	 */
+	private Converter converter( final Class<?> ft ) {
+		// byte, char, short, int, long, float, double, boolean and their wrappers
+		if( ft == int.class || ft == Integer.class ) { return Integer::parseInt; }
+		if( ft == long.class || ft == Long.class ) { return Long::parseLong; }
+		if( ft == boolean.class || ft == Boolean.class ) { return Boolean::parseBoolean; }
+		if( ft == char.class || ft == Character.class ) { return s -> s.charAt( 0 ); }
+		if( ft == float.class || ft == Float.class ) { return Float::parseFloat; }
+		if( ft == double.class || ft == Double.class ) { return Double::parseDouble; }
+		if( ft == short.class || ft == Short.class ) { return Short::parseShort; }
+		if( ft == byte.class || ft == Byte.class ) { return Byte::parseByte; }
+
+		if( Enum.class.isAssignableFrom( ft ) ) {
+			Object[] constants = ft.getEnumConstants();
+			String[] upper = new String[ constants.length ];
+			for( int i = 0; i < constants.length; i++ ) {
+				upper[ i ] = constants[ i ].toString().toUpperCase();
+			}
+			return s -> {
+				String u = s.toUpperCase();
+				for( int i = 0; i < upper.length; i++ ) {
+					if( upper[ i ].contains( u ) ) {	// find first enum constant matching update value
+						return constants[ i ];
+					}
+				}
+				throw new ParseException( "no " + ft.getSimpleName() + " constant matching: \"" + s + "\"", 0 );
+			};
+		}
+
+		if( Date.class.isAssignableFrom( ft ) ) {
+			return s -> DateFormats.parse( s, (String)configs.get( Table.Column.DATEFMT ) );
+		}
+		return s -> s;
+	}
+
+
 }
@@ -1,19 +1,21 @@
 package com.application.se2.misc;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
 
 
 /**
  * Helper class to represent the properties of an Entity class wrapped as EntityProperties.
+ * Fields are looked up in the shared EntityClassMetadata of the class.
  * 
  * @author sgra64
  *
  */
 public class EntityPropertyAccessor {
 
-	private final Class<?> clazz;
+	private final EntityClassMetadata metadata;
 
 	private final List<EntityProperty> entityPropertyList = new ArrayList<EntityProperty>();
 
@@ -23,7 +25,7 @@ public class EntityPropertyAccessor {
 	 * @param clazz class of Entity
 	 */
 	public EntityPropertyAccessor( final Class<?> clazz ) {
-		this.clazz = clazz;
+		this.metadata = EntityClassMetadata.of( clazz );
 	}
 
 
@@ -115,32 +117,24 @@ public class EntityPropertyAccessor {
 
 	private EntityProperty findProperty( final String fieldnamePattern, final Callback<EntityProperty>... propArg ) {
 
+		Pattern pattern = EntityClassMetadata.pattern( fieldnamePattern );
 		for( EntityProperty p : entityPropertyList ) {
-			if( p.getName().matches( fieldnamePattern ) ) {
+			if( pattern.matcher( p.getName() ).matches() ) {
 				if( propArg.length > 0 ) {
 					propArg[ 0 ].apply( p );
 				}
 				return p;
 			}
 		}
-		//Field[] fields = this.clazz.getFields();	// including inherited fields
-		Field[] fields = this.clazz.getDeclaredFields();	// excluding inherited fields
-
-		for( int i=0; i < fields.length; i++ ) {
-			Field field = fields[ i ];
-			// base.ViewableProperty[] anotations = field.getAnnotationsByType( base.ViewableProperty.class );
-			// if( anotations != null && anotations.length > 0 ) {
-				if( field.getName().matches( fieldnamePattern ) ) {
-					//TODO: Lookup rather than new Property.
-					// if multiple PropertyLists exist, Properties should only exist once per field.
-					EntityProperty p = new EntityProperty( field );
-
-					for( int j = 0; j < Math.min( propArg.length, 2 ); j++ ) {
-						propArg[ j ].apply( p );	// call for: foundProp -> {}, newProp -> {}
-					}
-					return p;
-				}
-			//}
+		Optional<EntityClassMetadata.PropertyMetadata> found = metadata.findProperty( fieldnamePattern );
+		if( found.isPresent() ) {
+			// EntityProperties carry per-view configs, field metadata is shared.
+			EntityProperty p = new EntityProperty( found.get() );
+
+			for( int j = 0; j < Math.min( propArg.length, 2 ); j++ ) {
+				propArg[ j ].apply( p );	// call for: foundProp -> {}, newProp -> {}
+			}
+			return p;
 		}
 		return null;
 	}
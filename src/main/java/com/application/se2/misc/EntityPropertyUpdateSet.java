@@ -2,72 +2,127 @@ package com.application.se2.misc;
 
 import static com.application.se2.AppConfigurator.LoggerTopics.PropertiesAltered;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 
 /**
  * Class to represent a set of EntityProperties that have been updated, e.g. by a GUI.
  * Stored updates can be validated and compared to previous values before being applied
  * to the underlying Entity.
- * 
+ *
+ * Updates are kept as a compact delta: properties and values are stored in slots of
+ * arrays that are sized once (the number of properties of an update form), altered
+ * slots are marked in a bitset. Successive updates of the same Entity can be merged
+ * into one delta and deltas can be encoded into a binary form, e.g. for logs that
+ * record or replicate updates.
+ *
+ * Each slot also holds the object that owns the property, which is the primary
+ * object for recorded updates. Merged updates of objects nested in the same Entity,
+ * e.g. of two contacts of a Customer, keep separate slots even if their properties
+ * have the same name.
+ *
  * @author sgra64
  *
  */
 public class EntityPropertyUpdateSet {
 	private static final Logger logger = Logger.getInstance( EntityPropertyAccessor.class );
 
+	private static final byte EncodingVersion = 1;
+
+	private static final int DefaultCapacity = 8;
+
 	private final Traceable primaryObject;
 
-	private final List<EntityProperty> property = new ArrayList<EntityProperty>();
+	private EntityProperty[] property;
+
+	private Traceable[] owner;
 
-	private final List<String> valueBeforeUpdate = new ArrayList<String>();
+	private String[] valueBeforeUpdate;
 
-	private final List<String> valueAfterUpdate = new ArrayList<String>();
+	private String[] valueAfterUpdate;
 
-	private final List<Integer> alteredIndex = new ArrayList<Integer>();
+	private int size = 0;
+
+	private final BitSet altered = new BitSet();
+
+
+	/**
+	 * Callback invoked for an updated EntityProperty.
+	 */
+	@FunctionalInterface
+	public interface Update {
+		void accept( EntityProperty property, String valueBefore, String valueAfter );
+	}
 
 
 	/**
 	 * Public constructor.
-	 * 
+	 *
 	 * @param primaryObject underlying Entity to which updates belong.
 	 */
 	public EntityPropertyUpdateSet( final Traceable primaryObject ) {
+		this( primaryObject, DefaultCapacity );
+	}
+
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param primaryObject underlying Entity to which updates belong.
+	 * @param capacity expected number of properties, e.g. of an update form.
+	 */
+	public EntityPropertyUpdateSet( final Traceable primaryObject, final int capacity ) {
 		this.primaryObject = primaryObject;
+		int cap = Math.max( 1, capacity );
+		this.property = new EntityProperty[ cap ];
+		this.owner = new Traceable[ cap ];
+		this.valueBeforeUpdate = new String[ cap ];
+		this.valueAfterUpdate = new String[ cap ];
 	}
 
 
 	/**
 	 * Record original property value.
-	 * 
+	 *
 	 * @param prop reference to EntityProperty.
 	 * @param value original value.
 	 */
 	public void before( EntityProperty prop, String value ) {
-		this.property.add( prop );
-		this.valueBeforeUpdate.add( value != null? value.trim() : "" );
+		slot( primaryObject, prop, trim( value ) );
 	}
 
 
 	/**
-	 * Record updated value for property indexed by i.
+	 * Record updated value for property indexed by i. Recording the original value
+	 * again reverts an earlier update of the property.
+	 *
 	 * @param i index of EntityProperty
 	 * @param value update value
 	 */
 	public void after( int i, String value ) {
-		if( i >= 0 && i < property.size() ) {
-			String val = value != null? value.trim() : "";
-			String valBefore = valueBeforeUpdate.get( i );
-			if( ! valBefore.equals( val ) ) {
-				alteredIndex.add( i );
-				// fill gaps with unaltered values to keep list indices in sync.
-				while( valueAfterUpdate.size() < i ) {
-					valueAfterUpdate.add( "" );
-				}
-				valueAfterUpdate.add( value );
-				logger.log( PropertiesAltered, "altered: (\"" + valBefore +  "\" --> \"" + val + "\")." );
+		if( i >= 0 && i < size ) {
+			String val = trim( value );
+			String valBefore = valueBeforeUpdate[ i ];
+			boolean alter = ! valBefore.equals( val );
+			valueAfterUpdate[ i ] = alter? val : null;
+			altered.set( i, alter );
+			if( alter ) {
+				logger.log( PropertiesAltered, "altered: (\"{}\" --> \"{}\").", valBefore, val );
 			}
 		}
 	}
@@ -75,11 +130,11 @@ public class EntityPropertyUpdateSet {
 
 	/**
 	 * Returns true is at least one EntityProperty of the set has been altered.
-	 * 
+	 *
 	 * @return true is at least one EntityProperty of the set has been altered.
 	 */
 	public boolean isAltered() {
-		return alteredIndex.size() > 0;
+		return ! altered.isEmpty();
 	}
 
 
@@ -96,15 +151,180 @@ public class EntityPropertyUpdateSet {
 	 * Iterator method over EntityProperty's with updates.
 	 * @param callback invoked for each EntityProperty with updates.
 	 */
+	public void iterateUpdatedProperties( Update callback ) {
+		for( int i = altered.nextSetBit( 0 ); i >= 0; i = altered.nextSetBit( i + 1 ) ) {
+			callback.accept( property[ i ], valueBeforeUpdate[ i ], valueAfterUpdate[ i ] );
+		}
+	}
+
+
+	/**
+	 * Iterator method over EntityProperty's with updates, values are passed as
+	 * array { before, after } that is reused for all properties.
+	 * @param callback invoked for each EntityProperty with updates.
+	 */
 	public void iterateUpdatedProperties( BiConsumer<EntityProperty,String[]> callback ) {
-		for( Integer i : alteredIndex ) {
-			EntityProperty p = property.get( i );
-			String[] val = new String[ 2 ];
-			val[ 0 ] = valueBeforeUpdate.get( i );
-			val[ 1 ] = valueAfterUpdate.get( i );
+		String[] val = new String[ 2 ];
+		iterateUpdatedProperties( ( p, before, after ) -> {
+			val[ 0 ] = before;
+			val[ 1 ] = after;
 			callback.accept( p, val );
-			val[0] = val[1] = null;
+		});
+		val[0] = val[1] = null;
+	}
+
+
+	/**
+	 * Set updated values of altered EntityProperties in an object in one pass. Merged
+	 * updates of other objects nested in the same Entity are applied to these objects.
+	 *
+	 * @param obj object to which updates are applied.
+	 */
+	public void apply( final Object obj ) {
+		for( int i = altered.nextSetBit( 0 ); i >= 0; i = altered.nextSetBit( i + 1 ) ) {
+			property[ i ].setValue( owner[ i ] == primaryObject? obj : owner[ i ].getRootObject(), valueAfterUpdate[ i ] );
+		}
+	}
+
+
+	/**
+	 * Merge a later update of the same Entity, or of an object nested in it, into this
+	 * update set. Properties are matched by owning object and name. They keep their
+	 * original value from this set and take the updated value from the later set.
+	 * Properties updated back to their original value are no longer altered.
+	 *
+	 * @param later update set recorded after this update set.
+	 * @return this
+	 * @throws IllegalArgumentException if later update set belongs to another Entity.
+	 */
+	public EntityPropertyUpdateSet merge( final EntityPropertyUpdateSet later ) {
+		if( entityOf( later.primaryObject ) != entityOf( primaryObject ) ) {
+			throw new IllegalArgumentException( "cannot merge updates of different objects" );
+		}
+		for( int j = later.altered.nextSetBit( 0 ); j >= 0; j = later.altered.nextSetBit( j + 1 ) ) {
+			Traceable o = later.owner[ j ];
+			EntityProperty p = later.property[ j ];
+			int i = indexOf( o.getRootObject(), p.getName() );
+			if( i < 0 ) {
+				i = slot( o.getRootObject() == primaryObject.getRootObject()? primaryObject : o, p, later.valueBeforeUpdate[ j ] );
+			}
+			after( i, later.valueAfterUpdate[ j ] );
+		}
+		return this;
+	}
+
+
+	/**
+	 * Return names of properties of the root Entity that have been altered. Updates
+	 * of an object nested in an Entity property, e.g. a contact of a Customer, are
+	 * reported by the name of that property.
+	 *
+	 * @return names of altered properties of the root Entity.
+	 */
+	public Set<String> getUpdatedPropertyNames() {
+		Set<String> names = new LinkedHashSet<String>();
+		for( int i = altered.nextSetBit( 0 ); i >= 0; i = altered.nextSetBit( i + 1 ) ) {
+			EntityProperty parentProperty = owner[ i ].getParentProperty();
+			names.add( ( parentProperty != null? parentProperty : property[ i ] ).getName() );
 		}
+		return names;
+	}
+
+
+	/**
+	 * Encode altered EntityProperties to output as: version, number of updates and
+	 * name, original and updated value of each update.
+	 *
+	 * @param out output to which updates are encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	public void encode( final DataOutput out ) throws IOException {
+		out.writeByte( EncodingVersion );
+		out.writeShort( altered.cardinality() );
+		for( int i = altered.nextSetBit( 0 ); i >= 0; i = altered.nextSetBit( i + 1 ) ) {
+			out.writeUTF( property[ i ].getName() );
+			out.writeUTF( valueBeforeUpdate[ i ] );
+			out.writeUTF( valueAfterUpdate[ i ] );
+		}
+	}
+
+
+	/**
+	 * Encode altered EntityProperties into a byte array.
+	 *
+	 * @return encoded bytes.
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 64 );
+		try {
+			encode( new DataOutputStream( bos ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot encode updates", e );
+		}
+		return bos.toByteArray();
+	}
+
+
+	/**
+	 * Decode update set from input. Properties are resolved by name in the class of
+	 * the root object of primaryObject.
+	 *
+	 * @param in input from which updates are decoded.
+	 * @param primaryObject underlying Entity to which updates belong.
+	 * @return decoded update set.
+	 * @throws IOException if input cannot be read, is malformed or names unknown properties.
+	 */
+	public static EntityPropertyUpdateSet decode( final DataInput in, final Traceable primaryObject ) throws IOException {
+		Map<String,String[]> values = decodeValues( in );
+		EntityClassMetadata metadata = EntityClassMetadata.of( primaryObject.getRootObject().getClass() );
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( primaryObject, values.size() );
+		for( Map.Entry<String,String[]> entry : values.entrySet() ) {
+			String name = entry.getKey();
+			Optional<EntityClassMetadata.PropertyMetadata> p = metadata.findProperty( Pattern.quote( name ) );
+			if( ! p.isPresent() ) {
+				throw new IOException( "unknown property: " + name );
+			}
+			updates.after( updates.slot( primaryObject, new EntityProperty( p.get() ), entry.getValue()[ 0 ] ), entry.getValue()[ 1 ] );
+		}
+		return updates;
+	}
+
+
+	/**
+	 * Decode names and values of updates from input without resolving properties,
+	 * e.g. to inspect recorded updates of Entities that are no longer present.
+	 *
+	 * @param in input from which updates are decoded.
+	 * @return property names mapped to { before, after } values in encoding order.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	public static Map<String,String[]> decodeValues( final DataInput in ) throws IOException {
+		byte version = in.readByte();
+		if( version != EncodingVersion ) {
+			throw new IOException( "unsupported update set encoding: " + version );
+		}
+		int n = in.readUnsignedShort();
+		Map<String,String[]> values = new LinkedHashMap<String,String[]>();
+		for( int i = 0; i < n; i++ ) {
+			String name = in.readUTF();
+			String before = in.readUTF();
+			values.put( name, new String[] { before, in.readUTF() } );
+		}
+		return values;
+	}
+
+
+	/**
+	 * Decode update set from a byte array.
+	 *
+	 * @param bytes encoded updates.
+	 * @param primaryObject underlying Entity to which updates belong.
+	 * @return decoded update set.
+	 * @throws IOException if bytes are malformed or name unknown properties.
+	 */
+	public static EntityPropertyUpdateSet fromBytes( final byte[] bytes, final Traceable primaryObject ) throws IOException {
+		return decode( new DataInputStream( new ByteArrayInputStream( bytes ) ), primaryObject );
 	}
 
 
@@ -112,10 +332,55 @@ public class EntityPropertyUpdateSet {
 	 * Clear EntityPropertyUpdateSet and release all references from lists.
 	 */
 	public void clear() {
-		property.clear();
-		valueBeforeUpdate.clear();
-		valueAfterUpdate.clear();
-		alteredIndex.clear();
+		Arrays.fill( property, 0, size, null );
+		Arrays.fill( owner, 0, size, null );
+		Arrays.fill( valueBeforeUpdate, 0, size, null );
+		Arrays.fill( valueAfterUpdate, 0, size, null );
+		altered.clear();
+		size = 0;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private int slot( final Traceable obj, final EntityProperty prop, final String value ) {
+		if( size == property.length ) {		// only grows if more properties than the capacity are recorded
+			int cap = size * 2;
+			property = Arrays.copyOf( property, cap );
+			owner = Arrays.copyOf( owner, cap );
+			valueBeforeUpdate = Arrays.copyOf( valueBeforeUpdate, cap );
+			valueAfterUpdate = Arrays.copyOf( valueAfterUpdate, cap );
+		}
+		property[ size ] = prop;
+		owner[ size ] = obj;
+		valueBeforeUpdate[ size ] = value;
+		return size++;
+	}
+
+	private int indexOf( final Object obj, final String name ) {
+		for( int i = 0; i < size; i++ ) {
+			if( owner[ i ].getRootObject() == obj && property[ i ].getName().equals( name ) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Return Entity at the top of the object tree of an object, e.g. the Customer of a contact.
+	 */
+	private static Object entityOf( final Traceable obj ) {
+		Traceable t = obj;
+		while( t.hasParent() ) {
+			t = t.getParent();
+		}
+		return t.getRootObject();
+	}
+
+	private static String trim( final String value ) {
+		return value != null? value.trim() : "";
 	}
 
 }
@@ -0,0 +1,161 @@
+package com.application.se2.misc;
+
+import static com.application.se2.AppConfigurator.LoggerTopics.FieldAccessAltered;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Getter and setter of a field as method handles that are created once per field
+ * and cached per class. Access checks are done once when the handles are created
+ * (private fields are made accessible then), such that reading and writing field
+ * values does not involve reflective access checks and exception handling.
+ *
+ * Handles are adapted to the erased type (Object)Object and (Object,Object)void
+ * and invoked with invokeExact, primitive values are boxed and unboxed by the
+ * handles. Static fields ignore the object argument.
+ *
+ * @author sgra64
+ *
+ */
+public final class FieldAccessor {
+	private static final Logger logger = Logger.getInstance( FieldAccessor.class );
+
+	private static final MethodType GetterType = MethodType.methodType( Object.class, Object.class );
+
+	private static final MethodType SetterType = MethodType.methodType( void.class, Object.class, Object.class );
+
+	private static final ClassValue<ConcurrentHashMap<String, FieldAccessor>> accessors =
+		new ClassValue<ConcurrentHashMap<String, FieldAccessor>>() {
+			@Override
+			protected ConcurrentHashMap<String, FieldAccessor> computeValue( final Class<?> clazz ) {
+				return new ConcurrentHashMap<String, FieldAccessor>();
+			}
+		};
+
+	private final Field field;
+
+	private final MethodHandle getter;		// null if field is not accessible
+
+	private final MethodHandle setter;		// null if field is not accessible or static final
+
+
+	/**
+	 * Return accessor of a field, accessors are created once per field.
+	 *
+	 * @param field field to access.
+	 * @return accessor of field.
+	 */
+	public static FieldAccessor of( final Field field ) {
+		return accessors.get( field.getDeclaringClass() ).computeIfAbsent( field.getName(), name -> new FieldAccessor( field ) );
+	}
+
+
+	/**
+	 * Return value of the field in an object.
+	 *
+	 * @param obj object of which the field value is returned, ignored for static fields.
+	 * @return field value, primitive values are boxed.
+	 * @throws IllegalArgumentException if obj is not an instance of the field's class or field is not accessible.
+	 */
+	public Object get( final Object obj ) {
+		if( getter == null ) {
+			throw new IllegalArgumentException( "field '" + field.getName() + "' is not accessible" );
+		}
+		try {
+			return (Object)getter.invokeExact( obj );
+
+		} catch( ClassCastException e ) {
+			throw new IllegalArgumentException( "cannot get field '" + field.getName() + "' of " + className( obj ), e );
+
+		} catch( RuntimeException | Error e ) {
+			throw e;
+
+		} catch( Throwable t ) {
+			throw new IllegalStateException( t );
+		}
+	}
+
+
+	/**
+	 * Set value of the field in an object.
+	 *
+	 * @param obj object of which the field value is set, ignored for static fields.
+	 * @param value new value, unboxed for primitive fields.
+	 * @throws IllegalAccessException if field is not accessible or static final.
+	 * @throws IllegalArgumentException if obj is not an instance of the field's class or value does not match the field type.
+	 */
+	public void set( final Object obj, final Object value ) throws IllegalAccessException {
+		if( setter == null ) {
+			throw new IllegalAccessException( "field '" + field.getName() + "' cannot be set" );
+		}
+		try {
+			setter.invokeExact( obj, value );
+
+		} catch( ClassCastException | NullPointerException e ) {
+			throw new IllegalArgumentException( "cannot set field '" + field.getName() + "' of " + className( obj ) + " to " + value, e );
+
+		} catch( RuntimeException | Error e ) {
+			throw e;
+
+		} catch( Throwable t ) {
+			throw new IllegalStateException( t );
+		}
+	}
+
+
+	/**
+	 * Return the underlying field.
+	 *
+	 * @return underlying field.
+	 */
+	public Field getField() {
+		return field;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private FieldAccessor( final Field field ) {
+		this.field = field;
+		MethodHandle get = null;
+		MethodHandle set = null;
+		try {
+			int mod = field.getModifiers();
+			if( ! Modifier.isPublic( mod ) || ! Modifier.isPublic( field.getDeclaringClass().getModifiers() ) || Modifier.isFinal( mod ) ) {
+				field.setAccessible( true );	// final fields are only settable when accessible
+				logger.log( FieldAccessAltered, "Field '{}' set accessible.", field.getName() );
+			}
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			get = lookup.unreflectGetter( field );
+			if( Modifier.isStatic( mod ) ) {
+				get = MethodHandles.dropArguments( get, 0, Object.class );
+			}
+			get = get.asType( GetterType );
+			if( ! ( Modifier.isStatic( mod ) && Modifier.isFinal( mod ) ) ) {
+				set = lookup.unreflectSetter( field );
+				if( Modifier.isStatic( mod ) ) {
+					set = MethodHandles.dropArguments( set, 0, Object.class );
+				}
+				set = set.asType( SetterType );
+			}
+
+		} catch( IllegalAccessException | RuntimeException e ) {
+			logger.error( "no accessor for field '" + field.getName() + "': " + e.getMessage(), e );
+		}
+		this.getter = get;
+		this.setter = set;
+	}
+
+	private static String className( final Object obj ) {
+		return obj == null? "null" : obj.getClass().getName();
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.application.se2.misc;
+
+import java.util.List;
+
+
+/**
+ * Interface of accessor classes generated at compile time for classes with
+ * fields marked as ViewableProperty. Properties are addressed by index in the
+ * order of getPropertyNames(), values are read and written by calling getter
+ * and setter methods without reflection.
+ *
+ * Generated accessors are named &lt;Class&gt;_Accessor and are found by
+ * EntityClassMetadata. Classes without generated accessor are accessed
+ * through FieldAccessor.
+ *
+ * @author sgra64
+ *
+ */
+public interface GeneratedAccessor {
+
+	/**
+	 * Suffix appended to the class name for the name of its generated accessor.
+	 */
+	String Suffix = "_Accessor";
+
+
+	/**
+	 * Return names of accessible properties (field names) in declaration order.
+	 * @return property names, index of a name is the property index.
+	 */
+	String[] getPropertyNames();
+
+	/**
+	 * Return value of a property.
+	 * @param obj object of which the property value is returned.
+	 * @param property index of property.
+	 * @return property value, primitive values are boxed.
+	 * @throws ClassCastException if obj is not an instance of the accessed class.
+	 */
+	Object get( Object obj, int property );
+
+	/**
+	 * Return value of a property as String, primitive values are not boxed.
+	 * @param obj object of which the property value is returned.
+	 * @param property index of property.
+	 * @return property value as String or null if value is null.
+	 * @throws ClassCastException if obj is not an instance of the accessed class.
+	 */
+	String getString( Object obj, int property );
+
+	/**
+	 * Return value of a List property.
+	 * @param obj object of which the property value is returned.
+	 * @param property index of property.
+	 * @return property value or null if property is not of a List type.
+	 * @throws ClassCastException if obj is not an instance of the accessed class.
+	 */
+	List<?> getList( Object obj, int property );
+
+	/**
+	 * Set value of a property.
+	 * @param obj object of which the property value is set.
+	 * @param property index of property.
+	 * @param value new value, unboxed for primitive properties.
+	 * @return true if value was set, false if property has no setter.
+	 * @throws ClassCastException if obj or value does not match the class or property type.
+	 * @throws NullPointerException if value is null for a primitive property.
+	 */
+	boolean set( Object obj, int property, Object value );
+
+}
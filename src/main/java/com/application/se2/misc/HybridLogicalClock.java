@@ -0,0 +1,156 @@
+package com.application.se2.misc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Lock-free hybrid logical clock (HLC) that issues unique, strictly increasing
+ * timestamps as primitive longs. A timestamp packs wall-clock milliseconds with a
+ * logical counter and a node id:
+ *
+ *   | 48 bits epoch millis | 12 bits logical counter | 4 bits node id |
+ *
+ * A timestamp is the maximum of the wall clock and the previous timestamp plus one
+ * logical tick, installed with a CAS on an AtomicLong. When more than 4096 timestamps
+ * are issued within one millisecond, the counter carries into the millis part and
+ * the clock runs slightly ahead of the wall clock until the wall clock catches up.
+ *
+ * Timestamps of different nodes differ in their node id. A node that receives
+ * timestamps from another node passes them to observe(), subsequent timestamps
+ * of the node are then ordered after the received ones.
+ *
+ * @author sgra64
+ *
+ */
+public class HybridLogicalClock {
+
+	private static final int NodeBits = 4;
+
+	private static final int LogicalBits = 12;
+
+	private static final int MillisShift = LogicalBits + NodeBits;
+
+	private static final long NodeMask = ( 1L << NodeBits ) - 1;
+
+	private static final long Tick = 1L << NodeBits;
+
+	private static final HybridLogicalClock _singletonInstance = new HybridLogicalClock( 0 );
+
+	public static final int MaxNodeId = (int)NodeMask;
+
+	private final AtomicLong last = new AtomicLong();
+
+	private volatile long nodeId;
+
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param nodeId id between 0 and MaxNodeId that is unique among replicated nodes.
+	 */
+	public HybridLogicalClock( final int nodeId ) {
+		setNodeId( nodeId );
+	}
+
+
+	/**
+	 * Return clock shared by the process.
+	 *
+	 * @return shared clock instance.
+	 */
+	public static HybridLogicalClock getInstance() {
+		return _singletonInstance;
+	}
+
+
+	/**
+	 * Set id of the node that is packed into timestamps.
+	 *
+	 * @param nodeId id between 0 and MaxNodeId that is unique among replicated nodes.
+	 */
+	public void setNodeId( final int nodeId ) {
+		if( nodeId < 0 || nodeId > MaxNodeId ) {
+			throw new IllegalArgumentException( "node id out of range [0.." + MaxNodeId + "]: " + nodeId );
+		}
+		this.nodeId = nodeId;
+	}
+
+
+	/**
+	 * Issue a new timestamp that is greater than all timestamps issued or observed
+	 * by this clock before.
+	 *
+	 * @return new timestamp.
+	 */
+	public long now() {
+		long wall = System.currentTimeMillis() << MillisShift;
+		while( true ) {
+			long prev = last.get();
+			long next = Math.max( wall, ( prev & ~NodeMask ) + Tick ) | nodeId;
+			if( last.compareAndSet( prev, next ) ) {
+				return next;
+			}
+		}
+	}
+
+
+	/**
+	 * Advance clock past a timestamp received from another node, e.g. with a
+	 * replicated entity, such that subsequent timestamps are ordered after it.
+	 *
+	 * @param timestamp received timestamp.
+	 */
+	public void observe( final long timestamp ) {
+		long prev;
+		while( timestamp > ( prev = last.get() ) ) {
+			if( last.compareAndSet( prev, timestamp ) ) {
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Convert epoch milliseconds into the smallest timestamp of that millisecond.
+	 *
+	 * @param millis epoch milliseconds.
+	 * @return timestamp with logical counter and node id 0.
+	 */
+	public static long fromMillis( final long millis ) {
+		return millis << MillisShift;
+	}
+
+
+	/**
+	 * Return epoch milliseconds of a timestamp.
+	 *
+	 * @param timestamp timestamp issued by a HybridLogicalClock.
+	 * @return epoch milliseconds.
+	 */
+	public static long toMillis( final long timestamp ) {
+		return timestamp >>> MillisShift;
+	}
+
+
+	/**
+	 * Return logical counter of a timestamp.
+	 *
+	 * @param timestamp timestamp issued by a HybridLogicalClock.
+	 * @return logical counter within the millisecond.
+	 */
+	public static int logical( final long timestamp ) {
+		return (int)( ( timestamp >>> NodeBits ) & ( ( 1L << LogicalBits ) - 1 ) );
+	}
+
+
+	/**
+	 * Return id of node that issued a timestamp.
+	 *
+	 * @param timestamp timestamp issued by a HybridLogicalClock.
+	 * @return node id.
+	 */
+	public static int node( final long timestamp ) {
+		return (int)( timestamp & NodeMask );
+	}
+
+}
@@ -1,15 +1,35 @@
 package com.application.se2.misc;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 
 /**
- * Simple ID-Generator using random numbers and supporting a variety of formats
- * such as ALPHANUM, AIRLINE, NUM, HEX, BIN.
- * 
+ * Collision-free ID-Generator supporting a variety of formats such as ALPHANUM,
+ * AIRLINE, NUM, HEX, BIN.
+ *
  * Examples are:
- *  - "C.ED84DX" using prefix "C." followed by a random number of type AIRLINE-code
+ *  - "C.ED84DX" using prefix "C." followed by a 6-digit number of type AIRLINE-code
  *  - "3450629369" as simple 10-digit decimal number
  *  - "A8C86ED4D8" as 10-digit hex number.
- * 
+ *
+ * Ids are derived from a sequence number that is mapped by a Feistel permutation
+ * onto the id space such that ids look random, but never repeat until the id space
+ * is exhausted. Threads claim blocks of sequence numbers from a shared counter and
+ * write ids into a per-thread char buffer.
+ *
+ * With a high-water mark directory, the counter is persisted in reserved ranges
+ * such that ids also do not repeat after a restart (ids of unused reserved ranges
+ * are skipped). Ids that were issued elsewhere, e.g. imported from a snapshot, are
+ * passed to observe() such that generators continue after them.
+ *
  * @author sgra64
  *
  */
@@ -28,10 +48,39 @@ public class IDGenerator {
 		"01"
 	};
 
+	private static final int BlockSize = 256;			// sequence numbers claimed by a thread at once
+
+	private static final long Reservation = 65_536;		// sequence numbers reserved with each persisted high-water mark
+
+	private static final int Rounds = 4;
+
+	private static final List<IDGenerator> generators = new CopyOnWriteArrayList<IDGenerator>();
+
+	private static volatile Path highWaterMarkDirectory = null;
+
+	private final char[] chars;
+
+	private final long space;		// number of ids, capped at 2^62
+
+	private final int halfBits;
+
+	private final long halfMask;
+
+	private final long[] keys = new long[ Rounds ];
+
+	private final AtomicLong counter = new AtomicLong();
+
+	private final ThreadLocal<Block> blocks = ThreadLocal.withInitial( () -> new Block() );
+
+	private volatile long reserved = Long.MAX_VALUE;	// sequence numbers below are covered by the persisted high-water mark
+
+	private volatile int epoch = 0;		// incremented when the counter is moved, invalidates claimed blocks
+
+	private Path highWaterMarkFile = null;
+
 
 	/**
 	 * Public constructor.
-	 * @param _prefix prefix followed by random number.
 	 * @param type one of the IDTYPE's.
 	 * @param len total number of digits.
 	 */
@@ -39,35 +88,224 @@ public class IDGenerator {
 		this( "", type, len );
 	}
 
+	/**
+	 * Public constructor.
+	 * @param prefix prefix followed by the digits of the id.
+	 * @param type one of the IDTYPE's.
+	 * @param len total number of digits.
+	 */
 	public IDGenerator( final String prefix, final IDTYPE type, final int len ) {
-		this.prefix = prefix;
+		this.prefix = prefix == null? "" : prefix;
 		this.len = len;
 		this.alphabet = alphabets[ type.ordinal() ];
+		this.chars = alphabet.toCharArray();
+
+		long n = 1;
+		for( int i = 0; i < len && n <= ( 1L << 62 ) / chars.length; i++ ) {
+			n *= chars.length;
+		}
+		this.space = n;
+		int bits = 64 - Long.numberOfLeadingZeros( n - 1 );
+		this.halfBits = Math.max( 1, ( bits + 1 ) / 2 );
+		this.halfMask = ( 1L << halfBits ) - 1;
+
+		long seed = ( this.prefix + "/" + type + "/" + len ).hashCode() * 0x9E3779B97F4A7C15L;
+		for( int i = 0; i < Rounds; i++ ) {
+			keys[ i ] = seed = mix( seed + 0x632BE59BD9B4E019L );
+		}
+		generators.add( this );
+		Path directory = highWaterMarkDirectory;
+		if( directory != null ) {
+			persistIn( directory );
+		}
+	}
+
+
+	/**
+	 * Persist high-water marks of all generators, also generators created later,
+	 * in a directory such that ids do not repeat after a restart.
+	 *
+	 * @param directory directory of high-water mark files, null to no longer persist high-water marks.
+	 */
+	public static void setHighWaterMarkDirectory( final Path directory ) {
+		highWaterMarkDirectory = directory;
+		for( IDGenerator generator : generators ) {
+			generator.persistIn( directory );
+		}
+	}
+
+
+	/**
+	 * Advance all generators past an id that was issued earlier, e.g. by another
+	 * process, such that it is not issued again. Generators ignore ids that do not
+	 * match their format.
+	 *
+	 * @param id id issued earlier.
+	 */
+	public static void observe( final String id ) {
+		for( IDGenerator generator : generators ) {
+			generator.advancePast( id );
+		}
 	}
 
+
 	/**
 	 * Generate next id.
 	 * @return next id according to the format specified in the constructor.
 	 */
 	public String nextId() {
-		final int alphaLen = alphabet.length();
-		final int chunkSize = 10;	// generate + append chunks of up to 10 digits (long limit)
-		StringBuffer sb = new StringBuffer();
-		if( prefix != null ) {
-			sb.append( prefix );
+		Block block = blocks.get();
+		if( block.next == block.end || block.epoch != epoch ) {
+			block.epoch = epoch;
+			long start = counter.getAndAdd( BlockSize );
+			if( start + BlockSize > reserved ) {
+				reserve( start + BlockSize );
+			}
+			block.next = start;
+			block.end = start + BlockSize;
+		}
+		long seq = block.next++;
+		if( seq >= space ) {
+			block.next = block.end;
+			throw new IllegalStateException( "id space of " + prefix + " exhausted after " + space + " ids" );
+		}
+		long id = permute( seq );
+		char[] buf = block.buf;
+		for( int i = buf.length - 1; i >= prefix.length(); i--, id /= chars.length ) {
+			buf[ i ] = chars[ (int)( id % chars.length ) ];
+		}
+		return new String( buf );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	/*
+	 * Per-thread range [next, end) of claimed sequence numbers and buffer that
+	 * holds the prefix followed by the digits of the last id.
+	 */
+	private final class Block {
+		private long next = 0;
+		private long end = 0;
+		private int epoch = 0;
+		private final char[] buf = new char[ prefix.length() + len ];
+
+		private Block() {
+			prefix.getChars( 0, prefix.length(), buf, 0 );
+		}
+	}
+
+	/*
+	 * Bijection on [0, space): Feistel network over 2 * halfBits bits, values outside
+	 * the id space are mapped again (cycle walking) until they fall inside.
+	 */
+	private long permute( long x ) {
+		do {
+			long l = x >>> halfBits;
+			long r = x & halfMask;
+			for( int i = 0; i < Rounds; i++ ) {
+				long f = mix( r ^ keys[ i ] ) & halfMask;
+				long t = r;
+				r = l ^ f;
+				l = t;
+			}
+			x = ( l << halfBits ) | r;
+		} while( x >= space );
+		return x;
+	}
+
+	/*
+	 * Inverse of permute(): maps an id back to its sequence number.
+	 */
+	private long unpermute( long x ) {
+		do {
+			long l = x >>> halfBits;
+			long r = x & halfMask;
+			for( int i = Rounds - 1; i >= 0; i-- ) {
+				long f = mix( l ^ keys[ i ] ) & halfMask;
+				long t = l;
+				l = r ^ f;
+				r = t;
+			}
+			x = ( l << halfBits ) | r;
+		} while( x >= space );
+		return x;
+	}
+
+	/*
+	 * Move the counter past the sequence number of id, ids of the generator's
+	 * format only.
+	 */
+	private synchronized void advancePast( final String id ) {
+		if( id == null || id.length() != prefix.length() + len || ! id.startsWith( prefix ) ) {
+			return;
 		}
-		for( int l1 = len; l1 > 0; l1 -= chunkSize ) {
-			int l2 = Math.min( chunkSize,  l1 );
-			long rnd = (long)( Math.random() * Math.pow( alphaLen, l2 ) );
-			for( int i=0; i++ < l2; rnd /= alphaLen ) {
-				int k1 = (int)( rnd % alphaLen );
-				sb.append( alphabet.charAt( (int)k1 ) );
+		long x = 0;
+		for( int i = prefix.length(); i < id.length(); i++ ) {
+			int digit = alphabet.indexOf( id.charAt( i ) );
+			if( digit < 0 || x > ( space - 1 - digit ) / chars.length ) {
+				return;		// not a digit or outside the id space
 			}
+			x = x * chars.length + digit;
+		}
+		long seq = unpermute( x );
+		if( counter.get() <= seq ) {
+			counter.accumulateAndGet( seq + 1, Math::max );
+			epoch++;		// claimed blocks may contain seq
+		}
+	}
+
+	private static long mix( long h ) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/*
+	 * Load high-water mark from file and continue after it, ids issued before
+	 * are skipped.
+	 */
+	private synchronized void persistIn( final Path directory ) {
+		if( directory == null ) {
+			highWaterMarkFile = null;
+			reserved = Long.MAX_VALUE;
+			return;
+		}
+		highWaterMarkFile = directory.resolve( "id_" + prefix.replaceAll( "[^A-Za-z0-9]", "_" ) + "_" + alphabet.length() + "_" + len + ".hwm" );
+		try {
+			long mark = Files.exists( highWaterMarkFile )?
+				Long.parseLong( new String( Files.readAllBytes( highWaterMarkFile ), StandardCharsets.US_ASCII ).trim() ) : 0L;
+			counter.accumulateAndGet( mark, Math::max );
+			reserved = counter.get();
+			epoch++;
+
+		} catch( IOException | NumberFormatException e ) {
+			throw new IllegalStateException( "cannot read id high-water mark " + highWaterMarkFile, e );
 		}
-		for( int i=sb.length(); i < len; i++ ) {
-			sb.insert( 0, "0" );
+	}
+
+	/*
+	 * Persist a new high-water mark before sequence numbers up to limit are used.
+	 */
+	private synchronized void reserve( final long limit ) {
+		if( limit > reserved ) {
+			long mark = limit + Reservation;
+			try {
+				Files.createDirectories( highWaterMarkFile.getParent() );
+				Path tmp = highWaterMarkFile.resolveSibling( highWaterMarkFile.getFileName() + ".tmp" );
+				Files.write( tmp, Long.toString( mark ).getBytes( StandardCharsets.US_ASCII ) );
+				Files.move( tmp, highWaterMarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+				reserved = mark;
+
+			} catch( IOException e ) {
+				throw new UncheckedIOException( "cannot write id high-water mark " + highWaterMarkFile, e );
+			}
 		}
-		return sb.toString();
 	}
 
 }
@@ -0,0 +1,136 @@
+package com.application.se2.misc;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+
+/**
+ * List that holds only its size and first element inline and fetches remaining
+ * elements on first access through a loader. Views that only show the number of
+ * elements and the first element (e.g. table cells) never trigger loading.
+ *
+ * Any access beyond the first element and any modification load the list. A loader
+ * that fails leaves the list unloaded, the next access tries again.
+ *
+ * @author sgra64
+ *
+ * @param <T> generic element type.
+ */
+public class LazyList<T> extends AbstractList<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int inlineSize;
+
+	private final T first;
+
+	private transient Supplier<List<T>> loader;
+
+	private volatile List<T> elements = null;
+
+
+	/**
+	 * Public constructor.
+	 *
+	 * @param size number of elements of the list.
+	 * @param first first element, ignored if size is 0.
+	 * @param loader supplier of the remaining size - 1 elements.
+	 */
+	public LazyList( final int size, final T first, final Supplier<List<T>> loader ) {
+		this.inlineSize = size;
+		this.first = first;
+		this.loader = loader;
+	}
+
+
+	/**
+	 * Return whether remaining elements have been loaded.
+	 *
+	 * @return true if list has been loaded.
+	 */
+	public boolean isLoaded() {
+		return elements != null;
+	}
+
+
+	/**
+	 * Load remaining elements such that the list no longer depends on its loader.
+	 */
+	public void materialize() {
+		load();
+	}
+
+
+	/**
+	 * Return number of elements without loading the list.
+	 *
+	 * @return number of elements.
+	 */
+	@Override
+	public int size() {
+		List<T> l = elements;
+		return l != null? l.size() : inlineSize;
+	}
+
+
+	/**
+	 * Return element at index, only the first element is returned without loading the list.
+	 *
+	 * @param index index of element.
+	 * @return element at index.
+	 */
+	@Override
+	public T get( final int index ) {
+		List<T> l = elements;
+		if( l == null && index == 0 && inlineSize > 0 ) {
+			return first;
+		}
+		return load().get( index );
+	}
+
+	@Override
+	public T set( final int index, final T element ) {
+		return load().set( index, element );
+	}
+
+	@Override
+	public void add( final int index, final T element ) {
+		load().add( index, element );
+		modCount++;
+	}
+
+	@Override
+	public T remove( final int index ) {
+		T e = load().remove( index );
+		modCount++;
+		return e;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private synchronized List<T> load() {
+		if( elements == null ) {
+			List<T> l = new ArrayList<T>( Math.max( inlineSize, 10 ) );
+			if( inlineSize > 0 ) {
+				l.add( first );
+				l.addAll( loader.get() );
+			}
+			elements = l;
+			loader = null;
+		}
+		return elements;
+	}
+
+	/*
+	 * Serialize as a plain, fully loaded list.
+	 */
+	private Object writeReplace() {
+		return new ArrayList<T>( load() );
+	}
+
+}
@@ -22,7 +22,29 @@ public interface Logger {
 	}
 
 	/**
-	 * Method to log a message.
+	 * Return whether a log topic is enabled, e.g. to skip preparing log arguments.
+	 * 
+	 * @param topic log topic.
+	 * @return true if entries of topic are logged.
+	 */
+	public static boolean isEnabled( final LoggerTopics topic ) {
+		return LoggerImpl.isEnabled( topic );
+	}
+
+	/**
+	 * Enable or disable a log topic at runtime, initially topics in LoggerConfig are enabled.
+	 * 
+	 * @param topic log topic.
+	 * @param enabled true to enable, false to disable topic.
+	 */
+	public static void setEnabled( final LoggerTopics topic, final boolean enabled ) {
+		LoggerImpl.setEnabled( topic, enabled );
+	}
+
+	/**
+	 * Method to log a message. Messages are templates in which each "{}" is replaced
+	 * by the next argument, remaining arguments are appended. Messages are rendered
+	 * asynchronously and only if the topic is enabled.
 	 * 
 	 * @param topic logs are categorized by (String) topics.
 	 * @param msg log message
@@ -30,6 +52,25 @@ public interface Logger {
 	 */
 	public void log( final LoggerTopics topic, final String msg, final Object... args );
 
+	/**
+	 * Method to log a message with a primitive argument that is not boxed.
+	 * 
+	 * @param topic logs are categorized by (String) topics.
+	 * @param msg log message
+	 * @param value primitive argument
+	 */
+	public void log( final LoggerTopics topic, final String msg, final long value );
+
+	/**
+	 * Method to log a message with a reference and a primitive argument.
+	 * 
+	 * @param topic logs are categorized by (String) topics.
+	 * @param msg log message
+	 * @param arg reference argument
+	 * @param value primitive argument
+	 */
+	public void log( final LoggerTopics topic, final String msg, final Object arg, final long value );
+
 	/**
 	 * Public log methods for a variety of log levels:
 	 * - debug()
@@ -3,125 +3,173 @@ package com.application.se2.misc;
 import static com.application.se2.AppConfigurator.LoggerConfig;
 import static com.application.se2.AppConfigurator.LoggerTopics;
 
-import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.log4j.ConsoleAppender;
-import org.apache.log4j.HTMLLayout;
-import org.apache.log4j.Level;
-import org.apache.log4j.SimpleLayout;
-import org.apache.log4j.xml.XMLLayout;
-import org.apache.log4j.RollingFileAppender;
-
-import com.application.se2.model.Entity;
+import com.application.se2.AppConfigurator.LoggerParams;
 
 
 /**
- * Local implementation of the Logger interface.
- * 
+ * Local implementation of the Logger interface. Logger instances are created
+ * once per class and write log lines through the AsyncLogWriter shared by all
+ * instances, logging threads do not wait for the log file to be written.
+ *
+ * Log messages are templates with arguments that are rendered by the writer
+ * thread. Enabled topics are kept in a bitmask that is checked before anything
+ * is rendered and that can be changed at runtime. Entries of sampled topics are
+ * logged completely up to a number per second and then at a decreasing rate.
+ *
  * @author sgra64
  *
  */
 class LoggerImpl implements Logger {
-	private static LoggerImpl instance = null;
-	private final org.apache.log4j.Logger realLogger;
+	private static final ClassValue<LoggerImpl> instances = new ClassValue<LoggerImpl>() {
+		@Override
+		protected LoggerImpl computeValue( final Class<?> clazz ) {
+			return new LoggerImpl( clazz );
+		}
+	};
+
+	private static final Object[] NoArgs = new Object[ 0 ];
+
+	private static final AtomicLong enabled = new AtomicLong( mask( LoggerConfig ) );	// bit i: topic with ordinal i
+
+	private static final Sampler[] samplers = new Sampler[ LoggerTopics.values().length ];
+	static {
+		for( LoggerTopics topic : LoggerParams.LogSampledTopics ) {
+			samplers[ topic.ordinal() ] = new Sampler( topic );
+		}
+	}
+
+	private final String source;
+
+	private final AsyncLogWriter writer;
+
+
+	/*
+	 * Adaptive sampling of a topic: within each window, the first LogSampleThreshold
+	 * entries are logged, then every 2nd, 4th, 8th... entry as the count grows.
+	 * The number of skipped entries is logged when the next window starts.
+	 */
+	static final class Sampler {
+		private static final long WindowNanos = 1_000_000_000L;
+		private final LoggerTopics topic;
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private volatile long windowStart = System.nanoTime();
+
+		Sampler( final LoggerTopics topic ) {
+			this.topic = topic;
+		}
+
+		boolean admit( final AsyncLogWriter writer ) {
+			long now = System.nanoTime();
+			long start = windowStart;
+			if( now - start > WindowNanos ) {
+				synchronized( this ) {
+					if( windowStart == start ) {	// first thread in new window reports and resets
+						windowStart = now;
+						count.set( 0 );
+						long s = skipped.getAndSet( 0 );
+						if( s > 0 && writer != null ) {
+							writer.append( "INFO", LoggerImpl.class.getSimpleName(),
+								"{} entries of topic " + topic + " sampled out", NoArgs, s, 0 );
+						}
+					}
+				}
+			}
+			long n = count.incrementAndGet();
+			long threshold = LoggerParams.LogSampleThreshold;
+			if( n <= threshold ) {
+				return true;
+			}
+			int k = 64 - Long.numberOfLeadingZeros( n / threshold );	// log every 2^k-th entry
+			if( ( n & ( ( 1L << k ) - 1 ) ) == 0 ) {
+				return true;
+			}
+			skipped.incrementAndGet();
+			return false;
+		}
+	}
+
 
 	/**
 	 * Private constructor to prevent instance creation outside getInstance().
 	 * @param clazz class that identifies the logger instance.
 	 */
 	private LoggerImpl( final Class<?> clazz ) {
-	    realLogger = org.apache.log4j.Logger.getLogger( clazz.getName() );
-	    
-	    SimpleLayout layout = new SimpleLayout();
-	    RollingFileAppender consoleAppender;
-		try {
-			consoleAppender = new RollingFileAppender( layout, "repository_updates.log" );
-			this.realLogger.addAppender( consoleAppender );
-		    // ALL | DEBUG | INFO | WARN | ERROR | FATAL | OFF:
-		    this.realLogger.setLevel( Level.ALL );
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}	    
+		this.source = clazz.getSimpleName();
+		this.writer = AsyncLogWriter.shared();
 	}
 
 	/**
-	 * Create and return logger instance for a given class.
+	 * Return logger instance for a given class, created on first call.
 	 * @param clazz class that identifies the logger instance.
 	 * @return logger instance for the class.
 	 */
 	public static Logger getInstance( final Class<?> clazz ) {
-		return new LoggerImpl( clazz );
+		return instances.get( clazz );
+	}
+
+
+	/**
+	 * Return whether a topic is enabled.
+	 * @param topic log topic.
+	 * @return true if entries of topic are logged.
+	 */
+	static boolean isEnabled( final LoggerTopics topic ) {
+		return ( enabled.get() & ( 1L << topic.ordinal() ) ) != 0;
+	}
+
+
+	/**
+	 * Enable or disable a topic at runtime.
+	 * @param topic log topic.
+	 * @param on true to enable, false to disable topic.
+	 */
+	static void setEnabled( final LoggerTopics topic, final boolean on ) {
+		long bit = 1L << topic.ordinal();
+		enabled.getAndUpdate( m -> on? m | bit : m & ~bit );
 	}
 
 
 	/**
 	 * Method to log a message.
-	 * 
+	 *
 	 * @param topic logs are categorized by (String) topics.
-	 * @param msg log message
+	 * @param msg log message, "{}" are replaced by arguments
 	 * @param args further log information
 	 */
+	@Override
 	public void log( final LoggerTopics topic, final String msg, final Object... args ) {
-		String id = "<none>";
-		String indicator = " - shutdown";
-
-		if( LoggerConfig.contains( topic ) ) {
-
-			switch( topic ) {
-			case Always:
-			case Info:
-			case Warn:
-				realLogger.info( msg );
-				break;
-
-			case Error:
-				System.err.println( "ERROR: " + msg );
-				break;
-
-			case EntityCRUD:
-				/*
-				String cls = "";
-				if( args.length > 0 ) {
-					Object arg = args[ 0 ];
-					arg = arg != null && arg instanceof PrimaryObject? ((PrimaryObject)arg).getObject() : arg;
-					id = arg instanceof Entity? ((Entity)arg).getId() : String.valueOf( arg.hashCode() );
-					cls= arg.getClass().getSimpleName();
-				}
-				System.out.println( msg + " " + cls + "." + id );
-				*/
-				StringBuffer sb = new StringBuffer( msg );
-				for( Object arg : args ) {
-					sb.append( arg.toString() );
-				}
-				realLogger.info( sb.toString() );
-				break;
-
-			case Startup:
-				indicator = " + startup";
-			case Shutdown:
-				realLogger.info( indicator + ": " + msg );
-				break;
-
-			case PropertiesAltered:
-			case FieldAccessAltered:
-				realLogger.info( msg );				
-				break;
-
-			case RepositoryLoaded:
-				if( args.length > 0 ) {
-					Object arg = args[ 0 ];
-					arg = arg != null && arg instanceof Traceable? ((Traceable)arg).getRootObject() : arg;
-					id = arg instanceof Entity? ((Entity)arg).getId() : String.valueOf( arg.hashCode() );
-				}
-				realLogger.info( "Repository: --> " + id ); 
-				break;
+		log( topic, msg, args, 0L, -1 );
+	}
 
-			case CSSLoaded:
-				realLogger.info( msg );				
-				break;
 
-			}
+	/**
+	 * Method to log a message with a primitive argument that is not boxed.
+	 *
+	 * @param topic logs are categorized by (String) topics.
+	 * @param msg log message, "{}" is replaced by value
+	 * @param value primitive argument
+	 */
+	@Override
+	public void log( final LoggerTopics topic, final String msg, final long value ) {
+		log( topic, msg, NoArgs, value, 0 );
+	}
+
+
+	/**
+	 * Method to log a message with a reference and a primitive argument.
+	 *
+	 * @param topic logs are categorized by (String) topics.
+	 * @param msg log message, "{}" are replaced by arg and value
+	 * @param arg reference argument
+	 * @param value primitive argument
+	 */
+	@Override
+	public void log( final LoggerTopics topic, final String msg, final Object arg, final long value ) {
+		if( isEnabled( topic ) ) {		// allocate argument array only if topic is enabled
+			log( topic, msg, new Object[] { arg }, value, 1 );
 		}
 	}
 
@@ -156,4 +204,51 @@ class LoggerImpl implements Logger {
 		log( LoggerTopics.Error, message );
 	}
 
+
+	/*
+	 * Private methods.
+	 */
+
+	private void log( final LoggerTopics topic, final String msg, final Object[] args, final long value, final int index ) {
+		if( ! isEnabled( topic ) ) {
+			return;
+		}
+		Sampler sampler = samplers[ topic.ordinal() ];
+		if( sampler != null && ! sampler.admit( writer ) ) {
+			return;
+		}
+
+		switch( topic ) {
+		case Error:
+			System.err.println( AsyncLogWriter.render( new StringBuilder( "ERROR: " ), msg, args, value, index ) );
+			break;
+
+		case Startup:
+			writer.append( "INFO", source, " + startup: " + msg, args, value, index );
+			break;
+
+		case Shutdown:
+			writer.append( "INFO", source, " - shutdown: " + msg, args, value, index );
+			break;
+
+		case RepositoryLoaded:
+			// first argument is rendered by id, "<none>" if absent
+			writer.append( "INFO", source, args.length > 0? "Repository: --> {}" : "Repository: --> <none>", args, value, index );
+			break;
+
+		default:
+			// Always, Info, Warn, EntityCRUD, PropertiesAltered, FieldAccessAltered, CSSLoaded
+			writer.append( "INFO", source, msg, args, value, index );
+			break;
+		}
+	}
+
+	private static long mask( final Iterable<LoggerTopics> topics ) {
+		long m = 0L;
+		for( LoggerTopics topic : topics ) {
+			m |= 1L << topic.ordinal();
+		}
+		return m;
+	}
+
 }
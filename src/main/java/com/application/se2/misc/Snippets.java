@@ -13,10 +13,6 @@ import javafx.collections.ListChangeListener;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
 
 import java.text.DateFormatSymbols;
 import java.text.SimpleDateFormat;
@@ -34,14 +30,6 @@ public class Snippets {
 	//public static final SimpleDateFormat DF_yyyy_MM_dd
 	//	= new SimpleDateFormat( "yyyy-MM-dd", Locale.GERMANY );		// "2018-04-02"
 
-	@Retention( RetentionPolicy.RUNTIME )
-	@Target( { ElementType.FIELD } )
-	public @interface ViewableProperty {
-		//String id() default null;
-		//String label() default DEFAULT_LABEL;
-		//int field();//default -1;
-	}
-
 	public static void write( String fileName, String text ) {
 		try {
 			FileWriter fwriter = new FileWriter( fileName, false );
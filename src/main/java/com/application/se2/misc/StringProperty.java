@@ -9,7 +9,7 @@ package com.application.se2.misc;
  */
 public class StringProperty {
 
-	@SuppressWarnings("unused")
+	@ViewableProperty
 	private final String str;
 
 
@@ -21,4 +21,13 @@ public class StringProperty {
 		this.str = str;
 	}
 
+
+	/**
+	 * Return wrapped String.
+	 * @return wrapped String.
+	 */
+	public String getStr() {
+		return str;
+	}
+
 }
@@ -0,0 +1,47 @@
+package com.application.se2.misc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks a field of an Entity class as a property shown in views. For each class
+ * with marked fields, the annotation processor in misc.processor generates a class
+ * &lt;Class&gt;_Accessor that implements GeneratedAccessor and calls the getter and
+ * setter methods of the marked fields directly.
+ *
+ * Getter and setter are found by name: get&lt;Field&gt; (or is&lt;Field&gt; for
+ * boolean fields) and set&lt;Field&gt;. Other names can be given with get and set.
+ * A getter is required, fields without setter are read-only in generated code.
+ *
+ * Fields of type long that hold a HybridLogicalClock timestamp are marked with
+ * clock and are shown and parsed as Date with the date format of their column.
+ *
+ * @author sgra64
+ *
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( { ElementType.FIELD } )
+public @interface ViewableProperty {
+
+	/**
+	 * Name of the getter method, default is get&lt;Field&gt; or is&lt;Field&gt;.
+	 * @return name of getter method.
+	 */
+	String get() default "";
+
+	/**
+	 * Name of the setter method, default is set&lt;Field&gt;, if present.
+	 * @return name of setter method.
+	 */
+	String set() default "";
+
+	/**
+	 * Field holds a HybridLogicalClock timestamp that is shown as Date.
+	 * @return true if field is a clock timestamp.
+	 */
+	boolean clock() default false;
+
+}
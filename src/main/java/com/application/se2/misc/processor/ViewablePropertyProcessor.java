@@ -0,0 +1,267 @@
+package com.application.se2.misc.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+
+/**
+ * Annotation processor that generates a class &lt;Class&gt;_Accessor implementing
+ * misc.GeneratedAccessor for each class with fields marked as misc.ViewableProperty.
+ * Generated accessors call getter and setter methods of the class in a switch over
+ * the property index, such that values are accessed without reflection and calls
+ * can be inlined by the JIT.
+ *
+ * The processor only depends on javax.annotation.processing and javax.lang.model
+ * and refers to misc classes by name. It is compiled before the application sources,
+ * see the maven-compiler-plugin configuration in pom.xml.
+ *
+ * @author sgra64
+ *
+ */
+@SupportedAnnotationTypes( ViewablePropertyProcessor.Annotation )
+public class ViewablePropertyProcessor extends AbstractProcessor {
+
+	static final String Annotation = "com.application.se2.misc.ViewableProperty";
+
+	private static final String Interface = "com.application.se2.misc.GeneratedAccessor";
+
+	private static final String Suffix = "_Accessor";
+
+
+	/*
+	 * Accessible property of a class: field with getter and optional setter.
+	 */
+	private static class Property {
+		private final String name;
+		private final TypeMirror type;
+		private final String getter;
+		private final String setter;	// null if property is read-only
+		private final boolean list;
+
+		private Property( final String name, final TypeMirror type, final String getter, final String setter, final boolean list ) {
+			this.name = name;
+			this.type = type;
+			this.getter = getter;
+			this.setter = setter;
+			this.list = list;
+		}
+	}
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+
+	@Override
+	public boolean process( final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv ) {
+		TypeElement annotation = processingEnv.getElementUtils().getTypeElement( Annotation );
+		if( annotation == null ) {
+			return false;
+		}
+		Set<TypeElement> classes = new LinkedHashSet<TypeElement>();
+		for( Element field : roundEnv.getElementsAnnotatedWith( annotation ) ) {
+			classes.add( (TypeElement)field.getEnclosingElement() );
+		}
+		for( TypeElement clazz : classes ) {
+			if( clazz.getNestingKind() != NestingKind.TOP_LEVEL ) {
+				error( clazz, "@ViewableProperty is only supported in top-level classes" );
+				continue;
+			}
+			List<Property> properties = new ArrayList<Property>();
+			for( VariableElement field : ElementFilter.fieldsIn( clazz.getEnclosedElements() ) ) {	// declaration order
+				AnnotationMirror mirror = mirror( field, annotation );
+				if( mirror != null ) {
+					Property p = property( clazz, field, mirror );
+					if( p != null ) {
+						properties.add( p );
+					}
+				}
+			}
+			write( clazz, properties );
+		}
+		return true;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private Property property( final TypeElement clazz, final VariableElement field, final AnnotationMirror mirror ) {
+		Types types = processingEnv.getTypeUtils();
+		String name = field.getSimpleName().toString();
+		String capitalized = Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+		TypeMirror type = field.asType();
+
+		String getterName = value( mirror, "get" );
+		String setterName = value( mirror, "set" );
+		boolean explicitSetter = ! setterName.isEmpty();
+		if( field.getModifiers().contains( Modifier.STATIC ) ) {
+			error( field, "@ViewableProperty field must not be static" );
+			return null;
+		}
+
+		ExecutableElement getter = null;
+		ExecutableElement setter = null;
+		for( ExecutableElement m : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( clazz ) ) ) {
+			Set<Modifier> mod = m.getModifiers();
+			if( mod.contains( Modifier.PRIVATE ) || mod.contains( Modifier.STATIC ) ) {
+				continue;
+			}
+			String mname = m.getSimpleName().toString();
+			if( m.getParameters().isEmpty() && types.isSameType( types.erasure( m.getReturnType() ), types.erasure( type ) ) &&
+				( getterName.isEmpty()? mname.equals( "get" + capitalized ) || ( type.getKind() == TypeKind.BOOLEAN && mname.equals( "is" + capitalized ) )
+									 : mname.equals( getterName ) ) ) {
+				getter = m;
+			}
+			if( m.getParameters().size() == 1 && types.isSameType( types.erasure( m.getParameters().get( 0 ).asType() ), types.erasure( type ) ) &&
+				mname.equals( explicitSetter? setterName : "set" + capitalized ) ) {
+				setter = m;
+			}
+		}
+		if( getter == null ) {
+			error( field, "no getter " + ( getterName.isEmpty()? "get" + capitalized + "()" : getterName + "()" ) + " returning " + type + " for @ViewableProperty '" + name + "'" );
+			return null;
+		}
+		if( setter == null && explicitSetter ) {
+			error( field, "no setter " + setterName + "(" + type + ") for @ViewableProperty '" + name + "'" );
+			return null;
+		}
+		TypeMirror list = types.erasure( processingEnv.getElementUtils().getTypeElement( "java.util.List" ).asType() );
+		return new Property( name, type, getter.getSimpleName().toString(),
+			setter == null? null : setter.getSimpleName().toString(),
+			types.isAssignable( types.erasure( type ), list )
+		);
+	}
+
+	private void write( final TypeElement clazz, final List<Property> properties ) {
+		String pkg = processingEnv.getElementUtils().getPackageOf( clazz ).getQualifiedName().toString();
+		String simpleName = clazz.getSimpleName().toString();
+		String className = clazz.getQualifiedName().toString();
+		String accessorName = simpleName + Suffix;
+
+		StringBuilder sb = new StringBuilder();
+		if( ! pkg.isEmpty() ) {
+			sb.append( "package " ).append( pkg ).append( ";\n\n" );
+		}
+		sb.append( "/**\n * Accessor of @ViewableProperty fields of " ).append( simpleName )
+			.append( ", generated by " ).append( getClass().getSimpleName() ).append( ".\n */\n" );
+		sb.append( "@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n" );
+		sb.append( "public final class " ).append( accessorName ).append( " implements " ).append( Interface ).append( " {\n\n" );
+
+		sb.append( "\tprivate static final String[] Names = {" );
+		for( int i = 0; i < properties.size(); i++ ) {
+			sb.append( i > 0? ", \"" : " \"" ).append( properties.get( i ).name ).append( "\"" );
+		}
+		sb.append( properties.isEmpty()? "};\n\n" : " };\n\n" );
+
+		sb.append( "\t@Override\n\tpublic String[] getPropertyNames() {\n\t\treturn Names.clone();\n\t}\n\n" );
+
+		sb.append( "\t@Override\n\tpublic Object get( final Object obj, final int property ) {\n" );
+		sb.append( "\t\tfinal " ).append( className ).append( " o = (" ).append( className ).append( ")obj;\n" );
+		sb.append( "\t\tswitch( property ) {\n" );
+		for( int i = 0; i < properties.size(); i++ ) {
+			sb.append( "\t\tcase " ).append( i ).append( ": return o." ).append( properties.get( i ).getter ).append( "();\n" );
+		}
+		sb.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"property \" + property );\n\t\t}\n\t}\n\n" );
+
+		sb.append( "\t@Override\n\tpublic String getString( final Object obj, final int property ) {\n" );
+		sb.append( "\t\tfinal " ).append( className ).append( " o = (" ).append( className ).append( ")obj;\n" );
+		sb.append( "\t\tswitch( property ) {\n" );
+		for( int i = 0; i < properties.size(); i++ ) {
+			Property p = properties.get( i );
+			sb.append( "\t\tcase " ).append( i ).append( ": return " )
+				.append( p.type.getKind().isPrimitive()? "String.valueOf( o." : "string( o." )
+				.append( p.getter ).append( "() );\n" );
+		}
+		sb.append( "\t\tdefault: throw new IndexOutOfBoundsException( \"property \" + property );\n\t\t}\n\t}\n\n" );
+
+		sb.append( "\t@Override\n\tpublic java.util.List<?> getList( final Object obj, final int property ) {\n" );
+		sb.append( "\t\tfinal " ).append( className ).append( " o = (" ).append( className ).append( ")obj;\n" );
+		sb.append( "\t\tswitch( property ) {\n" );
+		for( int i = 0; i < properties.size(); i++ ) {
+			Property p = properties.get( i );
+			if( p.list ) {
+				sb.append( "\t\tcase " ).append( i ).append( ": return o." ).append( p.getter ).append( "();\n" );
+			}
+		}
+		sb.append( "\t\tdefault: return null;\n\t\t}\n\t}\n\n" );
+
+		sb.append( "\t@Override\n\tpublic boolean set( final Object obj, final int property, final Object value ) {\n" );
+		sb.append( "\t\tfinal " ).append( className ).append( " o = (" ).append( className ).append( ")obj;\n" );
+		sb.append( "\t\tswitch( property ) {\n" );
+		for( int i = 0; i < properties.size(); i++ ) {
+			Property p = properties.get( i );
+			if( p.setter != null ) {
+				sb.append( "\t\tcase " ).append( i ).append( ": o." ).append( p.setter )
+					.append( "( (" ).append( boxed( p.type ) ).append( ")value ); return true;\n" );
+			}
+		}
+		sb.append( "\t\tdefault: return false;\n\t\t}\n\t}\n\n" );
+
+		sb.append( "\tprivate static String string( final Object value ) {\n\t\treturn value == null? null : value.toString();\n\t}\n\n" );
+		sb.append( "}\n" );
+
+		try( Writer writer = processingEnv.getFiler().createSourceFile( pkg.isEmpty()? accessorName : pkg + "." + accessorName, clazz ).openWriter() ) {
+			writer.write( sb.toString() );
+
+		} catch( IOException e ) {
+			error( clazz, "cannot write " + accessorName + ": " + e.getMessage() );
+		}
+	}
+
+	private String boxed( final TypeMirror type ) {
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror t = type.getKind().isPrimitive()? types.boxedClass( (PrimitiveType)type ).asType() : types.erasure( type );
+		return t.toString();
+	}
+
+	private AnnotationMirror mirror( final Element element, final TypeElement annotation ) {
+		for( AnnotationMirror m : element.getAnnotationMirrors() ) {
+			if( processingEnv.getTypeUtils().isSameType( m.getAnnotationType(), annotation.asType() ) ) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private String value( final AnnotationMirror mirror, final String name ) {
+		for( Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet() ) {
+			if( e.getKey().getSimpleName().contentEquals( name ) ) {
+				return e.getValue().getValue().toString();
+			}
+		}
+		return "";
+	}
+
+	private void error( final Element element, final String msg ) {
+		processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, msg, element );
+	}
+
+}
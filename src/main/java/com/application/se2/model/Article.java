@@ -2,6 +2,7 @@ package com.application.se2.model;
 
 import com.application.se2.Application;
 import com.application.se2.misc.IDGenerator;
+import com.application.se2.misc.ViewableProperty;
 
 
 /**
@@ -19,10 +20,13 @@ public class Article implements Entity {
 	/*
 	 * Entity Properties.
 	 */
+	@ViewableProperty
 	private final String id;
 
+	@ViewableProperty
 	private String name;
 
+	@ViewableProperty
 	private String price;
 
 
@@ -36,12 +40,13 @@ public class Article implements Entity {
 	}
 
 	/**
-	 * Private constructor.
+	 * Public constructor to re-create an Article with a known id, e.g. when an
+	 * Article is materialized from a repository storage.
 	 * @param id if null is passed as id, an ID will be generated.
 	 * @param name Article name.
 	 * @param price Article price.
 	 */
-	private Article( final String id, final String name, final String price ) {
+	public Article( final String id, final String name, final String price ) {
 		this.id = id == null? ArticleIdGenerator.nextId() : id;
 		this.name = name;
 		setPrice( price );
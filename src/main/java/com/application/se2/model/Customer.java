@@ -6,6 +6,7 @@ import java.util.List;
 
 import com.application.se2.Application;
 import com.application.se2.misc.IDGenerator;
+import com.application.se2.misc.ViewableProperty;
 
 
 /**
@@ -23,20 +24,27 @@ public class Customer implements Entity {
 	/*
 	 * Entity Properties.
 	 */
+	@ViewableProperty
 	private final String id;
 
+	@ViewableProperty
 	private String name;
 
+	@ViewableProperty
 	private String address;
 
+	@ViewableProperty
 	private final List<String>contacts;
 
+	@ViewableProperty
 	private final List<Note>notes;
 
+	@ViewableProperty( get = "getCreationDate" )
 	private final Date created;
 
 	public enum Status { ACT, SUSP, TERM };
 	//
+	@ViewableProperty
 	private Status status;
 
 
@@ -54,12 +62,36 @@ public class Customer implements Entity {
 	 * @param name Customer name.
 	 */
 	private Customer( final String id, final String name ) {
+		this( id, name, new Date() );
+	}
+
+	/**
+	 * Public constructor to re-create a Customer with a known id and creation date,
+	 * e.g. when a Customer is loaded back from a storage segment.
+	 * @param id if null is passed as id, an ID will be generated.
+	 * @param name Customer name.
+	 * @param created creation date of the Customer.
+	 */
+	public Customer( final String id, final String name, final Date created ) {
+		this( id, name, created, new ArrayList<String>(), new ArrayList<Note>() );
+	}
+
+	/**
+	 * Public constructor to re-create a Customer with collections provided by a storage
+	 * segment, e.g. lists that load their elements on first access.
+	 * @param id if null is passed as id, an ID will be generated.
+	 * @param name Customer name.
+	 * @param created creation date of the Customer.
+	 * @param contacts list of Customer contacts.
+	 * @param notes list of Customer notes.
+	 */
+	public Customer( final String id, final String name, final Date created, final List<String> contacts, final List<Note> notes ) {
 		this.id = id == null? CustomerIdGenerator.nextId() : id;
 		setName( name );
 		this.address = "";
-		this.contacts = new ArrayList<String>();
-		this.notes = new ArrayList<Note>();
-		this.created = new Date();
+		this.contacts = contacts;
+		this.notes = notes;
+		this.created = created;
 		this.status = Status.ACT;	
 	}
 
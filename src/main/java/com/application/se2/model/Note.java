@@ -3,7 +3,9 @@ package com.application.se2.model;
 import java.text.ParseException;
 import java.util.Date;
 
-import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.DateFormats;
+import com.application.se2.misc.HybridLogicalClock;
+import com.application.se2.misc.ViewableProperty;
 
 
 /**
@@ -13,14 +15,19 @@ import com.application.se2.misc.EntityProperty;
  * A Note consists of a timeStamp, a separator (comma) and noteText.
  * Example: "2018-04-02 10:16:24:868, This is a short note."
  * 
+ * The timeStamp is kept as a HybridLogicalClock timestamp such that notes created
+ * concurrently, also on different replicated nodes, have unique and ordered timeStamps.
+ * 
  * @author sgra64
  */
 public class Note {
 	private static final String FieldSeparator = ";; ";
-	private static long lastTimeStamp = 0L;
+	private static final HybridLogicalClock clock = HybridLogicalClock.getInstance();
 
-	private Date timeStamp = null;		// TimeStamp part of Note.
+	@ViewableProperty( get = "getHybridTimeStamp", clock = true )	// shown as Date
+	private long timeStamp = 0L;		// TimeStamp part of Note, 0 if Note has no timeStamp.
 
+	@ViewableProperty( get = "getText", set = "setText" )
 	private String noteText = null;		// Text part of Note.
 
 
@@ -32,11 +39,51 @@ public class Note {
 	 */
 	public Note( String noteStr ) {
 		Object[] parts = parselogStr( noteStr );
-		this.timeStamp = parts[0]==null? null : (Date)parts[0];
+		this.timeStamp = parts[0]==null? clock.now() : HybridLogicalClock.fromMillis( ((Date)parts[0]).getTime() );
 		this.noteText = (String)parts[1];
-		if( this.timeStamp == null ) {
-			this.timeStamp = nextUniqueTimeStamp();
-		}
+	}
+
+
+	/**
+	 * Public constructor to re-create a Note with a known timeStamp.
+	 * 
+	 * @param timeStamp timeStamp part of Note.
+	 * @param noteText text part of Note.
+	 */
+	public Note( Date timeStamp, String noteText ) {
+		this( timeStamp==null? 0L : HybridLogicalClock.fromMillis( timeStamp.getTime() ), noteText );
+	}
+
+
+	/**
+	 * Public constructor to re-create a Note with a known HybridLogicalClock timeStamp.
+	 * 
+	 * @param timeStamp timeStamp part of Note, 0 if Note has no timeStamp.
+	 * @param noteText text part of Note.
+	 */
+	public Note( long timeStamp, String noteText ) {
+		this.timeStamp = timeStamp;
+		this.noteText = noteText;
+	}
+
+
+	/**
+	 * Return note's timeStamp.
+	 * 
+	 * @return note timeStamp or null if Note has no timeStamp.
+	 */
+	public Date getTimeStamp() {
+		return timeStamp==0L? null : new Date( HybridLogicalClock.toMillis( timeStamp ) );
+	}
+
+
+	/**
+	 * Return note's timeStamp as issued by the HybridLogicalClock.
+	 * 
+	 * @return note timeStamp, 0 if Note has no timeStamp.
+	 */
+	public long getHybridTimeStamp() {
+		return timeStamp;
 	}
 
 
@@ -76,7 +123,7 @@ public class Note {
 		if( spl.length > 1 ) {
 			// two parts, try to parse date
 			try {
-				res[0] = EntityProperty.DF_yyyy_MM_dd_HH_mm_ss_SSS.parse( spl[ 0 ] );
+				res[0] = DateFormats.parse( spl[ 0 ], DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS );
 				res[1] = spl[ 1 ];
 
 			} catch( ParseException e ) {
@@ -88,20 +135,4 @@ public class Note {
 		return res;
 	}
 
-	/**
-	 * Helper function to generate a unique timeStamp that differs at least by 1 msec
-	 * from a prior call to nextUniqueTimeStamp().
-	 * @return unique timeStamp as Date object.
-	 */
-	private Date nextUniqueTimeStamp() {
-		Date now = new Date();
-		long nowL = now.getTime();
-		if( nowL <= lastTimeStamp ) {
-			now = new Date( ++lastTimeStamp );
-		} else {
-			lastTimeStamp = nowL;
-		}
-		return now;
-	}
-
 }
@@ -0,0 +1,105 @@
+package com.application.se2.repository;
+
+import static com.application.se2.repository.EntityCodec.readString;
+import static com.application.se2.repository.EntityCodec.writeString;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.application.se2.model.Article;
+
+
+/**
+ * Local codec class to encode Article entities into a compact binary form.
+ *
+ * Layout: id, name, price.
+ *
+ * Properties encoded individually: name, price.
+ *
+ * @author sgra64
+ *
+ */
+class ArticleCodec implements PropertyEntityCodec<Article> {
+
+	/**
+	 * Encode Article to output.
+	 *
+	 * @param a Article to encode.
+	 * @param out output to which Article is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public void encode( final Article a, final DataOutput out ) throws IOException {
+		out.writeUTF( a.getId() );
+		writeString( out, a.getName() );
+		writeString( out, a.getPrice() );
+	}
+
+
+	/**
+	 * Decode Article from input.
+	 *
+	 * @param in input from which Article is decoded.
+	 * @return decoded Article instance.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	@Override
+	public Article decode( final DataInput in ) throws IOException {
+		String id = in.readUTF();
+		String name = readString( in );
+		return new Article( id, name, readString( in ) );
+	}
+
+
+	/**
+	 * Encode value of an Article property to output.
+	 *
+	 * @param a Article of which the property is encoded.
+	 * @param property name of property.
+	 * @param out output to which property value is encoded.
+	 * @return false if the property cannot be encoded individually.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public boolean encodeProperty( final Article a, final String property, final DataOutput out ) throws IOException {
+		switch( property ) {
+		case "name":
+			writeString( out, a.getName() );
+			return true;
+
+		case "price":
+			writeString( out, a.getPrice() );
+			return true;
+
+		default:
+			return false;
+		}
+	}
+
+
+	/**
+	 * Decode value of an Article property from input and assign it to Article.
+	 *
+	 * @param a Article to which the property value is assigned.
+	 * @param property name of property.
+	 * @param in input from which property value is decoded.
+	 * @throws IOException if input cannot be read or property is unknown.
+	 */
+	@Override
+	public void decodeProperty( final Article a, final String property, final DataInput in ) throws IOException {
+		switch( property ) {
+		case "name":
+			a.setName( readString( in ) );
+			break;
+
+		case "price":
+			a.setPrice( readString( in ) );
+			break;
+
+		default:
+			throw new IOException( "unknown Article property: " + property );
+		}
+	}
+
+}
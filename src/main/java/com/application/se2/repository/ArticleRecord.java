@@ -0,0 +1,179 @@
+package com.application.se2.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.application.se2.model.Article;
+
+
+/**
+ * Flyweight view of an Article record held in off-heap memory. Values are decoded
+ * from the underlying buffer when accessed. An ArticleRecord instance is re-positioned
+ * to the next record while iterating and must not be retained beyond a callback.
+ *
+ * Record layout:
+ *   [int capacity][byte live][int len][id][int len][name][int len][price]
+ * with len == -1 for null values.
+ *
+ * @author sgra64
+ *
+ */
+public class ArticleRecord {
+	static final int CapacityOffset = 0;
+	static final int LiveOffset = 4;
+	static final int FieldsOffset = 5;
+
+	private ByteBuffer data = null;
+
+	private int offset = 0;
+
+
+	/**
+	 * Package-local constructor.
+	 */
+	ArticleRecord() { }
+
+
+	/**
+	 * Position flyweight at record offset in data buffer.
+	 *
+	 * @param data buffer holding records.
+	 * @param offset offset of record in buffer.
+	 * @return self reference.
+	 */
+	ArticleRecord wrap( final ByteBuffer data, final int offset ) {
+		this.data = data;
+		this.offset = offset;
+		return this;
+	}
+
+
+	/**
+	 * Return Article id.
+	 *
+	 * @return Article id.
+	 */
+	public String getId() {
+		return readString( offset + FieldsOffset );
+	}
+
+
+	/**
+	 * Return Article name.
+	 *
+	 * @return Article name.
+	 */
+	public String getName() {
+		return readString( skip( offset + FieldsOffset ) );
+	}
+
+
+	/**
+	 * Return Article price.
+	 *
+	 * @return Article price.
+	 */
+	public String getPrice() {
+		return readString( skip( skip( offset + FieldsOffset ) ) );
+	}
+
+
+	/**
+	 * Materialize Article object from record.
+	 *
+	 * @return new Article instance with values of record.
+	 */
+	public Article toArticle() {
+		int pos = offset + FieldsOffset;
+		String id = readString( pos );
+		pos = skip( pos );
+		String name = readString( pos );
+		String price = readString( skip( pos ) );
+		return new Article( id, name, price );
+	}
+
+
+	/*
+	 * Package-local methods used by the repository.
+	 */
+
+	int capacity() {
+		return data.getInt( offset + CapacityOffset );
+	}
+
+	boolean isLive() {
+		return data.get( offset + LiveOffset ) != 0;
+	}
+
+	boolean idEquals( final byte[] id ) {
+		int pos = offset + FieldsOffset;
+		int len = data.getInt( pos );
+		if( len != id.length ) {
+			return false;
+		}
+		pos += Integer.BYTES;
+		for( int i = 0; i < len; i++ ) {
+			if( data.get( pos + i ) != id[ i ] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int encodedSize( final byte[] id, final byte[] name, final byte[] price ) {
+		return FieldsOffset + 3 * Integer.BYTES + length( id ) + length( name ) + length( price );
+	}
+
+	static void encode( final ByteBuffer data, final int offset, final int capacity,
+			final byte[] id, final byte[] name, final byte[] price )
+	{
+		data.putInt( offset + CapacityOffset, capacity );
+		data.put( offset + LiveOffset, (byte)1 );
+		int pos = offset + FieldsOffset;
+		pos = putBytes( data, pos, id );
+		pos = putBytes( data, pos, name );
+		putBytes( data, pos, price );
+	}
+
+	static byte[] bytes( final String str ) {
+		return str != null? str.getBytes( StandardCharsets.UTF_8 ) : null;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private String readString( final int pos ) {
+		int len = data.getInt( pos );
+		if( len < 0 ) {
+			return null;
+		}
+		byte[] b = new byte[ len ];
+		for( int i = 0, p = pos + Integer.BYTES; i < len; i++ ) {
+			b[ i ] = data.get( p + i );
+		}
+		return new String( b, StandardCharsets.UTF_8 );
+	}
+
+	private int skip( final int pos ) {
+		return pos + Integer.BYTES + Math.max( 0, data.getInt( pos ) );
+	}
+
+	private static int length( final byte[] b ) {
+		return b != null? b.length : 0;
+	}
+
+	private static int putBytes( final ByteBuffer data, final int pos, final byte[] b ) {
+		if( b == null ) {
+			data.putInt( pos, -1 );
+			return pos + Integer.BYTES;
+		}
+		data.putInt( pos, b.length );
+		for( int i = 0, p = pos + Integer.BYTES; i < b.length; i++ ) {
+			data.put( p + i, b[ i ] );
+		}
+		return pos + Integer.BYTES + b.length;
+	}
+
+}
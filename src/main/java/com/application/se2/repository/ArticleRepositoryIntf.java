@@ -0,0 +1,25 @@
+package com.application.se2.repository;
+
+import com.application.se2.misc.Callback;
+import com.application.se2.model.Article;
+
+
+/**
+ * Interface of an Article repository that, in addition to the CRUD operations
+ * of RepositoryIntf, allows to scan Articles as lightweight ArticleRecord views
+ * without materializing Article objects.
+ *
+ * @author sgra64
+ *
+ */
+public interface ArticleRepositoryIntf extends RepositoryIntf<Article> {
+
+	/**
+	 * Iterate over all Articles of the repository as flyweight views. The view
+	 * passed to the callback is reused and only valid during the callback.
+	 *
+	 * @param callback invoked for each Article record.
+	 */
+	public void iterateRecords( Callback<ArticleRecord> callback );
+
+}
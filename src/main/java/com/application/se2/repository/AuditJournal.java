@@ -0,0 +1,627 @@
+package com.application.se2.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Append-only binary journal of create, update and delete events of entities for
+ * auditing. An event records time, entity class and id, the session in which the
+ * change was made and, for saves with an EntityPropertyUpdateSet, the encoded
+ * property deltas with values before and after the update.
+ *
+ * Events are appended to the journal file as they occur. Consecutive events form
+ * blocks of about blockBytes, when a block is full its offset, time range and the
+ * sorted ids of its entities are appended to an index file next to the journal.
+ * Queries by time range and entity id look up blocks in the index and only read
+ * blocks that overlap the time range and contain the id. Event times are kept
+ * non-decreasing such that blocks are ordered by time.
+ *
+ * Queries read blocks without blocking appends, close() waits until running queries
+ * have read their blocks. Queries of a closed journal fail with an IOException.
+ *
+ * When the journal is opened, events after the last indexed block are scanned to
+ * rebuild the current block. An incomplete event at the end, e.g. after a crash,
+ * is cut off.
+ *
+ * Journal record layout: [int length][timestamp, op, class, id, session, parent property, has deltas, deltas].
+ * Index entry layout: offset, length, count, first timestamp, last timestamp, #ids, ids[].
+ *
+ * @author sgra64
+ *
+ */
+public class AuditJournal implements Closeable {
+	private static final Logger logger = Logger.getInstance( AuditJournal.class );
+
+	private static final int HeaderSize = Integer.BYTES;
+
+	private static final Op[] Ops = Op.values();
+
+	private static final String[] NoIds = new String[ 0 ];
+
+	private final Path path;
+
+	private final Path indexPath;
+
+	private final FileChannel channel;
+
+	private final FileChannel indexChannel;
+
+	private final String session;
+
+	private final int blockBytes;
+
+	private final LongSupplier clock;
+
+	private final List<Block> blocks = new ArrayList<Block>();	// sealed blocks ordered by offset and time
+
+	private long size = 0L;				// end of journal, offset of next event
+
+	private long indexSize = 0L;		// end of index file
+
+	private long lastTimestamp = Long.MIN_VALUE;
+
+	private long events = 0L;
+
+	// current block that has not been sealed, yet
+	private long currentOffset = 0L;
+	private int currentCount = 0;
+	private long currentFirst = 0L;
+	private final TreeSet<String> currentIds = new TreeSet<String>();
+
+	private final AtomicLong blocksRead = new AtomicLong();
+
+	private final ReentrantReadWriteLock readers = new ReentrantReadWriteLock();	// close() waits for queries reading blocks
+
+
+	/**
+	 * Kind of change recorded in the journal.
+	 */
+	public enum Op { CREATE, UPDATE, DELETE, CLEAR }
+
+
+	/**
+	 * Immutable event read from the journal.
+	 */
+	public static final class Event {
+		private final long timestamp;
+		private final Op op;
+		private final String entityClass;
+		private final String id;
+		private final String session;
+		private final String parentProperty;
+		private final byte[] deltas;
+
+		private Event( final long timestamp, final Op op, final String entityClass, final String id,
+				final String session, final String parentProperty, final byte[] deltas )
+		{
+			this.timestamp = timestamp;
+			this.op = op;
+			this.entityClass = entityClass;
+			this.id = id;
+			this.session = session;
+			this.parentProperty = parentProperty;
+			this.deltas = deltas;
+		}
+
+		/**
+		 * Return time at which event was recorded.
+		 * @return time in milliseconds.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Return kind of change.
+		 * @return kind of change.
+		 */
+		public Op getOp() {
+			return op;
+		}
+
+		/**
+		 * Return name of entity class.
+		 * @return fully qualified name of entity class.
+		 */
+		public String getEntityClass() {
+			return entityClass;
+		}
+
+		/**
+		 * Return entity id.
+		 * @return entity id, empty for CLEAR events.
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Return session in which the change was made.
+		 * @return session.
+		 */
+		public String getSession() {
+			return session;
+		}
+
+		/**
+		 * Return name of the entity property that holds the updated object if the
+		 * update applies to an object nested in the entity, e.g. a contact of a Customer.
+		 * @return name of entity property, empty if updated properties are entity properties.
+		 */
+		public String getParentProperty() {
+			return parentProperty;
+		}
+
+		/**
+		 * Return property deltas of an update.
+		 * @return property names mapped to { before, after } values, empty if no deltas were recorded.
+		 */
+		public Map<String,String[]> getDeltas() {
+			if( deltas.length == 0 ) {
+				return Collections.emptyMap();
+			}
+			try {
+				return EntityPropertyUpdateSet.decodeValues( new DataInputStream( new ByteArrayInputStream( deltas ) ) );
+
+			} catch( IOException e ) {
+				throw new IllegalStateException( "cannot decode deltas of " + id + "@" + timestamp, e );
+			}
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder().append( op ).append( " " )
+				.append( entityClass.substring( entityClass.lastIndexOf( '.' ) + 1 ) ).append( ": " ).append( id )
+				.append( "@" ).append( timestamp ).append( " (" ).append( session ).append( ")" );
+			for( Map.Entry<String,String[]> delta : getDeltas().entrySet() ) {
+				sb.append( parentProperty.isEmpty()? ", " : ", " + parentProperty + "." ).append( delta.getKey() )
+					.append( ": \"" ).append( delta.getValue()[ 0 ] ).append( "\" --> \"" ).append( delta.getValue()[ 1 ] ).append( "\"" );
+			}
+			return sb.toString();
+		}
+	}
+
+
+	/**
+	 * Package-local constructor that opens (or creates) the journal and its index.
+	 *
+	 * @param path path of journal file, the index is kept in a file with suffix ".idx".
+	 * @param session session recorded with events.
+	 * @param blockBytes size of blocks after which an index entry is written.
+	 * @throws IOException if journal cannot be opened.
+	 */
+	AuditJournal( final Path path, final String session, final int blockBytes ) throws IOException {
+		this( path, session, blockBytes, System::currentTimeMillis );
+	}
+
+
+	/**
+	 * Package-local constructor with a clock that provides event timestamps.
+	 *
+	 * @param path path of journal file, the index is kept in a file with suffix ".idx".
+	 * @param session session recorded with events.
+	 * @param blockBytes size of blocks after which an index entry is written.
+	 * @param clock clock that returns time in milliseconds.
+	 * @throws IOException if journal cannot be opened.
+	 */
+	AuditJournal( final Path path, final String session, final int blockBytes, final LongSupplier clock ) throws IOException {
+		this.path = path;
+		this.indexPath = path.resolveSibling( path.getFileName() + ".idx" );
+		this.session = session;
+		this.blockBytes = Math.max( 1, blockBytes );
+		this.clock = clock;
+		if( path.getParent() != null ) {
+			Files.createDirectories( path.getParent() );
+		}
+		this.channel = FileChannel.open( path,
+			StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		this.indexChannel = FileChannel.open( indexPath,
+			StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		readIndex();
+		recover();
+	}
+
+
+	/**
+	 * Create listener that records changes of a repository of an entity class.
+	 *
+	 * @param <E> generic entity type.
+	 * @param clazz entity class.
+	 * @return listener to be registered with the repository.
+	 */
+	<E extends Entity> RepositoryListener<E> listenerFor( final Class<E> clazz ) {
+		final String entityClass = clazz.getName();
+		return new RepositoryListener<E>() {
+
+			@Override
+			public void inserted( E entity ) {
+				append( Op.CREATE, entityClass, entity.getId(), null );
+			}
+
+			@Override
+			public void updated( E entity ) {
+				append( Op.UPDATE, entityClass, entity.getId(), null );
+			}
+
+			@Override
+			public void updated( E entity, EntityPropertyUpdateSet updates ) {
+				append( Op.UPDATE, entityClass, entity.getId(), updates );
+			}
+
+			@Override
+			public void deleted( String id ) {
+				append( Op.DELETE, entityClass, id, null );
+			}
+
+			@Override
+			public void cleared() {
+				append( Op.CLEAR, entityClass, "", null );
+			}
+		};
+	}
+
+
+	/**
+	 * Return events of an entity within a time range, only blocks of the journal
+	 * that overlap the time range and contain the entity are read.
+	 *
+	 * @param from start of time range in milliseconds (inclusive).
+	 * @param to end of time range in milliseconds (inclusive).
+	 * @param id entity id, null for events of all entities.
+	 * @return events in the order in which they were recorded.
+	 * @throws IOException if journal cannot be read or is closed.
+	 */
+	public List<Event> query( final long from, final long to, final String id ) throws IOException {
+		readers.readLock().lock();
+		try {
+			if( ! channel.isOpen() ) {
+				throw new IOException( "audit journal " + path + " is closed" );
+			}
+			return read( from, to, id );
+
+		} finally {
+			readers.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Return events of all entities within a time range.
+	 *
+	 * @param from start of time range in milliseconds (inclusive).
+	 * @param to end of time range in milliseconds (inclusive).
+	 * @return events in the order in which they were recorded.
+	 * @throws IOException if journal cannot be read or is closed.
+	 */
+	public List<Event> query( final long from, final long to ) throws IOException {
+		return query( from, to, null );
+	}
+
+
+	/**
+	 * Return number of events recorded in the journal.
+	 *
+	 * @return number of events.
+	 */
+	public synchronized long size() {
+		return events;
+	}
+
+
+	/**
+	 * Return number of indexed blocks, the current block is not counted.
+	 *
+	 * @return number of indexed blocks.
+	 */
+	public synchronized int blocks() {
+		return blocks.size();
+	}
+
+
+	/**
+	 * Return number of blocks read by queries.
+	 *
+	 * @return number of blocks read.
+	 */
+	long blocksRead() {
+		return blocksRead.get();
+	}
+
+
+	/**
+	 * Return path of journal file.
+	 *
+	 * @return path of journal file.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+
+	/**
+	 * Index the current block and close journal and index files.
+	 */
+	@Override
+	public void close() throws IOException {
+		readers.writeLock().lock();
+		try {
+			synchronized( this ) {
+				if( channel.isOpen() ) {
+					seal();
+					channel.force( true );
+					channel.close();
+					indexChannel.close();
+				}
+			}
+		} finally {
+			readers.writeLock().unlock();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Block {
+		private final long offset;
+		private final int length;
+		private final int count;
+		private final long first;
+		private final long last;
+		private final String[] ids;		// sorted
+
+		private Block( final long offset, final int length, final int count, final long first, final long last, final String[] ids ) {
+			this.offset = offset;
+			this.length = length;
+			this.count = count;
+			this.first = first;
+			this.last = last;
+			this.ids = ids;
+		}
+	}
+
+	private synchronized void append( final Op op, final String entityClass, final String id, final EntityPropertyUpdateSet updates ) {
+		if( ! channel.isOpen() ) {
+			return;
+		}
+		long timestamp = Math.max( clock.getAsLong(), lastTimestamp );	// keep blocks ordered if the clock steps back
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 128 );
+		DataOutputStream out = new DataOutputStream( bos );
+		try {
+			out.writeInt( 0 );		// length, set below
+			out.writeLong( timestamp );
+			out.writeByte( op.ordinal() );
+			out.writeUTF( entityClass );
+			out.writeUTF( id );
+			out.writeUTF( session );
+			EntityProperty parentProperty = updates != null? updates.getRootObject().getParentProperty() : null;
+			out.writeUTF( parentProperty != null? parentProperty.getName() : "" );
+			out.writeBoolean( updates != null && updates.isAltered() );
+			if( updates != null && updates.isAltered() ) {
+				updates.encode( out );
+			}
+			ByteBuffer buf = ByteBuffer.wrap( bos.toByteArray() );
+			buf.putInt( 0, buf.capacity() - HeaderSize );
+			while( buf.hasRemaining() ) {
+				channel.write( buf, size + buf.position() );
+			}
+			if( currentCount == 0 ) {
+				currentOffset = size;
+				currentFirst = timestamp;
+			}
+			size += buf.capacity();
+			add( timestamp, id );
+			if( size - currentOffset >= blockBytes ) {
+				seal();
+			}
+		} catch( IOException e ) {
+			logger.error( "audit: cannot record " + op + " of " + id + ": " + e.getMessage(), e );
+		}
+	}
+
+	private void add( final long timestamp, final String id ) {
+		currentCount++;
+		currentIds.add( id );
+		lastTimestamp = timestamp;
+		events++;
+	}
+
+	/*
+	 * Append index entry of current block to the index file.
+	 */
+	private void seal() throws IOException {
+		if( currentCount == 0 ) {
+			return;
+		}
+		Block block = new Block( currentOffset, (int)( size - currentOffset ), currentCount, currentFirst, lastTimestamp,
+			currentIds.toArray( NoIds ) );
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 64 + block.ids.length * 16 );
+		DataOutputStream out = new DataOutputStream( bos );
+		out.writeLong( block.offset );
+		out.writeInt( block.length );
+		out.writeInt( block.count );
+		out.writeLong( block.first );
+		out.writeLong( block.last );
+		out.writeInt( block.ids.length );
+		for( String id : block.ids ) {
+			out.writeUTF( id );
+		}
+		ByteBuffer buf = ByteBuffer.wrap( bos.toByteArray() );
+		while( buf.hasRemaining() ) {
+			indexChannel.write( buf, indexSize + buf.position() );
+		}
+		indexSize += buf.capacity();
+		blocks.add( block );
+		currentCount = 0;
+		currentIds.clear();
+	}
+
+	/*
+	 * Read index entries of blocks contained in the journal, an incomplete entry
+	 * at the end of the index is cut off.
+	 */
+	private void readIndex() throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate( (int)indexChannel.size() );
+		while( buf.hasRemaining() ) {
+			if( indexChannel.read( buf, buf.position() ) < 0 ) {
+				break;
+			}
+		}
+		ByteArrayInputStream bis = new ByteArrayInputStream( buf.array(), 0, buf.position() );
+		DataInputStream in = new DataInputStream( bis );
+		long journalSize = channel.size();
+		try {
+			while( bis.available() > 0 ) {
+				long offset = in.readLong();
+				int length = in.readInt();
+				int count = in.readInt();
+				long first = in.readLong();
+				long last = in.readLong();
+				String[] ids = new String[ in.readInt() ];
+				for( int i = 0; i < ids.length; i++ ) {
+					ids[ i ] = in.readUTF();
+				}
+				if( offset + length > journalSize ) {
+					break;		// block no longer present in journal
+				}
+				blocks.add( new Block( offset, length, count, first, last, ids ) );
+				events += count;
+				indexSize = buf.position() - bis.available();
+			}
+		} catch( EOFException e ) {
+			// incomplete entry
+		}
+		if( indexSize < indexChannel.size() ) {
+			logger.log( LoggerTopics.Warn, "audit: index {} cut off at {}", indexPath, indexSize );
+			indexChannel.truncate( indexSize );
+		}
+		if( ! blocks.isEmpty() ) {
+			Block block = blocks.get( blocks.size() - 1 );
+			size = block.offset + block.length;
+			lastTimestamp = block.last;
+		}
+	}
+
+	/*
+	 * Scan events after the last indexed block into the current block, an
+	 * incomplete event at the end of the journal is cut off.
+	 */
+	private void recover() throws IOException {
+		long journalSize = channel.size();
+		ByteBuffer header = ByteBuffer.allocate( HeaderSize );
+		while( size + HeaderSize <= journalSize ) {
+			header.clear();
+			readFully( header, size );
+			int length = header.getInt( 0 );
+			if( length <= 0 || size + HeaderSize + length > journalSize ) {
+				break;
+			}
+			ByteBuffer record = ByteBuffer.allocate( length );
+			readFully( record, size + HeaderSize );
+			Event event = decode( record.array(), 0, length );
+			if( currentCount == 0 ) {
+				currentOffset = size;
+				currentFirst = event.timestamp;
+			}
+			size += HeaderSize + length;
+			add( event.timestamp, event.id );
+		}
+		if( size < journalSize ) {
+			logger.log( LoggerTopics.Warn, "audit: journal {} cut off at {}", path, size );
+			channel.truncate( size );
+		}
+	}
+
+	/*
+	 * Read events of blocks overlapping the time range, query() holds the read lock.
+	 */
+	private List<Event> read( final long from, final long to, final String id ) throws IOException {
+		List<Block> candidates = new ArrayList<Block>();
+		synchronized( this ) {
+			int lo = 0;
+			int hi = blocks.size() - 1;
+			while( lo <= hi ) {		// first block with block.last >= from
+				int mid = ( lo + hi ) >>> 1;
+				if( blocks.get( mid ).last < from ) {
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			for( int i = lo; i < blocks.size() && blocks.get( i ).first <= to; i++ ) {
+				Block block = blocks.get( i );
+				if( id == null || Arrays.binarySearch( block.ids, id ) >= 0 ) {
+					candidates.add( block );
+				}
+			}
+			if( currentCount > 0 && lastTimestamp >= from && currentFirst <= to && ( id == null || currentIds.contains( id ) ) ) {
+				candidates.add( new Block( currentOffset, (int)( size - currentOffset ), currentCount, currentFirst, lastTimestamp, NoIds ) );
+			}
+		}
+		List<Event> res = new ArrayList<Event>();
+		for( Block block : candidates ) {
+			ByteBuffer buf = ByteBuffer.allocate( block.length );
+			readFully( buf, block.offset );
+			blocksRead.incrementAndGet();
+			byte[] bytes = buf.array();
+			for( int pos = 0; pos < bytes.length; ) {
+				int length = buf.getInt( pos );
+				Event event = decode( bytes, pos + HeaderSize, length );
+				if( event.timestamp >= from && event.timestamp <= to && ( id == null || id.equals( event.id ) ) ) {
+					res.add( event );
+				}
+				pos += HeaderSize + length;
+			}
+		}
+		return res;
+	}
+
+	private static Event decode( final byte[] bytes, final int offset, final int length ) throws IOException {
+		DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes, offset, length ) );
+		long timestamp = in.readLong();
+		Op op = Ops[ in.readByte() ];
+		String entityClass = in.readUTF();
+		String id = in.readUTF();
+		String session = in.readUTF();
+		String parentProperty = in.readUTF();
+		byte[] deltas = new byte[ in.readBoolean()? in.available() : 0 ];
+		in.readFully( deltas );
+		return new Event( timestamp, op, entityClass, id, session, parentProperty, deltas );
+	}
+
+	private void readFully( final ByteBuffer buf, final long offset ) throws IOException {
+		while( buf.hasRemaining() ) {
+			if( channel.read( buf, offset + buf.position() ) < 0 ) {
+				throw new IOException( "unexpected end of journal " + path + " at " + offset );
+			}
+		}
+	}
+
+}
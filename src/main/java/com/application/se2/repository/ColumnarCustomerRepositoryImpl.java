@@ -0,0 +1,620 @@
+package com.application.se2.repository;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import com.application.se2.model.Customer;
+import com.application.se2.model.Note;
+
+
+/**
+ * Local implementation class of a Customer repository that stores Customers in
+ * columns (struct-of-arrays) instead of one object per Customer:
+ *  - status as byte column (Status ordinal),
+ *  - city and postal code of the address as dictionary-encoded int columns,
+ *  - creation date as long column, CustomerScan.NoCreationDate if a Customer has none,
+ *  - id, name and address as offset-indexed string columns in shared char arrays,
+ *  - contacts and notes as per-row lists.
+ *
+ * Scans (CustomerScan) are evaluated over the columns in tight loops on chunks of
+ * rows that are processed in parallel, dictionary predicates are evaluated once
+ * per dictionary entry. Row-oriented access through RepositoryIntf materializes
+ * Customer objects, changes to them take effect when they are saved.
+ *
+ * Deleted rows are marked in the status column and removed by a compaction of all
+ * columns when they make up more than half of the rows. Rows keep the order in
+ * which Customers were first saved, which is the order of findAll().
+ *
+ * @author sgra64
+ *
+ */
+class ColumnarCustomerRepositoryImpl implements RepositoryIntf<Customer> {
+	private static final int ChunkRows = 64 * 64;		// rows per parallel scan task, multiple of 64
+	private static final byte Deleted = -1;
+	private static final Customer.Status[] Statuses = Customer.Status.values();
+
+	private int rows = 0;			// number of rows including deleted rows
+
+	private int live = 0;			// number of live rows
+
+	private byte[] status;
+
+	private int[] city;
+
+	private int[] postal;
+
+	private long[] created;
+
+	private final StringColumn ids;
+
+	private final StringColumn names;
+
+	private final StringColumn addresses;
+
+	private final List<List<String>> contacts = new ArrayList<List<String>>();
+
+	private final List<List<Note>> notes = new ArrayList<List<Note>>();
+
+	private final Dictionary cities = new Dictionary();
+
+	private final Dictionary postals = new Dictionary();
+
+	private final HashMap<String, Integer> index = new HashMap<String, Integer>();
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param expectedCustomers number of Customers for which columns are initially allocated.
+	 */
+	ColumnarCustomerRepositoryImpl( final int expectedCustomers ) {
+		int n = Math.max( 16, expectedCustomers );
+		this.status = new byte[ n ];
+		this.city = new int[ n ];
+		this.postal = new int[ n ];
+		this.created = new long[ n ];
+		this.ids = new StringColumn( n, 8 );
+		this.names = new StringColumn( n, 16 );
+		this.addresses = new StringColumn( n, 32 );
+	}
+
+
+	/**
+	 * Count Customers matching a scan.
+	 *
+	 * @param scan predicates over Customer properties.
+	 * @return number of matching Customers.
+	 */
+	synchronized long count( final CustomerScan scan ) {
+		long n = 0;
+		for( long word : match( scan ) ) {
+			n += Long.bitCount( word );
+		}
+		return n;
+	}
+
+
+	/**
+	 * Return ids of Customers matching a scan in row order.
+	 *
+	 * @param scan predicates over Customer properties.
+	 * @return ids of matching Customers.
+	 */
+	synchronized List<String> findIds( final CustomerScan scan ) {
+		long[] bits = match( scan );
+		List<String> result = new ArrayList<String>();
+		for( int w = 0; w < bits.length; w++ ) {
+			for( long word = bits[ w ]; word != 0; word &= word - 1 ) {
+				result.add( ids.get( ( w << 6 ) + Long.numberOfTrailingZeros( word ) ) );
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Returns whether entity with given id is present in the repository.
+	 *
+	 * @param entity id.
+	 * @return true if entity is present in the repository.
+	 */
+	@Override
+	public synchronized boolean existsById( String id ) {
+		return index.containsKey( id );
+	}
+
+
+	/**
+	 * Find method that returns the Customer with matching id, materialized from
+	 * its columns.
+	 *
+	 * @param id entity identifier.
+	 * @return Optional of entity matching id.
+	 */
+	@Override
+	public synchronized Optional<Customer> findById( String id ) {
+		Integer row = index.get( id );
+		return row != null? Optional.of( materialize( row ) ) : Optional.empty();
+	}
+
+
+	/**
+	 * Find method that returns all entities of the repository, materialized when
+	 * this method is called.
+	 *
+	 * @return all entities of the repository.
+	 */
+	@Override
+	public synchronized Iterable<Customer> findAll() {
+		List<Customer> result = new ArrayList<Customer>( live );
+		for( int row = 0; row < rows; row++ ) {
+			if( status[ row ] != Deleted ) {
+				result.add( materialize( row ) );
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Find method that returns a set of Entities that have been found based on
+	 * a set of Id's provided as input.
+	 *
+	 * @param ids set of Id's to be looked up in the repository.
+	 * @return set of found Entities.
+	 */
+	@Override
+	public synchronized Iterable<Customer> findAllById( Iterable<String> ids ) {
+		List<Customer> collection = new ArrayList<Customer>();
+		for( String id : ids ) {
+			findById( id ).ifPresent( collection::add );
+		}
+		return collection;
+	}
+
+
+	/**
+	 * Find method that returns entity that matches the regular expression.
+	 *
+	 * @param regEx regular expression to match getName() property.
+	 * @return Optional of entity matching name.
+	 */
+	@Override
+	public synchronized Optional<Customer> findByName( String regEx ) {
+		List<Customer> result = findByName( regEx, 1 );
+		return result.size() > 0? Optional.of( result.get( 0 ) ) : Optional.empty();
+	}
+
+
+	/**
+	 * Find method that returns List of entities matching the name-field. Names are
+	 * matched in place in the name column, only matching rows are materialized.
+	 *
+	 * @param regEx regular expression to match getName() property
+	 * @param limit max number of matching entities returned
+	 * @return List of matching entites (up to limit)
+	 */
+	@Override
+	public synchronized List<Customer> findByName( String regEx, long limit ) {
+		Pattern p = Pattern.compile( regEx );
+		List<Customer> result = new ArrayList<Customer>();
+		for( int row = 0; row < rows && result.size() < limit; row++ ) {
+			if( status[ row ] != Deleted && p.matcher( names.view( row ) ).matches() ) {
+				result.add( materialize( row ) );
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Save Customer values to its row (update if already present, or append row
+	 * if not yet present).
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @return entity that has been saved.
+	 */
+	@Override
+	public synchronized Customer save( Customer entity ) {
+		Integer row = index.get( entity.getId() );
+		if( row == null ) {
+			if( rows == status.length ) {
+				grow( rows * 2 );
+			}
+			row = rows++;
+			ids.set( row, entity.getId() );
+			contacts.add( null );
+			notes.add( null );
+			index.put( entity.getId(), row );
+			live++;
+		}
+		String address = entity.getAddress() == null? "" : entity.getAddress();
+		status[ row ] = (byte)( entity.getStatus() == null? Customer.Status.ACT : entity.getStatus() ).ordinal();
+		city[ row ] = cities.encode( CustomerScan.city( address ) );
+		postal[ row ] = postals.encode( CustomerScan.postal( address ) );
+		created[ row ] = entity.getCreationDate() != null? entity.getCreationDate().getTime() : CustomerScan.NoCreationDate;
+		names.set( row, entity.getName() == null? "" : entity.getName() );
+		addresses.set( row, address );
+		contacts.set( row, new ArrayList<String>( entity.getContacts() ) );
+		notes.set( row, new ArrayList<Note>( entity.getNotes() ) );
+		return entity;
+	}
+
+
+	/**
+	 * Save list of Entities to repository.
+	 *
+	 * @param entities entities to be saved.
+	 * @return entities that have been saved.
+	 */
+	@Override
+	public synchronized Iterable<Customer> saveAll( Iterable<Customer> entities ) {
+		List<Customer> res = new ArrayList<Customer>();
+		for( Customer c : entities ) {
+			res.add( save( c ) );
+		}
+		return res;
+	}
+
+
+	/**
+	 * Returns the number of entities present in repository.
+	 *
+	 * @return number of entities present in repository.
+	 */
+	@Override
+	public synchronized long count() {
+		return live;
+	}
+
+
+	/**
+	 * Delete entity with matching id from the repository.
+	 *
+	 * @param id id of entity to be deleted from the repository.
+	 */
+	@Override
+	public synchronized void deleteById( String id ) {
+		Integer row = index.remove( id );
+		if( row != null ) {
+			status[ row ] = Deleted;
+			names.clear( row );
+			addresses.clear( row );
+			contacts.set( row, null );
+			notes.set( row, null );
+			live--;
+			if( rows - live > rows / 2 && rows - live >= 64 ) {
+				compact();
+			}
+		}
+	}
+
+
+	/**
+	 * Delete entity from repository.
+	 *
+	 * @param entity entity to be deleted from repository.
+	 */
+	@Override
+	public synchronized void delete( Customer entity ) {
+		if( entity != null ) {
+			deleteById( entity.getId() );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param ids list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAllById( Iterable<String> ids ) {
+		for( String id : ids ) {
+			deleteById( id );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param entities list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAll( Iterable<Customer> entities ) {
+		for( Customer c : entities ) {
+			delete( c );
+		}
+	}
+
+
+	/**
+	 * Delete all entities from repository. The result is an empty repository.
+	 */
+	@Override
+	public synchronized void deleteAll() {
+		rows = 0;
+		live = 0;
+		index.clear();
+		contacts.clear();
+		notes.clear();
+		ids.reset();
+		names.reset();
+		addresses.reset();
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	/*
+	 * Column of strings stored back to back in a char array, located per row by
+	 * start offset and length. Strings that do not fit in place are appended, the
+	 * chars they occupied before become garbage that is reclaimed when the column
+	 * is compacted.
+	 */
+	private static final class StringColumn {
+		private char[] chars;
+		private int end = 0;
+		private int garbage = 0;
+		private int[] start;
+		private int[] length;
+
+		private StringColumn( final int rows, final int avgLength ) {
+			this.chars = new char[ rows * avgLength ];
+			this.start = new int[ rows ];
+			this.length = new int[ rows ];
+		}
+
+		private String get( final int row ) {
+			return new String( chars, start[ row ], length[ row ] );
+		}
+
+		private CharSequence view( final int row ) {
+			return CharBuffer.wrap( chars, start[ row ], length[ row ] );
+		}
+
+		private void set( final int row, final String s ) {
+			int len = s.length();
+			if( len > length[ row ] ) {
+				clear( row );
+				if( end + len > chars.length ) {
+					if( garbage > end / 2 ) {
+						compact( start.length );
+					}
+					if( end + len > chars.length ) {
+						chars = Arrays.copyOf( chars, Math.max( chars.length * 2, end + len ) );
+					}
+				}
+				start[ row ] = end;
+				end += len;
+			} else {
+				garbage += length[ row ] - len;
+			}
+			s.getChars( 0, len, chars, start[ row ] );
+			length[ row ] = len;
+		}
+
+		private void clear( final int row ) {
+			garbage += length[ row ];
+			start[ row ] = 0;
+			length[ row ] = 0;
+		}
+
+		/*
+		 * Return whether string of row contains text, text must not be empty.
+		 */
+		private boolean contains( final int row, final char[] text ) {
+			int k = text.length - 1;
+			char first = text[ 0 ];
+			char lastChar = text[ k ];
+			for( int i = start[ row ], last = i + length[ row ] - text.length; i <= last; i++ ) {
+				if( chars[ i ] == first && chars[ i + k ] == lastChar ) {
+					int j = 1;
+					while( j < k && chars[ i + j ] == text[ j ] ) {
+						j++;
+					}
+					if( j >= k ) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * Move strings of rows [0, rows) to the front of a new char array, rows
+		 * after them become empty.
+		 */
+		private void compact( final int rows ) {
+			char[] compacted = new char[ Math.max( 16, ( end - garbage ) * 2 ) ];
+			int pos = 0;
+			for( int row = 0; row < rows; row++ ) {
+				System.arraycopy( chars, start[ row ], compacted, pos, length[ row ] );
+				start[ row ] = pos;
+				pos += length[ row ];
+			}
+			Arrays.fill( start, rows, start.length, 0 );
+			Arrays.fill( length, rows, length.length, 0 );
+			chars = compacted;
+			end = pos;
+			garbage = 0;
+		}
+
+		/*
+		 * Move row from to row to, the string of row to is overwritten.
+		 */
+		private void move( final int from, final int to ) {
+			start[ to ] = start[ from ];
+			length[ to ] = length[ from ];
+		}
+
+		private void grow( final int rows ) {
+			start = Arrays.copyOf( start, rows );
+			length = Arrays.copyOf( length, rows );
+		}
+
+		private void reset() {
+			end = 0;
+			garbage = 0;
+			Arrays.fill( start, 0 );
+			Arrays.fill( length, 0 );
+		}
+	}
+
+	/*
+	 * Dictionary of distinct values with dense codes, code 0 is "".
+	 */
+	private static final class Dictionary {
+		private final List<String> values = new ArrayList<String>();
+		private final HashMap<String, Integer> codes = new HashMap<String, Integer>();
+
+		private Dictionary() {
+			encode( "" );
+		}
+
+		private int encode( final String value ) {
+			Integer code = codes.get( value );
+			if( code == null ) {
+				code = values.size();
+				values.add( value );
+				codes.put( value, code );
+			}
+			return code;
+		}
+
+		/*
+		 * Evaluate predicate once per value, result is indexed by code.
+		 */
+		private boolean[] matching( final Predicate<String> predicate ) {
+			boolean[] result = new boolean[ values.size() ];
+			for( int code = 0; code < result.length; code++ ) {
+				result[ code ] = predicate.test( values.get( code ) );
+			}
+			return result;
+		}
+	}
+
+	/*
+	 * Evaluate scan into a bitmap with a bit per row. Chunks of ChunkRows rows set
+	 * disjoint bitmap words and are evaluated in parallel.
+	 */
+	private long[] match( final CustomerScan scan ) {
+		long[] bits = new long[ ( rows + 63 ) >>> 6 ];
+		int n = rows;
+		int statusMask = scan.getStatusMask() & ( ( 1 << Statuses.length ) - 1 );	// bit 31 clear, Deleted (-1) never matches
+		long from = scan.getCreatedFrom();
+		long to = scan.getCreatedTo();
+		String cityText = scan.getCityContains();
+		String postalText = scan.getPostalPrefix();
+		boolean[] cityOk = cityText != null? cities.matching( c -> c.contains( cityText ) ) : null;
+		boolean[] postalOk = postalText != null? postals.matching( p -> p.startsWith( postalText ) ) : null;
+		char[] nameText = chars( scan.getNameContains() );
+		char[] addressText = chars( scan.getAddressContains() );
+		byte[] status = this.status;		// column references are constant during the scan
+		long[] created = this.created;
+		int[] city = this.city;
+		int[] postal = this.postal;
+
+		int chunks = ( n + ChunkRows - 1 ) / ChunkRows;
+		IntStream range = IntStream.range( 0, chunks );
+		( chunks > 1? range.parallel() : range ).forEach( chunk -> {
+			int end = Math.min( n, ( chunk + 1 ) * ChunkRows );
+			for( int w = chunk * ChunkRows >>> 6, wend = ( end + 63 ) >>> 6; w < wend; w++ ) {
+				long word = 0L;
+				for( int row = w << 6, last = Math.min( end, row + 64 ); row < last; row++ ) {
+					int s = status[ row ];
+					long c = created[ row ];
+					boolean m = ( statusMask >>> s & 1 ) != 0 & c >= from & c < to;	// no branches on unpredictable values
+					if( cityOk != null ) {
+						m &= cityOk[ city[ row ] ];
+					}
+					if( postalOk != null ) {
+						m &= postalOk[ postal[ row ] ];
+					}
+					word |= ( m? 1L : 0L ) << row;
+				}
+				if( nameText != null || addressText != null ) {
+					for( long candidates = word; candidates != 0; candidates &= candidates - 1 ) {
+						int row = ( w << 6 ) + Long.numberOfTrailingZeros( candidates );
+						if( ( nameText != null && ! names.contains( row, nameText ) ) ||
+							( addressText != null && ! addresses.contains( row, addressText ) ) )
+						{
+							word &= ~( 1L << row );
+						}
+					}
+				}
+				bits[ w ] = word;
+			}
+		});
+		return bits;
+	}
+
+	/*
+	 * Return chars of a text predicate, null if text is null or empty (matches all).
+	 */
+	private static char[] chars( final String text ) {
+		return text == null || text.isEmpty()? null : text.toCharArray();
+	}
+
+	private Customer materialize( final int row ) {
+		Date date = created[ row ] != CustomerScan.NoCreationDate? new Date( created[ row ] ) : null;
+		return new Customer( ids.get( row ), names.get( row ), date,
+				new ArrayList<String>( contacts.get( row ) ), new ArrayList<Note>( notes.get( row ) ) )
+			.setAddress( addresses.get( row ) )
+			.setStatus( Statuses[ status[ row ] ] );
+	}
+
+	private void grow( final int newRows ) {
+		status = Arrays.copyOf( status, newRows );
+		city = Arrays.copyOf( city, newRows );
+		postal = Arrays.copyOf( postal, newRows );
+		created = Arrays.copyOf( created, newRows );
+		ids.grow( newRows );
+		names.grow( newRows );
+		addresses.grow( newRows );
+	}
+
+	/*
+	 * Remove deleted rows, live rows keep their order.
+	 */
+	private void compact() {
+		int to = 0;
+		for( int row = 0; row < rows; row++ ) {
+			if( status[ row ] == Deleted ) {
+				ids.clear( row );
+				continue;
+			}
+			if( to != row ) {
+				status[ to ] = status[ row ];
+				city[ to ] = city[ row ];
+				postal[ to ] = postal[ row ];
+				created[ to ] = created[ row ];
+				ids.move( row, to );
+				names.move( row, to );
+				addresses.move( row, to );
+				contacts.set( to, contacts.get( row ) );
+				notes.set( to, notes.get( row ) );
+				index.put( ids.get( to ), to );
+			}
+			to++;
+		}
+		contacts.subList( to, rows ).clear();
+		notes.subList( to, rows ).clear();
+		rows = to;
+		ids.compact( rows );
+		names.compact( rows );
+		addresses.compact( rows );
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.application.se2.repository;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Local class of a hash index from normalized contact values to ids of Customers
+ * owning them. The index is maintained as a RepositoryListener: each save of a
+ * Customer, e.g. after contacts were added or edited, re-indexes only contacts
+ * that changed since the Customer's last save.
+ *
+ * Updates are serialized by the repository, lookups are lock-free.
+ *
+ * @author sgra64
+ *
+ */
+class ContactIndex implements RepositoryListener<Customer> {
+
+	/*
+	 * Phone number with optional label, e.g. "home: 030 8266-5204", "+49 170 82568462".
+	 */
+	private static final Pattern Phone = Pattern.compile( "([\\p{L} ]+:)?[ +0-9()/.-]+" );
+
+	private static final int MinPhoneDigits = 5;
+
+	/*
+	 * normalized contact -> ids of Customers owning the contact.
+	 */
+	private final Map<String, Set<String>> index = new ConcurrentHashMap<String, Set<String>>();
+
+	/*
+	 * Customer id -> normalized contacts indexed for the Customer.
+	 */
+	private final Map<String, Set<String>> indexed = new ConcurrentHashMap<String, Set<String>>();
+
+
+	/**
+	 * Return normalized form of a contact: digits only for phone numbers, otherwise
+	 * trimmed and lower-cased.
+	 *
+	 * @param contact contact value.
+	 * @return normalized contact, empty String for null.
+	 */
+	static String normalize( final String contact ) {
+		if( contact == null ) {
+			return "";
+		}
+		String c = contact.trim();
+		if( Phone.matcher( c ).matches() ) {
+			int colon = c.indexOf( ':' );
+			String digits = c.substring( colon + 1 ).replaceAll( "[^0-9]", "" );
+			if( digits.length() >= MinPhoneDigits ) {
+				return digits;
+			}
+		}
+		return c.toLowerCase( Locale.ROOT );
+	}
+
+
+	/**
+	 * Return ids of Customers owning a contact.
+	 *
+	 * @param contact contact value, normalized before lookup.
+	 * @return unmodifiable set of Customer ids, empty if none.
+	 */
+	Set<String> lookup( final String contact ) {
+		Set<String> ids = index.get( normalize( contact ) );
+		return ids != null? Collections.unmodifiableSet( ids ) : Collections.emptySet();
+	}
+
+
+	/**
+	 * Return number of distinct normalized contacts in the index.
+	 *
+	 * @return number of indexed contacts.
+	 */
+	int size() {
+		return index.size();
+	}
+
+
+	@Override
+	public void inserted( final Customer c ) {
+		reindex( c );
+	}
+
+	@Override
+	public void updated( final Customer c ) {
+		reindex( c );
+	}
+
+	@Override
+	public void deleted( final String id ) {
+		Set<String> previous = indexed.remove( id );
+		if( previous != null ) {
+			for( String key : previous ) {
+				remove( key, id );
+			}
+		}
+	}
+
+	@Override
+	public void cleared() {
+		indexed.clear();
+		index.clear();
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private void reindex( final Customer c ) {
+		String id = c.getId();
+		Set<String> keys = new HashSet<String>();
+		for( String contact : c.getContacts() ) {
+			String key = normalize( contact );
+			if( key.length() > 0 ) {
+				keys.add( key );
+			}
+		}
+		Set<String> previous = indexed.put( id, keys );
+		if( previous != null ) {
+			for( String key : previous ) {
+				if( ! keys.contains( key ) ) {
+					remove( key, id );
+				}
+			}
+		}
+		for( String key : keys ) {
+			if( previous == null || ! previous.contains( key ) ) {
+				index.computeIfAbsent( key, k -> ConcurrentHashMap.newKeySet() ).add( id );
+			}
+		}
+	}
+
+	private void remove( final String key, final String id ) {
+		index.computeIfPresent( key, ( k, ids ) -> {
+			ids.remove( id );
+			return ids.isEmpty()? null : ids;
+		});
+	}
+
+}
@@ -0,0 +1,275 @@
+package com.application.se2.repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Local class of a counting Bloom filter over entity ids. The filter answers
+ * whether an id may be present in a repository: false means the id is certainly
+ * absent, true means it is present or a false positive. Counters instead of bits
+ * allow ids to be removed when entities are deleted.
+ *
+ * Counters have 4 bits, 16 counters are packed into one long. A counter that
+ * reaches 15 sticks and is no longer decremented, which can only cause false
+ * positives. Size and number of hash functions are derived from the expected
+ * number of ids and the false positive rate.
+ *
+ * Updates must be serialized by the caller, mightContain() is lock-free.
+ *
+ * @author sgra64
+ *
+ */
+class CountingBloomFilter {
+
+	private static final int CounterBits = 4;
+
+	private static final int CountersPerWord = Long.SIZE / CounterBits;
+
+	private static final long CounterMax = ( 1L << CounterBits ) - 1;
+
+	private final long capacity;
+
+	private final double falsePositiveRate;
+
+	private final int counters;
+
+	private final int hashes;
+
+	private final AtomicLongArray words;
+
+	private volatile long size = 0;
+
+	private volatile long saturated = 0;		// counters that reached CounterMax
+
+
+	/**
+	 * Package-local constructor.
+	 *
+	 * @param capacity expected number of ids.
+	 * @param falsePositiveRate false positive rate at capacity, e.g. 0.01.
+	 */
+	CountingBloomFilter( final long capacity, final double falsePositiveRate ) {
+		this.capacity = Math.max( 1, capacity );
+		this.falsePositiveRate = Math.min( 0.5, Math.max( 1e-9, falsePositiveRate ) );
+		double ln2 = Math.log( 2 );
+		long m = (long)Math.ceil( -this.capacity * Math.log( this.falsePositiveRate ) / ( ln2 * ln2 ) );
+		this.counters = (int)Math.min( (long)Integer.MAX_VALUE - CountersPerWord, Math.max( 64, m ) );
+		this.hashes = Math.max( 1, (int)Math.round( (double)counters / this.capacity * ln2 ) );
+		this.words = new AtomicLongArray( ( counters + CountersPerWord - 1 ) / CountersPerWord );
+	}
+
+
+	/**
+	 * Return whether id may be present.
+	 *
+	 * @param id entity id.
+	 * @return false if id is certainly absent, true if id may be present.
+	 */
+	boolean mightContain( final String id ) {
+		long h = hash( id );
+		int h1 = (int)h;
+		int h2 = (int)( h >>> 32 );
+		for( int i = 0; i < hashes; i++ ) {
+			if( counter( index( h1, h2, i ) ) == 0 ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Add id to filter.
+	 *
+	 * @param id entity id.
+	 */
+	void add( final String id ) {
+		long h = hash( id );
+		int h1 = (int)h;
+		int h2 = (int)( h >>> 32 );
+		for( int i = 0; i < hashes; i++ ) {
+			int idx = index( h1, h2, i );
+			long c = counter( idx );
+			if( c < CounterMax ) {
+				setCounter( idx, c + 1 );
+				if( c + 1 == CounterMax ) {
+					saturated++;
+				}
+			}
+		}
+		size++;
+	}
+
+
+	/**
+	 * Remove id that has been added before from filter.
+	 *
+	 * @param id entity id.
+	 */
+	void remove( final String id ) {
+		long h = hash( id );
+		int h1 = (int)h;
+		int h2 = (int)( h >>> 32 );
+		for( int i = 0; i < hashes; i++ ) {
+			int idx = index( h1, h2, i );
+			long c = counter( idx );
+			if( c > 0 && c < CounterMax ) {
+				setCounter( idx, c - 1 );
+			}
+		}
+		size = Math.max( 0, size - 1 );
+	}
+
+
+	/**
+	 * Remove all ids from filter.
+	 */
+	void clear() {
+		for( int i = 0; i < words.length(); i++ ) {
+			words.set( i, 0L );
+		}
+		size = 0;
+		saturated = 0;
+	}
+
+
+	/**
+	 * Return number of ids in filter.
+	 *
+	 * @return number of ids.
+	 */
+	long size() {
+		return size;
+	}
+
+
+	/**
+	 * Return number of counters that have reached their maximum and are no longer
+	 * decremented. Such counters cause false positives after ids have been removed.
+	 *
+	 * @return number of saturated counters.
+	 */
+	long saturated() {
+		return saturated;
+	}
+
+
+	/**
+	 * Return number of ids for which the filter has been sized.
+	 *
+	 * @return capacity of filter.
+	 */
+	long capacity() {
+		return capacity;
+	}
+
+
+	/**
+	 * Return configured false positive rate at capacity.
+	 *
+	 * @return configured false positive rate.
+	 */
+	double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+
+	/**
+	 * Return false positive rate expected for the current number of ids.
+	 *
+	 * @return expected false positive rate.
+	 */
+	double getExpectedFalsePositiveRate() {
+		return Math.pow( 1 - Math.exp( -(double)hashes * size / counters ), hashes );
+	}
+
+
+	/**
+	 * Return memory used by counters.
+	 *
+	 * @return size of counters in bytes.
+	 */
+	long getMemoryBytes() {
+		return (long)words.length() * Long.BYTES;
+	}
+
+
+	/**
+	 * Write filter to output.
+	 *
+	 * @param out output to write to.
+	 * @throws IOException if output cannot be written.
+	 */
+	void writeTo( final DataOutput out ) throws IOException {
+		out.writeLong( capacity );
+		out.writeDouble( falsePositiveRate );
+		out.writeLong( size );
+		for( int i = 0; i < words.length(); i++ ) {
+			out.writeLong( words.get( i ) );
+		}
+	}
+
+
+	/**
+	 * Read filter written by writeTo().
+	 *
+	 * @param in input to read from.
+	 * @return filter read from input.
+	 * @throws IOException if input cannot be read.
+	 */
+	static CountingBloomFilter readFrom( final DataInput in ) throws IOException {
+		CountingBloomFilter filter = new CountingBloomFilter( in.readLong(), in.readDouble() );
+		filter.size = in.readLong();
+		for( int i = 0; i < filter.words.length(); i++ ) {
+			filter.words.set( i, in.readLong() );
+		}
+		for( int i = 0; i < filter.counters; i++ ) {
+			if( filter.counter( i ) == CounterMax ) {
+				filter.saturated++;
+			}
+		}
+		return filter;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private int index( final int h1, final int h2, final int i ) {
+		return ( ( h1 + i * h2 ) & Integer.MAX_VALUE ) % counters;
+	}
+
+	private long counter( final int idx ) {
+		int shift = ( idx % CountersPerWord ) * CounterBits;
+		return ( words.get( idx / CountersPerWord ) >>> shift ) & CounterMax;
+	}
+
+	private void setCounter( final int idx, final long value ) {
+		int w = idx / CountersPerWord;
+		int shift = ( idx % CountersPerWord ) * CounterBits;
+		words.set( w, ( words.get( w ) & ~( CounterMax << shift ) ) | ( value << shift ) );
+	}
+
+	/*
+	 * 64-bit FNV-1a over the characters of the id, finalized with the MurmurHash3
+	 * mixer such that both 32-bit halves are usable as independent hashes.
+	 */
+	private static long hash( final String id ) {
+		long h = 0xcbf29ce484222325L;
+		for( int i = 0; i < id.length(); i++ ) {
+			h ^= id.charAt( i );
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h | 1L << 32;		// odd h2 never degenerates to a single probe
+	}
+
+}
@@ -0,0 +1,376 @@
+package com.application.se2.repository;
+
+import static com.application.se2.repository.EntityCodec.readString;
+import static com.application.se2.repository.EntityCodec.writeString;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.application.se2.misc.HybridLogicalClock;
+import com.application.se2.misc.LazyList;
+import com.application.se2.model.Customer;
+import com.application.se2.model.Note;
+
+
+/**
+ * Local codec class to encode Customer entities into a compact binary form.
+ *
+ * Layout: id, name, address, created, status, contacts[], notes[].
+ *
+ * Head layout: id, name, address, created, status, #contacts, contacts[0], #notes, notes[0].
+ * Tail layout: contacts[1..], notes[1..].
+ *
+ * Properties encoded individually: name, address, status, contacts, notes.
+ *
+ * Note timeStamps are encoded as HybridLogicalClock timestamps (-1 if absent), decoded
+ * timeStamps advance the local clock. Plain epoch millis written by earlier versions
+ * are still accepted.
+ *
+ * @author sgra64
+ *
+ */
+class CustomerCodec implements PartialEntityCodec<Customer>, PropertyEntityCodec<Customer> {
+
+	private static final Customer.Status[] Status = Customer.Status.values();
+
+	private static final long LegacyMillisLimit = 1L << 44;		// epoch millis until year 2527
+
+
+	/**
+	 * Encode Customer to output.
+	 *
+	 * @param c Customer to encode.
+	 * @param out output to which Customer is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public void encode( final Customer c, final DataOutput out ) throws IOException {
+		out.writeUTF( c.getId() );
+		writeString( out, c.getName() );
+		writeString( out, c.getAddress() );
+		out.writeLong( c.getCreationDate() != null? c.getCreationDate().getTime() : -1L );
+		out.writeByte( c.getStatus() != null? c.getStatus().ordinal() : -1 );
+
+		List<String> contacts = c.getContacts();
+		out.writeInt( contacts.size() );
+		for( String contact : contacts ) {
+			out.writeUTF( contact );
+		}
+
+		List<Note> notes = c.getNotes();
+		out.writeInt( notes.size() );
+		for( Note note : notes ) {
+			writeNote( out, note );
+		}
+	}
+
+
+	/**
+	 * Decode Customer from input.
+	 *
+	 * @param in input from which Customer is decoded.
+	 * @return decoded Customer instance.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	@Override
+	public Customer decode( final DataInput in ) throws IOException {
+		String id = in.readUTF();
+		String name = readString( in );
+		String address = readString( in );
+		long created = in.readLong();
+		int status = in.readByte();
+
+		Customer c = new Customer( id, name, created >= 0? new Date( created ) : null )
+			.setAddress( address )
+			.setStatus( status >= 0? Status[ status ] : null );
+
+		List<String> contacts = c.getContacts();
+		for( int i = in.readInt(); i > 0; i-- ) {
+			contacts.add( in.readUTF() );
+		}
+
+		List<Note> notes = c.getNotes();
+		for( int i = in.readInt(); i > 0; i-- ) {
+			notes.add( readNote( in ) );
+		}
+		return c;
+	}
+
+
+	/**
+	 * Encode Customer head to output, contacts and notes are reduced to their size
+	 * and first element.
+	 *
+	 * @param c Customer to encode.
+	 * @param out output to which head is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public void encodeHead( final Customer c, final DataOutput out ) throws IOException {
+		out.writeUTF( c.getId() );
+		writeString( out, c.getName() );
+		writeString( out, c.getAddress() );
+		out.writeLong( c.getCreationDate() != null? c.getCreationDate().getTime() : -1L );
+		out.writeByte( c.getStatus() != null? c.getStatus().ordinal() : -1 );
+
+		List<String> contacts = c.getContacts();
+		out.writeInt( contacts.size() );
+		if( contacts.size() > 0 ) {
+			out.writeUTF( contacts.get( 0 ) );
+		}
+
+		List<Note> notes = c.getNotes();
+		out.writeInt( notes.size() );
+		if( notes.size() > 0 ) {
+			writeNote( out, notes.get( 0 ) );
+		}
+	}
+
+
+	/**
+	 * Encode remaining contacts and notes of Customer to output.
+	 *
+	 * @param c Customer to encode.
+	 * @param out output to which tail is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public void encodeTail( final Customer c, final DataOutput out ) throws IOException {
+		List<String> contacts = c.getContacts();
+		for( int i = 1; i < contacts.size(); i++ ) {
+			out.writeUTF( contacts.get( i ) );
+		}
+
+		List<Note> notes = c.getNotes();
+		for( int i = 1; i < notes.size(); i++ ) {
+			writeNote( out, notes.get( i ) );
+		}
+	}
+
+
+	/**
+	 * Decode Customer from head input. Contacts and notes load remaining elements
+	 * from the tail when accessed beyond their first element.
+	 *
+	 * @param in input from which head is decoded.
+	 * @param tail supplier of tail input.
+	 * @return decoded Customer instance.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	@Override
+	public Customer decodeHead( final DataInput in, final Supplier<DataInput> tail ) throws IOException {
+		String id = in.readUTF();
+		String name = readString( in );
+		String address = readString( in );
+		long created = in.readLong();
+		int status = in.readByte();
+
+		int contactCount = in.readInt();
+		String firstContact = contactCount > 0? in.readUTF() : null;
+		int noteCount = in.readInt();
+		Note firstNote = noteCount > 0? readNote( in ) : null;
+
+		List<String> contacts;
+		List<Note> notes;
+		if( contactCount > 1 || noteCount > 1 ) {
+			Tail t = new Tail( tail, contactCount, noteCount );
+			contacts = new LazyList<String>( contactCount, firstContact, () -> t.load().contacts );
+			notes = new LazyList<Note>( noteCount, firstNote, () -> t.load().notes );
+
+		} else {
+			contacts = new ArrayList<String>();
+			notes = new ArrayList<Note>();
+			if( contactCount > 0 ) {
+				contacts.add( firstContact );
+			}
+			if( noteCount > 0 ) {
+				notes.add( firstNote );
+			}
+		}
+
+		return new Customer( id, name, created >= 0? new Date( created ) : null, contacts, notes )
+			.setAddress( address )
+			.setStatus( status >= 0? Status[ status ] : null );
+	}
+
+
+	/**
+	 * Load contacts and notes of a Customer decoded from its head.
+	 *
+	 * @param c Customer of which contacts and notes are loaded.
+	 * @throws UncheckedIOException if the tail cannot be read.
+	 */
+	@Override
+	public void materialize( final Customer c ) {
+		for( List<?> list : Arrays.asList( c.getContacts(), c.getNotes() ) ) {
+			if( list instanceof LazyList ) {
+				((LazyList<?>)list).materialize();
+			}
+		}
+	}
+
+
+	/**
+	 * Encode value of a Customer property to output. Id and creation date cannot
+	 * change and are not encoded individually.
+	 *
+	 * @param c Customer of which the property is encoded.
+	 * @param property name of property.
+	 * @param out output to which property value is encoded.
+	 * @return false if the property cannot be encoded individually.
+	 * @throws IOException if output cannot be written.
+	 */
+	@Override
+	public boolean encodeProperty( final Customer c, final String property, final DataOutput out ) throws IOException {
+		switch( property ) {
+		case "name":
+			writeString( out, c.getName() );
+			return true;
+
+		case "address":
+			writeString( out, c.getAddress() );
+			return true;
+
+		case "status":
+			out.writeByte( c.getStatus() != null? c.getStatus().ordinal() : -1 );
+			return true;
+
+		case "contacts":
+			List<String> contacts = c.getContacts();
+			out.writeInt( contacts.size() );
+			for( String contact : contacts ) {
+				out.writeUTF( contact );
+			}
+			return true;
+
+		case "notes":
+			List<Note> notes = c.getNotes();
+			out.writeInt( notes.size() );
+			for( Note note : notes ) {
+				writeNote( out, note );
+			}
+			return true;
+
+		default:
+			return false;
+		}
+	}
+
+
+	/**
+	 * Decode value of a Customer property from input and assign it to Customer.
+	 *
+	 * @param c Customer to which the property value is assigned.
+	 * @param property name of property.
+	 * @param in input from which property value is decoded.
+	 * @throws IOException if input cannot be read or property is unknown.
+	 */
+	@Override
+	public void decodeProperty( final Customer c, final String property, final DataInput in ) throws IOException {
+		switch( property ) {
+		case "name":
+			c.setName( readString( in ) );
+			break;
+
+		case "address":
+			c.setAddress( readString( in ) );
+			break;
+
+		case "status":
+			int status = in.readByte();
+			c.setStatus( status >= 0? Status[ status ] : null );
+			break;
+
+		case "contacts":
+			List<String> contacts = c.getContacts();
+			contacts.clear();
+			for( int i = in.readInt(); i > 0; i-- ) {
+				contacts.add( in.readUTF() );
+			}
+			break;
+
+		case "notes":
+			List<Note> notes = c.getNotes();
+			notes.clear();
+			for( int i = in.readInt(); i > 0; i-- ) {
+				notes.add( readNote( in ) );
+			}
+			break;
+
+		default:
+			throw new IOException( "unknown Customer property: " + property );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	/*
+	 * Tail shared by contacts and notes of one Customer, read once by whichever
+	 * list is loaded first.
+	 */
+	private static final class Tail {
+		private final Supplier<DataInput> source;
+		private final int contactCount;
+		private final int noteCount;
+		private List<String> contacts = null;
+		private List<Note> notes = null;
+
+		private Tail( final Supplier<DataInput> source, final int contactCount, final int noteCount ) {
+			this.source = source;
+			this.contactCount = contactCount;
+			this.noteCount = noteCount;
+		}
+
+		private synchronized Tail load() {
+			if( contacts == null ) {
+				try {
+					DataInput in = source.get();
+					List<String> c = new ArrayList<String>( contactCount );
+					for( int i = 1; i < contactCount; i++ ) {
+						c.add( in.readUTF() );
+					}
+					List<Note> n = new ArrayList<Note>( noteCount );
+					for( int i = 1; i < noteCount; i++ ) {
+						n.add( readNote( in ) );
+					}
+					notes = n;
+					contacts = c;
+
+				} catch( IOException e ) {
+					throw new UncheckedIOException( "cannot read contacts and notes", e );
+				}
+			}
+			return this;
+		}
+	}
+
+	private static void writeNote( final DataOutput out, final Note note ) throws IOException {
+		out.writeLong( note.getHybridTimeStamp() != 0L? note.getHybridTimeStamp() : -1L );
+		writeString( out, note.getText() );
+	}
+
+	private static Note readNote( final DataInput in ) throws IOException {
+		long timeStamp = in.readLong();
+		if( timeStamp < 0 ) {
+			timeStamp = 0L;
+
+		} else if( timeStamp < LegacyMillisLimit ) {
+			timeStamp = HybridLogicalClock.fromMillis( timeStamp );
+
+		} else {
+			HybridLogicalClock.getInstance().observe( timeStamp );
+		}
+		return new Note( timeStamp, readString( in ) );
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.application.se2.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Interface of a Customer repository that, in addition to the CRUD operations
+ * of RepositoryIntf, allows to look up Customers by contact, e.g. to find all
+ * Customers sharing an email address or phone number, and to scan Customers
+ * with predicates over their properties (CustomerScan).
+ *
+ * @author sgra64
+ *
+ */
+public interface CustomerRepositoryIntf extends RepositoryIntf<Customer> {
+
+	/**
+	 * Return ids of Customers that own a contact. Contacts are matched in normalized
+	 * form: emails and other text case-insensitive, phone numbers by digits only,
+	 * e.g. "cell: +49 170 82568462" matches "+4917082568462".
+	 *
+	 * @param contact contact value to look up.
+	 * @return ids of Customers owning the contact, empty set if none.
+	 */
+	public Set<String> findIdsByContact( String contact );
+
+	/**
+	 * Return Customers that own a contact.
+	 *
+	 * @param contact contact value to look up.
+	 * @return Customers owning the contact.
+	 */
+	public default Iterable<Customer> findByContact( final String contact ) {
+		return findAllById( findIdsByContact( contact ) );
+	}
+
+	/**
+	 * Count Customers matching a scan. The default implementation tests each
+	 * Customer returned by findAll().
+	 *
+	 * @param scan predicates over Customer properties.
+	 * @return number of matching Customers.
+	 */
+	public default long count( final CustomerScan scan ) {
+		long n = 0;
+		for( Customer c : findAll() ) {
+			n += scan.test( c )? 1 : 0;
+		}
+		return n;
+	}
+
+	/**
+	 * Return ids of Customers matching a scan. The default implementation tests
+	 * each Customer returned by findAll().
+	 *
+	 * @param scan predicates over Customer properties.
+	 * @return ids of matching Customers in the order of findAll().
+	 */
+	public default List<String> findIds( final CustomerScan scan ) {
+		List<String> ids = new ArrayList<String>();
+		for( Customer c : findAll() ) {
+			if( scan.test( c ) ) {
+				ids.add( c.getId() );
+			}
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.application.se2.repository;
+
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Conjunction of predicates over Customer properties that is evaluated by a scan
+ * of a Customer repository, e.g. to count suspended Customers living in Berlin:
+ *
+ *  customers.count( CustomerScan.where()
+ *    .status( Customer.Status.SUSP )
+ *    .cityContains( "Berlin" ) );
+ *
+ * City and postal code are taken from the last part of the address, as in
+ * "Lindenweg 86, 12167 Berlin-Steglitz". Columnar repositories evaluate scans over
+ * their columns, other repositories test each Customer with test().
+ *
+ * @author sgra64
+ *
+ */
+public final class CustomerScan {
+	private static final Pattern PostalCity = Pattern.compile( "(?:^|,)\\s*(\\d{4,5})\\s+([^,]+?)\\s*$" );
+
+	private int statusMask = -1;			// bit per Status ordinal
+
+	private String nameContains = null;
+
+	private String addressContains = null;
+
+	private String cityContains = null;
+
+	private String postalPrefix = null;
+
+	static final long NoCreationDate = Long.MIN_VALUE;	// Customers without creation date, only matched without lower bound
+
+	private long createdFrom = Long.MIN_VALUE;
+
+	private long createdTo = Long.MAX_VALUE;
+
+
+	/**
+	 * Private constructor, instances are created by where().
+	 */
+	private CustomerScan() { }
+
+
+	/**
+	 * Create scan that matches all Customers, predicates are added by further calls.
+	 *
+	 * @return new scan.
+	 */
+	public static CustomerScan where() {
+		return new CustomerScan();
+	}
+
+
+	/**
+	 * Match Customers having one of the given status values.
+	 *
+	 * @param statuses accepted status values.
+	 * @return self reference.
+	 */
+	public CustomerScan status( final Customer.Status... statuses ) {
+		int mask = 0;
+		for( Customer.Status status : statuses ) {
+			mask |= 1 << status.ordinal();
+		}
+		statusMask &= mask;
+		return this;
+	}
+
+
+	/**
+	 * Match Customers whose name contains text (case-sensitive).
+	 *
+	 * @param text text contained in name.
+	 * @return self reference.
+	 */
+	public CustomerScan nameContains( final String text ) {
+		nameContains = text;
+		return this;
+	}
+
+
+	/**
+	 * Match Customers whose address contains text (case-sensitive).
+	 *
+	 * @param text text contained in address.
+	 * @return self reference.
+	 */
+	public CustomerScan addressContains( final String text ) {
+		addressContains = text;
+		return this;
+	}
+
+
+	/**
+	 * Match Customers whose city contains text (case-sensitive).
+	 *
+	 * @param text text contained in city.
+	 * @return self reference.
+	 */
+	public CustomerScan cityContains( final String text ) {
+		cityContains = text;
+		return this;
+	}
+
+
+	/**
+	 * Match Customers whose postal code starts with prefix.
+	 *
+	 * @param prefix prefix of postal code, e.g. "1" for Berlin.
+	 * @return self reference.
+	 */
+	public CustomerScan postalPrefix( final String prefix ) {
+		postalPrefix = prefix;
+		return this;
+	}
+
+
+	/**
+	 * Match Customers created in [from, to).
+	 * Customers without creation date are only matched if from is null.
+	 *
+	 * @param from earliest creation date or null.
+	 * @param to creation date excluded from the range or null.
+	 * @return self reference.
+	 */
+	public CustomerScan createdBetween( final Date from, final Date to ) {
+		createdFrom = from == null? Long.MIN_VALUE : from.getTime();
+		createdTo = to == null? Long.MAX_VALUE : to.getTime();
+		return this;
+	}
+
+
+	/**
+	 * Test whether a Customer matches all predicates of the scan.
+	 *
+	 * @param customer Customer to test.
+	 * @return true if Customer matches.
+	 */
+	public boolean test( final Customer customer ) {
+		Customer.Status status = customer.getStatus();
+		long created = customer.getCreationDate() != null? customer.getCreationDate().getTime() : NoCreationDate;
+		return status != null && ( statusMask >>> status.ordinal() & 1 ) != 0 &&
+			created >= createdFrom && created < createdTo &&
+			( nameContains == null || nonNull( customer.getName() ).contains( nameContains ) ) &&
+			( addressContains == null || nonNull( customer.getAddress() ).contains( addressContains ) ) &&
+			( cityContains == null || city( customer.getAddress() ).contains( cityContains ) ) &&
+			( postalPrefix == null || postal( customer.getAddress() ).startsWith( postalPrefix ) );
+	}
+
+
+	/*
+	 * Accessors used by columnar repositories.
+	 */
+
+	int getStatusMask() {
+		return statusMask;
+	}
+
+	String getNameContains() {
+		return nameContains;
+	}
+
+	String getAddressContains() {
+		return addressContains;
+	}
+
+	String getCityContains() {
+		return cityContains;
+	}
+
+	String getPostalPrefix() {
+		return postalPrefix;
+	}
+
+	long getCreatedFrom() {
+		return createdFrom;
+	}
+
+	long getCreatedTo() {
+		return createdTo;
+	}
+
+	/*
+	 * Return city of an address, "" if the address has none.
+	 */
+	static String city( final String address ) {
+		Matcher m = PostalCity.matcher( nonNull( address ) );
+		return m.find()? m.group( 2 ) : "";
+	}
+
+	/*
+	 * Return postal code of an address, "" if the address has none.
+	 */
+	static String postal( final String address ) {
+		Matcher m = PostalCity.matcher( nonNull( address ) );
+		return m.find()? m.group( 1 ) : "";
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String nonNull( final String s ) {
+		return s == null? "" : s;
+	}
+
+}
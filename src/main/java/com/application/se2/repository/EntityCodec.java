@@ -0,0 +1,102 @@
+package com.application.se2.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local interface of a codec that encodes entities into a compact binary form
+ * and decodes them back into entity instances. Codecs are used where entities
+ * leave the heap, e.g. when they are spilled to an on-disk segment.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+interface EntityCodec<E extends Entity> {
+
+	/**
+	 * Encode entity to output.
+	 *
+	 * @param entity entity to encode.
+	 * @param out output to which entity is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	public void encode( E entity, DataOutput out ) throws IOException;
+
+	/**
+	 * Decode entity from input.
+	 *
+	 * @param in input from which entity is decoded.
+	 * @return decoded entity instance.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	public E decode( DataInput in ) throws IOException;
+
+
+	/**
+	 * Encode entity into a byte array.
+	 *
+	 * @param entity entity to encode.
+	 * @return encoded bytes.
+	 */
+	public default byte[] toBytes( final E entity ) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 256 );
+		try {
+			encode( entity, new DataOutputStream( bos ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot encode " + entity.getId(), e );
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Decode entity from a byte array.
+	 *
+	 * @param bytes encoded bytes.
+	 * @return decoded entity instance.
+	 */
+	public default E fromBytes( final byte[] bytes ) {
+		try {
+			return decode( new DataInputStream( new ByteArrayInputStream( bytes ) ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot decode entity", e );
+		}
+	}
+
+
+	/**
+	 * Write String that may be null.
+	 *
+	 * @param out output to write to.
+	 * @param str String or null.
+	 * @throws IOException if output cannot be written.
+	 */
+	public static void writeString( final DataOutput out, final String str ) throws IOException {
+		out.writeBoolean( str != null );
+		if( str != null ) {
+			out.writeUTF( str );
+		}
+	}
+
+	/**
+	 * Read String written by writeString().
+	 *
+	 * @param in input to read from.
+	 * @return String or null.
+	 * @throws IOException if input cannot be read.
+	 */
+	public static String readString( final DataInput in ) throws IOException {
+		return in.readBoolean()? in.readUTF() : null;
+	}
+
+}
@@ -0,0 +1,399 @@
+package com.application.se2.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Class that keeps a history of entities of a repository as a chain of versions
+ * per entity. A version is either a full version (the encoded entity), a delta that
+ * holds only values of properties updated by an EntityPropertyUpdateSet, or a
+ * deletion. A full version is recorded for inserts, for saves without an update set
+ * and after a number of deltas such that an entity is reconstructed from a full
+ * version and a bounded number of deltas.
+ *
+ * The history is fed as a RepositoryListener and starts with the first change of
+ * an entity after the history has been added. Chains are limited to a number of
+ * versions, oldest versions are dropped up to a full version.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+public class EntityHistory<E extends Entity> implements RepositoryListener<E> {
+	private static final Logger logger = Logger.getInstance( EntityHistory.class );
+
+	private static final byte Full = 0;
+
+	private static final byte Delta = 1;
+
+	private static final byte Deleted = 2;
+
+	private static final String[] NoProperties = new String[ 0 ];
+
+	private final PropertyEntityCodec<E> codec;
+
+	private final int fullVersionInterval;
+
+	private final int maxVersions;
+
+	private final LongSupplier clock;
+
+	private final ConcurrentHashMap<String, Chain> chains = new ConcurrentHashMap<String, Chain>();
+
+	private final AtomicLong memoryBytes = new AtomicLong();
+
+
+	/**
+	 * Immutable description of a version of an entity.
+	 */
+	public static final class Version {
+		private final long version;
+		private final long timestamp;
+		private final byte kind;
+		private final List<String> properties;
+		private final int bytes;
+
+		private Version( final Entry entry ) {
+			this.version = entry.version;
+			this.timestamp = entry.timestamp;
+			this.kind = entry.kind;
+			this.properties = Collections.unmodifiableList( Arrays.asList( entry.properties ) );
+			this.bytes = entry.data.length;
+		}
+
+		/**
+		 * Return version number, versions of an entity are numbered from 1.
+		 * @return version number.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Return time at which version was recorded.
+		 * @return time in milliseconds.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Return whether version holds the full entity.
+		 * @return true for a full version.
+		 */
+		public boolean isFull() {
+			return kind == Full;
+		}
+
+		/**
+		 * Return whether entity was deleted with this version.
+		 * @return true if entity was deleted.
+		 */
+		public boolean isDeleted() {
+			return kind == Deleted;
+		}
+
+		/**
+		 * Return names of properties held by a delta.
+		 * @return names of updated properties, empty for full versions and deletions.
+		 */
+		public List<String> getProperties() {
+			return properties;
+		}
+
+		/**
+		 * Return size of encoded version.
+		 * @return number of bytes.
+		 */
+		public int getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return "v" + version + "@" + timestamp + ( kind == Full? " full" : kind == Deleted? " deleted" : " " + properties ) +
+				", " + bytes + " bytes";
+		}
+	}
+
+
+	/**
+	 * Package-local constructor invoked by ObservedRepositoryImpl.
+	 *
+	 * @param codec codec used to encode full versions and property values.
+	 * @param fullVersionInterval maximum number of deltas between full versions.
+	 * @param maxVersions number of versions kept per entity.
+	 */
+	EntityHistory( final PropertyEntityCodec<E> codec, final int fullVersionInterval, final int maxVersions ) {
+		this( codec, fullVersionInterval, maxVersions, System::currentTimeMillis );
+	}
+
+
+	/**
+	 * Package-local constructor with a clock that provides version timestamps.
+	 *
+	 * @param codec codec used to encode full versions and property values.
+	 * @param fullVersionInterval maximum number of deltas between full versions.
+	 * @param maxVersions number of versions kept per entity.
+	 * @param clock clock that returns time in milliseconds.
+	 */
+	EntityHistory( final PropertyEntityCodec<E> codec, final int fullVersionInterval, final int maxVersions, final LongSupplier clock ) {
+		this.codec = codec;
+		this.fullVersionInterval = Math.max( 1, fullVersionInterval );
+		this.maxVersions = Math.max( 1, maxVersions );
+		this.clock = clock;
+	}
+
+
+	@Override
+	public void inserted( E entity ) {
+		recordFull( entity );
+	}
+
+	@Override
+	public void updated( E entity ) {
+		recordFull( entity );
+	}
+
+	@Override
+	public void updated( E entity, Set<String> properties ) {
+		recordDelta( entity, properties );
+	}
+
+	@Override
+	public void deleted( String id ) {
+		record( id, Deleted, NoProperties, new byte[ 0 ] );
+	}
+
+	@Override
+	public void cleared() {
+		for( String id : chains.keySet() ) {
+			deleted( id );
+		}
+	}
+
+
+	/**
+	 * Reconstruct entity as it was at a point in time.
+	 *
+	 * @param id entity id.
+	 * @param timestamp point in time in milliseconds.
+	 * @return Optional of entity, empty if no version was recorded before timestamp or entity was deleted.
+	 */
+	public Optional<E> findAsOf( final String id, final long timestamp ) {
+		Chain chain = chains.get( id );
+		if( chain != null ) {
+			synchronized( chain ) {
+				int lo = 0;
+				int hi = chain.entries.size() - 1;
+				while( lo <= hi ) {		// last entry with entry.timestamp <= timestamp
+					int mid = ( lo + hi ) >>> 1;
+					if( chain.entries.get( mid ).timestamp <= timestamp ) {
+						lo = mid + 1;
+					} else {
+						hi = mid - 1;
+					}
+				}
+				return hi >= 0? reconstruct( chain, hi ) : Optional.empty();
+			}
+		}
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Reconstruct a version of an entity.
+	 *
+	 * @param id entity id.
+	 * @param version version number.
+	 * @return Optional of entity, empty if version is not (or no longer) kept or entity was deleted.
+	 */
+	public Optional<E> findVersion( final String id, final long version ) {
+		Chain chain = chains.get( id );
+		if( chain != null ) {
+			synchronized( chain ) {
+				if( chain.entries.size() > 0 ) {
+					long i = version - chain.entries.get( 0 ).version;
+					if( i >= 0 && i < chain.entries.size() ) {
+						return reconstruct( chain, (int)i );
+					}
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Return versions kept for an entity.
+	 *
+	 * @param id entity id.
+	 * @return versions in the order in which they were recorded.
+	 */
+	public List<Version> getVersions( final String id ) {
+		List<Version> res = new ArrayList<Version>();
+		Chain chain = chains.get( id );
+		if( chain != null ) {
+			synchronized( chain ) {
+				for( Entry entry : chain.entries ) {
+					res.add( new Version( entry ) );
+				}
+			}
+		}
+		return res;
+	}
+
+
+	/**
+	 * Return number of entities with a history.
+	 *
+	 * @return number of entities.
+	 */
+	public long size() {
+		return chains.size();
+	}
+
+
+	/**
+	 * Return size of all encoded versions.
+	 *
+	 * @return number of bytes.
+	 */
+	public long getMemoryBytes() {
+		return memoryBytes.get();
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Chain {
+		private final List<Entry> entries = new ArrayList<Entry>();
+		private long nextVersion = 1;
+		private int deltas = 0;		// deltas since last full version
+	}
+
+	private static final class Entry {
+		private final long version;
+		private final long timestamp;
+		private final byte kind;
+		private final String[] properties;
+		private final byte[] data;
+
+		private Entry( final long version, final long timestamp, final byte kind, final String[] properties, final byte[] data ) {
+			this.version = version;
+			this.timestamp = timestamp;
+			this.kind = kind;
+			this.properties = properties;
+			this.data = data;
+		}
+	}
+
+	private void recordFull( final E entity ) {
+		record( entity.getId(), Full, NoProperties, codec.toBytes( entity ) );
+	}
+
+	/*
+	 * Record values of updated properties, falls back to a full version when the
+	 * chain has no version to apply the delta to, when the full version interval
+	 * is reached or when a property cannot be encoded individually.
+	 */
+	private void recordDelta( final E entity, final Set<String> properties ) {
+		Chain chain = chains.get( entity.getId() );
+		if( chain != null && ! properties.isEmpty() ) {
+			synchronized( chain ) {
+				int n = chain.entries.size();
+				if( n > 0 && chain.entries.get( n - 1 ).kind != Deleted && chain.deltas < fullVersionInterval ) {
+					ByteArrayOutputStream bos = new ByteArrayOutputStream( 64 );
+					DataOutputStream out = new DataOutputStream( bos );
+					try {
+						boolean encoded = true;
+						for( String property : properties ) {
+							encoded = encoded && codec.encodeProperty( entity, property, out );
+						}
+						if( encoded ) {
+							append( entity.getId(), chain, Delta, properties.toArray( NoProperties ), bos.toByteArray() );
+							return;
+						}
+					} catch( IOException e ) {
+						logger.error( "history: cannot encode delta of " + entity.getId() + ": " + e.getMessage(), e );
+					}
+				}
+			}
+		}
+		recordFull( entity );
+	}
+
+	private void record( final String id, final byte kind, final String[] properties, final byte[] data ) {
+		Chain chain = chains.computeIfAbsent( id, k -> new Chain() );
+		synchronized( chain ) {
+			append( id, chain, kind, properties, data );
+		}
+	}
+
+	private void append( final String id, final Chain chain, final byte kind, final String[] properties, final byte[] data ) {
+		List<Entry> entries = chain.entries;
+		long timestamp = clock.getAsLong();
+		if( entries.size() > 0 ) {		// keep timestamps of a chain ordered if the clock steps back
+			timestamp = Math.max( timestamp, entries.get( entries.size() - 1 ).timestamp );
+		}
+		entries.add( new Entry( chain.nextVersion++, timestamp, kind, properties, data ) );
+		chain.deltas = kind == Delta? chain.deltas + 1 : 0;
+		memoryBytes.addAndGet( data.length );
+
+		// drop oldest versions such that the chain still starts with a full version or deletion
+		int cut = entries.size() - maxVersions;
+		while( cut > 0 && entries.get( cut ).kind == Delta ) {
+			cut--;
+		}
+		if( cut > 0 ) {
+			List<Entry> dropped = entries.subList( 0, cut );
+			for( Entry entry : dropped ) {
+				memoryBytes.addAndGet( -entry.data.length );
+			}
+			dropped.clear();
+		}
+	}
+
+	private Optional<E> reconstruct( final Chain chain, final int index ) {
+		List<Entry> entries = chain.entries;
+		if( entries.get( index ).kind == Deleted ) {
+			return Optional.empty();
+		}
+		int full = index;
+		while( entries.get( full ).kind == Delta ) {
+			full--;
+		}
+		E entity = codec.fromBytes( entries.get( full ).data );
+		for( int i = full + 1; i <= index; i++ ) {
+			Entry delta = entries.get( i );
+			try {
+				DataInputStream in = new DataInputStream( new ByteArrayInputStream( delta.data ) );
+				for( String property : delta.properties ) {
+					codec.decodeProperty( entity, property, in );
+				}
+			} catch( IOException e ) {
+				throw new IllegalStateException( "cannot apply delta v" + delta.version + " of " + entity.getId(), e );
+			}
+		}
+		return Optional.of( entity );
+	}
+
+}
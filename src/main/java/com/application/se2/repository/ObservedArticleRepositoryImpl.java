@@ -0,0 +1,31 @@
+package com.application.se2.repository;
+
+import com.application.se2.misc.Callback;
+import com.application.se2.model.Article;
+
+
+/**
+ * Local implementation class of an observed Article repository that passes
+ * record iteration on to the underlying ArticleRepositoryIntf.
+ *
+ * @author sgra64
+ *
+ */
+class ObservedArticleRepositoryImpl extends ObservedRepositoryImpl<Article> implements ArticleRepositoryIntf {
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param delegate Article repository to which operations are delegated.
+	 */
+	ObservedArticleRepositoryImpl( final ArticleRepositoryIntf delegate ) {
+		super( delegate );
+	}
+
+
+	@Override
+	public void iterateRecords( Callback<ArticleRecord> callback ) {
+		((ArticleRepositoryIntf)delegate).iterateRecords( callback );
+	}
+
+}
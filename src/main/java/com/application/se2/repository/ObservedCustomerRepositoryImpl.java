@@ -0,0 +1,50 @@
+package com.application.se2.repository;
+
+import java.util.List;
+import java.util.Set;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Local implementation class of an observed Customer repository that maintains
+ * a ContactIndex to look up Customers by contact. Scans are passed on to an
+ * underlying columnar repository.
+ *
+ * @author sgra64
+ *
+ */
+class ObservedCustomerRepositoryImpl extends ObservedRepositoryImpl<Customer> implements CustomerRepositoryIntf {
+
+	private final ContactIndex contactIndex = new ContactIndex();
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param delegate Customer repository to which operations are delegated.
+	 */
+	ObservedCustomerRepositoryImpl( final RepositoryIntf<Customer> delegate ) {
+		super( delegate );
+		addListener( contactIndex );
+	}
+
+
+	@Override
+	public Set<String> findIdsByContact( String contact ) {
+		return contactIndex.lookup( contact );
+	}
+
+	@Override
+	public long count( CustomerScan scan ) {
+		return delegate instanceof ColumnarCustomerRepositoryImpl?
+			((ColumnarCustomerRepositoryImpl)delegate).count( scan ) : CustomerRepositoryIntf.super.count( scan );
+	}
+
+	@Override
+	public List<String> findIds( CustomerScan scan ) {
+		return delegate instanceof ColumnarCustomerRepositoryImpl?
+			((ColumnarCustomerRepositoryImpl)delegate).findIds( scan ) : CustomerRepositoryIntf.super.findIds( scan );
+	}
+
+}
@@ -0,0 +1,436 @@
+package com.application.se2.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.application.se2.misc.Callback;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local implementation class of a repository that delegates to another repository
+ * and notifies RepositoryListeners about inserts, updates and deletions. Write
+ * operations are serialized such that listeners observe changes in the order in
+ * which they have been applied.
+ *
+ * An optional CountingBloomFilter over ids answers lookups of absent ids without
+ * accessing the delegate, which avoids I/O for disk-backed repositories. The filter
+ * is updated before an entity is written and after it is deleted such that concurrent
+ * readers never miss an entity that is present. The filter grows when it exceeds its
+ * capacity.
+ *
+ * An optional EntityHistory records versions of entities, saves with an
+ * EntityPropertyUpdateSet are recorded as deltas of the updated properties.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+class ObservedRepositoryImpl<E extends Entity> implements RepositoryIntf<E>, Closeable {
+
+	private static final long MinIdFilterCapacity = 1024;
+
+	protected final RepositoryIntf<E> delegate;
+
+	private final List<RepositoryListener<E>> listeners = new CopyOnWriteArrayList<RepositoryListener<E>>();
+
+	private volatile CountingBloomFilter idFilter = null;
+
+	private volatile EntityHistory<E> history = null;
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param delegate repository to which operations are delegated.
+	 */
+	ObservedRepositoryImpl( final RepositoryIntf<E> delegate ) {
+		this.delegate = delegate;
+	}
+
+
+	/**
+	 * Add listener. Entities already present in the repository are passed to the
+	 * listener as inserts such that the listener can build its initial state.
+	 *
+	 * @param listener listener to add.
+	 * @return self reference.
+	 */
+	public ObservedRepositoryImpl<E> addListener( final RepositoryListener<E> listener ) {
+		return addListener( listener, true );
+	}
+
+
+	/**
+	 * Add listener that is only notified about subsequent changes if replay is false.
+	 *
+	 * @param listener listener to add.
+	 * @param replay if true, entities already present are passed as inserts.
+	 * @return self reference.
+	 */
+	public synchronized ObservedRepositoryImpl<E> addListener( final RepositoryListener<E> listener, final boolean replay ) {
+		if( replay ) {
+			snapshot( e -> listener.inserted( e ) );
+		}
+		listeners.add( listener );
+		return this;
+	}
+
+
+	/**
+	 * Answer lookups of absent ids from a counting Bloom filter that is built over
+	 * ids present in the repository and then kept in sync with writes.
+	 *
+	 * @param falsePositiveRate rate at which lookups of absent ids reach the delegate.
+	 * @return self reference.
+	 */
+	public synchronized ObservedRepositoryImpl<E> withIdFilter( final double falsePositiveRate ) {
+		idFilter = buildIdFilter( delegate.count() * 2, falsePositiveRate );
+		return this;
+	}
+
+
+	/**
+	 * Return id filter, if one is used.
+	 *
+	 * @return Optional of id filter.
+	 */
+	Optional<CountingBloomFilter> getIdFilter() {
+		return Optional.ofNullable( idFilter );
+	}
+
+
+	/**
+	 * Keep a history of entities that are changed from now on.
+	 *
+	 * @param codec codec used to encode full versions and property values.
+	 * @param fullVersionInterval maximum number of deltas between full versions.
+	 * @param maxVersions number of versions kept per entity.
+	 * @return self reference.
+	 */
+	public synchronized ObservedRepositoryImpl<E> withHistory( final PropertyEntityCodec<E> codec,
+			final int fullVersionInterval, final int maxVersions )
+	{
+		if( history == null ) {
+			history = new EntityHistory<E>( codec, fullVersionInterval, maxVersions );
+			addListener( history, false );
+		}
+		return this;
+	}
+
+
+	/**
+	 * Return history of entities, if one is kept.
+	 *
+	 * @return Optional of history of entities.
+	 */
+	@Override
+	public Optional<EntityHistory<E>> getHistory() {
+		return Optional.ofNullable( history );
+	}
+
+
+	/**
+	 * Return whether the id filter should be rebuilt: it has saturated counters
+	 * that are no longer decremented, or it is oversized after many deletions.
+	 *
+	 * @return true if id filter is used and should be rebuilt.
+	 */
+	boolean isIdFilterDegraded() {
+		CountingBloomFilter filter = idFilter;
+		return filter != null && ( filter.saturated() > 0 ||
+			( filter.capacity() > MinIdFilterCapacity && filter.size() * 8 < filter.capacity() ) );
+	}
+
+
+	/**
+	 * Rebuild id filter sized for the current number of entities. Writes are held
+	 * off while ids are added to the new filter.
+	 *
+	 * @return number of ids added to the new filter.
+	 */
+	synchronized long rebuildIdFilter() {
+		CountingBloomFilter filter = idFilter;
+		if( filter != null ) {
+			idFilter = buildIdFilter( delegate.count() * 2, filter.getFalsePositiveRate() );
+			return idFilter.size();
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Replace all entities with entities of a snapshot. A filter restored with the
+	 * snapshot is installed as is instead of adding ids one by one.
+	 *
+	 * @param batches entities to be saved, in batches.
+	 * @param filter id filter restored with snapshot or null.
+	 * @return number of entities saved.
+	 */
+	synchronized long reload( final List<List<E>> batches, final CountingBloomFilter filter ) {
+		deleteAll();
+		long count = 0;
+		if( filter == null || idFilter == null ) {
+			for( List<E> batch : batches ) {
+				saveAll( batch );
+				count += batch.size();
+			}
+			return count;
+		}
+		idFilter = filter;
+		for( List<E> batch : batches ) {
+			for( E e2 : delegate.saveAll( batch ) ) {
+				for( RepositoryListener<E> listener : listeners ) {
+					listener.inserted( e2 );
+				}
+			}
+			count += batch.size();
+		}
+		growIdFilter();
+		return count;
+	}
+
+
+	/**
+	 * Remove listener.
+	 *
+	 * @param listener listener to remove.
+	 */
+	public void removeListener( final RepositoryListener<E> listener ) {
+		listeners.remove( listener );
+	}
+
+
+	/**
+	 * Pass all entities of the repository to a callback while writes are held off.
+	 *
+	 * @param callback invoked for each entity.
+	 */
+	public synchronized void snapshot( final Callback<E> callback ) {
+		for( E e : delegate.findAll() ) {
+			callback.apply( e );
+		}
+	}
+
+
+	@Override
+	public boolean existsById( String id ) {
+		return mightContain( id ) && delegate.existsById( id );
+	}
+
+	@Override
+	public Optional<E> findById( String id ) {
+		return mightContain( id )? delegate.findById( id ) : Optional.empty();
+	}
+
+	@Override
+	public Iterable<E> findAll() {
+		return delegate.findAll();
+	}
+
+	@Override
+	public Iterable<E> findAllById( Iterable<String> ids ) {
+		if( idFilter == null ) {
+			return delegate.findAllById( ids );
+		}
+		List<String> candidates = new ArrayList<String>();
+		for( String id : ids ) {
+			if( mightContain( id ) ) {
+				candidates.add( id );
+			}
+		}
+		return delegate.findAllById( candidates );
+	}
+
+	@Override
+	public Optional<E> findByName( String regEx ) {
+		return delegate.findByName( regEx );
+	}
+
+	@Override
+	public Iterable<E> findByName( String regEx, long limit ) {
+		return delegate.findByName( regEx, limit );
+	}
+
+	@Override
+	public long count() {
+		return delegate.count();
+	}
+
+
+	/**
+	 * Save entity and notify listeners about insert or update.
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @return entity that has been saved.
+	 */
+	@Override
+	public synchronized E save( E entity ) {
+		return saveAndNotify( entity, null );
+	}
+
+	/**
+	 * Save entity to which property updates have been applied and notify listeners
+	 * about the updated properties.
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @param updates property updates that have been applied to the entity.
+	 * @return entity that has been saved.
+	 */
+	@Override
+	public synchronized E save( E entity, EntityPropertyUpdateSet updates ) {
+		return saveAndNotify( entity, updates );
+	}
+
+	/**
+	 * Save entities with one call to the delegate repository and notify listeners
+	 * about inserts and updates.
+	 *
+	 * @param entities entities to be saved to the repository.
+	 * @return entities that have been saved.
+	 */
+	@Override
+	public synchronized Iterable<E> saveAll( Iterable<E> entities ) {
+		List<Boolean> exists = new ArrayList<Boolean>();
+		HashSet<String> added = new HashSet<String>();
+		for( E e : entities ) {
+			boolean existed = existsById( e.getId() );
+			exists.add( existed );
+			if( ! existed && idFilter != null && added.add( e.getId() ) ) {
+				idFilter.add( e.getId() );
+			}
+		}
+		List<E> res = new ArrayList<E>();
+		int i = 0;
+		for( E e2 : delegate.saveAll( entities ) ) {
+			boolean existed = exists.get( i++ );
+			for( RepositoryListener<E> listener : listeners ) {
+				if( existed ) {
+					listener.updated( e2 );
+				} else {
+					listener.inserted( e2 );
+				}
+			}
+			res.add( e2 );
+		}
+		growIdFilter();
+		return res;
+	}
+
+
+	/**
+	 * Delete entity and notify listeners if entity was present.
+	 *
+	 * @param id id of entity to be deleted from the repository.
+	 */
+	@Override
+	public synchronized void deleteById( String id ) {
+		if( existsById( id ) ) {
+			delegate.deleteById( id );
+			if( idFilter != null ) {
+				idFilter.remove( id );
+			}
+			for( RepositoryListener<E> listener : listeners ) {
+				listener.deleted( id );
+			}
+		}
+	}
+
+	@Override
+	public synchronized void delete( E entity ) {
+		if( entity != null ) {
+			deleteById( entity.getId() );
+		}
+	}
+
+	@Override
+	public synchronized void deleteAllById( Iterable<String> ids ) {
+		for( String id : ids ) {
+			deleteById( id );
+		}
+	}
+
+	@Override
+	public synchronized void deleteAll( Iterable<E> entities ) {
+		for( E e : entities ) {
+			delete( e );
+		}
+	}
+
+	@Override
+	public synchronized void deleteAll() {
+		delegate.deleteAll();
+		if( idFilter != null ) {
+			idFilter.clear();
+		}
+		for( RepositoryListener<E> listener : listeners ) {
+			listener.cleared();
+		}
+	}
+
+
+	/**
+	 * Close delegate repository if it holds resources.
+	 */
+	@Override
+	public void close() throws IOException {
+		if( delegate instanceof Closeable ) {
+			((Closeable)delegate).close();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private E saveAndNotify( final E entity, final EntityPropertyUpdateSet updates ) {
+		boolean exists = existsById( entity.getId() );
+		if( ! exists && idFilter != null ) {
+			idFilter.add( entity.getId() );
+		}
+		E e2 = delegate.save( entity );
+		growIdFilter();
+		for( RepositoryListener<E> listener : listeners ) {
+			if( ! exists ) {
+				listener.inserted( e2 );
+			} else if( updates == null ) {
+				listener.updated( e2 );
+			} else {
+				listener.updated( e2, updates );
+			}
+		}
+		return e2;
+	}
+
+	private boolean mightContain( final String id ) {
+		CountingBloomFilter filter = idFilter;
+		return filter == null || filter.mightContain( id );
+	}
+
+	/*
+	 * Replace filter by one of twice the capacity when it has filled up, the
+	 * false positive rate would otherwise rise with each insert.
+	 */
+	private void growIdFilter() {
+		CountingBloomFilter filter = idFilter;
+		if( filter != null && filter.size() > filter.capacity() ) {
+			idFilter = buildIdFilter( filter.size() * 2, filter.getFalsePositiveRate() );
+		}
+	}
+
+	private CountingBloomFilter buildIdFilter( final long capacity, final double falsePositiveRate ) {
+		CountingBloomFilter filter = new CountingBloomFilter( Math.max( MinIdFilterCapacity, capacity ), falsePositiveRate );
+		for( E e : delegate.findAll() ) {
+			filter.add( e.getId() );
+		}
+		return filter;
+	}
+
+}
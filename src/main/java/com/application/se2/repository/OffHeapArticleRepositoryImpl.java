@@ -0,0 +1,546 @@
+package com.application.se2.repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import com.application.se2.misc.Callback;
+import com.application.se2.model.Article;
+
+
+/**
+ * Local implementation class of an Article repository that keeps Article records
+ * in direct (off-heap) ByteBuffer memory, outside the garbage collected heap.
+ * Records are appended to a data buffer and located through an off-heap open
+ * addressing hash index that maps ids to record offsets. Article objects are only
+ * materialized on demand, scans can use ArticleRecord flyweight views.
+ *
+ * Updated records are overwritten in place if they fit, otherwise they are appended
+ * and the previous record is marked as garbage. Records keep their append order,
+ * which is the order in which findAll() returns Articles. Dead records are reclaimed
+ * by compact(), which preserves that order.
+ *
+ * Index slot layout: [int hash][int offset + 1], 0 marks an empty slot, -1 a deleted slot.
+ *
+ * @author sgra64
+ *
+ */
+class OffHeapArticleRepositoryImpl implements ArticleRepositoryIntf {
+	private static final int SlotSize = 2 * Integer.BYTES;
+	private static final int EmptySlot = 0;
+	private static final int DeletedSlot = -1;
+
+	private ByteBuffer data;		// off-heap record data
+
+	private int end = 0;			// offset at which next record is appended
+
+	private long garbage = 0L;		// bytes occupied by dead records
+
+	private ByteBuffer index;		// off-heap id index
+
+	private int slots;				// number of index slots, power of 2
+
+	private int live = 0;			// number of live records
+
+	private int deleted = 0;		// number of deleted index slots
+
+	private final ArticleRecord cursor = new ArticleRecord();
+
+	private int generation = 0;		// incremented by each compaction
+
+	private Relocation relocation = null;		// record moves of last compaction
+
+
+	/*
+	 * Old and new offsets of live records moved by a compaction, used by iterators
+	 * that were positioned in the data buffer before the compaction.
+	 */
+	private static final class Relocation {
+		private final int generation;
+		private final int[] from;
+		private final int[] to;
+		private final int moved;
+		private final int end;
+
+		private Relocation( final int generation, final int[] from, final int[] to, final int moved, final int end ) {
+			this.generation = generation;
+			this.from = from;
+			this.to = to;
+			this.moved = moved;
+			this.end = end;
+		}
+	}
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param expectedArticles number of Articles for which memory is initially allocated.
+	 */
+	OffHeapArticleRepositoryImpl( final int expectedArticles ) {
+		int n = Math.max( 16, expectedArticles );
+		this.data = ByteBuffer.allocateDirect( n * 96 );
+		this.slots = Integer.highestOneBit( n * 2 - 1 ) << 1;
+		this.index = ByteBuffer.allocateDirect( slots * SlotSize );
+	}
+
+
+	/**
+	 * Iterate over all Articles of the repository as flyweight views.
+	 *
+	 * @param callback invoked for each Article record.
+	 */
+	@Override
+	public synchronized void iterateRecords( final Callback<ArticleRecord> callback ) {
+		ArticleRecord rec = new ArticleRecord();
+		for( int offset = 0; offset < end; offset += rec.capacity() ) {
+			rec.wrap( data, offset );
+			if( rec.isLive() ) {
+				callback.apply( rec );
+			}
+		}
+	}
+
+
+	/**
+	 * Returns whether entity with given id is present in the repository.
+	 *
+	 * @param entity id.
+	 * @return true if entity is present in the repository.
+	 */
+	@Override
+	public synchronized boolean existsById( String id ) {
+		return id != null && findSlot( id, ArticleRecord.bytes( id ) ) >= 0;
+	}
+
+
+	/**
+	 * Find method that returns the Article with matching id, materialized from
+	 * its off-heap record.
+	 *
+	 * @param id entity identifier.
+	 * @return Optional of entity matching id.
+	 */
+	@Override
+	public synchronized Optional<Article> findById( String id ) {
+		int slot = id != null? findSlot( id, ArticleRecord.bytes( id ) ) : -1;
+		return slot >= 0? Optional.of( cursor.wrap( data, recordOffset( slot ) ).toArticle() ) : Optional.empty();
+	}
+
+
+	/**
+	 * Find method that returns all entities of the repository. Articles are
+	 * materialized one at a time while iterating.
+	 *
+	 * @return all entities of the repository.
+	 */
+	@Override
+	public Iterable<Article> findAll() {
+		return () -> new Iterator<Article>() {
+			private final ArticleRecord rec = new ArticleRecord();
+			private int offset = 0;
+			private int gen = generation;
+			private Article next = null;
+
+			@Override
+			public boolean hasNext() {
+				synchronized( OffHeapArticleRepositoryImpl.this ) {
+					if( gen != generation ) {
+						offset = relocate( offset, gen );
+						gen = generation;
+					}
+					while( next == null && offset < end ) {
+						rec.wrap( data, offset );
+						offset += rec.capacity();
+						if( rec.isLive() ) {
+							next = rec.toArticle();
+						}
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public Article next() {
+				if( ! hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				Article a = next;
+				next = null;
+				return a;
+			}
+		};
+	}
+
+
+	/**
+	 * Find method that returns a set of Entities that have been found based on
+	 * a set of Id's provided as input.
+	 *
+	 * @param ids set of Id's to be looked up in the repository.
+	 * @return set of found Entities.
+	 */
+	@Override
+	public synchronized Iterable<Article> findAllById( Iterable<String> ids ) {
+		List<Article> collection = new ArrayList<Article>();
+		for( String id : ids ) {
+			findById( id ).ifPresent( collection::add );
+		}
+		return collection;
+	}
+
+
+	/**
+	 * Find method that returns entity that matches the regular expression.
+	 *
+	 * @param regEx regular expression to match getName() property.
+	 * @return Optional of entity matching name.
+	 */
+	@Override
+	public synchronized Optional<Article> findByName( String regEx ) {
+		Iterator<Article> it = findByName( regEx, 1 ).iterator();
+		return it.hasNext()? Optional.of( it.next() ) : Optional.empty();
+	}
+
+
+	/**
+	 * Find method that returns List of entities matching the name-field. Only
+	 * matching records are materialized as Article objects.
+	 *
+	 * @param regEx regular expression to match getName() property
+	 * @param limit max number of matching entities returned
+	 * @return List of matching entites (up to limit)
+	 */
+	@Override
+	public synchronized Iterable<Article> findByName( String regEx, long limit ) {
+		Pattern p = Pattern.compile( regEx );
+		List<Article> result = new ArrayList<Article>();
+		ArticleRecord rec = new ArticleRecord();
+		for( int offset = 0; offset < end && result.size() < limit; offset += rec.capacity() ) {
+			rec.wrap( data, offset );
+			if( rec.isLive() ) {
+				String name = rec.getName();
+				if( name != null && p.matcher( name ).matches() ) {
+					result.add( rec.toArticle() );
+				}
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Save Article values to its off-heap record (update if already present, or
+	 * append record if not yet present).
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @return entity that has been saved.
+	 */
+	@Override
+	public synchronized Article save( Article entity ) {
+		String id = entity.getId();
+		byte[] idBytes = ArticleRecord.bytes( id );
+		byte[] name = ArticleRecord.bytes( entity.getName() );
+		byte[] price = ArticleRecord.bytes( entity.getPrice() );
+		int size = ArticleRecord.encodedSize( idBytes, name, price );
+
+		int slot = findSlot( id, idBytes );
+		if( slot >= 0 ) {
+			int offset = recordOffset( slot );
+			int capacity = cursor.wrap( data, offset ).capacity();
+			if( size <= capacity ) {
+				ArticleRecord.encode( data, offset, capacity, idBytes, name, price );	// overwrite in place
+				return entity;
+			}
+			markDead( offset );
+			index.putInt( slot * SlotSize + Integer.BYTES, DeletedSlot );
+			live--;
+			deleted++;
+		}
+
+		ensureDataCapacity( size );
+		int offset = end;
+		ArticleRecord.encode( data, offset, size, idBytes, name, price );
+		end += size;
+		insertSlot( id.hashCode(), offset );
+		return entity;
+	}
+
+
+	/**
+	 * Save list of Entities to repository.
+	 *
+	 * @param entities entities to be saved.
+	 * @return entities that have been saved.
+	 */
+	@Override
+	public synchronized Iterable<Article> saveAll( Iterable<Article> entities ) {
+		List<Article> res = new ArrayList<Article>();
+		for( Article a : entities ) {
+			res.add( save( a ) );
+		}
+		return res;
+	}
+
+
+	/**
+	 * Returns the number of entities present in repository.
+	 *
+	 * @return number of entities present in repository.
+	 */
+	@Override
+	public synchronized long count() {
+		return live;
+	}
+
+
+	/**
+	 * Delete entity with matching id from the repository.
+	 *
+	 * @param id id of entity to be deleted from the repository.
+	 */
+	@Override
+	public synchronized void deleteById( String id ) {
+		int slot = id != null? findSlot( id, ArticleRecord.bytes( id ) ) : -1;
+		if( slot >= 0 ) {
+			markDead( recordOffset( slot ) );
+			index.putInt( slot * SlotSize + Integer.BYTES, DeletedSlot );
+			live--;
+			deleted++;
+		}
+	}
+
+
+	/**
+	 * Delete entity from repository.
+	 *
+	 * @param entity entity to be deleted from repository.
+	 */
+	@Override
+	public synchronized void delete( Article entity ) {
+		if( entity != null ) {
+			deleteById( entity.getId() );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param ids list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAllById( Iterable<String> ids ) {
+		for( String id : ids ) {
+			deleteById( id );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param entities list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAll( Iterable<Article> entities ) {
+		for( Article a : entities ) {
+			delete( a );
+		}
+	}
+
+
+	/**
+	 * Delete all entities from repository. The result is an empty repository.
+	 */
+	@Override
+	public synchronized void deleteAll() {
+		end = 0;
+		garbage = 0L;
+		live = 0;
+		deleted = 0;
+		for( int i = 0; i < slots * SlotSize; i += Long.BYTES ) {
+			index.putLong( i, 0L );
+		}
+	}
+
+
+	/**
+	 * Return number of off-heap bytes occupied by dead records.
+	 *
+	 * @return number of off-heap bytes occupied by dead records.
+	 */
+	synchronized long garbage() {
+		return garbage;
+	}
+
+
+	/**
+	 * Return number of off-heap bytes occupied by live and dead records.
+	 *
+	 * @return number of off-heap record bytes.
+	 */
+	synchronized long dataBytes() {
+		return end;
+	}
+
+
+	/**
+	 * Compact record data: live records are copied in order into a new buffer sized
+	 * for them, the index is updated to their new offsets and deleted index slots are
+	 * cleared. Iterators positioned before the compaction continue after the record
+	 * they last returned.
+	 *
+	 * @return number of bytes reclaimed.
+	 */
+	synchronized long compact() {
+		if( garbage == 0 ) {
+			return 0;
+		}
+		int liveBytes = (int)( end - garbage );
+		ByteBuffer compacted = ByteBuffer.allocateDirect( Math.max( 16 * 96, liveBytes + liveBytes / 4 ) );
+		int[] from = new int[ live ];
+		int[] to = new int[ live ];
+		int moved = 0;
+		for( int offset = 0; offset < end; ) {
+			int capacity = cursor.wrap( data, offset ).capacity();
+			if( cursor.isLive() ) {
+				ByteBuffer src = data.duplicate();
+				src.position( offset ).limit( offset + capacity );
+				compacted.put( src );
+				from[ moved ] = offset;
+				to[ moved ] = compacted.position() - capacity;
+				moved++;
+			}
+			offset += capacity;
+		}
+		for( int i = 0; i < slots; i++ ) {
+			int pos = i * SlotSize + Integer.BYTES;
+			int ref = index.getInt( pos );
+			if( ref != EmptySlot && ref != DeletedSlot ) {
+				index.putInt( pos, to[ Arrays.binarySearch( from, 0, moved, ref - 1 ) ] + 1 );
+			}
+		}
+		data = compacted;
+		long reclaimed = end - compacted.position();
+		end = compacted.position();
+		garbage = 0L;
+		generation++;
+		relocation = new Relocation( generation, from, to, moved, end );
+		rehash( slots );		// clear deleted slots
+		return reclaimed;
+	}
+
+
+	/**
+	 * Return number of off-heap bytes allocated for data and index.
+	 *
+	 * @return number of off-heap bytes allocated for data and index.
+	 */
+	synchronized long capacity() {
+		return (long)data.capacity() + index.capacity();
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private int findSlot( final String id, final byte[] idBytes ) {
+		int hash = id.hashCode();
+		int mask = slots - 1;
+		for( int i = spread( hash ) & mask, probes = 0; probes < slots; i = ( i + 1 ) & mask, probes++ ) {
+			int pos = i * SlotSize;
+			int ref = index.getInt( pos + Integer.BYTES );
+			if( ref == EmptySlot ) {
+				return -1;
+			}
+			if( ref != DeletedSlot && index.getInt( pos ) == hash && cursor.wrap( data, ref - 1 ).idEquals( idBytes ) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void insertSlot( final int hash, final int offset ) {
+		if( ( live + deleted + 1 ) * 2 > slots ) {
+			rehash( ( live + 1 ) * 4 > slots? slots * 2 : slots );
+		}
+		int mask = slots - 1;
+		int i = spread( hash ) & mask;
+		int ref;
+		while( ( ref = index.getInt( i * SlotSize + Integer.BYTES ) ) != EmptySlot && ref != DeletedSlot ) {
+			i = ( i + 1 ) & mask;
+		}
+		if( ref == DeletedSlot ) {
+			deleted--;
+		}
+		index.putInt( i * SlotSize, hash );
+		index.putInt( i * SlotSize + Integer.BYTES, offset + 1 );
+		live++;
+	}
+
+	private void rehash( final int newSlots ) {
+		ByteBuffer old = index;
+		int oldSlots = slots;
+		index = ByteBuffer.allocateDirect( newSlots * SlotSize );
+		slots = newSlots;
+		live = 0;
+		deleted = 0;
+		for( int i = 0; i < oldSlots; i++ ) {
+			int ref = old.getInt( i * SlotSize + Integer.BYTES );
+			if( ref != EmptySlot && ref != DeletedSlot ) {
+				insertSlot( old.getInt( i * SlotSize ), ref - 1 );
+			}
+		}
+	}
+
+	private int recordOffset( final int slot ) {
+		return index.getInt( slot * SlotSize + Integer.BYTES ) - 1;
+	}
+
+	private void markDead( final int offset ) {
+		data.put( offset + ArticleRecord.LiveOffset, (byte)0 );
+		garbage += cursor.wrap( data, offset ).capacity();
+	}
+
+	private void ensureDataCapacity( final int size ) {
+		if( end + size > data.capacity() ) {
+			long newCapacity = Math.max( (long)data.capacity() * 2, (long)end + size );
+			if( newCapacity > Integer.MAX_VALUE ) {
+				throw new IllegalStateException( "off-heap Article storage exceeds " + Integer.MAX_VALUE + " bytes" );
+			}
+			ByteBuffer grown = ByteBuffer.allocateDirect( (int)newCapacity );
+			ByteBuffer src = data.duplicate();
+			src.position( 0 ).limit( end );
+			grown.put( src );
+			data = grown;
+		}
+	}
+
+	/*
+	 * Map offset of an iterator positioned before the last compaction to the offset
+	 * of the first live record at or after it.
+	 */
+	private int relocate( final int offset, final int gen ) {
+		if( relocation == null || relocation.generation != gen + 1 ) {
+			throw new ConcurrentModificationException( "Article records compacted more than once during iteration" );
+		}
+		int i = Arrays.binarySearch( relocation.from, 0, relocation.moved, offset );
+		if( i < 0 ) {
+			i = -i - 1;
+		}
+		return i < relocation.moved? relocation.to[ i ] : relocation.end;
+	}
+
+	private static int spread( final int hash ) {
+		return hash ^ ( hash >>> 16 );
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.application.se2.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local interface of a codec that splits an entity into a head and a tail record.
+ * The head holds scalar properties together with size and first element of each
+ * collection, the tail holds remaining collection elements. An entity decoded from
+ * its head fetches the tail only when collections are accessed beyond the first element.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+interface PartialEntityCodec<E extends Entity> extends EntityCodec<E> {
+
+	/**
+	 * Encode head of entity to output.
+	 *
+	 * @param entity entity to encode.
+	 * @param out output to which head is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	public void encodeHead( E entity, DataOutput out ) throws IOException;
+
+	/**
+	 * Encode tail of entity to output. Nothing is written if all collection
+	 * elements are held in the head.
+	 *
+	 * @param entity entity to encode.
+	 * @param out output to which tail is encoded.
+	 * @throws IOException if output cannot be written.
+	 */
+	public void encodeTail( E entity, DataOutput out ) throws IOException;
+
+	/**
+	 * Decode entity from head input. Collections of the entity read the tail
+	 * from the supplier on first access.
+	 *
+	 * @param in input from which head is decoded.
+	 * @param tail supplier of tail input, invoked at most once.
+	 * @return decoded entity instance.
+	 * @throws IOException if input cannot be read or is malformed.
+	 */
+	public E decodeHead( DataInput in, Supplier<DataInput> tail ) throws IOException;
+
+	/**
+	 * Load collections of an entity decoded from its head such that it no longer
+	 * depends on its tail record, invoked before the record is freed. By default,
+	 * collections are loaded by encoding the tail.
+	 *
+	 * @param entity entity of which collections are loaded.
+	 * @throws UncheckedIOException if the tail cannot be read.
+	 */
+	public default void materialize( final E entity ) {
+		tailBytes( entity );
+	}
+
+
+	/**
+	 * Encode head of entity into a byte array.
+	 *
+	 * @param entity entity to encode.
+	 * @return encoded bytes.
+	 */
+	public default byte[] headBytes( final E entity ) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 128 );
+		try {
+			encodeHead( entity, new DataOutputStream( bos ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot encode " + entity.getId(), e );
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Encode tail of entity into a byte array.
+	 *
+	 * @param entity entity to encode.
+	 * @return encoded bytes, empty if entity has no tail.
+	 */
+	public default byte[] tailBytes( final E entity ) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( 256 );
+		try {
+			encodeTail( entity, new DataOutputStream( bos ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot encode " + entity.getId(), e );
+		}
+		return bos.toByteArray();
+	}
+
+}
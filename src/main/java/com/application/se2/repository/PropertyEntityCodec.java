@@ -0,0 +1,45 @@
+package com.application.se2.repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local interface of a codec that encodes individual properties of an entity in
+ * addition to the entity as a whole. Property values are used as deltas that are
+ * applied to a decoded entity to obtain a later version of the entity.
+ *
+ * Properties are identified by field names as used by EntityProperty, collection
+ * properties are encoded with all their elements.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+interface PropertyEntityCodec<E extends Entity> extends EntityCodec<E> {
+
+	/**
+	 * Encode value of a property of entity to output.
+	 *
+	 * @param entity entity of which the property is encoded.
+	 * @param property name of property.
+	 * @param out output to which property value is encoded.
+	 * @return false if the property cannot be encoded individually, nothing is written then.
+	 * @throws IOException if output cannot be written.
+	 */
+	public boolean encodeProperty( E entity, String property, DataOutput out ) throws IOException;
+
+	/**
+	 * Decode value of a property from input and assign it to entity.
+	 *
+	 * @param entity entity to which the property value is assigned.
+	 * @param property name of property.
+	 * @param in input from which property value is decoded.
+	 * @throws IOException if input cannot be read or property is unknown.
+	 */
+	public void decodeProperty( E entity, String property, DataInput in ) throws IOException;
+
+}
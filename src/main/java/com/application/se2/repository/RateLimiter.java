@@ -0,0 +1,78 @@
+package com.application.se2.repository;
+
+import java.io.InterruptedIOException;
+
+
+/**
+ * Local token bucket that limits the rate of background I/O in bytes per second.
+ * Tokens accumulate at the configured rate up to a burst size. A caller that
+ * takes more tokens than available runs into debt and is delayed until the debt
+ * has been paid off, such that large writes are throttled as well as small ones.
+ *
+ * @author sgra64
+ *
+ */
+class RateLimiter {
+
+	private final long bytesPerSecond;
+
+	private final long burst;
+
+	private double tokens;
+
+	private long refilledAt = System.nanoTime();
+
+
+	/**
+	 * Package-local constructor.
+	 *
+	 * @param bytesPerSecond sustained rate, 0 or negative for no limit.
+	 * @param burst number of bytes that may be taken at once without delay.
+	 */
+	RateLimiter( final long bytesPerSecond, final long burst ) {
+		this.bytesPerSecond = bytesPerSecond;
+		this.burst = Math.max( 1, burst );
+		this.tokens = this.burst;
+	}
+
+
+	/**
+	 * Take tokens for a number of bytes, waiting while the bucket is in debt.
+	 *
+	 * @param bytes number of bytes read or written.
+	 * @throws InterruptedIOException if interrupted while waiting.
+	 */
+	void acquire( final long bytes ) throws InterruptedIOException {
+		if( bytesPerSecond <= 0 || bytes <= 0 ) {
+			return;
+		}
+		long waitNanos;
+		synchronized( this ) {
+			long now = System.nanoTime();
+			tokens = Math.min( burst, tokens + ( now - refilledAt ) * bytesPerSecond / 1e9 );
+			refilledAt = now;
+			tokens -= bytes;
+			waitNanos = tokens < 0? (long)( -tokens * 1e9 / bytesPerSecond ) : 0;
+		}
+		if( waitNanos > 0 ) {
+			try {
+				Thread.sleep( waitNanos / 1_000_000, (int)( waitNanos % 1_000_000 ) );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException( "rate limited I/O interrupted" );
+			}
+		}
+	}
+
+
+	/**
+	 * Return configured rate.
+	 *
+	 * @return rate in bytes per second, 0 or negative for no limit.
+	 */
+	long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+}
@@ -0,0 +1,386 @@
+package com.application.se2.repository;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Follower side of repository replication. A follower connects to a
+ * ReplicationPrimary, bootstraps its local repositories from a snapshot and then
+ * applies the primary's change log to them. After a disconnect, the follower
+ * reconnects and catches up from the last applied change.
+ *
+ * Local repositories of a follower serve reads. Local writes are not sent to the
+ * primary and are overwritten by replicated changes.
+ *
+ * A follower must use a node id other than the primary's, otherwise it refuses to
+ * replicate and stops.
+ *
+ * @author sgra64
+ *
+ */
+public class ReplicationFollower implements Closeable {
+	private static final Logger logger = Logger.getInstance( ReplicationFollower.class );
+
+	private static final long RetryMillis = 1000;
+
+	private static final RepositoryChangeLog.Op[] Ops = RepositoryChangeLog.Op.values();
+
+	private final String host;
+
+	private final int port;
+
+	private final int nodeId;
+
+	private final Map<String, Target<?>> targets = new HashMap<String, Target<?>>();
+
+	private volatile long epoch = 0;
+
+	private volatile long appliedSeq = -1;		// -1: no snapshot applied yet
+
+	private volatile long primarySeq = -1;
+
+	private volatile long caughtUpAt = System.currentTimeMillis();
+
+	private volatile long snapshots = 0;
+
+	private volatile Socket socket = null;
+
+	private volatile boolean closed = false;
+
+	private volatile boolean refused = false;
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param host host of primary, e.g. "localhost".
+	 * @param port port of primary.
+	 * @param nodeId node id of the follower process, must differ from the primary's.
+	 */
+	ReplicationFollower( final String host, final int port, final int nodeId ) {
+		this.host = host;
+		this.port = port;
+		this.nodeId = nodeId;
+	}
+
+
+	/**
+	 * Register local repository to which replicated changes of an entity class are applied.
+	 *
+	 * @param <E> generic entity type.
+	 * @param clazz entity class.
+	 * @param repository local repository.
+	 * @param codec codec to decode entities.
+	 */
+	synchronized <E extends Entity> void register( final Class<E> clazz, final RepositoryIntf<E> repository, final EntityCodec<E> codec ) {
+		targets.put( clazz.getName(), new Target<E>( repository, codec ) );
+	}
+
+
+	/**
+	 * Start replication thread that connects to the primary.
+	 */
+	void start() {
+		Thread thread = new Thread( () -> {
+			while( ! closed ) {
+				try( Socket s = new Socket( host, port ) ) {
+					socket = s;
+					s.setTcpNoDelay( true );
+					DataOutputStream out = new DataOutputStream( s.getOutputStream() );
+					out.writeInt( nodeId );
+					out.writeLong( epoch );
+					out.writeLong( appliedSeq );
+					out.flush();
+					receive( new DataInputStream( new BufferedInputStream( s.getInputStream(), 64 * 1024 ) ) );
+
+				} catch( IOException e ) {
+					if( ! closed ) {
+						logger.log( LoggerTopics.Warn, "replication: no connection to primary " + host + ":" + port + ": " + e.getMessage() );
+					}
+				}
+				socket = null;
+				if( ! closed ) {
+					try {
+						Thread.sleep( RetryMillis );
+
+					} catch( InterruptedException e ) {
+						return;
+					}
+				}
+			}
+		}, "replication-follower" );
+		thread.setDaemon( true );
+		thread.start();
+	}
+
+
+	/**
+	 * Return sequence number of the last change applied to local repositories.
+	 *
+	 * @return sequence number of last applied change, -1 before the first snapshot.
+	 */
+	public long getAppliedSeq() {
+		return appliedSeq;
+	}
+
+
+	/**
+	 * Return sequence number of the latest change known to exist at the primary.
+	 *
+	 * @return sequence number of latest change of primary, -1 if not yet known.
+	 */
+	public long getPrimarySeq() {
+		return primarySeq;
+	}
+
+
+	/**
+	 * Return replication lag as number of changes not yet applied.
+	 *
+	 * @return number of changes the follower is behind the primary.
+	 */
+	public long getLag() {
+		return Math.max( 0, primarySeq - appliedSeq );
+	}
+
+
+	/**
+	 * Return replication lag in time, measured since the follower was last known to
+	 * be caught up with the primary. The lag grows while the follower is disconnected.
+	 *
+	 * @return lag in milliseconds, 0 if caught up.
+	 */
+	public long getLagMillis() {
+		return isCaughtUp()? 0 : Math.max( 0, System.currentTimeMillis() - caughtUpAt );
+	}
+
+
+	/**
+	 * Return whether follower is connected to the primary.
+	 *
+	 * @return true if connected.
+	 */
+	public boolean isConnected() {
+		return socket != null;
+	}
+
+
+	/**
+	 * Return whether follower has refused to replicate since the primary uses its node id.
+	 *
+	 * @return true if replication has been refused and stopped.
+	 */
+	public boolean isRefused() {
+		return refused;
+	}
+
+
+	/**
+	 * Return number of snapshots received from the primary.
+	 *
+	 * @return number of snapshots.
+	 */
+	public long getSnapshotCount() {
+		return snapshots;
+	}
+
+
+	/**
+	 * Wait until changes up to a sequence number have been applied.
+	 *
+	 * @param seq sequence number to wait for.
+	 * @param timeout maximum time to wait in milliseconds.
+	 * @return true if changes up to seq have been applied, false also if replication has been refused.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public synchronized boolean awaitSeq( final long seq, final long timeout ) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		for( long left = timeout; appliedSeq < seq && ! refused && left > 0; left = deadline - System.currentTimeMillis() ) {
+			wait( left );
+		}
+		return appliedSeq >= seq;
+	}
+
+
+	/**
+	 * Stop replication and disconnect from the primary.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		dropConnection();
+	}
+
+
+	/**
+	 * Close current connection, the follower reconnects and catches up.
+	 */
+	void dropConnection() throws IOException {
+		Socket s = socket;
+		if( s != null ) {
+			s.close();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Target<E extends Entity> {
+		private final RepositoryIntf<E> repository;
+		private final EntityCodec<E> codec;
+		private final Set<String> snapshotIds = new HashSet<String>();
+
+		private Target( final RepositoryIntf<E> repository, final EntityCodec<E> codec ) {
+			this.repository = repository;
+			this.codec = codec;
+		}
+
+		private void save( final byte[] bytes ) {
+			E e = codec.fromBytes( bytes );
+			repository.save( e );
+			snapshotIds.add( e.getId() );
+		}
+
+		private void apply( final RepositoryChangeLog.Op op, final String id, final byte[] bytes ) {
+			switch( op ) {
+			case INSERT:
+			case UPDATE:	repository.save( codec.fromBytes( bytes ) ); break;
+			case DELETE:	repository.deleteById( id ); break;
+			case CLEAR:		repository.deleteAll(); break;
+			}
+		}
+
+		/*
+		 * Remove local entities not contained in the snapshot just received.
+		 */
+		private void retainSnapshot() {
+			List<String> stale = new ArrayList<String>();
+			for( E e : repository.findAll() ) {
+				if( ! snapshotIds.contains( e.getId() ) ) {
+					stale.add( e.getId() );
+				}
+			}
+			repository.deleteAllById( stale );
+			snapshotIds.clear();
+		}
+	}
+
+	private void receive( final DataInputStream in ) throws IOException {
+		logger.log( LoggerTopics.Info, "replication: connected to primary " + host + ":" + port + " at offset " + appliedSeq );
+		long snapshotEpoch = 0;
+		long snapshotSeq = -1;
+		while( true ) {
+			byte frame = in.readByte();
+			switch( frame ) {
+			case ReplicationPrimary.Hello:
+				int primaryNodeId = in.readInt();
+				if( primaryNodeId == nodeId ) {
+					refuse( primaryNodeId );
+					return;
+				}
+				break;
+
+			case ReplicationPrimary.SnapshotBegin:
+				snapshotEpoch = in.readLong();
+				snapshotSeq = in.readLong();
+				break;
+
+			case ReplicationPrimary.SnapshotEntity:
+				Target<?> target = target( in.readUTF() );
+				byte[] bytes = readBytes( in );
+				if( target != null ) {
+					target.save( bytes );
+				}
+				break;
+
+			case ReplicationPrimary.SnapshotEnd:
+				synchronized( this ) {
+					for( Target<?> t : targets.values() ) {
+						t.retainSnapshot();
+					}
+				}
+				snapshots++;
+				epoch = snapshotEpoch;
+				applied( snapshotSeq );
+				break;
+
+			case ReplicationPrimary.Change:
+				long seq = in.readLong();
+				in.readLong();		// time stamp of change at primary
+				RepositoryChangeLog.Op op = Ops[ in.readByte() ];
+				Target<?> t = target( in.readUTF() );
+				String id = EntityCodec.readString( in );
+				byte[] payload = readBytes( in );
+				if( t != null ) {
+					t.apply( op, id, payload );
+				}
+				applied( seq );
+				break;
+
+			case ReplicationPrimary.Heartbeat:
+				primarySeq = in.readLong();
+				in.readLong();		// time stamp at primary
+				applied( appliedSeq );
+				break;
+
+			default:
+				throw new IOException( "replication: unknown frame " + frame );
+			}
+		}
+	}
+
+	private synchronized Target<?> target( final String entityClass ) {
+		return targets.get( entityClass );
+	}
+
+	private synchronized void applied( final long seq ) {
+		appliedSeq = seq;
+		if( primarySeq < seq ) {
+			primarySeq = seq;
+		}
+		if( isCaughtUp() ) {
+			caughtUpAt = System.currentTimeMillis();
+		}
+		notifyAll();
+	}
+
+	private synchronized void refuse( final int primaryNodeId ) {
+		logger.log( LoggerTopics.Error, "replication: follower refused, primary " + host + ":" + port +
+			" uses the same node id " + primaryNodeId + ", configure another node id for this process" );
+		refused = true;
+		closed = true;
+		notifyAll();
+	}
+
+	private boolean isCaughtUp() {
+		return socket != null && appliedSeq >= 0 && appliedSeq >= primarySeq;
+	}
+
+	private static byte[] readBytes( final DataInputStream in ) throws IOException {
+		int length = in.readInt();
+		if( length < 0 ) {
+			return null;
+		}
+		byte[] bytes = new byte[ length ];
+		in.readFully( bytes );
+		return bytes;
+	}
+
+}
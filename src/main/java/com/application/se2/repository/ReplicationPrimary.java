@@ -0,0 +1,268 @@
+package com.application.se2.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local class of the primary side of repository replication. The primary records
+ * changes of registered repositories in a RepositoryChangeLog and streams the log
+ * over a TCP socket to ReplicationFollower processes.
+ *
+ * A follower connects and sends its node id, the epoch of the log and the sequence
+ * number of the last change it has applied (or -1). The primary answers with its
+ * own node id and disconnects followers that use the same node id, since their
+ * clocks would issue the same time stamps. If the log is the same and still retains
+ * the changes after that offset, the primary continues from there (catch-up),
+ * otherwise it first sends a snapshot of all registered repositories. Changes are then streamed as they are recorded,
+ * followed by heartbeats that carry the sequence number of the latest change.
+ *
+ * Frames (DataOutput encoding):
+ *  - Handshake (follower to primary): int nodeId, long epoch, long seq
+ *  - Hello: 'N', int nodeId
+ *  - SnapshotBegin: 'B', long epoch, long seq
+ *  - SnapshotEntity: 'S', UTF entityClass, int length, byte[] entity
+ *  - SnapshotEnd: 'E'
+ *  - Change: 'C', long seq, long timeStamp, byte op, UTF entityClass, String id, int length (-1: none), byte[] entity
+ *  - Heartbeat: 'H', long lastSeq, long timeStamp
+ *
+ * @author sgra64
+ *
+ */
+class ReplicationPrimary implements Closeable {
+	private static final Logger logger = Logger.getInstance( ReplicationPrimary.class );
+
+	static final byte Hello = 'N';
+	static final byte SnapshotBegin = 'B';
+	static final byte SnapshotEntity = 'S';
+	static final byte SnapshotEnd = 'E';
+	static final byte Change = 'C';
+	static final byte Heartbeat = 'H';
+
+	private static final int BatchSize = 256;
+	private static final long HeartbeatMillis = 250;
+
+	private final RepositoryChangeLog log;
+
+	private final Map<String, Registration<?>> registrations = new LinkedHashMap<String, Registration<?>>();
+
+	private final int nodeId;
+
+	private final ServerSocket serverSocket;
+
+	private final List<Socket> followers = new CopyOnWriteArrayList<Socket>();
+
+	private volatile boolean closed = false;
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder. Binds the server socket.
+	 *
+	 * @param log change log streamed to followers.
+	 * @param host local address to bind to, e.g. "localhost".
+	 * @param port port to bind to, 0 for an ephemeral port.
+	 * @param nodeId node id of the primary process.
+	 * @throws IOException if socket cannot be bound.
+	 */
+	ReplicationPrimary( final RepositoryChangeLog log, final String host, final int port, final int nodeId ) throws IOException {
+		this.log = log;
+		this.nodeId = nodeId;
+		this.serverSocket = new ServerSocket( port, 16, InetAddress.getByName( host ) );
+	}
+
+
+	/**
+	 * Register repository for replication. Subsequent changes are recorded in the
+	 * change log, present entities are sent to followers with snapshots.
+	 *
+	 * @param <E> generic entity type.
+	 * @param clazz entity class.
+	 * @param repository observed repository of entity class.
+	 * @param codec codec to encode entities.
+	 */
+	synchronized <E extends Entity> void register( final Class<E> clazz, final ObservedRepositoryImpl<E> repository, final EntityCodec<E> codec ) {
+		registrations.put( clazz.getName(), new Registration<E>( clazz.getName(), repository, codec ) );
+		repository.addListener( log.listenerFor( clazz, codec ), false );
+	}
+
+
+	/**
+	 * Return port the primary accepts followers on.
+	 *
+	 * @return local port.
+	 */
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+
+	/**
+	 * Return number of connected followers.
+	 *
+	 * @return number of connected followers.
+	 */
+	int getFollowerCount() {
+		return followers.size();
+	}
+
+
+	/**
+	 * Start accepting followers.
+	 */
+	void start() {
+		Thread acceptor = new Thread( () -> {
+			while( ! closed ) {
+				try {
+					Socket socket = serverSocket.accept();
+					Thread session = new Thread( () -> serve( socket ), "replication-primary-" + socket.getPort() );
+					session.setDaemon( true );
+					session.start();
+
+				} catch( IOException e ) {
+					if( ! closed ) {
+						logger.error( "replication: accept failed: " + e.getMessage(), e );
+					}
+				}
+			}
+		}, "replication-primary" );
+		acceptor.setDaemon( true );
+		acceptor.start();
+		logger.log( LoggerTopics.Info, "replication primary listening on port " + getPort() );
+	}
+
+
+	/**
+	 * Stop accepting followers and disconnect connected followers.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for( Socket socket : followers ) {
+			socket.close();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Registration<E extends Entity> {
+		private final String entityClass;
+		private final ObservedRepositoryImpl<E> repository;
+		private final EntityCodec<E> codec;
+
+		private Registration( final String entityClass, final ObservedRepositoryImpl<E> repository, final EntityCodec<E> codec ) {
+			this.entityClass = entityClass;
+			this.repository = repository;
+			this.codec = codec;
+		}
+
+		private List<byte[]> snapshot() {
+			List<byte[]> res = new ArrayList<byte[]>();
+			repository.snapshot( e -> res.add( codec.toBytes( e ) ) );
+			return res;
+		}
+	}
+
+	private void serve( final Socket socket ) {
+		followers.add( socket );
+		try {
+			socket.setTcpNoDelay( true );
+			DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+			DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream(), 64 * 1024 ) );
+
+			int followerNodeId = in.readInt();
+			long epoch = in.readLong();
+			long seq = in.readLong();
+			out.writeByte( Hello );
+			out.writeInt( nodeId );
+			out.flush();
+			if( followerNodeId == nodeId ) {
+				logger.log( LoggerTopics.Warn, "replication: follower " + socket.getRemoteSocketAddress() +
+					" rejected, it uses node id " + nodeId + " of the primary" );
+				return;
+			}
+			logger.log( LoggerTopics.Info, "replication: follower {} connected at offset {}", socket.getRemoteSocketAddress(), seq );
+			if( epoch != log.epoch() || seq > log.lastSeq() ) {
+				seq = -1;		// follower replicated another log, e.g. before a restart of the primary
+			}
+			while( ! closed ) {
+				List<RepositoryChangeLog.Entry> changes = seq < 0? null : log.readAfter( seq, BatchSize, HeartbeatMillis );
+				if( changes == null ) {
+					seq = sendSnapshot( out );
+					continue;
+				}
+				for( RepositoryChangeLog.Entry e : changes ) {
+					out.writeByte( Change );
+					out.writeLong( e.seq );
+					out.writeLong( e.timeStamp );
+					out.writeByte( e.op.ordinal() );
+					out.writeUTF( e.entityClass );
+					EntityCodec.writeString( out, e.id );
+					out.writeInt( e.payload != null? e.payload.length : -1 );
+					if( e.payload != null ) {
+						out.write( e.payload );
+					}
+					seq = e.seq;
+				}
+				out.writeByte( Heartbeat );
+				out.writeLong( log.lastSeq() );
+				out.writeLong( System.currentTimeMillis() );
+				out.flush();
+			}
+
+		} catch( IOException e ) {
+			logger.log( LoggerTopics.Info, "replication: follower " + socket.getRemoteSocketAddress() + " disconnected" );
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+
+		} finally {
+			followers.remove( socket );
+			try {
+				socket.close();
+			} catch( IOException e ) { }
+		}
+	}
+
+	private long sendSnapshot( final DataOutputStream out ) throws IOException {
+		long seq = log.lastSeq();	// changes up to seq are contained, later ones are re-sent and re-applied
+		List<Registration<?>> regs;
+		synchronized( this ) {
+			regs = new ArrayList<Registration<?>>( registrations.values() );
+		}
+		out.writeByte( SnapshotBegin );
+		out.writeLong( log.epoch() );
+		out.writeLong( seq );
+		for( Registration<?> reg : regs ) {
+			for( byte[] bytes : reg.snapshot() ) {
+				out.writeByte( SnapshotEntity );
+				out.writeUTF( reg.entityClass );
+				out.writeInt( bytes.length );
+				out.write( bytes );
+			}
+		}
+		out.writeByte( SnapshotEnd );
+		out.flush();
+		return seq;
+	}
+
+}
@@ -0,0 +1,374 @@
+package com.application.se2.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import com.application.se2.model.Entity;
+
+
+/**
+ * Aggregates that are maintained incrementally as a RepositoryListener: counts
+ * of entities grouped by enum properties and count/sum/min/max statistics over
+ * numeric properties. Each entity's last contribution is remembered by id such
+ * that saves and deletions only adjust the aggregates by the difference.
+ *
+ * Updates are serialized by the repository, reads are lock-free: counts are
+ * read from atomic arrays, statistics from immutable Statistics instances that
+ * are re-published after each change.
+ *
+ * Statistics count occurrences of distinct values in a hash map and track min
+ * and max, such that a change costs O(1). Only when the last occurrence of the
+ * min or max value is removed, min and max are recomputed over the distinct
+ * values.
+ *
+ * Aggregates are defined before the instance is registered with a repository:
+ *
+ *  new RepositoryAggregates<Customer>()
+ *    .groupBy( "status", Customer.Status.class, Customer::getStatus );
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+public class RepositoryAggregates<E extends Entity> implements RepositoryListener<E> {
+
+	private final List<Group<?>> groups = new ArrayList<Group<?>>();
+
+	private final List<Stat> stats = new ArrayList<Stat>();
+
+	private final Map<String, Contribution> contributions = new HashMap<String, Contribution>();
+
+
+	/**
+	 * Immutable statistics over a numeric property.
+	 */
+	public static final class Statistics {
+		private static final Statistics Empty = new Statistics( 0, 0.0, Double.NaN, Double.NaN );
+
+		private final long count;
+		private final double sum;
+		private final double min;
+		private final double max;
+
+		private Statistics( final long count, final double sum, final double min, final double max ) {
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+		/**
+		 * Return number of entities with a value for the property.
+		 * @return number of values.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Return sum of values.
+		 * @return sum of values, 0.0 if no values exist.
+		 */
+		public double getSum() {
+			return sum;
+		}
+
+		/**
+		 * Return smallest value.
+		 * @return smallest value, NaN if no values exist.
+		 */
+		public double getMin() {
+			return min;
+		}
+
+		/**
+		 * Return largest value.
+		 * @return largest value, NaN if no values exist.
+		 */
+		public double getMax() {
+			return max;
+		}
+
+		/**
+		 * Return average of values.
+		 * @return average of values, NaN if no values exist.
+		 */
+		public double getAverage() {
+			return count > 0? sum / count : Double.NaN;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max;
+		}
+	}
+
+
+	/**
+	 * Define count aggregate grouped by an enum property.
+	 *
+	 * @param <T> enum type of property.
+	 * @param name name under which the aggregate is accessed.
+	 * @param enumClass enum class of property.
+	 * @param property function returning the property value of an entity.
+	 * @return self reference.
+	 */
+	public <T extends Enum<T>> RepositoryAggregates<E> groupBy( final String name, final Class<T> enumClass, final Function<E, T> property ) {
+		groups.add( new Group<T>( name, enumClass, property ) );
+		return this;
+	}
+
+
+	/**
+	 * Define statistics aggregate over a numeric property. Entities for which the
+	 * property returns NaN do not contribute.
+	 *
+	 * @param name name under which the aggregate is accessed.
+	 * @param property function returning the property value of an entity.
+	 * @return self reference.
+	 */
+	public RepositoryAggregates<E> statistics( final String name, final ToDoubleFunction<E> property ) {
+		stats.add( new Stat( name, property ) );
+		return this;
+	}
+
+
+	/**
+	 * Return number of entities of a group with a given property value.
+	 *
+	 * @param name name of group aggregate.
+	 * @param value property value.
+	 * @return number of entities with value, 0 for unknown aggregates.
+	 */
+	public long count( final String name, final Enum<?> value ) {
+		for( Group<?> g : groups ) {
+			if( g.name.equals( name ) && value != null && g.enumClass == value.getDeclaringClass() ) {
+				return g.counts.get( value.ordinal() );
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Return counts of a group aggregate for all property values.
+	 *
+	 * @param name name of group aggregate.
+	 * @return map with count for each enum value, empty map for unknown aggregates.
+	 */
+	public Map<Enum<?>, Long> countBy( final String name ) {
+		Map<Enum<?>, Long> res = new LinkedHashMap<Enum<?>, Long>();
+		for( Group<?> g : groups ) {
+			if( g.name.equals( name ) ) {
+				for( Enum<?> value : g.enumClass.getEnumConstants() ) {
+					res.put( value, g.counts.get( value.ordinal() ) );
+				}
+			}
+		}
+		return Collections.unmodifiableMap( res );
+	}
+
+
+	/**
+	 * Return statistics of a numeric aggregate.
+	 *
+	 * @param name name of statistics aggregate.
+	 * @return current statistics, empty statistics for unknown aggregates.
+	 */
+	public Statistics getStatistics( final String name ) {
+		for( Stat s : stats ) {
+			if( s.name.equals( name ) ) {
+				return s.published;
+			}
+		}
+		return Statistics.Empty;
+	}
+
+
+	/**
+	 * Parse a decimal number in German notation such as "1.549,00 EUR".
+	 *
+	 * @param str string to parse.
+	 * @return parsed number, NaN if string contains no number.
+	 */
+	public static double parseDecimal( final String str ) {
+		if( str == null ) {
+			return Double.NaN;
+		}
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < str.length(); i++ ) {
+			char ch = str.charAt( i );
+			if( ( ch >= '0' && ch <= '9' ) || ( ch == '-' && sb.length() == 0 ) ) {
+				sb.append( ch );
+			} else if( ch == ',' ) {
+				sb.append( '.' );
+			}
+		}
+		try {
+			return sb.length() > 0? Double.parseDouble( sb.toString() ) : Double.NaN;
+
+		} catch( NumberFormatException e ) {
+			return Double.NaN;
+		}
+	}
+
+
+	@Override
+	public synchronized void inserted( final E entity ) {
+		updated( entity );
+	}
+
+	@Override
+	public synchronized void updated( final E entity ) {
+		Contribution prev = contributions.get( entity.getId() );
+		Contribution next = new Contribution( entity );
+		for( int i = 0; i < groups.size(); i++ ) {
+			int was = prev != null? prev.ordinals[ i ] : -1;
+			if( was != next.ordinals[ i ] ) {
+				groups.get( i ).adjust( was, next.ordinals[ i ] );
+			}
+		}
+		for( int i = 0; i < stats.size(); i++ ) {
+			double was = prev != null? prev.values[ i ] : Double.NaN;
+			if( Double.compare( was, next.values[ i ] ) != 0 ) {
+				stats.get( i ).adjust( was, next.values[ i ] );
+			}
+		}
+		contributions.put( entity.getId(), next );
+	}
+
+	@Override
+	public synchronized void deleted( final String id ) {
+		Contribution prev = contributions.remove( id );
+		if( prev != null ) {
+			for( int i = 0; i < groups.size(); i++ ) {
+				groups.get( i ).adjust( prev.ordinals[ i ], -1 );
+			}
+			for( int i = 0; i < stats.size(); i++ ) {
+				stats.get( i ).adjust( prev.values[ i ], Double.NaN );
+			}
+		}
+	}
+
+	@Override
+	public synchronized void cleared() {
+		contributions.clear();
+		for( Group<?> g : groups ) {
+			for( int i = 0; i < g.counts.length(); i++ ) {
+				g.counts.set( i, 0 );
+			}
+		}
+		for( Stat s : stats ) {
+			s.values.clear();
+			s.count = 0;
+			s.sum = 0.0;
+			s.min = s.max = Double.NaN;
+			s.published = Statistics.Empty;
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	/**
+	 * Values an entity contributes to each group and statistics aggregate.
+	 */
+	private final class Contribution {
+		private final int[] ordinals;
+		private final double[] values;
+
+		private Contribution( final E entity ) {
+			ordinals = new int[ groups.size() ];
+			for( int i = 0; i < ordinals.length; i++ ) {
+				Enum<?> value = groups.get( i ).property.apply( entity );
+				ordinals[ i ] = value != null? value.ordinal() : -1;
+			}
+			values = new double[ stats.size() ];
+			for( int i = 0; i < values.length; i++ ) {
+				values[ i ] = stats.get( i ).property.applyAsDouble( entity );
+			}
+		}
+	}
+
+	private final class Group<T extends Enum<T>> {
+		private final String name;
+		private final Class<T> enumClass;
+		private final Function<E, T> property;
+		private final AtomicLongArray counts;
+
+		private Group( final String name, final Class<T> enumClass, final Function<E, T> property ) {
+			this.name = name;
+			this.enumClass = enumClass;
+			this.property = property;
+			this.counts = new AtomicLongArray( enumClass.getEnumConstants().length );
+		}
+
+		private void adjust( final int was, final int is ) {
+			if( was >= 0 ) {
+				counts.decrementAndGet( was );
+			}
+			if( is >= 0 ) {
+				counts.incrementAndGet( is );
+			}
+		}
+	}
+
+	private final class Stat {
+		private final String name;
+		private final ToDoubleFunction<E> property;
+		private final HashMap<Double, int[]> values = new HashMap<Double, int[]>();	// occurrences of distinct values
+		private long count = 0;
+		private double sum = 0.0;
+		private double min = Double.NaN;
+		private double max = Double.NaN;
+		private volatile Statistics published = Statistics.Empty;
+
+		private Stat( final String name, final ToDoubleFunction<E> property ) {
+			this.name = name;
+			this.property = property;
+		}
+
+		private void adjust( final double was, final double is ) {
+			boolean recompute = false;
+			if( ! Double.isNaN( was ) ) {
+				int[] n = values.get( was );
+				if( n != null && --n[ 0 ] == 0 ) {
+					values.remove( was );
+					recompute = was == min || was == max;	// last occurrence of min or max removed
+				}
+				count--;
+				sum -= was;
+			}
+			if( ! Double.isNaN( is ) ) {
+				int[] n = values.get( is );
+				if( n == null ) {
+					values.put( is, new int[] { 1 } );
+				} else {
+					n[ 0 ]++;
+				}
+				count++;
+				sum += is;
+				min = Double.isNaN( min ) || is < min? is : min;
+				max = Double.isNaN( max ) || is > max? is : max;
+			}
+			if( recompute ) {
+				min = max = Double.NaN;
+				for( double v : values.keySet() ) {
+					min = Double.isNaN( min ) || v < min? v : min;
+					max = Double.isNaN( max ) || v > max? v : max;
+				}
+			}
+			published = count > 0? new Statistics( count, sum, min, max ) : Statistics.Empty;
+		}
+	}
+
+}
@@ -1,14 +1,29 @@
 package com.application.se2.repository;
 
+import static com.application.se2.AppConfigurator.RepositoryConfig;
+import static com.application.se2.AppConfigurator.RepositoryModes;
+import static com.application.se2.AppConfigurator.RepositoryParams;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import com.application.se2.AppConfigurator.LoggerTopics;
 import com.application.se2.components.BuilderIntf;
+import com.application.se2.misc.HybridLogicalClock;
+import com.application.se2.misc.IDGenerator;
+import com.application.se2.misc.Logger;
 import com.application.se2.model.Article;
 import com.application.se2.model.Customer;
 import com.application.se2.model.Customer.Status;
+import com.application.se2.model.Entity;
+import com.application.se2.model.Note;
 
 
 /**
@@ -28,6 +43,7 @@ import com.application.se2.model.Customer.Status;
  *
  */
 public class RepositoryBuilder implements BuilderIntf {
+	private static final Logger logger = Logger.getInstance( RepositoryBuilder.class );
 
 	private static RepositoryBuilder _singletonInstance = null;
 
@@ -59,6 +75,13 @@ public class RepositoryBuilder implements BuilderIntf {
 	 */
 	@Override
 	public RepositoryRunner build() {
+		HybridLogicalClock.getInstance().setNodeId( RepositoryParams.ReplicationNodeId );
+		// ids outlive the process in snapshots, journal and checkpoints, they must not be issued again after a restart
+		IDGenerator.setHighWaterMarkDirectory( Paths.get( RepositoryParams.DataDirectory ) );
+		if( RepositoryConfig.contains( RepositoryModes.ReplicationFollower ) ) {
+			return buildReplica( RepositoryParams.ReplicationHost, RepositoryParams.ReplicationPort );
+		}
+
 		HashMap<String, RepositoryIntf<?>> repositoryMap = new HashMap<String,RepositoryIntf<?>>();
 
 		List<Customer>customerList = buildCustomerData_phase1();
@@ -67,11 +90,111 @@ public class RepositoryBuilder implements BuilderIntf {
 
 		buildCustomerData_phase2( customerRepository );
 
+		if( RepositoryConfig.contains( RepositoryModes.ColumnarCustomers ) &&
+				! RepositoryConfig.contains( RepositoryModes.TieredCustomers ) ) {
+			ColumnarCustomerRepositoryImpl columnar = new ColumnarCustomerRepositoryImpl( customerList.size() );
+			columnar.saveAll( customerList );
+			customerList.clear();
+			customerRepository = columnar;
+			repositoryMap.put( Customer.class.getName(), customerRepository );
+		}
+
+		if( RepositoryConfig.contains( RepositoryModes.TieredCustomers ) ) {
+			customerRepository = buildTieredCustomerRepository( customerRepository );
+			repositoryMap.put( Customer.class.getName(), customerRepository );
+		}
+
 		List<Article>articleList = buildArticleData();
-		RepositoryIntf<Article> articleRepository = new SimpleRepositoryImpl<Article>( articleList );
+		ObservedRepositoryImpl<Article> articleRepository;
+		OffHeapArticleRepositoryImpl offHeap = null;
+		if( RepositoryConfig.contains( RepositoryModes.OffHeapArticles ) ) {
+			offHeap = new OffHeapArticleRepositoryImpl( articleList.size() );
+			offHeap.saveAll( articleList );
+			articleList.clear();
+			articleRepository = new ObservedArticleRepositoryImpl( offHeap );
+
+		} else {
+			articleRepository = new ObservedRepositoryImpl<Article>( new SimpleRepositoryImpl<Article>( articleList ) );
+		}
 		repositoryMap.put( Article.class.getName(), articleRepository );
 
+		ObservedCustomerRepositoryImpl observedCustomers = new ObservedCustomerRepositoryImpl( customerRepository );
+		repositoryMap.put( Customer.class.getName(), observedCustomers );
+		buildIdFilters( observedCustomers, articleRepository );
+		buildHistories( observedCustomers, articleRepository );
+
 		RepositoryRunner repositoryRunner = new RepositoryRunner( repositoryMap );
+		repositoryRunner.putCodec( Customer.class, new CustomerCodec() );
+		repositoryRunner.putCodec( Article.class, new ArticleCodec() );
+		repositoryRunner.putAggregates( Customer.class, buildCustomerAggregates( observedCustomers ) );
+		repositoryRunner.putAggregates( Article.class, buildArticleAggregates( articleRepository ) );
+
+		RepositoryChangeLog changeLog = null;
+		if( RepositoryConfig.contains( RepositoryModes.ReplicationPrimary ) ) {
+			try {
+				changeLog = new RepositoryChangeLog( RepositoryParams.ReplicationLogCapacity );
+				ReplicationPrimary primary = new ReplicationPrimary( changeLog,
+					RepositoryParams.ReplicationHost, RepositoryParams.ReplicationPort, RepositoryParams.ReplicationNodeId );
+				primary.register( Customer.class, observedCustomers, new CustomerCodec() );
+				primary.register( Article.class, articleRepository, new ArticleCodec() );
+				primary.start();
+				repositoryRunner.setReplication( primary );
+
+			} catch( IOException e ) {
+				logger.error( "replication primary not available: " + e.getMessage(), e );
+			}
+		}
+		buildAuditJournal( repositoryRunner, observedCustomers, articleRepository );
+		buildMaintenance( repositoryRunner, changeLog, customerRepository, offHeap, observedCustomers, articleRepository );
+		this.repositoryRunner = Optional.of( repositoryRunner );
+		return repositoryRunner;
+	}
+
+
+	/**
+	 * Build repositories of a read replica that are bootstrapped from a snapshot of
+	 * a primary process and then kept up to date from the primary's change log.
+	 * Waits up to RepositoryParams.ReplicationBootstrapMillis for the snapshot.
+	 * The replica uses RepositoryParams.ReplicationNodeId, which is set per process
+	 * with the system property RepositoryParams.ReplicationNodeIdProperty.
+	 * 
+	 * @param host host of primary.
+	 * @param port port of primary.
+	 * @return runner instance.
+	 * @throws IllegalStateException if the primary uses the node id of the replica.
+	 */
+	public RepositoryRunner buildReplica( String host, int port ) {
+		HashMap<String, RepositoryIntf<?>> repositoryMap = new HashMap<String,RepositoryIntf<?>>();
+		ObservedCustomerRepositoryImpl customerRepository =
+			new ObservedCustomerRepositoryImpl( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+		ObservedRepositoryImpl<Article> articleRepository =
+			new ObservedRepositoryImpl<Article>( new SimpleRepositoryImpl<Article>( new ArrayList<Article>() ) );
+		repositoryMap.put( Customer.class.getName(), customerRepository );
+		repositoryMap.put( Article.class.getName(), articleRepository );
+		buildIdFilters( customerRepository, articleRepository );
+
+		RepositoryRunner repositoryRunner = new RepositoryRunner( repositoryMap );
+		repositoryRunner.putCodec( Customer.class, new CustomerCodec() );
+		repositoryRunner.putCodec( Article.class, new ArticleCodec() );
+		repositoryRunner.putAggregates( Customer.class, buildCustomerAggregates( customerRepository ) );
+		repositoryRunner.putAggregates( Article.class, buildArticleAggregates( articleRepository ) );
+
+		ReplicationFollower follower = new ReplicationFollower( host, port, RepositoryParams.ReplicationNodeId );
+		follower.register( Customer.class, customerRepository, new CustomerCodec() );
+		follower.register( Article.class, articleRepository, new ArticleCodec() );
+		follower.start();
+		repositoryRunner.setReplication( follower );
+		try {
+			if( ! follower.awaitSeq( 0, RepositoryParams.ReplicationBootstrapMillis ) && ! follower.isRefused() ) {
+				logger.log( LoggerTopics.Warn, "replica: no snapshot received from " + host + ":" + port + " yet" );
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		if( follower.isRefused() ) {
+			throw new IllegalStateException( "replica: node id " + RepositoryParams.ReplicationNodeId +
+				" is the node id of primary " + host + ":" + port + ", set " + RepositoryParams.ReplicationNodeIdProperty );
+		}
 		this.repositoryRunner = Optional.of( repositoryRunner );
 		return repositoryRunner;
 	}
@@ -103,6 +226,226 @@ public class RepositoryBuilder implements BuilderIntf {
 	 * Private methods.
 	 */
 
+	/**
+	 * Wrap Customer repository into a tiered repository that spills cold Customers
+	 * (TERM status or not accessed for RepositoryParams.TieredColdAfterDays) to disk.
+	 * Idle Customers are spilled periodically by a maintenance task.
+	 * 
+	 * @param customerRepository in-memory repository used as hot tier.
+	 * @return tiered repository or customerRepository if the segment cannot be created.
+	 */
+	private RepositoryIntf<Customer> buildTieredCustomerRepository( RepositoryIntf<Customer> customerRepository ) {
+		try {
+			SegmentFile segment = new SegmentFile(
+				Paths.get( RepositoryParams.DataDirectory, RepositoryParams.TieredCustomersSegment ) );
+
+			TieredRepositoryImpl<Customer> tiered = new TieredRepositoryImpl<Customer>(
+				customerRepository, segment, new CustomerCodec(),
+				c -> c.getStatus() == Customer.Status.TERM,
+				TimeUnit.DAYS.toMillis( RepositoryParams.TieredColdAfterDays ),
+				RepositoryBuilder::lastActivity, System::currentTimeMillis
+			);
+			tiered.spill();
+			return tiered;
+
+		} catch( IOException e ) {
+			logger.error( "tiered Customer repository not available: " + e.getMessage(), e );
+			return customerRepository;
+		}
+	}
+
+	/*
+	 * Time of last activity of a Customer: creation or latest note.
+	 */
+	private static long lastActivity( Customer c ) {
+		long last = c.getCreationDate() != null? c.getCreationDate().getTime() : 0L;
+		for( Note note : c.getNotes() ) {
+			last = Math.max( last, HybridLogicalClock.toMillis( note.getHybridTimeStamp() ) );
+		}
+		return last;
+	}
+
+	/**
+	 * Add id filters that answer lookups of absent ids without accessing the underlying
+	 * (possibly disk-backed) repositories, if enabled by RepositoryModes.IdFilters.
+	 * 
+	 * @param repositories observed repositories.
+	 */
+	private void buildIdFilters( ObservedRepositoryImpl<?>... repositories ) {
+		if( RepositoryConfig.contains( RepositoryModes.IdFilters ) ) {
+			for( ObservedRepositoryImpl<?> repository : repositories ) {
+				repository.withIdFilter( RepositoryParams.IdFilterFalsePositiveRate );
+			}
+		}
+	}
+
+	/**
+	 * Keep histories of changed Customers and Articles, if enabled by RepositoryModes.History.
+	 * 
+	 * @param customers observed Customer repository.
+	 * @param articles observed Article repository.
+	 */
+	private void buildHistories( ObservedRepositoryImpl<Customer> customers, ObservedRepositoryImpl<Article> articles ) {
+		if( RepositoryConfig.contains( RepositoryModes.History ) ) {
+			customers.withHistory( new CustomerCodec(),
+				RepositoryParams.HistoryFullVersionInterval, RepositoryParams.HistoryMaxVersions );
+			articles.withHistory( new ArticleCodec(),
+				RepositoryParams.HistoryFullVersionInterval, RepositoryParams.HistoryMaxVersions );
+		}
+	}
+
+	/**
+	 * Record create, update and delete events of Customers and Articles in an audit journal
+	 * in RepositoryParams.DataDirectory, if enabled by RepositoryModes.AuditJournal. Events
+	 * are recorded with a session of user name, node id and start time of the process.
+	 * 
+	 * @param repositoryRunner runner that closes the journal on shutdown.
+	 * @param customers observed Customer repository.
+	 * @param articles observed Article repository.
+	 */
+	private void buildAuditJournal( RepositoryRunner repositoryRunner,
+			ObservedRepositoryImpl<Customer> customers, ObservedRepositoryImpl<Article> articles )
+	{
+		if( RepositoryConfig.contains( RepositoryModes.AuditJournal ) ) {
+			String session = System.getProperty( "user.name" ) + "@" + RepositoryParams.ReplicationNodeId +
+				":" + System.currentTimeMillis();
+			try {
+				AuditJournal journal = new AuditJournal(
+					Paths.get( RepositoryParams.DataDirectory, RepositoryParams.AuditJournalFile ),
+					session, RepositoryParams.AuditBlockBytes );
+				customers.addListener( journal.listenerFor( Customer.class ), false );
+				articles.addListener( journal.listenerFor( Article.class ), false );
+				repositoryRunner.setAuditJournal( journal );
+
+			} catch( IOException e ) {
+				logger.error( "audit journal not available: " + e.getMessage(), e );
+			}
+		}
+	}
+
+	/**
+	 * Build background maintenance of repositories. Idle Customers of a tiered Customer
+	 * repository are spilled every RepositoryParams.TieredSpillIntervalMillis. Further
+	 * tasks are enabled by RepositoryModes.Maintenance:
+	 *  - with RepositoryModes.ReplicationPrimary, checkpoint into RepositoryParams.CheckpointDirectory
+	 *    after CheckpointChanges changes or CheckpointIntervalMillis, followed by truncation of the
+	 *    replication change log. Checkpoints are not read back on startup, they only bound the log,
+	 *  - compaction of the cold Customer segment and of off-heap Article memory when more
+	 *    than CompactionGarbageRatio of it is garbage,
+	 *  - rebuild of degraded id filters.
+	 * 
+	 * @param repositoryRunner runner that starts maintenance on startup.
+	 * @param changeLog replication change log or null.
+	 * @param customerRepository Customer repository, possibly tiered.
+	 * @param offHeap off-heap Article repository or null.
+	 * @param observed observed repositories.
+	 */
+	@SuppressWarnings("unchecked")
+	private void buildMaintenance( RepositoryRunner repositoryRunner, RepositoryChangeLog changeLog,
+			RepositoryIntf<Customer> customerRepository, OffHeapArticleRepositoryImpl offHeap, ObservedRepositoryImpl<?>... observed )
+	{
+		TieredRepositoryImpl<Customer> tiered = customerRepository instanceof TieredRepositoryImpl?
+			(TieredRepositoryImpl<Customer>)customerRepository : null;
+		if( tiered == null && ! RepositoryConfig.contains( RepositoryModes.Maintenance ) ) {
+			return;
+		}
+		RepositoryMaintenance maintenance = new RepositoryMaintenance(
+			new RateLimiter( RepositoryParams.MaintenanceBytesPerSecond, RepositoryParams.MaintenanceBytesPerSecond / 4 ),
+			RepositoryParams.MaintenanceCheckMillis );
+		repositoryRunner.setMaintenance( maintenance );
+
+		if( tiered != null ) {
+			maintenance.schedule( "spill-idle-customers",
+				( now, lastRunAt ) -> now - lastRunAt >= RepositoryParams.TieredSpillIntervalMillis,
+				progress -> tiered.spill() );
+		}
+		if( ! RepositoryConfig.contains( RepositoryModes.Maintenance ) ) {
+			return;
+		}
+
+		if( changeLog != null ) {
+			List<RepositoryMaintenance.ChangeCounter<?>> counters = new ArrayList<RepositoryMaintenance.ChangeCounter<?>>();
+			for( ObservedRepositoryImpl<?> repository : observed ) {
+				counters.add( countChanges( repository ) );
+			}
+			long since = System.currentTimeMillis();
+			Path checkpointDirectory = Paths.get( RepositoryParams.DataDirectory, RepositoryParams.CheckpointDirectory );
+			maintenance.schedule( "checkpoint",
+				( now, lastRunAt ) -> {
+					long changes = counters.stream().mapToLong( c -> c.get() ).sum();
+					return changes >= RepositoryParams.CheckpointChanges ||
+						( changes > 0 && now - Math.max( since, lastRunAt ) >= RepositoryParams.CheckpointIntervalMillis );
+				},
+				progress -> {
+					long seq = changeLog.lastSeq();
+					long[] changes = counters.stream().mapToLong( c -> c.get() ).toArray();
+					repositoryRunner.checkpoint( checkpointDirectory, progress );
+					for( int i = 0; i < changes.length; i++ ) {
+						counters.get( i ).consume( changes[ i ] );
+					}
+					changeLog.truncate( seq );		// changes up to seq are contained in checkpoint
+				});
+		}
+
+		if( tiered != null ) {
+			maintenance.schedule( "compact-customer-segment",
+				( now, lastRunAt ) -> isCompactionDue( tiered.garbage(), tiered.segmentSize() ),
+				progress -> tiered.compact( progress ) );
+		}
+		if( offHeap != null ) {
+			OffHeapArticleRepositoryImpl articles = offHeap;
+			maintenance.schedule( "compact-offheap-articles",
+				( now, lastRunAt ) -> isCompactionDue( articles.garbage(), articles.dataBytes() ),
+				progress -> articles.compact() );
+		}
+		maintenance.schedule( "rebuild-id-filters",
+			( now, lastRunAt ) -> Arrays.stream( observed ).anyMatch( r -> r.isIdFilterDegraded() ),
+			progress -> {
+				for( int i = 0; i < observed.length; i++ ) {
+					if( observed[ i ].isIdFilterDegraded() ) {
+						observed[ i ].rebuildIdFilter();
+					}
+					progress.done( (double)( i + 1 ) / observed.length );
+				}
+			});
+	}
+
+	private boolean isCompactionDue( long garbage, long size ) {
+		return garbage >= RepositoryParams.CompactionMinGarbageBytes && garbage >= size * RepositoryParams.CompactionGarbageRatio;
+	}
+
+	private <E extends Entity> RepositoryMaintenance.ChangeCounter<E> countChanges( ObservedRepositoryImpl<E> repository ) {
+		RepositoryMaintenance.ChangeCounter<E> counter = new RepositoryMaintenance.ChangeCounter<E>();
+		repository.addListener( counter, false );
+		return counter;
+	}
+
+	/**
+	 * Register aggregates maintained over the Customer repository: counts by status.
+	 * 
+	 * @param customerRepository observed Customer repository.
+	 * @return aggregates registered with the repository.
+	 */
+	private RepositoryAggregates<Customer> buildCustomerAggregates( ObservedRepositoryImpl<Customer> customerRepository ) {
+		RepositoryAggregates<Customer> aggregates = new RepositoryAggregates<Customer>()
+			.groupBy( "status", Customer.Status.class, Customer::getStatus );
+		customerRepository.addListener( aggregates );
+		return aggregates;
+	}
+
+	/**
+	 * Register aggregates maintained over the Article repository: price statistics.
+	 * 
+	 * @param articleRepository observed Article repository.
+	 * @return aggregates registered with the repository.
+	 */
+	private RepositoryAggregates<Article> buildArticleAggregates( ObservedRepositoryImpl<Article> articleRepository ) {
+		RepositoryAggregates<Article> aggregates = new RepositoryAggregates<Article>()
+			.statistics( "price", a -> RepositoryAggregates.parseDecimal( a.getPrice() ) );
+		articleRepository.addListener( aggregates );
+		return aggregates;
+	}
+
 	/**
 	 * Create initial Customer data set.
 	 * 
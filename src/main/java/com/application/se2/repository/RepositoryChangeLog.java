@@ -0,0 +1,190 @@
+package com.application.se2.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.application.se2.model.Entity;
+
+
+/**
+ * Ordered in-memory log of changes applied to one or more repositories. Each
+ * change is assigned a sequence number (starting at 1) and carries the encoded
+ * state of the changed entity such that applying a change is idempotent.
+ *
+ * The log retains the most recent changes up to a capacity, or fewer after it has
+ * been truncated at a checkpoint. Readers that ask for changes older than the
+ * retained ones must bootstrap from a snapshot.
+ *
+ * @author sgra64
+ *
+ */
+class RepositoryChangeLog {
+
+	private final long epoch = new java.util.Random().nextLong();	// identifies this log across restarts
+
+	private final Entry[] ring;		// change with sequence number seq is at ring[ seq % ring.length ]
+
+	private long lastSeq = 0;
+
+	private long truncatedSeq = 0;	// changes up to this sequence number have been dropped
+
+
+	/**
+	 * Kind of change recorded in the log.
+	 */
+	enum Op { INSERT, UPDATE, DELETE, CLEAR }
+
+
+	/**
+	 * Immutable log entry.
+	 */
+	static final class Entry {
+		final long seq;
+		final long timeStamp;
+		final Op op;
+		final String entityClass;
+		final String id;
+		final byte[] payload;
+
+		Entry( final long seq, final long timeStamp, final Op op, final String entityClass, final String id, final byte[] payload ) {
+			this.seq = seq;
+			this.timeStamp = timeStamp;
+			this.op = op;
+			this.entityClass = entityClass;
+			this.id = id;
+			this.payload = payload;
+		}
+	}
+
+
+	/**
+	 * Package-local constructor.
+	 *
+	 * @param capacity maximum number of retained changes.
+	 */
+	RepositoryChangeLog( final int capacity ) {
+		this.ring = new Entry[ Math.max( 1, capacity ) ];
+	}
+
+
+	/**
+	 * Create listener that records changes of a repository of an entity class.
+	 *
+	 * @param <E> generic entity type.
+	 * @param clazz entity class.
+	 * @param codec codec to encode entities.
+	 * @return listener to be registered with the repository.
+	 */
+	<E extends Entity> RepositoryListener<E> listenerFor( final Class<E> clazz, final EntityCodec<E> codec ) {
+		final String entityClass = clazz.getName();
+		return new RepositoryListener<E>() {
+
+			@Override
+			public void inserted( E entity ) {
+				append( Op.INSERT, entityClass, entity.getId(), codec.toBytes( entity ) );
+			}
+
+			@Override
+			public void updated( E entity ) {
+				append( Op.UPDATE, entityClass, entity.getId(), codec.toBytes( entity ) );
+			}
+
+			@Override
+			public void deleted( String id ) {
+				append( Op.DELETE, entityClass, id, null );
+			}
+
+			@Override
+			public void cleared() {
+				append( Op.CLEAR, entityClass, null, null );
+			}
+		};
+	}
+
+
+	/**
+	 * Return epoch that identifies this log instance. Sequence numbers are only
+	 * comparable within the same epoch.
+	 *
+	 * @return epoch of log.
+	 */
+	long epoch() {
+		return epoch;
+	}
+
+
+	/**
+	 * Return sequence number of the most recent change.
+	 *
+	 * @return sequence number of last change, 0 if no change was recorded.
+	 */
+	synchronized long lastSeq() {
+		return lastSeq;
+	}
+
+
+	/**
+	 * Return sequence number of the oldest retained change.
+	 *
+	 * @return sequence number of first retained change, 1 if log is empty.
+	 */
+	synchronized long firstSeq() {
+		return Math.max( truncatedSeq + 1, Math.max( 1, lastSeq - ring.length + 1 ) );
+	}
+
+
+	/**
+	 * Drop changes up to a sequence number, e.g. after they have been captured by
+	 * a checkpoint, releasing their payloads.
+	 *
+	 * @param seq sequence number of last change to drop.
+	 * @return number of changes dropped.
+	 */
+	synchronized long truncate( final long seq ) {
+		long upTo = Math.min( seq, lastSeq );
+		long dropped = 0;
+		for( long i = firstSeq(); i <= upTo; i++ ) {
+			ring[ (int)( i % ring.length ) ] = null;
+			dropped++;
+		}
+		truncatedSeq = Math.max( truncatedSeq, upTo );
+		return dropped;
+	}
+
+
+	/**
+	 * Return changes after a sequence number, waiting up to timeout for changes
+	 * to arrive when there are none.
+	 *
+	 * @param seq sequence number of last change already seen.
+	 * @param max maximum number of changes returned.
+	 * @param timeout maximum time to wait in milliseconds.
+	 * @return changes after seq (possibly empty), null if changes after seq are no longer retained.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	synchronized List<Entry> readAfter( final long seq, final int max, final long timeout ) throws InterruptedException {
+		if( seq >= lastSeq && timeout > 0 ) {
+			wait( timeout );
+		}
+		if( seq + 1 < firstSeq() ) {
+			return null;
+		}
+		List<Entry> res = new ArrayList<Entry>();
+		for( long i = seq + 1; i <= lastSeq && res.size() < max; i++ ) {
+			res.add( ring[ (int)( i % ring.length ) ] );
+		}
+		return res;
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private synchronized void append( final Op op, final String entityClass, final String id, final byte[] payload ) {
+		lastSeq++;
+		ring[ (int)( lastSeq % ring.length ) ] = new Entry( lastSeq, System.currentTimeMillis(), op, entityClass, id, payload );
+		notifyAll();
+	}
+
+}
@@ -2,6 +2,7 @@ package com.application.se2.repository;
 
 import java.util.Optional;
 
+import com.application.se2.misc.EntityPropertyUpdateSet;
 import com.application.se2.model.Entity;
 
 
@@ -98,6 +99,28 @@ public interface RepositoryIntf<E extends Entity> { //extends CrudRepository<E,S
 	 * @return
 	 */
 	public Iterable<E> saveAll( Iterable<E> entities );
+
+	/**
+	 * Save Entity to which a set of property updates has been applied. Repositories
+	 * that keep a history of entities record the updated properties as a delta
+	 * instead of a full copy of the entity.
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @param updates property updates that have been applied to the entity.
+	 * @return entity that has been saved.
+	 */
+	public default E save( E entity, EntityPropertyUpdateSet updates ) {
+		return save( entity );
+	}
+
+	/**
+	 * Return history of entities, if the repository keeps one.
+	 *
+	 * @return Optional of history of entities.
+	 */
+	public default Optional<EntityHistory<E>> getHistory() {
+		return Optional.empty();
+	}
  
 	/**
 	 * Returns the number of entities present in repository.
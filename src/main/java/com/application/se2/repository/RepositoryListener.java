@@ -0,0 +1,68 @@
+package com.application.se2.repository;
+
+import java.util.Set;
+
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Interface of listeners that are notified about changes of a repository.
+ * Listeners are invoked in the order in which changes are applied to the
+ * repository and must not block.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+public interface RepositoryListener<E extends Entity> {
+
+	/**
+	 * Invoked after an entity has been added to the repository.
+	 *
+	 * @param entity inserted entity.
+	 */
+	public void inserted( E entity );
+
+	/**
+	 * Invoked after an entity present in the repository has been saved.
+	 *
+	 * @param entity updated entity.
+	 */
+	public void updated( E entity );
+
+	/**
+	 * Invoked after an entity present in the repository has been saved with
+	 * a set of properties that have been updated.
+	 *
+	 * @param entity updated entity.
+	 * @param properties names of updated properties.
+	 */
+	public default void updated( E entity, Set<String> properties ) {
+		updated( entity );
+	}
+
+	/**
+	 * Invoked after an entity present in the repository has been saved with
+	 * the EntityPropertyUpdateSet that has been applied to it.
+	 *
+	 * @param entity updated entity.
+	 * @param updates property updates that have been applied to the entity.
+	 */
+	public default void updated( E entity, EntityPropertyUpdateSet updates ) {
+		updated( entity, updates.getUpdatedPropertyNames() );
+	}
+
+	/**
+	 * Invoked after an entity has been removed from the repository.
+	 *
+	 * @param id id of removed entity.
+	 */
+	public void deleted( String id );
+
+	/**
+	 * Invoked after all entities have been removed from the repository.
+	 */
+	public default void cleared() { }
+
+}
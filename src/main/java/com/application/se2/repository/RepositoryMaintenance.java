@@ -0,0 +1,462 @@
+package com.application.se2.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Scheduler that runs repository maintenance in a background thread, e.g.
+ * checkpoints, change log truncation, segment compaction and index rebuilds.
+ * Each task has a trigger that is evaluated periodically, tasks that are due
+ * run one after another. Tasks pass the bytes they read or write through a
+ * shared RateLimiter such that background I/O does not starve foreground CRUD.
+ *
+ * Tasks are expected to hold repository locks only for short steps. Progress
+ * and duration of each task are exposed as TaskMetrics.
+ *
+ * @author sgra64
+ *
+ */
+public class RepositoryMaintenance implements Closeable {
+	private static final Logger logger = Logger.getInstance( RepositoryMaintenance.class );
+
+	private final RateLimiter limiter;
+
+	private final long checkMillis;
+
+	private final List<Task> tasks = new CopyOnWriteArrayList<Task>();
+
+	private final Object runLock = new Object();		// tasks run one at a time
+
+	private ScheduledExecutorService scheduler = null;
+
+
+	/**
+	 * Trigger that decides whether a task is due.
+	 */
+	@FunctionalInterface
+	interface Trigger {
+
+		/**
+		 * Return whether task is due.
+		 *
+		 * @param now current time in milliseconds.
+		 * @param lastRunAt time of last run in milliseconds, 0 if task has not run yet.
+		 * @return true if task is due.
+		 */
+		boolean isDue( long now, long lastRunAt );
+	}
+
+
+	/**
+	 * Maintenance job.
+	 */
+	@FunctionalInterface
+	interface Job {
+
+		/**
+		 * Run job, I/O is reported (and throttled) through progress.
+		 *
+		 * @param progress progress of running job.
+		 * @throws IOException if job fails.
+		 */
+		void run( Progress progress ) throws IOException;
+	}
+
+
+	/**
+	 * Progress of a running job.
+	 */
+	final class Progress {
+		private final Task task;
+
+		private Progress( final Task task ) {
+			this.task = task;
+		}
+
+		/**
+		 * Report bytes read or written, waits if I/O exceeds the configured rate.
+		 *
+		 * @param bytes number of bytes.
+		 * @throws IOException if interrupted while waiting.
+		 */
+		void io( final long bytes ) throws IOException {
+			task.bytes += bytes;
+			limiter.acquire( bytes );
+		}
+
+		/**
+		 * Report fraction of job completed.
+		 *
+		 * @param done fraction between 0.0 and 1.0.
+		 */
+		void done( final double done ) {
+			task.progress = Math.max( 0.0, Math.min( 1.0, done ) );
+		}
+	}
+
+
+	/**
+	 * Listener that counts changes of a repository, e.g. to trigger a checkpoint
+	 * after a number of changes.
+	 *
+	 * @param <E> generic entity type.
+	 */
+	static final class ChangeCounter<E extends Entity> implements RepositoryListener<E> {
+		private final AtomicLong changes = new AtomicLong();
+
+		@Override
+		public void inserted( E entity ) {
+			changes.incrementAndGet();
+		}
+
+		@Override
+		public void updated( E entity ) {
+			changes.incrementAndGet();
+		}
+
+		@Override
+		public void deleted( String id ) {
+			changes.incrementAndGet();
+		}
+
+		@Override
+		public void cleared() {
+			changes.incrementAndGet();
+		}
+
+		/**
+		 * Return number of changes not yet processed.
+		 *
+		 * @return number of changes.
+		 */
+		long get() {
+			return changes.get();
+		}
+
+		/**
+		 * Deduct changes that have been processed, e.g. captured by a checkpoint.
+		 *
+		 * @param n number of processed changes as returned by get().
+		 */
+		void consume( final long n ) {
+			changes.addAndGet( -n );
+		}
+	}
+
+
+	/**
+	 * Immutable metrics of a maintenance task.
+	 */
+	public static final class TaskMetrics {
+		private final String name;
+		private final long runs;
+		private final long failures;
+		private final boolean running;
+		private final double progress;
+		private final long lastRunAt;
+		private final long lastDurationMillis;
+		private final long totalDurationMillis;
+		private final long lastBytes;
+		private final long totalBytes;
+
+		private TaskMetrics( final Task t ) {
+			this.name = t.name;
+			this.runs = t.runs;
+			this.failures = t.failures;
+			this.running = t.running;
+			this.progress = t.progress;
+			this.lastRunAt = t.lastRunAt;
+			this.lastDurationMillis = t.lastDurationMillis;
+			this.totalDurationMillis = t.totalDurationMillis;
+			this.lastBytes = t.lastBytes;
+			this.totalBytes = t.totalBytes;
+		}
+
+		/**
+		 * Return task name.
+		 * @return task name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Return number of completed runs, including failed runs.
+		 * @return number of runs.
+		 */
+		public long getRuns() {
+			return runs;
+		}
+
+		/**
+		 * Return number of failed runs.
+		 * @return number of failed runs.
+		 */
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Return whether task is running.
+		 * @return true if task is running.
+		 */
+		public boolean isRunning() {
+			return running;
+		}
+
+		/**
+		 * Return progress of running task or of the last run.
+		 * @return fraction between 0.0 and 1.0.
+		 */
+		public double getProgress() {
+			return progress;
+		}
+
+		/**
+		 * Return start time of last run.
+		 * @return start time in milliseconds, 0 if task has not run yet.
+		 */
+		public long getLastRunAt() {
+			return lastRunAt;
+		}
+
+		/**
+		 * Return duration of last run.
+		 * @return duration in milliseconds.
+		 */
+		public long getLastDurationMillis() {
+			return lastDurationMillis;
+		}
+
+		/**
+		 * Return accumulated duration of all runs.
+		 * @return duration in milliseconds.
+		 */
+		public long getTotalDurationMillis() {
+			return totalDurationMillis;
+		}
+
+		/**
+		 * Return bytes read or written by last run.
+		 * @return number of bytes.
+		 */
+		public long getLastBytes() {
+			return lastBytes;
+		}
+
+		/**
+		 * Return bytes read or written by all runs.
+		 * @return number of bytes.
+		 */
+		public long getTotalBytes() {
+			return totalBytes;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": runs=" + runs + ", failures=" + failures + ", running=" + running +
+				", progress=" + progress + ", last=" + lastDurationMillis + " ms/" + lastBytes + " bytes" +
+				", total=" + totalDurationMillis + " ms/" + totalBytes + " bytes";
+		}
+	}
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param limiter limiter of background I/O shared by all tasks.
+	 * @param checkMillis interval in which triggers are evaluated.
+	 */
+	RepositoryMaintenance( final RateLimiter limiter, final long checkMillis ) {
+		this.limiter = limiter;
+		this.checkMillis = Math.max( 1, checkMillis );
+	}
+
+
+	/**
+	 * Add task.
+	 *
+	 * @param name task name.
+	 * @param trigger trigger that decides when task is due.
+	 * @param job job run when task is due.
+	 * @return self reference.
+	 */
+	RepositoryMaintenance schedule( final String name, final Trigger trigger, final Job job ) {
+		tasks.add( new Task( name, trigger, job ) );
+		return this;
+	}
+
+
+	/**
+	 * Start background thread that runs tasks when they are due.
+	 */
+	synchronized void start() {
+		if( scheduler == null && ! tasks.isEmpty() ) {
+			scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+				Thread thread = new Thread( r, "repository-maintenance" );
+				thread.setDaemon( true );
+				thread.setPriority( Thread.MIN_PRIORITY );
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay( () -> runDue(), checkMillis, checkMillis, TimeUnit.MILLISECONDS );
+		}
+	}
+
+
+	/**
+	 * Run task immediately in the calling thread, regardless of its trigger.
+	 *
+	 * @param name task name.
+	 * @return true if task exists and has completed without failure.
+	 */
+	boolean runNow( final String name ) {
+		for( Task task : tasks ) {
+			if( task.name.equals( name ) ) {
+				return run( task );
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Return metrics of all tasks.
+	 *
+	 * @return metrics of tasks in the order in which they were scheduled.
+	 */
+	public List<TaskMetrics> getMetrics() {
+		List<TaskMetrics> res = new ArrayList<TaskMetrics>();
+		for( Task task : tasks ) {
+			res.add( new TaskMetrics( task ) );
+		}
+		return res;
+	}
+
+
+	/**
+	 * Return metrics of a task.
+	 *
+	 * @param name task name.
+	 * @return Optional of task metrics.
+	 */
+	public Optional<TaskMetrics> getMetrics( final String name ) {
+		for( Task task : tasks ) {
+			if( task.name.equals( name ) ) {
+				return Optional.of( new TaskMetrics( task ) );
+			}
+		}
+		return Optional.empty();
+	}
+
+
+	/**
+	 * Stop background thread, a running task is interrupted.
+	 */
+	@Override
+	public synchronized void close() {
+		if( scheduler != null ) {
+			scheduler.shutdownNow();
+			try {
+				scheduler.awaitTermination( 5, TimeUnit.SECONDS );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			scheduler = null;
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class Task {
+		private final String name;
+		private final Trigger trigger;
+		private final Job job;
+		private volatile long runs = 0;
+		private volatile long failures = 0;
+		private volatile boolean running = false;
+		private volatile double progress = 0.0;
+		private volatile long lastRunAt = 0;
+		private volatile long lastDurationMillis = 0;
+		private volatile long totalDurationMillis = 0;
+		private volatile long bytes = 0;
+		private volatile long lastBytes = 0;
+		private volatile long totalBytes = 0;
+
+		private Task( final String name, final Trigger trigger, final Job job ) {
+			this.name = name;
+			this.trigger = trigger;
+			this.job = job;
+		}
+	}
+
+	private void runDue() {
+		for( Task task : tasks ) {
+			if( Thread.currentThread().isInterrupted() ) {
+				return;
+			}
+			try {
+				if( task.trigger.isDue( System.currentTimeMillis(), task.lastRunAt ) ) {
+					run( task );
+				}
+			} catch( RuntimeException e ) {
+				logger.error( "maintenance: trigger of " + task.name + " failed: " + e.getMessage(), e );
+			}
+		}
+	}
+
+	private boolean run( final Task task ) {
+		synchronized( runLock ) {
+			return runLocked( task );
+		}
+	}
+
+	private boolean runLocked( final Task task ) {
+		long t0 = System.currentTimeMillis();
+		task.running = true;
+		task.progress = 0.0;
+		task.bytes = 0;
+		task.lastRunAt = t0;
+		boolean ok = false;
+		try {
+			task.job.run( new Progress( task ) );
+			task.progress = 1.0;
+			ok = true;
+
+		} catch( IOException | RuntimeException e ) {
+			task.failures++;
+			logger.error( "maintenance: " + task.name + " failed: " + e.getMessage(), e );
+
+		} finally {
+			long duration = System.currentTimeMillis() - t0;
+			task.lastDurationMillis = duration;
+			task.totalDurationMillis += duration;
+			task.lastBytes = task.bytes;
+			task.totalBytes += task.bytes;
+			task.runs++;
+			task.running = false;
+		}
+		if( ok ) {
+			logger.log( LoggerTopics.Info, "maintenance: " + task.name + " completed in " +
+				task.lastDurationMillis + " ms, " + task.lastBytes + " bytes" );
+		}
+		return ok;
+	}
+
+}
@@ -1,9 +1,13 @@
 package com.application.se2.repository;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Optional;
 
 import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.AppConfigurator.RepositoryParams;
 import com.application.se2.components.RunnerIntf;
 import com.application.se2.misc.Callback;
 import com.application.se2.misc.Logger;
@@ -22,6 +26,16 @@ public class RepositoryRunner implements RunnerIntf {
 
 	private final HashMap<String, RepositoryIntf<?>> repositoryMap;
 
+	private final HashMap<String, RepositoryAggregates<?>> aggregatesMap = new HashMap<String, RepositoryAggregates<?>>();
+
+	private final HashMap<String, EntityCodec<?>> codecMap = new HashMap<String, EntityCodec<?>>();
+
+	private Optional<Closeable> replication = Optional.empty();		// ReplicationPrimary or ReplicationFollower
+
+	private Optional<RepositoryMaintenance> maintenance = Optional.empty();
+
+	private Optional<AuditJournal> auditJournal = Optional.empty();
+
 
 	/**
 	 * Protected constructor only invoked by RepositoryBuilder.
@@ -47,21 +61,210 @@ public class RepositoryRunner implements RunnerIntf {
 	}
 
 
+	/**
+	 * Returns incrementally maintained aggregates for a given entity class.
+	 * 
+	 * @param <T> entity class used as a generic.
+	 * @param clazz specific entity class.
+	 * @return aggregates maintained over the repository of entity class.
+	 */
+	public <T extends Entity> Optional<RepositoryAggregates<T>> getAggregates( Class<T> clazz ) {
+		@SuppressWarnings("unchecked")
+		RepositoryAggregates<T> aggregates = (RepositoryAggregates<T>)aggregatesMap.get( clazz.getName() );
+		return aggregates != null? Optional.of( aggregates ) : Optional.empty();
+	}
+
+
+	/**
+	 * Returns the replication follower if repositories are a read replica of a
+	 * primary process, e.g. to monitor replication lag.
+	 * 
+	 * @return replication follower feeding the repositories.
+	 */
+	public Optional<ReplicationFollower> getReplicationFollower() {
+		return replication.filter( r -> r instanceof ReplicationFollower ).map( r -> (ReplicationFollower)r );
+	}
+
+
+	/**
+	 * Returns the background maintenance scheduler, e.g. to monitor progress and
+	 * duration of checkpoints and compactions.
+	 * 
+	 * @return maintenance scheduler of repositories.
+	 */
+	public Optional<RepositoryMaintenance> getMaintenance() {
+		return maintenance;
+	}
+
+
+	/**
+	 * Returns the audit journal, e.g. to query changes of an entity within a time range.
+	 * 
+	 * @return audit journal of create, update and delete events.
+	 */
+	public Optional<AuditJournal> getAuditJournal() {
+		return auditJournal;
+	}
+
+
+	/**
+	 * Export all repositories into a snapshot directory. Chunks of each repository
+	 * are encoded and compressed in parallel, a manifest with checksums completes
+	 * the snapshot.
+	 * 
+	 * @param directory snapshot directory, a previous snapshot is replaced.
+	 * @return number of exported entities.
+	 * @throws IOException if snapshot cannot be written.
+	 */
+	public long exportSnapshot( Path directory ) throws IOException {
+		return snapshot().export( directory );
+	}
+
+
+	/**
+	 * Import all repositories from a snapshot directory, replacing their contents.
+	 * Repositories remain unaltered if the snapshot is incomplete or corrupt,
+	 * and are refilled with their previous contents if one cannot be refilled.
+	 * 
+	 * @param directory snapshot directory.
+	 * @return number of imported entities.
+	 * @throws IOException if snapshot is incomplete, corrupt or cannot be read.
+	 */
+	public long importSnapshot( Path directory ) throws IOException {
+		return snapshot().restore( directory );
+	}
+
+
 	/**
 	 * Component startup code called when the system is starting up.
 	 */
 	@Override
 	public void startup() {
 		logger.log( LoggerTopics.Startup, this.getClass().getSimpleName() );
+		maintenance.ifPresent( m -> m.start() );
 	}
 
 
 	/**
 	 * Component shutdown code called when the system is shutting down.
+	 * Repositories that hold resources such as files are closed.
 	 */
 	@Override
 	public void shutdown() {
 		logger.log( LoggerTopics.Shutdown, this.getClass().getSimpleName() );
+		maintenance.ifPresent( m -> m.close() );
+		replication.ifPresent( r -> {
+			try {
+				r.close();
+
+			} catch( IOException e ) {
+				logger.error( "cannot close replication: " + e.getMessage(), e );
+			}
+		});
+		auditJournal.ifPresent( j -> {
+			try {
+				j.close();
+
+			} catch( IOException e ) {
+				logger.error( "cannot close audit journal: " + e.getMessage(), e );
+			}
+		});
+		for( RepositoryIntf<?> repository : repositoryMap.values() ) {
+			if( repository instanceof Closeable ) {
+				try {
+					((Closeable)repository).close();
+
+				} catch( IOException e ) {
+					logger.error( "cannot close repository: " + e.getMessage(), e );
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Register aggregates for an entity class, only invoked by RepositoryBuilder.
+	 * 
+	 * @param <T> entity class used as a generic.
+	 * @param clazz specific entity class.
+	 * @param aggregates aggregates maintained over the repository of entity class.
+	 */
+	<T extends Entity> void putAggregates( Class<T> clazz, RepositoryAggregates<T> aggregates ) {
+		aggregatesMap.put( clazz.getName(), aggregates );
+	}
+
+
+	/**
+	 * Register codec for an entity class, only invoked by RepositoryBuilder.
+	 * 
+	 * @param <T> entity class used as a generic.
+	 * @param clazz specific entity class.
+	 * @param codec codec used to encode entities of class, e.g. in snapshots.
+	 */
+	<T extends Entity> void putCodec( Class<T> clazz, EntityCodec<T> codec ) {
+		codecMap.put( clazz.getName(), codec );
+	}
+
+
+	/**
+	 * Register replication primary or follower, only invoked by RepositoryBuilder.
+	 * 
+	 * @param replication replication that is closed on shutdown.
+	 */
+	void setReplication( Closeable replication ) {
+		this.replication = Optional.of( replication );
+	}
+
+
+	/**
+	 * Register maintenance scheduler started on startup, only invoked by RepositoryBuilder.
+	 * 
+	 * @param maintenance maintenance scheduler.
+	 */
+	void setMaintenance( RepositoryMaintenance maintenance ) {
+		this.maintenance = Optional.of( maintenance );
+	}
+
+
+	/**
+	 * Register audit journal closed on shutdown, only invoked by RepositoryBuilder.
+	 * 
+	 * @param auditJournal journal of create, update and delete events.
+	 */
+	void setAuditJournal( AuditJournal auditJournal ) {
+		this.auditJournal = Optional.of( auditJournal );
+	}
+
+
+	/**
+	 * Export all repositories into a checkpoint directory with writes throttled
+	 * by a maintenance task.
+	 * 
+	 * @param directory checkpoint directory, a previous checkpoint is replaced.
+	 * @param progress progress of maintenance task.
+	 * @return number of exported entities.
+	 * @throws IOException if checkpoint cannot be written.
+	 */
+	long checkpoint( Path directory, RepositoryMaintenance.Progress progress ) throws IOException {
+		return snapshot().throttle( progress ).export( directory );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	@SuppressWarnings("unchecked")
+	private RepositorySnapshot snapshot() {
+		RepositorySnapshot snapshot = new RepositorySnapshot(
+			RepositoryParams.SnapshotChunkEntities, Runtime.getRuntime().availableProcessors() );
+		for( String name : codecMap.keySet() ) {
+			RepositoryIntf<?> repository = repositoryMap.get( name );
+			if( repository != null ) {
+				snapshot.add( name, (RepositoryIntf<Entity>)repository, (EntityCodec<Entity>)codecMap.get( name ) );
+			}
+		}
+		return snapshot;
 	}
 
 
@@ -0,0 +1,583 @@
+package com.application.se2.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.misc.IDGenerator;
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local class that exports repositories into a snapshot directory and imports
+ * them back. Each repository is split into chunks of a fixed number of entities
+ * that are encoded with the repository's codec and deflate-compressed in parallel.
+ * Compressed chunks are appended in order to one file per repository with large
+ * sequential writes through a FileChannel.
+ *
+ * A snapshot is complete when its MANIFEST exists. The manifest is written last
+ * and lists each repository with its entity count, each chunk with its location,
+ * sizes, entity count and CRC32 checksum, followed by the id filter of repositories
+ * that use one:
+ *
+ *  se2-snapshot 2
+ *  repository <entityClass> <count>
+ *  chunk <entityClass> <file> <offset> <length> <rawLength> <count> <crc32>
+ *  filter <entityClass> <file> <length> <crc32>
+ *
+ * Import reads, verifies, inflates and decodes all chunks in parallel before any
+ * repository is altered. IDGenerators are advanced past the imported ids.
+ * Repositories are then refilled concurrently, which rebuilds their indexes (id
+ * index, listeners such as aggregates) in parallel. Repositories listed without
+ * entities are cleared. If any repository cannot be refilled, all repositories
+ * are refilled with their previous contents.
+ *
+ * Snapshots of format 1 do not list repositories, only repositories with chunks
+ * are imported from them.
+ *
+ * @author sgra64
+ *
+ */
+class RepositorySnapshot {
+	private static final Logger logger = Logger.getInstance( RepositorySnapshot.class );
+
+	static final String Manifest = "MANIFEST";
+
+	private static final String FormatHeader = "se2-snapshot 2";
+
+	private static final String FormatHeader_1 = "se2-snapshot 1";		// no repository entries
+
+	private final Map<String, Part<?>> parts = new LinkedHashMap<String, Part<?>>();
+
+	private final int chunkEntities;
+
+	private final int threads;
+
+	private RepositoryMaintenance.Progress progress = null;
+
+
+	/**
+	 * Package-local constructor.
+	 *
+	 * @param chunkEntities number of entities per chunk.
+	 * @param threads number of threads used to encode and decode chunks.
+	 */
+	RepositorySnapshot( final int chunkEntities, final int threads ) {
+		this.chunkEntities = Math.max( 1, chunkEntities );
+		this.threads = Math.max( 1, threads );
+	}
+
+
+	/**
+	 * Add repository to snapshot.
+	 *
+	 * @param <E> generic entity type.
+	 * @param entityClass name of entity class.
+	 * @param repository repository of entity class.
+	 * @param codec codec to encode and decode entities.
+	 * @return self reference.
+	 */
+	<E extends Entity> RepositorySnapshot add( final String entityClass, final RepositoryIntf<E> repository, final EntityCodec<E> codec ) {
+		parts.put( entityClass, new Part<E>( entityClass, repository, codec ) );
+		return this;
+	}
+
+
+	/**
+	 * Report written bytes to progress of a maintenance task, which throttles
+	 * writes to the configured rate of background I/O.
+	 *
+	 * @param progress progress of maintenance task.
+	 * @return self reference.
+	 */
+	RepositorySnapshot throttle( final RepositoryMaintenance.Progress progress ) {
+		this.progress = progress;
+		return this;
+	}
+
+
+	/**
+	 * Export all repositories into directory. A previous snapshot in the directory
+	 * is replaced.
+	 *
+	 * @param directory snapshot directory, created if it does not exist.
+	 * @return number of exported entities.
+	 * @throws IOException if snapshot cannot be written.
+	 */
+	long export( final Path directory ) throws IOException {
+		Files.createDirectories( directory );
+		Path manifest = directory.resolve( Manifest );
+		Files.deleteIfExists( manifest );
+
+		long t0 = System.currentTimeMillis();
+		long total = 0;
+		List<String> lines = new ArrayList<String>();
+		lines.add( FormatHeader );
+		ExecutorService pool = Executors.newFixedThreadPool( threads );
+		try {
+			for( Part<?> part : parts.values() ) {
+				total += part.export( directory, pool, lines );
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Path tmp = directory.resolve( Manifest + ".tmp" );
+		Files.write( tmp, lines, StandardCharsets.UTF_8 );
+		Files.move( tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		logger.log( LoggerTopics.Info, "snapshot: exported " + total + " entities to " + directory +
+			" in " + ( System.currentTimeMillis() - t0 ) + " ms" );
+		return total;
+	}
+
+
+	/**
+	 * Import repositories from snapshot directory. Contents of repositories that
+	 * are contained in the snapshot are replaced, also of repositories exported
+	 * without entities. Repositories are not altered if any chunk cannot be read
+	 * or fails verification, and are restored if any cannot be refilled.
+	 *
+	 * @param directory snapshot directory.
+	 * @return number of imported entities.
+	 * @throws IOException if snapshot is incomplete, corrupt or cannot be read.
+	 */
+	long restore( final Path directory ) throws IOException {
+		Path manifest = directory.resolve( Manifest );
+		if( ! Files.exists( manifest ) ) {
+			throw new IOException( "no complete snapshot in " + directory );
+		}
+		List<String> lines = Files.readAllLines( manifest, StandardCharsets.UTF_8 );
+		if( lines.isEmpty() || ! ( FormatHeader.equals( lines.get( 0 ) ) || FormatHeader_1.equals( lines.get( 0 ) ) ) ) {
+			throw new IOException( "unknown snapshot format in " + manifest );
+		}
+
+		long t0 = System.currentTimeMillis();
+		Map<String, FileChannel> channels = new HashMap<String, FileChannel>();
+		ExecutorService pool = Executors.newFixedThreadPool( threads );
+		try {
+			for( String line : lines.subList( 1, lines.size() ) ) {
+				String[] f = line.split( " " );
+				boolean isFilter = f.length == 5 && f[ 0 ].equals( "filter" );
+				boolean isRepository = f.length == 3 && f[ 0 ].equals( "repository" );
+				if( ! isFilter && ! isRepository && ( f.length != 8 || ! f[ 0 ].equals( "chunk" ) ) ) {
+					throw new IOException( "malformed manifest entry: " + line );
+				}
+				Part<?> part = parts.get( f[ 1 ] );
+				if( part == null ) {
+					logger.log( LoggerTopics.Warn, "snapshot: no repository for " + f[ 1 ] );
+					continue;
+				}
+				if( isRepository ) {
+					part.present = true;		// also replaced if listed without entities
+					part.expected = Long.parseLong( f[ 2 ] );
+					continue;
+				}
+				if( isFilter ) {
+					part.filter = readFilter( directory.resolve( f[ 2 ] ), Integer.parseInt( f[ 3 ] ), Long.parseLong( f[ 4 ], 16 ) );
+					continue;
+				}
+				FileChannel channel = channels.get( f[ 2 ] );
+				if( channel == null ) {
+					channel = FileChannel.open( directory.resolve( f[ 2 ] ), StandardOpenOption.READ );
+					channels.put( f[ 2 ], channel );
+				}
+				ChunkRef ref = new ChunkRef( channel, Long.parseLong( f[ 3 ] ), Integer.parseInt( f[ 4 ] ),
+					Integer.parseInt( f[ 5 ] ), Integer.parseInt( f[ 6 ] ), Long.parseLong( f[ 7 ], 16 ) );
+				part.submit( pool, ref );
+			}
+
+			for( Part<?> part : parts.values() ) {
+				part.await();		// all chunks decoded and verified before repositories are altered
+			}
+			for( Part<?> part : parts.values() ) {
+				part.observeIds();	// imported ids are not issued again
+				part.keepPrevious();
+			}
+			List<Future<Long>> loads = new ArrayList<Future<Long>>();
+			for( Part<?> part : parts.values() ) {
+				loads.add( pool.submit( () -> part.load() ) );
+			}
+			long total = 0;
+			IOException failed = null;
+			for( Future<Long> load : loads ) {
+				try {
+					total += get( load );
+
+				} catch( IOException e ) {
+					failed = failed == null? e : failed;
+				}
+			}
+			if( failed != null ) {
+				for( Part<?> part : parts.values() ) {
+					part.rollback();
+				}
+				throw failed;
+			}
+			logger.log( LoggerTopics.Info, "snapshot: imported " + total + " entities from " + directory +
+				" in " + ( System.currentTimeMillis() - t0 ) + " ms" );
+			return total;
+
+		} finally {
+			pool.shutdownNow();
+			for( Part<?> part : parts.values() ) {
+				part.reset();
+			}
+			for( FileChannel channel : channels.values() ) {
+				channel.close();
+			}
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static final class ChunkRef {
+		private final FileChannel channel;
+		private final long offset;
+		private final int length;
+		private final int rawLength;
+		private final int count;
+		private final long crc;
+
+		private ChunkRef( final FileChannel channel, final long offset, final int length, final int rawLength, final int count, final long crc ) {
+			this.channel = channel;
+			this.offset = offset;
+			this.length = length;
+			this.rawLength = rawLength;
+			this.count = count;
+			this.crc = crc;
+		}
+	}
+
+	private static final class Chunk {
+		private final byte[] bytes;
+		private final int rawLength;
+		private final int count;
+		private final long crc;
+
+		private Chunk( final byte[] bytes, final int rawLength, final int count, final long crc ) {
+			this.bytes = bytes;
+			this.rawLength = rawLength;
+			this.count = count;
+			this.crc = crc;
+		}
+	}
+
+	private final class Part<E extends Entity> {
+		private final String entityClass;
+		private final String name;
+		private final RepositoryIntf<E> repository;
+		private final EntityCodec<E> codec;
+		private final List<Future<List<E>>> decoded = new ArrayList<Future<List<E>>>();
+		private boolean present = false;
+		private long expected = -1;		// entity count listed in the manifest, -1 if not listed
+		private List<E> previous = null;
+		private CountingBloomFilter filter = null;
+
+		private Part( final String entityClass, final RepositoryIntf<E> repository, final EntityCodec<E> codec ) {
+			this.entityClass = entityClass;
+			this.name = entityClass.substring( entityClass.lastIndexOf( '.' ) + 1 );
+			this.repository = repository;
+			this.codec = codec;
+		}
+
+		private long export( final Path directory, final ExecutorService pool, final List<String> lines ) throws IOException {
+			List<E> entities = new ArrayList<E>();
+			byte[] filterBytes = null;
+			if( repository instanceof ObservedRepositoryImpl ) {
+				ObservedRepositoryImpl<E> observed = (ObservedRepositoryImpl<E>)repository;
+				synchronized( observed ) {		// filter consistent with entities
+					observed.snapshot( e -> entities.add( e ) );
+					filterBytes = observed.getIdFilter().map( f -> encodeFilter( f ) ).orElse( null );
+				}
+			} else {
+				repository.findAll().forEach( entities::add );
+			}
+
+			lines.add( "repository " + entityClass + " " + entities.size() );
+			List<Future<Chunk>> chunks = new ArrayList<Future<Chunk>>();
+			for( int from = 0; from < entities.size(); from += chunkEntities ) {
+				List<E> range = entities.subList( from, Math.min( entities.size(), from + chunkEntities ) );
+				chunks.add( pool.submit( () -> encode( range ) ) );
+			}
+
+			String file = name + ".chunks";
+			try( FileChannel channel = FileChannel.open( directory.resolve( file ),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+				long offset = 0;
+				for( Future<Chunk> future : chunks ) {
+					Chunk chunk = get( future );
+					ByteBuffer buf = ByteBuffer.wrap( chunk.bytes );
+					while( buf.hasRemaining() ) {
+						channel.write( buf );
+					}
+					if( progress != null ) {
+						progress.io( chunk.bytes.length );
+					}
+					lines.add( "chunk " + entityClass + " " + file + " " + offset + " " + chunk.bytes.length +
+						" " + chunk.rawLength + " " + chunk.count + " " + Long.toHexString( chunk.crc ) );
+					offset += chunk.bytes.length;
+				}
+				channel.force( false );
+			}
+			if( filterBytes != null ) {
+				String filterFile = name + ".filter";
+				Files.write( directory.resolve( filterFile ), filterBytes );
+				CRC32 crc = new CRC32();
+				crc.update( filterBytes, 0, filterBytes.length );
+				lines.add( "filter " + entityClass + " " + filterFile + " " + filterBytes.length + " " + Long.toHexString( crc.getValue() ) );
+			}
+			return entities.size();
+		}
+
+		private Chunk encode( final List<E> range ) throws IOException {
+			ByteArrayOutputStream raw = new ByteArrayOutputStream( range.size() * 128 );
+			DataOutputStream out = new DataOutputStream( raw );
+			for( E e : range ) {
+				codec.encode( e, out );
+			}
+			out.flush();
+			byte[] bytes = raw.toByteArray();
+
+			Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream( bytes.length / 3 + 64 );
+			try {
+				deflater.setInput( bytes );
+				deflater.finish();
+				byte[] buf = new byte[ 64 * 1024 ];
+				while( ! deflater.finished() ) {
+					compressed.write( buf, 0, deflater.deflate( buf ) );
+				}
+			} finally {
+				deflater.end();
+			}
+			byte[] res = compressed.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update( res, 0, res.length );
+			return new Chunk( res, bytes.length, range.size(), crc.getValue() );
+		}
+
+		private void submit( final ExecutorService pool, final ChunkRef ref ) {
+			present = true;
+			decoded.add( pool.submit( () -> decode( ref ) ) );
+		}
+
+		private List<E> decode( final ChunkRef ref ) throws IOException {
+			ByteBuffer buf = ByteBuffer.allocate( ref.length );
+			while( buf.hasRemaining() ) {
+				if( ref.channel.read( buf, ref.offset + buf.position() ) < 0 ) {
+					throw new EOFException( "snapshot chunk of " + name + " truncated at " + ref.offset );
+				}
+			}
+			byte[] compressed = buf.array();
+			CRC32 crc = new CRC32();
+			crc.update( compressed, 0, compressed.length );
+			if( crc.getValue() != ref.crc ) {
+				throw new IOException( "snapshot chunk of " + name + " at " + ref.offset + " fails checksum" );
+			}
+
+			byte[] raw = new byte[ ref.rawLength ];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput( compressed );
+				int n = 0;
+				while( n < raw.length && ! inflater.finished() ) {
+					int k = inflater.inflate( raw, n, raw.length - n );
+					if( k == 0 && inflater.needsInput() ) {
+						break;
+					}
+					n += k;
+				}
+				if( n != raw.length ) {
+					throw new IOException( "snapshot chunk of " + name + " at " + ref.offset + " has wrong length" );
+				}
+			} catch( DataFormatException e ) {
+				throw new IOException( "snapshot chunk of " + name + " at " + ref.offset + " is corrupt", e );
+
+			} finally {
+				inflater.end();
+			}
+
+			DataInputStream in = new DataInputStream( new ChunkInputStream( raw ) );
+			List<E> res = new ArrayList<E>( ref.count );
+			for( int i = 0; i < ref.count; i++ ) {
+				res.add( codec.decode( in ) );
+			}
+			return res;
+		}
+
+		private void await() throws IOException {
+			long count = 0;
+			for( Future<List<E>> future : decoded ) {
+				count += get( future ).size();
+			}
+			if( expected >= 0 && count != expected ) {
+				throw new IOException( "snapshot of " + name + " has " + count + " entities, manifest lists " + expected );
+			}
+		}
+
+		private void observeIds() throws IOException {
+			for( Future<List<E>> future : decoded ) {
+				for( E e : get( future ) ) {
+					IDGenerator.observe( e.getId() );
+				}
+			}
+		}
+
+		private void reset() {
+			decoded.clear();
+			present = false;
+			expected = -1;
+			previous = null;
+			filter = null;
+		}
+
+		/*
+		 * Keep contents of a repository that is replaced, restored if another
+		 * repository cannot be refilled.
+		 */
+		private void keepPrevious() {
+			if( present ) {
+				previous = new ArrayList<E>();
+				repository.findAll().forEach( previous::add );
+			}
+		}
+
+		private void rollback() {
+			if( previous != null ) {
+				try {
+					replace( Collections.singletonList( previous ), null );
+
+				} catch( RuntimeException e ) {
+					logger.error( "snapshot: cannot restore previous contents of " + name + ": " + e.getMessage(), e );
+				}
+			}
+		}
+
+		private long load() throws IOException {
+			if( ! present ) {
+				return 0;
+			}
+			List<List<E>> batches = new ArrayList<List<E>>();
+			for( Future<List<E>> future : decoded ) {
+				batches.add( get( future ) );
+			}
+			try {
+				return replace( batches, filter );
+
+			} catch( RuntimeException e ) {
+				throw new IOException( "snapshot: cannot refill " + name + ": " + e.getMessage(), e );
+			}
+		}
+
+		private long replace( final List<List<E>> batches, final CountingBloomFilter filter ) {
+			if( repository instanceof ObservedRepositoryImpl ) {
+				return ((ObservedRepositoryImpl<E>)repository).reload( batches, filter );
+			}
+			long count = 0;
+			repository.deleteAll();
+			for( List<E> entities : batches ) {
+				repository.saveAll( entities );
+				count += entities.size();
+			}
+			return count;
+		}
+	}
+
+	/*
+	 * Unsynchronized input stream over a decoded chunk, ByteArrayInputStream
+	 * synchronizes each read.
+	 */
+	private static final class ChunkInputStream extends InputStream {
+		private final byte[] bytes;
+		private int pos = 0;
+
+		private ChunkInputStream( final byte[] bytes ) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int read() {
+			return pos < bytes.length? bytes[ pos++ ] & 0xff : -1;
+		}
+
+		@Override
+		public int read( final byte[] b, final int off, final int len ) {
+			if( pos >= bytes.length ) {
+				return -1;
+			}
+			int n = Math.min( len, bytes.length - pos );
+			System.arraycopy( bytes, pos, b, off, n );
+			pos += n;
+			return n;
+		}
+	}
+
+	private static byte[] encodeFilter( final CountingBloomFilter filter ) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( (int)filter.getMemoryBytes() + 64 );
+		try {
+			filter.writeTo( new DataOutputStream( bos ) );
+
+		} catch( IOException e ) {
+			throw new IllegalStateException( "cannot encode id filter", e );
+		}
+		return bos.toByteArray();
+	}
+
+	private static CountingBloomFilter readFilter( final Path file, final int length, final long crc ) throws IOException {
+		byte[] bytes = Files.readAllBytes( file );
+		CRC32 c = new CRC32();
+		c.update( bytes, 0, bytes.length );
+		if( bytes.length != length || c.getValue() != crc ) {
+			throw new IOException( "snapshot id filter " + file + " fails checksum" );
+		}
+		return CountingBloomFilter.readFrom( new DataInputStream( new ByteArrayInputStream( bytes ) ) );
+	}
+
+	private static <T> T get( final Future<T> future ) throws IOException {
+		try {
+			return future.get();
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IOException( "snapshot interrupted", e );
+
+		} catch( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if( cause instanceof IOException ) {
+				throw (IOException)cause;
+			}
+			throw new IOException( "snapshot failed: " + cause, cause );
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.application.se2.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Local helper class of an append-only file segment that stores length-prefixed
+ * binary records. Records are addressed by their offset in the segment. Records
+ * that are freed remain in the file as garbage and are counted so that the segment
+ * can be compacted when garbage grows.
+ *
+ * Segments are not durable: the file is truncated when opened and removed when
+ * closed, records are only addressed by offsets held in memory by the owner.
+ *
+ * Record layout: [int length][length bytes].
+ *
+ * @author sgra64
+ *
+ */
+class SegmentFile implements Closeable {
+	private static final int HeaderSize = Integer.BYTES;
+
+	private final Path path;
+
+	private final FileChannel channel;
+
+	private long size = 0L;			// end of segment, offset of next appended record
+
+	private long garbage = 0L;		// bytes occupied by freed records
+
+
+	/**
+	 * Package-local constructor that creates (or truncates) the segment file.
+	 *
+	 * @param path path of segment file.
+	 * @throws IOException if segment file cannot be created.
+	 */
+	SegmentFile( final Path path ) throws IOException {
+		this.path = path;
+		if( path.getParent() != null ) {
+			Files.createDirectories( path.getParent() );
+		}
+		this.channel = FileChannel.open( path,
+			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE
+		);
+	}
+
+
+	/**
+	 * Append record to the end of the segment.
+	 *
+	 * @param record record bytes.
+	 * @return offset of appended record.
+	 * @throws IOException if record cannot be written.
+	 */
+	synchronized long append( final byte[] record ) throws IOException {
+		long offset = size;
+		ByteBuffer buf = ByteBuffer.allocate( HeaderSize + record.length );
+		buf.putInt( record.length ).put( record ).flip();
+		while( buf.hasRemaining() ) {
+			channel.write( buf, size + buf.position() );
+		}
+		size += HeaderSize + record.length;
+		return offset;
+	}
+
+
+	/**
+	 * Read record at offset.
+	 *
+	 * @param offset offset of record as returned by append().
+	 * @return record bytes.
+	 * @throws IOException if record cannot be read.
+	 */
+	byte[] read( final long offset ) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate( HeaderSize );
+		readFully( header, offset );
+		int length = header.flip().getInt();
+
+		ByteBuffer record = ByteBuffer.allocate( length );
+		readFully( record, offset + HeaderSize );
+		return record.array();
+	}
+
+
+	/**
+	 * Mark record of given length as garbage.
+	 *
+	 * @param length length of record bytes as passed to append().
+	 */
+	synchronized void free( final int length ) {
+		garbage += HeaderSize + length;
+	}
+
+
+	/**
+	 * Return size of the segment in bytes.
+	 *
+	 * @return size of the segment in bytes.
+	 */
+	synchronized long size() {
+		return size;
+	}
+
+
+	/**
+	 * Return number of bytes occupied by freed records.
+	 *
+	 * @return number of bytes occupied by freed records.
+	 */
+	synchronized long garbage() {
+		return garbage;
+	}
+
+
+	/**
+	 * Return path of segment file.
+	 *
+	 * @return path of segment file.
+	 */
+	Path getPath() {
+		return path;
+	}
+
+
+	/**
+	 * Close and remove segment file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+		Files.deleteIfExists( path );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private void readFully( final ByteBuffer buf, final long offset ) throws IOException {
+		while( buf.hasRemaining() ) {
+			if( channel.read( buf, offset + buf.position() ) < 0 ) {
+				throw new IOException( "unexpected end of segment " + path + " at " + offset );
+			}
+		}
+	}
+
+}
@@ -1,8 +1,10 @@
 package com.application.se2.repository;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -29,6 +31,12 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	private final List<E> list;
 
+	/*
+	 * Position of entities in list by id, positions after a removed entity are
+	 * shifted together with the list.
+	 */
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+
 
 	/**
 	 * Public constructor.
@@ -37,6 +45,7 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	public SimpleRepositoryImpl( List<E> list ) {
 		this.list = list;
+		reindex( 0 );
 	}
 
 
@@ -61,8 +70,8 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	@Override
 	public Optional<E> findById( String id ) {
-		E e = findById( list, id );
-		return e != null? Optional.of( e ) : Optional.empty();
+		Integer i = index.get( id );
+		return i != null? Optional.of( list.get( i ) ) : Optional.empty();
 	}
 
 
@@ -88,9 +97,9 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	public Iterable<E> findAllById( Iterable<String> ids ) {
 		List<E> collection = new ArrayList<E>();
 		for( String id : ids ) {
-			E e = findById( list, id );
-			if( e != null ) {
-				collection.add ( e );
+			Integer i = index.get( id );
+			if( i != null ) {
+				collection.add ( list.get( i ) );
 			}
 		}
 		return collection;
@@ -144,7 +153,7 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	@Override
 	public E save( E entity ) {
-		E e2 = update( entity, true );		
+		E e2 = update( entity, true, true );		
 		return e2;
 	}
 
@@ -160,9 +169,15 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	@Override
 	public Iterable<E> saveAll( Iterable<E> entities ) {
 		List<E> res = new ArrayList<E>();
+		int inserted = 0;
 		for( E e : entities ) {
-			E e2 = save( e );
+			boolean exists = index.containsKey( e.getId() );
+			E e2 = update( e, true, false );
 			res.add( e2 );
+			inserted += exists? 0 : 1;
+		}
+		if( inserted > 0 ) {
+			logger.info( "==> inserted " + inserted + " entities" );
 		}
 		return res;
 	}
@@ -185,9 +200,8 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 * @id id of entity to be deleted from the repository.
 	 */
 	@Override
-	public void deleteById( String id ) {				
-		E e = findById( list, id );
-		delete( e );
+	public void deleteById( String id ) {
+		deleteAllById( Collections.singletonList( id ) );
 	}
 
 
@@ -212,13 +226,15 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	@Override
 	public void deleteAllById( Iterable<String> ids ) {
+		List<Integer> positions = new ArrayList<Integer>();
 		for( String id : ids ) {
-			E entity = findById( list, id );
-			if( entity != null ) {				
-				list.remove( entity );
-				logger.info( "==> removed(" + entity.getId() + ")" );
+			Integer i = index.remove( id );
+			if( i != null ) {
+				positions.add( i );
+				logger.info( "==> removed(" + id + ")" );
 			}
 		}
+		remove( positions );
 	}
 
 
@@ -229,9 +245,15 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 */
 	@Override
 	public void deleteAll( Iterable<E> entities ) {
+		List<Integer> positions = new ArrayList<Integer>();
 		for( E entity : entities ) {
-			list.remove( entity );
+			Integer i = index.get( entity.getId() );
+			if( i != null && list.get( i ).equals( entity ) ) {
+				index.remove( entity.getId() );
+				positions.add( i );
+			}
 		}
+		remove( positions );
 	}
 
 
@@ -242,6 +264,7 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	@Override
 	public void deleteAll() {		
 		list.clear();
+		index.clear();
 	}
 
 
@@ -249,32 +272,26 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 	 * Private methods.
 	 */
 
-	private E findById( Collection<E> collection, String id ) {
-		for( E e : collection ) {
-			if( e.getId().equals( id ) ) {
-				return e;
-			}
-		}
-		return null;
-	}
-
 	/**
-	 * Update method that sets values of entity passed as argument to an entity
-	 * found in the repository with same id. If no entity with matching id is found,
-	 * the entity passed as argument is inserted into the repository if the insert
-	 * flag is set to true. If set to false, no update is performed.
+	 * Update method that replaces the entity stored in the repository with the same
+	 * id by the entity passed as argument, at the same position in the list. If no
+	 * entity with matching id is found, the entity passed as argument is inserted into
+	 * the repository if the insert flag is set to true. If set to false, no update is
+	 * performed.
 	 * 
-	 * @entity entity to update values of repository entity with matching id.
+	 * @entity entity that replaces the repository entity with matching id.
 	 * @insert if true, entity is inserted if no entity with matching id exists.
+	 * @log if true, inserts are logged.
 	 * @return reference to updated entity.
 	 */
 
-	private E update( E entity, boolean insert ) {
-		E e1 = findById( list, entity.getId() );
-		if( e1 != null ) {
-			if( e1 != entity ) {
-				//logger.error( "==> duplicate instance update(" + entity.getId() + ").", null );
-				entity = e1;
+	private E update( E entity, boolean insert, boolean log ) {
+		Integer i = index.get( entity.getId() );
+		if( i != null ) {
+			if( list.get( i ) != entity ) {
+				// another instance with same id replaces the stored instance, e.g. when
+				// entities are decoded from replicated changes
+				list.set( i, entity );
 
 			} else {
 				//logger.info( "==> updated(" + entity.getId() + ")" );
@@ -282,11 +299,34 @@ class SimpleRepositoryImpl<E extends Entity> implements RepositoryIntf<E> {
 
 		} else {
 			if( insert ) {
-				logger.info( "==> inserted(" + entity.getId() + ")" );
+				if( log ) {
+					logger.info( "==> inserted(" + entity.getId() + ")" );
+				}
+				index.put( entity.getId(), list.size() );
 				list.add( entity );
 			}
 		}
 		return entity;
 	}
 
+	/*
+	 * Remove entities at positions from list, positions of remaining entities
+	 * are updated once from the first removed position.
+	 */
+	private void remove( final List<Integer> positions ) {
+		if( positions.size() > 0 ) {
+			positions.sort( Collections.reverseOrder() );
+			for( int i : positions ) {
+				list.remove( i );
+			}
+			reindex( positions.get( positions.size() - 1 ) );
+		}
+	}
+
+	private void reindex( final int from ) {
+		for( int i = from; i < list.size(); i++ ) {
+			index.put( list.get( i ).getId(), i );
+		}
+	}
+
 }
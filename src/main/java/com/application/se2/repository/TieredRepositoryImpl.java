@@ -0,0 +1,678 @@
+package com.application.se2.repository;
+
+import static com.application.se2.AppConfigurator.LoggerTopics;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+import com.application.se2.misc.Logger;
+import com.application.se2.model.Entity;
+
+
+/**
+ * Local implementation class of a tiered repository. Entities are held in a "hot"
+ * in-memory repository until they match a cold predicate or have not been accessed
+ * for a configurable time. Cold entities are moved to a compact on-disk segment and
+ * are loaded back on demand. Id lookups are transparent to the caller: an entity
+ * is found regardless of the tier in which it is held.
+ *
+ * An entity loaded from the cold tier is not moved back to the hot tier until it is
+ * saved and no longer matches the cold condition. Idle entities are moved by spill(),
+ * which is run periodically by RepositoryMaintenance. Access times of initial entities
+ * are seeded from their last activity such that a restart does not reset them.
+ *
+ * With a PartialEntityCodec, cold entities are written as a head and a tail record.
+ * Loading an entity reads only its head, the tail with remaining collection elements
+ * is read when collections are accessed beyond their first element. Collections of
+ * an entity that is promoted or deleted are loaded before its records are freed.
+ *
+ * Rewritten and deleted records leave garbage in the segment that is reclaimed by
+ * compact(), which copies live records to a new segment in short locked steps.
+ *
+ * The cold tier is a non-durable swap tier: the index of cold entities is only held
+ * in memory and the segment is truncated when opened and removed on close. Cold
+ * entities are not recovered after a restart, they must be restored with the hot tier.
+ * Entities that cannot be written to the segment remain in the hot tier.
+ *
+ * @author sgra64
+ *
+ * @param <E> generic entity type.
+ */
+class TieredRepositoryImpl<E extends Entity> implements RepositoryIntf<E>, Closeable {
+	private static final Logger logger = Logger.getInstance( TieredRepositoryImpl.class );
+
+	/*
+	 * Hot tier, entities held in memory.
+	 */
+	private final RepositoryIntf<E> hot;
+
+	private static final int CompactionBatch = 256;
+
+	private static final String CompactSuffix = ".compact";
+
+	/*
+	 * Cold tier, entities encoded in an on-disk segment.
+	 */
+	private SegmentFile segment;
+
+	/*
+	 * Segment from which records are copied while a compaction is in progress.
+	 */
+	private SegmentFile compacting = null;
+
+	private final EntityCodec<E> codec;
+
+	private final Predicate<E> coldPredicate;
+
+	private final long coldAfterMillis;
+
+	private final LongSupplier clock;
+
+	/*
+	 * Index of entities held in the cold tier (id -> location in segment).
+	 */
+	private final Map<String, ColdSlot> coldIndex = new HashMap<String, ColdSlot>();
+
+	/*
+	 * Last access time of entities held in the hot tier.
+	 */
+	private final Map<String, Long> lastAccess = new HashMap<String, Long>();
+
+
+	/*
+	 * Location of an entity in the cold segment. The name is kept in memory
+	 * to match findByName() without loading entities from the segment.
+	 * Entities encoded without tail have tailOffset -1. Compaction moves
+	 * records and updates segment and offsets in place, under the repository
+	 * lock, such that loaders holding the slot follow the move.
+	 */
+	private static class ColdSlot {
+		SegmentFile segment;
+		long offset;
+		final int length;
+		long tailOffset;
+		final int tailLength;
+		final String name;
+
+		ColdSlot( final SegmentFile segment, final long offset, final int length, final long tailOffset, final int tailLength, final String name ) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.tailOffset = tailOffset;
+			this.tailLength = tailLength;
+			this.name = name;
+		}
+	}
+
+
+	/**
+	 * Package-local constructor, entities of the hot tier are considered accessed now.
+	 *
+	 * @param hot in-memory repository used as hot tier.
+	 * @param segment on-disk segment used as cold tier.
+	 * @param codec codec to encode entities in the cold tier.
+	 * @param coldPredicate entities matching the predicate are moved to the cold tier.
+	 * @param coldAfterMillis entities not accessed for that time are moved to the cold tier.
+	 */
+	TieredRepositoryImpl( final RepositoryIntf<E> hot, final SegmentFile segment, final EntityCodec<E> codec,
+			final Predicate<E> coldPredicate, final long coldAfterMillis )
+	{
+		this( hot, segment, codec, coldPredicate, coldAfterMillis, null, System::currentTimeMillis );
+	}
+
+
+	/**
+	 * Package-local constructor invoked by RepositoryBuilder.
+	 *
+	 * @param hot in-memory repository used as hot tier.
+	 * @param segment on-disk segment used as cold tier.
+	 * @param codec codec to encode entities in the cold tier.
+	 * @param coldPredicate entities matching the predicate are moved to the cold tier.
+	 * @param coldAfterMillis entities not accessed for that time are moved to the cold tier.
+	 * @param lastActivity time of last activity of an entity of the hot tier that seeds
+	 * its access time, null to seed access times with the current time.
+	 * @param clock current time in milliseconds.
+	 */
+	TieredRepositoryImpl( final RepositoryIntf<E> hot, final SegmentFile segment, final EntityCodec<E> codec,
+			final Predicate<E> coldPredicate, final long coldAfterMillis, final ToLongFunction<E> lastActivity, final LongSupplier clock )
+	{
+		this.hot = hot;
+		this.segment = segment;
+		this.codec = codec;
+		this.coldPredicate = coldPredicate;
+		this.coldAfterMillis = coldAfterMillis;
+		this.clock = clock;
+		long now = clock.getAsLong();
+		for( E e : hot.findAll() ) {
+			lastAccess.put( e.getId(), lastActivity != null? Math.min( now, lastActivity.applyAsLong( e ) ) : now );
+		}
+	}
+
+
+	/**
+	 * Move all entities of the hot tier that match the cold predicate or have not been
+	 * accessed for coldAfterMillis to the cold tier.
+	 *
+	 * @return number of entities moved to the cold tier.
+	 */
+	public synchronized int spill() {
+		long now = clock.getAsLong();
+		List<E> cold = new ArrayList<E>();
+		for( E e : hot.findAll() ) {
+			if( isCold( e, now ) ) {
+				cold.add( e );
+			}
+		}
+		int spilled = 0;
+		for( E e : cold ) {
+			if( moveToColdTier( e ) ) {
+				spilled++;
+			}
+		}
+		if( spilled > 0 ) {
+			logger.log( LoggerTopics.Info, "Spilled " + spilled + " entities to " + segment.getPath() +
+				" (hot: " + hot.count() + ", cold: " + coldIndex.size() + ")." );
+		}
+		return spilled;
+	}
+
+
+	/**
+	 * Compact the cold segment. Live records are copied to a new segment in batches,
+	 * the repository is locked for one batch at a time. Records written during
+	 * compaction go to the new segment, the old segment is removed at the end.
+	 * A compaction that fails is resumed by the next call.
+	 *
+	 * @param progress progress to which copied bytes are reported and throttled.
+	 * @return number of bytes reclaimed.
+	 * @throws IOException if records cannot be copied.
+	 */
+	long compact( final RepositoryMaintenance.Progress progress ) throws IOException {
+		SegmentFile source;
+		List<String> ids = new ArrayList<String>();
+		long before;
+		synchronized( this ) {
+			if( compacting == null ) {
+				compacting = segment;
+				segment = new SegmentFile( alternatePath( compacting.getPath() ) );
+			}
+			source = compacting;
+			before = source.size();
+			for( Map.Entry<String, ColdSlot> entry : coldIndex.entrySet() ) {
+				if( entry.getValue().segment == source ) {
+					ids.add( entry.getKey() );
+				}
+			}
+		}
+		for( int from = 0; from < ids.size(); from += CompactionBatch ) {
+			long bytes = 0;
+			synchronized( this ) {
+				for( String id : ids.subList( from, Math.min( ids.size(), from + CompactionBatch ) ) ) {
+					ColdSlot slot = coldIndex.get( id );
+					if( slot != null && slot.segment == source ) {
+						bytes += move( slot );
+					}
+				}
+			}
+			progress.io( bytes );
+			progress.done( (double)Math.min( ids.size(), from + CompactionBatch ) / ids.size() );
+		}
+		synchronized( this ) {
+			compacting = null;
+			source.close();
+			logger.log( LoggerTopics.Info, "Compacted " + source.getPath() + " (" + before + " bytes) into " +
+				segment.getPath() + " (" + segment.size() + " bytes)." );
+			return Math.max( 0, before - segment.size() );
+		}
+	}
+
+
+	/**
+	 * Return number of bytes occupied by freed records in the cold segment.
+	 *
+	 * @return number of garbage bytes.
+	 */
+	synchronized long garbage() {
+		return segment.garbage();
+	}
+
+
+	/**
+	 * Return size of the cold segment.
+	 *
+	 * @return size of the cold segment in bytes.
+	 */
+	synchronized long segmentSize() {
+		return segment.size();
+	}
+
+
+	/**
+	 * Returns whether entity with given id is present in the repository.
+	 *
+	 * @param entity id.
+	 * @return true if entity is present in the repository.
+	 */
+	@Override
+	public synchronized boolean existsById( String id ) {
+		return hot.existsById( id ) || coldIndex.containsKey( id );
+	}
+
+
+	/**
+	 * Find method that returns the repository entity with matching id or null if
+	 * entity is not found. Entities held in the cold tier are loaded on demand.
+	 *
+	 * @param id entity identifier.
+	 * @return Optional of entity matching id.
+	 */
+	@Override
+	public synchronized Optional<E> findById( String id ) {
+		Optional<E> e = hot.findById( id );
+		if( e.isPresent() ) {
+			lastAccess.put( id, clock.getAsLong() );
+
+		} else {
+			ColdSlot slot = coldIndex.get( id );
+			e = slot != null? load( slot ) : Optional.empty();
+		}
+		return e;
+	}
+
+
+	/**
+	 * Find method that returns all entities of the repository. Entities held in
+	 * the cold tier are loaded while iterating.
+	 *
+	 * @return all entities of the repository.
+	 */
+	@Override
+	public synchronized Iterable<E> findAll() {
+		final List<E> hotEntities = new ArrayList<E>();
+		hot.findAll().forEach( hotEntities::add );
+		final List<ColdSlot> coldSlots = new ArrayList<ColdSlot>( coldIndex.values() );
+
+		return () -> new Iterator<E>() {
+			private final Iterator<E> hotIt = hotEntities.iterator();
+			private final Iterator<ColdSlot> coldIt = coldSlots.iterator();
+			private E next = null;
+
+			@Override
+			public boolean hasNext() {
+				while( next == null && ( hotIt.hasNext() || coldIt.hasNext() ) ) {
+					next = hotIt.hasNext()? hotIt.next() : load( coldIt.next() ).orElse( null );
+				}
+				return next != null;
+			}
+
+			@Override
+			public E next() {
+				if( ! hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				E e = next;
+				next = null;
+				return e;
+			}
+		};
+	}
+
+
+	/**
+	 * Find method that returns a set of Entities that have been found based on
+	 * a set of Id's provided as input.
+	 *
+	 * @param ids set of Id's to be looked up in the repository.
+	 * @return set of found Entities.
+	 */
+	@Override
+	public synchronized Iterable<E> findAllById( Iterable<String> ids ) {
+		List<E> collection = new ArrayList<E>();
+		for( String id : ids ) {
+			findById( id ).ifPresent( collection::add );
+		}
+		return collection;
+	}
+
+
+	/**
+	 * Find method that returns entity that matches the regular expression.
+	 *
+	 * @param regEx regular expression to match getName() property.
+	 * @return Optional of entity matching name.
+	 */
+	@Override
+	public synchronized Optional<E> findByName( String regEx ) {
+		Iterator<E> it = findByName( regEx, 1 ).iterator();
+		return it.hasNext()? Optional.of( it.next() ) : Optional.empty();
+	}
+
+
+	/**
+	 * Find method that returns List of entities matching the name-field. Names of
+	 * cold entities are matched in memory, only matching entities are loaded.
+	 *
+	 * @param regEx regular expression to match getName() property
+	 * @param limit max number of matching entities returned
+	 * @return List of matching entites (up to limit)
+	 */
+	@Override
+	public synchronized Iterable<E> findByName( String regEx, long limit ) {
+		List<E> result = new ArrayList<E>();
+		hot.findByName( regEx, limit ).forEach( result::add );
+
+		Pattern p = Pattern.compile( regEx );
+		for( ColdSlot slot : coldIndex.values() ) {
+			if( result.size() >= limit ) {
+				break;
+			}
+			if( slot.name != null && p.matcher( slot.name ).matches() ) {
+				load( slot ).ifPresent( result::add );
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Save Entity to repository. A cold entity that no longer matches the cold condition
+	 * is moved back to the hot tier, a hot entity that matches is moved to the cold tier.
+	 *
+	 * @param entity entity to be saved to the repository.
+	 * @return entity that has been saved.
+	 */
+	@Override
+	public synchronized E save( E entity ) {
+		String id = entity.getId();
+		long now = clock.getAsLong();
+		ColdSlot slot = coldIndex.get( id );
+
+		if( slot != null ) {
+			if( coldPredicate.test( entity ) && writeToColdTier( entity, slot ) ) {
+				return entity;		// cold entity rewritten with updated values
+			}
+			// entity no longer cold or cannot be rewritten, promote to hot tier
+			materialize( entity );
+			coldIndex.remove( id );
+			free( slot );
+		}
+
+		E e2 = hot.save( entity );
+		lastAccess.put( id, now );
+		if( isCold( e2, now ) ) {
+			moveToColdTier( e2 );
+		}
+		return e2;
+	}
+
+
+	/**
+	 * Save list of Entities to repository. New entities that are not cold are passed
+	 * to the hot tier in one batch.
+	 *
+	 * @param entities entities to be saved.
+	 * @return entities that have been saved.
+	 */
+	@Override
+	public synchronized Iterable<E> saveAll( Iterable<E> entities ) {
+		List<E> res = new ArrayList<E>();
+		List<E> batch = new ArrayList<E>();
+		long now = clock.getAsLong();
+		for( E e : entities ) {
+			if( coldIndex.containsKey( e.getId() ) || coldPredicate.test( e ) || hot.existsById( e.getId() ) ) {
+				res.add( save( e ) );
+
+			} else {
+				batch.add( e );
+				lastAccess.put( e.getId(), now );
+				res.add( e );
+			}
+		}
+		hot.saveAll( batch );
+		return res;
+	}
+
+
+	/**
+	 * Returns the number of entities present in both tiers.
+	 *
+	 * @return number of entities present in repository.
+	 */
+	@Override
+	public synchronized long count() {
+		return hot.count() + coldIndex.size();
+	}
+
+
+	/**
+	 * Delete entity with matching id from the repository.
+	 *
+	 * @param id id of entity to be deleted from the repository.
+	 */
+	@Override
+	public synchronized void deleteById( String id ) {
+		hot.deleteById( id );
+		lastAccess.remove( id );
+		ColdSlot slot = coldIndex.remove( id );
+		if( slot != null ) {
+			free( slot );
+		}
+	}
+
+
+	/**
+	 * Delete entity from repository.
+	 *
+	 * @param entity entity to be deleted from repository.
+	 */
+	@Override
+	public synchronized void delete( E entity ) {
+		if( entity != null ) {
+			if( coldIndex.containsKey( entity.getId() ) ) {
+				materialize( entity );		// deleted entity remains usable by the caller
+			}
+			deleteById( entity.getId() );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param ids list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAllById( Iterable<String> ids ) {
+		for( String id : ids ) {
+			deleteById( id );
+		}
+	}
+
+
+	/**
+	 * Delete all entities passed as argument from repository.
+	 *
+	 * @param entities list of entities to be deleted from repository.
+	 */
+	@Override
+	public synchronized void deleteAll( Iterable<E> entities ) {
+		for( E e : entities ) {
+			delete( e );
+		}
+	}
+
+
+	/**
+	 * Delete all entities from both tiers. The result is an empty repository.
+	 */
+	@Override
+	public synchronized void deleteAll() {
+		hot.deleteAll();
+		lastAccess.clear();
+		for( ColdSlot slot : coldIndex.values() ) {
+			free( slot );
+		}
+		coldIndex.clear();
+	}
+
+
+	/**
+	 * Close and remove the cold segment, cold entities are no longer available.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		segment.close();
+		if( compacting != null ) {
+			compacting.close();
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private boolean isCold( final E e, final long now ) {
+		Long accessed = lastAccess.get( e.getId() );
+		boolean idle = coldAfterMillis > 0 && accessed != null && now - accessed > coldAfterMillis;
+		return idle || coldPredicate.test( e );
+	}
+
+	private boolean moveToColdTier( final E e ) {
+		boolean moved = writeToColdTier( e, null );
+		if( moved ) {
+			List<E> single = new ArrayList<E>( 1 );
+			single.add( e );
+			hot.deleteAll( single );	// remove from hot tier without deletion semantics
+			lastAccess.remove( e.getId() );
+		}
+		return moved;
+	}
+
+	/*
+	 * Write entity to the cold segment and index it, the previous slot is freed. Returns
+	 * false without changing the index if the entity cannot be encoded or written.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean writeToColdTier( final E e, final ColdSlot previous ) {
+		try {
+			ColdSlot slot;
+			if( codec instanceof PartialEntityCodec ) {
+				PartialEntityCodec<E> partialCodec = (PartialEntityCodec<E>)codec;
+				byte[] tail = partialCodec.tailBytes( e );
+				byte[] head = partialCodec.headBytes( e );		// encode both parts before anything is written
+				long tailOffset = tail.length > 0? segment.append( tail ) : -1L;
+				slot = new ColdSlot( segment, segment.append( head ), head.length, tailOffset, tail.length, e.getName() );
+
+			} else {
+				byte[] record = codec.toBytes( e );
+				slot = new ColdSlot( segment, segment.append( record ), record.length, -1L, 0, e.getName() );
+			}
+			if( previous != null ) {
+				free( previous );
+			}
+			coldIndex.put( e.getId(), slot );
+			return true;
+
+		} catch( IOException | IllegalStateException ex ) {
+			// IllegalStateException: entity cannot be encoded by codec
+			logger.error( "cannot write " + e.getId() + " to " + segment.getPath() + ": " + ex.getMessage(), ex );
+			return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized Optional<E> load( final ColdSlot slot ) {
+		try {
+			byte[] record = slot.segment.read( slot.offset );
+			if( codec instanceof PartialEntityCodec ) {
+				DataInput head = new DataInputStream( new ByteArrayInputStream( record ) );
+				return Optional.of( ((PartialEntityCodec<E>)codec).decodeHead( head, () -> loadTail( slot ) ) );
+			}
+			return Optional.of( codec.fromBytes( record ) );
+
+		} catch( IOException ex ) {
+			logger.error( "cannot read from " + slot.segment.getPath() + " at " + slot.offset + ": " + ex.getMessage(), ex );
+			return Optional.empty();
+		}
+	}
+
+	/*
+	 * Read tail of an entity loaded earlier, invoked when collections of the entity
+	 * are accessed. Compaction moves slots in place, entities are materialized
+	 * before their slots are freed.
+	 */
+	private synchronized DataInput loadTail( final ColdSlot slot ) {
+		if( slot.tailOffset < 0 ) {
+			throw new IllegalStateException( "no tail record for " + slot.name + " in " + slot.segment.getPath() );
+		}
+		try {
+			return new DataInputStream( new ByteArrayInputStream( slot.segment.read( slot.tailOffset ) ) );
+
+		} catch( IOException ex ) {
+			logger.error( "cannot read from " + slot.segment.getPath() + " at " + slot.tailOffset + ": " + ex.getMessage(), ex );
+			throw new UncheckedIOException( ex );
+		}
+	}
+
+	/*
+	 * Load collections of an entity decoded from the cold tier before its slot is
+	 * freed, compaction does not copy freed records.
+	 */
+	@SuppressWarnings("unchecked")
+	private void materialize( final E e ) {
+		if( codec instanceof PartialEntityCodec ) {
+			((PartialEntityCodec<E>)codec).materialize( e );
+		}
+	}
+
+	private void free( final ColdSlot slot ) {
+		slot.segment.free( slot.length );
+		if( slot.tailOffset >= 0 ) {
+			slot.segment.free( slot.tailLength );
+		}
+	}
+
+	/*
+	 * Copy records of slot to the current segment, returns number of bytes read and written.
+	 */
+	private long move( final ColdSlot slot ) throws IOException {
+		byte[] head = slot.segment.read( slot.offset );
+		long offset = segment.append( head );
+		long tailOffset = -1L;
+		long bytes = 2L * head.length;
+		if( slot.tailOffset >= 0 ) {
+			byte[] tail = slot.segment.read( slot.tailOffset );
+			tailOffset = segment.append( tail );
+			bytes += 2L * tail.length;
+		}
+		slot.segment = segment;
+		slot.offset = offset;
+		slot.tailOffset = tailOffset;
+		return bytes;
+	}
+
+	private static Path alternatePath( final Path path ) {
+		String name = path.getFileName().toString();
+		return name.endsWith( CompactSuffix )?
+			path.resolveSibling( name.substring( 0, name.length() - CompactSuffix.length() ) ) :
+			path.resolveSibling( name + CompactSuffix );
+	}
+
+}
@@ -3,6 +3,31 @@ package com.application.se2;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.application.se2.components.TestCases_ComponentBase;
+import com.application.se2.fxgui.TestCases_TableRows;
+import com.application.se2.fxgui.TestCases_TableViewConfig;
+import com.application.se2.misc.TestCases_AsyncLogWriter;
+import com.application.se2.misc.TestCases_DateFormats;
+import com.application.se2.misc.TestCases_EntityClassMetadata;
+import com.application.se2.misc.TestCases_EntityProperty;
+import com.application.se2.misc.TestCases_EntityPropertyUpdateSet;
+import com.application.se2.misc.TestCases_FieldAccessor;
+import com.application.se2.misc.TestCases_GeneratedAccessor;
+import com.application.se2.misc.TestCases_HybridLogicalClock;
+import com.application.se2.misc.TestCases_IDGenerator;
+import com.application.se2.repository.TestCases_AuditJournal;
+import com.application.se2.repository.TestCases_ColumnarCustomers;
+import com.application.se2.repository.TestCases_ContactIndex;
+import com.application.se2.repository.TestCases_EntityHistory;
+import com.application.se2.repository.TestCases_IdFilter;
+import com.application.se2.repository.TestCases_LazyCollections;
+import com.application.se2.repository.TestCases_OffHeapArticleRepository;
+import com.application.se2.repository.TestCases_Replication;
+import com.application.se2.repository.TestCases_RepositoryAggregates;
+import com.application.se2.repository.TestCases_RepositoryMaintenance;
+import com.application.se2.repository.TestCases_RepositorySnapshot;
+import com.application.se2.repository.TestCases_TieredRepository;
+
 
 /**
  * Entry unit testing class defining test suite.
@@ -15,6 +40,30 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	TestCases_ApplicationName.class,		//test cases
+	TestCases_TieredRepository.class,
+	TestCases_RepositoryAggregates.class,
+	TestCases_Replication.class,
+	TestCases_RepositorySnapshot.class,
+	TestCases_LazyCollections.class,
+	TestCases_ContactIndex.class,
+	TestCases_IdFilter.class,
+	TestCases_RepositoryMaintenance.class,
+	TestCases_EntityHistory.class,
+	TestCases_HybridLogicalClock.class,
+	TestCases_DateFormats.class,
+	TestCases_IDGenerator.class,
+	TestCases_ColumnarCustomers.class,
+	TestCases_FieldAccessor.class,
+	TestCases_EntityProperty.class,
+	TestCases_EntityClassMetadata.class,
+	TestCases_GeneratedAccessor.class,
+	TestCases_EntityPropertyUpdateSet.class,
+	TestCases_AsyncLogWriter.class,
+	TestCases_AuditJournal.class,
+	TestCases_ComponentBase.class,
+	TestCases_TableViewConfig.class,
+	TestCases_OffHeapArticleRepository.class,
+	TestCases_TableRows.class,
 	//TestCases_ApplicationLogic.class		//test cases ...
 })
 public class ApplicationTest {
@@ -0,0 +1,91 @@
+package com.application.se2.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator;
+import com.application.se2.AppConfigurator.Table;
+
+
+/**
+ * Unit tests concerning the typed configuration registry of components and
+ * the resolution of logic- and view-parts.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_ComponentBase {
+
+	@Test
+	public void typedKeysTest() throws Exception {
+		ComponentBase.TypedKey<Integer> width = ComponentBase.TypedKey.of( "test.width", Integer.class );
+		assertTrue( width == ComponentBase.TypedKey.of( "test.width", Integer.class ) );	// registered once per name
+		assertTrue( fails( () -> ComponentBase.TypedKey.of( "test.width", String.class ) ) );
+
+		ComponentBase component = new ComponentBase().configure( width, 42 );
+		assertEquals( Integer.valueOf( 42 ), component.get( width ) );
+		assertEquals( 42, component.get( "test.width" ) );		// String-based access to the same slot
+		assertTrue( fails( () -> component.configure( "test.width", "wide" ) ) );
+		component.configure( width, null );
+		assertEquals( null, component.get( width ) );
+		assertEquals( null, new ComponentBase().get( width ) );
+		assertEquals( null, component.get( "test.unknown" ) );
+	}
+
+	@Test
+	public void configureTest() throws Exception {
+		ComponentBase component = new ComponentBase().configure( AppConfigurator.Key.TableView, new Object[][] {
+			{ AppConfigurator.Key.Label, "Customers" },
+			{ Table.CSSID, "tableview-customer" },
+		});
+		assertEquals( "Customers", component.get( AppConfigurator.Key.Label ) );
+		assertEquals( "tableview-customer", component.get( Table.CSSID ) );
+		assertEquals( "Customers", component.getName() );
+		component.configure( ComponentBase.Key.Name, "CustomerManager" );
+		assertEquals( "CustomerManager", component.getName() );
+	}
+
+	@Test
+	public void intfTest() throws Exception {
+		List<String> calls = new ArrayList<String>();
+		ComponentBase component = new ComponentBase();
+		ComponentBase.<ComponentIntf.LogicIntf>logicIntf( component, logic -> calls.add( "absent" ) );
+		component.inject( new ComponentIntf.LogicIntf() {
+			@Override
+			public void startup() {
+				calls.add( "startup" );
+			}
+
+			@Override
+			public void shutdown() {
+				calls.add( "shutdown" );
+			}
+		});
+		component.inject( (ComponentIntf.TableViewIntf)() -> calls.add( "refreshView" ) );
+		ComponentBase.<ComponentIntf.LogicIntf>logicIntf( component, logic -> logic.startup() );
+		ComponentBase.<ComponentIntf.TableViewIntf>viewIntf( component, view -> view.refreshView() );
+		assertEquals( "[startup, refreshView]", calls.toString() );
+		assertTrue( component.get( ComponentBase.TypedKey.Logic ) == component.get( ComponentBase.Key.Logic ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static boolean fails( final Runnable access ) {
+		try {
+			access.run();
+			return false;
+
+		} catch( IllegalArgumentException e ) {
+			return true;
+		}
+	}
+
+}
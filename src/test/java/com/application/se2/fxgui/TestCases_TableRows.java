@@ -0,0 +1,137 @@
+package com.application.se2.fxgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator;
+import com.application.se2.components.ComponentBase;
+import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.Traceable;
+import com.application.se2.model.Customer;
+
+import javafx.beans.property.Property;
+
+
+/**
+ * Unit tests concerning rows of a TableView matched with entities by id and
+ * refreshed from updates. Rows are kept in a plain list, cells are the
+ * properties of rows (no TableView is needed).
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_TableRows {
+	private static final int Name = 1;
+	private static final int Address = 2;
+	private static final int Contacts = 4;
+
+	private final TableViewConfig config = TableViewConfig.of( new ComponentBase()
+		.configure( AppConfigurator.Key.TableView, AppConfigurator.getInstance().CustomerTableView_1() ) );
+
+
+	@Test
+	public void matchByIdTest() {
+		List<TableItem> items = new ArrayList<TableItem>();
+		TableRows rows = rows( items );
+		rows.refresh( Arrays.asList( customer( "C001", "Eric Meyer" ), customer( "C002", "Anne Bayer" ) ) );
+		assertEquals( 2, items.size() );
+		TableItem first = items.get( 0 );
+		Property<?> name = first.getProperty( Name );
+
+		Customer reloaded = customer( "C001", "Eric Meyer-Bayer" );		// another instance of the entity
+		rows.refresh( Arrays.asList( reloaded, customer( "C002", "Anne Bayer" ) ) );
+		assertEquals( 2, items.size() );
+		assertTrue( first == items.get( 0 ) );		// row kept, position unchanged
+		assertTrue( reloaded == first.getPrimaryObject().getRootObject() );
+		assertTrue( name == first.getProperty( Name ) );		// cell bound to the same property
+		assertEquals( "Eric Meyer-Bayer", name.getValue() );
+
+		rows.refresh( Arrays.asList( customer( "C002", "Anne Bayer" ), customer( "C003", "Tim Schulz" ) ) );
+		assertEquals( Arrays.asList( "C002", "C003" ), ids( items ) );		// C001 removed, C003 appended
+		assertFalse( items.contains( first ) );
+	}
+
+	@Test
+	public void updatedCellsTest() throws Exception {
+		List<TableItem> items = new ArrayList<TableItem>();
+		TableRows rows = rows( items );
+		Customer c = customer( "C001", "Eric Meyer" );
+		c.setAddress( "Lindenweg 1" );
+		rows.refresh( Arrays.asList( c ) );
+		TableItem ti = items.get( 0 );
+
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( new Traceable( c ), 2 );
+		updates.before( property( "name" ), c.getName() );
+		updates.before( property( "address" ), c.getAddress() );
+		updates.after( 0, "Anne Meyer" );
+		updates.apply( c );
+		c.setAddress( "Eichenweg 2" );		// altered without update, cell is not refreshed
+
+		assertFalse( rows.refresh( c, updates ) );		// no list column refreshed
+		assertEquals( "Anne Meyer", ti.getProperty( Name ).getValue() );
+		assertEquals( "Lindenweg 1", ti.getProperty( Address ).getValue() );
+
+		c.addContact( "eric@meyer.de" );		// update of an object nested in the Customer
+		EntityPropertyUpdateSet contactUpdates = new EntityPropertyUpdateSet(
+			new Traceable( "eric@meyer.de", new Traceable( c ), property( "contacts" ) ) );
+		assertTrue( ti.refresh( contactUpdates ) );		// list column refreshed, cells must be redrawn
+		assertEquals( Arrays.asList( "eric@meyer.de" ), ti.getProperty( Contacts ).getValue() );
+		assertEquals( "Lindenweg 1", ti.getProperty( Address ).getValue() );
+		assertEquals( 1, items.size() );
+
+		assertFalse( rows.refresh( customer( "C002", "Anne Bayer" ), updates ) );	// not shown, appended
+		assertEquals( Arrays.asList( "C001", "C002" ), ids( items ) );
+	}
+
+	@Test
+	public void removeTest() {
+		List<TableItem> items = new ArrayList<TableItem>();
+		TableRows rows = rows( items );
+		rows.refresh( Arrays.asList( customer( "C001", "Eric Meyer" ), customer( "C002", "Anne Bayer" ),
+			customer( "C003", "Tim Schulz" ) ) );
+
+		rows.remove( Arrays.asList( "C001", "C003", "C004" ) );
+		assertEquals( Arrays.asList( "C002" ), ids( items ) );
+		rows.remove( Arrays.asList( "C001" ) );		// removed twice
+		assertEquals( 1, items.size() );
+
+		Customer c = customer( "C001", "Eric Meyer" );		// updated after removal, shown again
+		rows.refresh( c, new EntityPropertyUpdateSet( new Traceable( c ) ) );
+		assertEquals( Arrays.asList( "C002", "C001" ), ids( items ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private TableRows rows( final List<TableItem> items ) {
+		return new TableRows( items, primary -> new TableItem( primary, config ) );
+	}
+
+	private static Customer customer( final String id, final String name ) {
+		return new Customer( id, name, new Date( 0 ) );
+	}
+
+	private static EntityProperty property( final String name ) throws NoSuchFieldException {
+		return new EntityProperty( Customer.class.getDeclaredField( name ) );
+	}
+
+	private static List<String> ids( final List<TableItem> items ) {
+		List<String> res = new ArrayList<String>();
+		for( TableItem ti : items ) {
+			res.add( TableRows.idOf( ti ) );
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.application.se2.fxgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator;
+import com.application.se2.components.ComponentBase;
+import com.application.se2.misc.DateFormats;
+import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.HybridLogicalClock;
+import com.application.se2.model.Note;
+
+
+/**
+ * Unit tests concerning TableView models compiled from AppConfigurator
+ * view definitions.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_TableViewConfig {
+
+	@Test
+	public void compileTest() throws Exception {
+		ComponentBase component = new ComponentBase()
+			.configure( AppConfigurator.Key.TableView, AppConfigurator.getInstance().CustomerTableView_1() );
+		TableViewConfig config = TableViewConfig.of( component );
+		assertTrue( config == TableViewConfig.of( component ) );		// compiled once per component
+		assertEquals( "Kunde", config.getLabel() );
+		assertEquals( "customer", config.getCssId() );
+		assertEquals( 6, config.getColumns().size() );
+		assertEquals( config.getProperties().size(), config.getColumns().size() );
+
+		TableColumnProperty id = config.getColumn( 0 );
+		assertEquals( "id", id.getName() );
+		assertEquals( "Kund.-Id", id.getLabel() );
+		assertEquals( 70, id.getMinColumnWidth() );
+		assertEquals( 70, id.getMaxColumnWidth() );
+		assertFalse( id.isEditable() );
+		assertTrue( config.getColumn( 1 ).isEditable() );
+		assertEquals( 4, config.indexOf( "contacts" ) );		// column of property, e.g. to refresh a row
+		assertEquals( -1, config.indexOf( "unknown" ) );
+
+		TableColumnProperty contacts = config.getColumn( 4 );
+		assertEquals( "customer-contacts", contacts.getCssId() );
+		assertEquals( "+#", contacts.getPopUpButtonLabel() );
+		assertEquals( 1, contacts.getPopUpShowAsText() );
+		TableViewConfig popUp = contacts.getPopUpTableViewConfig();
+		assertEquals( "Kontakte", popUp.getLabel() );
+		assertEquals( 1200, popUp.getColumn( 0 ).getMaxColumnWidth() );
+		assertEquals( null, config.getColumn( 0 ).getPopUpTableViewConfig() );
+		assertEquals( 0, config.getColumn( 5 ).getPopUpShowAsText() );
+		assertEquals( "dd-MMM-yyyy HH:mm",
+			config.getColumn( 5 ).getPopUpTableViewConfig().getColumn( 0 ).getConfig( AppConfigurator.Table.Column.DATEFMT ) );
+	}
+
+	@Test
+	public void noteRowTest() throws Exception {
+		ComponentBase component = new ComponentBase()
+			.configure( AppConfigurator.Key.TableView, AppConfigurator.getInstance().CustomerTableView_1() );
+		TableViewConfig notes = TableViewConfig.of( component ).getColumn( 5 ).getPopUpTableViewConfig();
+		EntityProperty timeStamp = notes.getProperties().getProperty( 0 );
+		assertEquals( "timeStamp", timeStamp.getName() );
+
+		Date date = DateFormats.parse( "2018-04-02, 10:16:24.868", DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS );
+		Note note = new Note( date, "text" );
+		String shown = DateFormats.format( date, "dd-MMM-yyyy HH:mm" );		// clock value is shown as Date
+		assertEquals( shown, timeStamp.getString( note ) );
+		assertEquals( shown, timeStamp.getValue( note ) );
+		assertEquals( "text", notes.getProperties().getProperty( 1 ).getString( note ) );
+		assertEquals( null, timeStamp.getString( new Note( 0L, "no timeStamp" ) ) );
+
+		timeStamp.setValue( note, "03-Apr-2018 11:00" );
+		assertEquals( "03-Apr-2018 11:00", timeStamp.getString( note ) );
+		assertEquals( 0, HybridLogicalClock.logical( note.getHybridTimeStamp() ) );
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.application.se2.misc;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Date;
+
+
+/**
+ * Benchmark that formats table cells with dates in the ways EntityProperty.getValue()
+ * did and does: a SimpleDateFormat created per cell (configured DATEFMT pattern),
+ * a shared SimpleDateFormat (not thread-safe, run single-threaded only), the cached
+ * DateTimeFormatter of DateFormats and the fast path of DateFormats for the fixed
+ * default pattern.
+ *
+ * Not a unit test, run with: java -cp ... DateFormatsBenchmark [cells]
+ *
+ * @author sgra64
+ *
+ */
+public class DateFormatsBenchmark {
+	private static final int Rounds = 5;
+
+
+	public static void main( final String[] args ) {
+		int cells = args.length > 0? Integer.parseInt( args[ 0 ] ) : 1_000_000;
+		long[] dates = new long[ cells ];
+		long t = System.currentTimeMillis();
+		for( int i = 0; i < cells; i++ ) {
+			dates[ i ] = t - i * 7_919_993L;		// spread over many years
+		}
+		String pattern = DateFormats.DF_dd_MM_yyyy_HH_mm_ss;
+		SimpleDateFormat shared = new SimpleDateFormat( pattern );
+
+		System.out.println( "Cells: " + cells );
+		for( int round = 0; round < Rounds; round++ ) {
+			run( "new SimpleDateFormat per cell", dates, millis -> new SimpleDateFormat( pattern ).format( new Date( millis ) ) );
+			run( "shared SimpleDateFormat      ", dates, millis -> shared.format( new Date( millis ) ) );
+			run( "cached DateTimeFormatter     ", dates, millis -> DateFormats.getFormatter( pattern ).format( Instant.ofEpochMilli( millis ) ) );
+			run( "DateFormats fast path        ", dates, millis -> DateFormats.format( millis, pattern ) );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Formatter {
+		String format( long millis );
+	}
+
+	private static void run( final String label, final long[] dates, final Formatter formatter ) {
+		long t0 = System.nanoTime();
+		long sink = 0;
+		for( long millis : dates ) {
+			sink += formatter.format( millis ).length();
+		}
+		long nanos = System.nanoTime() - t0;
+		System.out.println( label + ": " + ( nanos / dates.length ) + " ns/cell" + ( sink < 0? "!" : "" ) );
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.application.se2.misc;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Benchmark that compares reading the fields shown in the Customer table for many
+ * Customers (as TableItem.serialize() does on each refresh) through reflective
+ * Field.get() with FieldAccessor, with the GeneratedAccessor of Customer (through
+ * EntityClassMetadata) and with direct getter calls. Date fields are
+ * read as values, formatting is not included. Reported is the best of several
+ * iterations.
+ *
+ * Not a unit test, run with: java -cp ... FieldAccessorBenchmark [customers]
+ *
+ * @author sgra64
+ *
+ */
+public class FieldAccessorBenchmark {
+	private static final String[] Fields = { "id", "name", "address", "status", "created" };
+	private static final int Rounds = 200;
+	private static final int Iterations = 10;
+
+	private static long sink = 0;
+
+
+	public static void main( final String[] args ) throws Exception {
+		int n = args.length > 0? Integer.parseInt( args[ 0 ] ) : 10_000;
+		List<Customer> customers = new ArrayList<Customer>( n );
+		for( int i = 0; i < n; i++ ) {
+			customers.add( new Customer( "K" + i, "Customer " + i, new Date( i ) ).setAddress( "Lindenweg " + i + ", 10115 Berlin" ) );
+		}
+		Field[] fields = new Field[ Fields.length ];
+		FieldAccessor[] accessors = new FieldAccessor[ Fields.length ];
+		EntityClassMetadata.PropertyMetadata[] generated = new EntityClassMetadata.PropertyMetadata[ Fields.length ];
+		for( int i = 0; i < Fields.length; i++ ) {
+			fields[ i ] = Customer.class.getDeclaredField( Fields[ i ] );
+			fields[ i ].setAccessible( true );
+			accessors[ i ] = FieldAccessor.of( fields[ i ] );
+			generated[ i ] = EntityClassMetadata.of( fields[ i ] );
+		}
+		if( ! generated[ 0 ].isGenerated() ) {
+			System.out.println( "no generated accessor for Customer, compile with ViewablePropertyProcessor." );
+		}
+
+		long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+		for( int iteration = 0; iteration < Iterations; iteration++ ) {
+			best[ 0 ] = Math.min( best[ 0 ], reflective( customers, fields ) );
+			best[ 1 ] = Math.min( best[ 1 ], accessors( customers, accessors ) );
+			best[ 2 ] = Math.min( best[ 2 ], generated( customers, generated ) );
+			best[ 3 ] = Math.min( best[ 3 ], getters( customers ) );
+		}
+		double cells = (double)Rounds * n * Fields.length;
+		System.out.println( "Customers: " + n + ", fields: " + Fields.length );
+		System.out.println( String.format( "Field.get %.1f ns, FieldAccessor %.1f ns, generated %.1f ns, getters %.1f ns per cell%s",
+			best[ 0 ] / cells, best[ 1 ] / cells, best[ 2 ] / cells, best[ 3 ] / cells, sink == 0? "!" : "" ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static long reflective( final List<Customer> customers, final Field[] fields ) throws IllegalAccessException {
+		long t0 = System.nanoTime();
+		for( int r = 0; r < Rounds; r++ ) {
+			for( Customer c : customers ) {
+				for( Field f : fields ) {
+					sink += f.get( c ).hashCode();
+				}
+			}
+		}
+		return System.nanoTime() - t0;
+	}
+
+	private static long accessors( final List<Customer> customers, final FieldAccessor[] accessors ) {
+		long t0 = System.nanoTime();
+		for( int r = 0; r < Rounds; r++ ) {
+			for( Customer c : customers ) {
+				for( FieldAccessor a : accessors ) {
+					sink += a.get( c ).hashCode();
+				}
+			}
+		}
+		return System.nanoTime() - t0;
+	}
+
+	private static long generated( final List<Customer> customers, final EntityClassMetadata.PropertyMetadata[] properties ) {
+		long t0 = System.nanoTime();
+		for( int r = 0; r < Rounds; r++ ) {
+			for( Customer c : customers ) {
+				for( EntityClassMetadata.PropertyMetadata p : properties ) {
+					sink += p.get( c ).hashCode();
+				}
+			}
+		}
+		return System.nanoTime() - t0;
+	}
+
+	private static long getters( final List<Customer> customers ) {
+		long t0 = System.nanoTime();
+		for( int r = 0; r < Rounds; r++ ) {
+			for( Customer c : customers ) {
+				sink += c.getId().hashCode() + c.getName().hashCode() + c.getAddress().hashCode() +
+					c.getStatus().hashCode() + c.getCreationDate().hashCode();
+			}
+		}
+		return System.nanoTime() - t0;
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.application.se2.misc;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * Benchmark that issues timestamps from a number of threads contending for one
+ * clock. Compared are the lock-free HybridLogicalClock, a clock that serializes
+ * callers with a lock and the former unsynchronized "last + 1" scheme of Note.
+ * Reported are throughput and the number of duplicate and out-of-order timestamps.
+ *
+ * Not a unit test, run with: java -cp ... HybridLogicalClockBenchmark [threads] [timestamps per thread]
+ *
+ * @author sgra64
+ *
+ */
+public class HybridLogicalClockBenchmark {
+	private static final int Rounds = 5;
+
+
+	public static void main( final String[] args ) throws InterruptedException {
+		int threads = args.length > 0? Integer.parseInt( args[ 0 ] ) : 32;
+		int n = args.length > 1? Integer.parseInt( args[ 1 ] ) : 200_000;
+
+		System.out.println( "Threads: " + threads + ", timestamps per thread: " + n );
+		for( int round = 0; round < Rounds; round++ ) {
+			HybridLogicalClock hlc = new HybridLogicalClock( 0 );
+			run( "hybrid logical clock", threads, n, () -> hlc.now() );
+
+			LockedClock locked = new LockedClock();
+			run( "synchronized clock  ", threads, n, () -> locked.next() );
+
+			UnsafeClock unsafe = new UnsafeClock();
+			run( "unsynchronized clock", threads, n, () -> unsafe.next() );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Clock {
+		long next();
+	}
+
+	private static final class LockedClock {
+		private long last = 0L;
+
+		private synchronized long next() {
+			last = Math.max( System.currentTimeMillis(), last + 1 );
+			return last;
+		}
+	}
+
+	/*
+	 * Former Note.nextUniqueTimeStamp() without Date allocations.
+	 */
+	private static final class UnsafeClock {
+		private long last = 0L;
+
+		private long next() {
+			long now = System.currentTimeMillis();
+			if( now <= last ) {
+				now = ++last;
+			} else {
+				last = now;
+			}
+			return now;
+		}
+	}
+
+	private static void run( final String label, final int threads, final int n, final Clock clock ) throws InterruptedException {
+		long[][] issued = new long[ threads ][ n ];
+		CountDownLatch start = new CountDownLatch( 1 );
+		Thread[] workers = new Thread[ threads ];
+		for( int t = 0; t < threads; t++ ) {
+			long[] ts = issued[ t ];
+			workers[ t ] = new Thread( () -> {
+				try {
+					start.await();
+
+				} catch( InterruptedException e ) {
+					return;
+				}
+				for( int i = 0; i < n; i++ ) {
+					ts[ i ] = clock.next();
+				}
+			});
+			workers[ t ].start();
+		}
+		long t0 = System.nanoTime();
+		start.countDown();
+		for( Thread worker : workers ) {
+			worker.join();
+		}
+		long nanos = System.nanoTime() - t0;
+
+		long outOfOrder = 0;
+		Set<Long> unique = new HashSet<Long>( threads * n * 2 );
+		for( long[] ts : issued ) {
+			for( int i = 0; i < n; i++ ) {
+				if( i > 0 && ts[ i ] <= ts[ i - 1 ] ) {
+					outOfOrder++;
+				}
+				unique.add( ts[ i ] );
+			}
+		}
+		long total = (long)threads * n;
+		System.out.println( label + ": " + ( total * 1000 / Math.max( 1, nanos / 1000 ) ) + " timestamps/ms" +
+			", " + ( nanos / total ) + " ns/timestamp" +
+			", duplicates=" + ( total - unique.size() ) + ", out-of-order=" + outOfOrder );
+	}
+
+}
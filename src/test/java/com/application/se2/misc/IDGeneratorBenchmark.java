@@ -0,0 +1,50 @@
+package com.application.se2.misc;
+
+
+/**
+ * Benchmark that generates ids from a number of threads sharing one IDGenerator
+ * and reports the throughput in ids per second.
+ *
+ * Not a unit test, run with: java -cp ... IDGeneratorBenchmark [threads] [ids per thread]
+ *
+ * @author sgra64
+ *
+ */
+public class IDGeneratorBenchmark {
+	private static final int Rounds = 5;
+
+
+	public static void main( final String[] args ) throws InterruptedException {
+		int threads = args.length > 0? Integer.parseInt( args[ 0 ] ) : Runtime.getRuntime().availableProcessors();
+		int n = args.length > 1? Integer.parseInt( args[ 1 ] ) : 10_000_000;
+
+		System.out.println( "Threads: " + threads + ", ids per thread: " + n );
+		for( int round = 0; round < Rounds; round++ ) {
+			IDGenerator generator = new IDGenerator( "P", IDGenerator.IDTYPE.NUM, 12 );
+			long[] sinks = new long[ threads ];
+			Thread[] workers = new Thread[ threads ];
+			for( int t = 0; t < threads; t++ ) {
+				int k = t;
+				workers[ t ] = new Thread( () -> {
+					long sink = 0;
+					for( int i = 0; i < n; i++ ) {
+						sink += generator.nextId().charAt( 5 );
+					}
+					sinks[ k ] = sink;
+				});
+			}
+			long t0 = System.nanoTime();
+			for( Thread worker : workers ) {
+				worker.start();
+			}
+			for( Thread worker : workers ) {
+				worker.join();
+			}
+			long nanos = System.nanoTime() - t0;
+			long total = (long)threads * n;
+			System.out.println( "round " + round + ": " + ( total * 1_000_000_000L / nanos / 1000 ) + "k ids/s" +
+				( sinks[ 0 ] < 0? "!" : "" ) );
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator.LoggerOverflow;
+import com.application.se2.AppConfigurator.LoggerParams;
+import com.application.se2.AppConfigurator.LoggerTopics;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning the asynchronous log writer: entries of concurrent
+ * logging threads, rotation of the log file, dropping of entries when the
+ * buffer is full, rendering of templates and enabled and sampled topics.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_AsyncLogWriter {
+	private static final int Threads = 4;
+
+	@Test
+	public void concurrentWritersTest() throws Exception {
+		Path dir = Files.createTempDirectory( "log" );
+		AsyncLogWriter writer = new AsyncLogWriter( dir.resolve( "test.log" ), 64, Long.MAX_VALUE, 1, LoggerOverflow.Block );
+		produce( writer, 5000 );
+		assertTrue( writer.flush( 5000 ) );
+		List<String> lines = lines( dir, "test.log" );
+		assertEquals( Threads * 5000, lines.size() );
+		assertEquals( 0, writer.dropped() );
+		for( int t = 0; t < Threads; t++ ) {		// entries of a thread are written in order
+			String prefix = "INFO  T" + t + ":";
+			List<String> msgs = lines.stream().filter( l -> l.contains( prefix ) ).collect( Collectors.toList() );
+			for( int i = 0; i < msgs.size(); i++ ) {
+				assertTrue( msgs.get( i ).endsWith( prefix + "message " + i ) );
+			}
+		}
+		writer.close();
+		assertFalse( writer.append( "INFO", "T0", "after close" ) );
+	}
+
+	@Test
+	public void rotationTest() throws Exception {
+		Path dir = Files.createTempDirectory( "log" );
+		AsyncLogWriter writer = new AsyncLogWriter( dir.resolve( "test.log" ), 64, 4096, 2, LoggerOverflow.Block );
+		for( int i = 0; i < 500; i++ ) {
+			writer.append( "INFO", "T0", "message " + i );
+			if( i % 50 == 0 ) {
+				writer.flush( 5000 );
+			}
+		}
+		writer.close();
+		assertTrue( Files.size( dir.resolve( "test.log" ) ) <= 4096 );
+		assertTrue( Files.exists( dir.resolve( "test.log.1" ) ) );
+		assertTrue( Files.exists( dir.resolve( "test.log.2" ) ) );
+		assertFalse( Files.exists( dir.resolve( "test.log.3" ) ) );
+		List<String> last = lines( dir, "test.log" );
+		assertTrue( last.get( last.size() - 1 ).endsWith( "message 499" ) );
+	}
+
+	@Test
+	public void dropTest() throws Exception {
+		Path dir = Files.createTempDirectory( "log" );
+		AsyncLogWriter writer = new AsyncLogWriter( dir.resolve( "test.log" ), 4, Long.MAX_VALUE, 1, LoggerOverflow.Drop );
+		produce( writer, 20000 );
+		writer.close();
+		long written = lines( dir, "test.log" ).stream().filter( l -> l.contains( ":message " ) ).count();
+		assertEquals( Threads * 20000, written + writer.dropped() );
+	}
+
+	@Test
+	public void templateTest() throws Exception {
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		assertEquals( "Update Customer: C001", render( "Update {}: {}", "Customer", c ) );
+		assertEquals( "Update Customer: C001", render( "Update ", "Customer", ": ", new Traceable( c ) ) );	// appended
+		assertEquals( "a {} b", render( "a {} b" ) );
+		assertEquals( "null", render( null, (Object)null ) );
+		assertEquals( "x=1, n=42, y=2", AsyncLogWriter.render( new StringBuilder(), "x={}, n={}, y={}",
+			new Object[] { 1, 2 }, 42L, 1 ).toString() );
+
+		Path dir = Files.createTempDirectory( "log" );
+		AsyncLogWriter writer = new AsyncLogWriter( dir.resolve( "test.log" ), 64, Long.MAX_VALUE, 1, LoggerOverflow.Block );
+		writer.append( "INFO", "T0", "loaded {} entities of {}", new Object[] { "Customer" }, 1000L, 0 );
+		writer.close();
+		assertTrue( lines( dir, "test.log" ).get( 0 ).endsWith( "INFO  T0:loaded 1000 entities of Customer" ) );
+	}
+
+	@Test
+	public void topicsTest() throws Exception {
+		assertTrue( Logger.isEnabled( LoggerTopics.EntityCRUD ) );
+		assertFalse( Logger.isEnabled( LoggerTopics.RepositoryLoaded ) );
+		Logger.setEnabled( LoggerTopics.RepositoryLoaded, true );
+		assertTrue( Logger.isEnabled( LoggerTopics.RepositoryLoaded ) );
+		assertTrue( Logger.isEnabled( LoggerTopics.EntityCRUD ) );
+		Logger.setEnabled( LoggerTopics.RepositoryLoaded, false );
+		assertFalse( Logger.isEnabled( LoggerTopics.RepositoryLoaded ) );
+
+		LoggerImpl.Sampler sampler = new LoggerImpl.Sampler( LoggerTopics.RepositoryLoaded );
+		int admitted = 0;
+		for( int i = 0; i < 10_000; i++ ) {
+			admitted += sampler.admit( null )? 1 : 0;
+		}
+		assertTrue( admitted >= LoggerParams.LogSampleThreshold );		// all entries up to threshold, then fewer
+		assertTrue( admitted < 10_000 / 4 );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String render( final String template, final Object... args ) {
+		return AsyncLogWriter.render( new StringBuilder(), template, args, 0L, -1 ).toString();
+	}
+
+	private static void produce( final AsyncLogWriter writer, final int n ) throws InterruptedException {
+		List<Thread> threads = new ArrayList<Thread>();
+		for( int t = 0; t < Threads; t++ ) {
+			String source = "T" + t;
+			threads.add( new Thread( () -> {
+				for( int i = 0; i < n; i++ ) {
+					writer.append( "INFO", source, "message " + i );
+				}
+			}));
+		}
+		threads.forEach( Thread::start );
+		for( Thread t : threads ) {
+			t.join();
+		}
+	}
+
+	private static List<String> lines( final Path dir, final String name ) throws IOException {
+		return Files.readAllLines( dir.resolve( name ), StandardCharsets.UTF_8 );
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+/**
+ * Unit tests concerning thread-safe date formatting and parsing.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_DateFormats {
+	private static final long From = -2_208_988_800_000L;		// 1900-01-01
+	private static final long To = 4_102_444_800_000L;			// 2100-01-01
+
+	@Test
+	public void fastPathTest() {
+		Random random = new Random( 42 );
+		for( String pattern : new String[] { DateFormats.DF_dd_MM_yyyy_HH_mm_ss, DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS } ) {
+			DateTimeFormatter formatter = DateFormats.getFormatter( pattern );
+			long millis = From;
+			for( int i = 0; i < 100_000; i++ ) {
+				millis = i % 2 == 0? From + (long)( random.nextDouble() * ( To - From ) ) : millis + random.nextInt( 3_600_000 );
+				assertEquals( formatter.format( Instant.ofEpochMilli( millis ) ), DateFormats.format( millis, pattern ) );
+			}
+		}
+		assertEquals( DateFormats.format( 0L, DateFormats.DF_dd_MM_yyyy_HH_mm_ss ), DateFormats.format( new Date( 0L ), null ) );
+	}
+
+	@Test
+	public void concurrentFormatTest() throws InterruptedException {
+		AtomicInteger errors = new AtomicInteger();
+		Thread[] workers = new Thread[ 8 ];
+		for( int t = 0; t < workers.length; t++ ) {
+			long seed = t;
+			workers[ t ] = new Thread( () -> {
+				Random random = new Random( seed );
+				DateTimeFormatter formatter = DateFormats.getFormatter( DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS );
+				for( int i = 0; i < 50_000; i++ ) {
+					long millis = From + (long)( random.nextDouble() * ( To - From ) );
+					String s = DateFormats.format( millis, DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS );
+					if( ! s.equals( formatter.format( Instant.ofEpochMilli( millis ) ) ) ) {
+						errors.incrementAndGet();
+					}
+				}
+			});
+			workers[ t ].start();
+		}
+		for( Thread worker : workers ) {
+			worker.join();
+		}
+		assertEquals( 0, errors.get() );
+	}
+
+	@Test
+	public void parseTest() throws ParseException {
+		Date date = DateFormats.parse( "2018-04-02, 10:16:24.868", DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS );
+		assertEquals( "2018-04-02, 10:16:24.868", DateFormats.format( date, DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS ) );
+		assertEquals( "16.06.2019, 21:25:36", DateFormats.format( DateFormats.parse( "16.06.2019, 21:25:36 trailing", null ), null ) );
+		assertEquals( "02.04.2018, 00:00:00", DateFormats.format( DateFormats.parse( "02.04.2018", "dd.MM.yyyy" ), null ) );
+		assertEquals( "05.06.2019, 09:04:05", DateFormats.format( DateFormats.parse( "5.6.2019, 9:4:5", null ), null ) );
+		assertEquals( "2019-06-05, 09:04:05.007", DateFormats.format(
+			DateFormats.parse( "2019-6-5, 9:4:5.7", DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS ), DateFormats.DF_yyyy_MM_dd_HH_mm_ss_SSS ) );
+		assertTrue( DateFormats.getFormatter( "dd-MMM-yyyy HH:mm" ) == DateFormats.getFormatter( "dd-MMM-yyyy HH:mm" ) );
+		try {
+			DateFormats.parse( "2018-04-02", null );
+			fail( "parsed date not matching pattern" );
+
+		} catch( ParseException e ) {
+		}
+	}
+
+}
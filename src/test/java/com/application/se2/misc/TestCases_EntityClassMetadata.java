@@ -0,0 +1,59 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning shared metadata of Entity classes.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_EntityClassMetadata {
+
+	@Test
+	public void metadataTest() throws Exception {
+		EntityClassMetadata metadata = EntityClassMetadata.of( Customer.class );
+		assertSame( metadata, EntityClassMetadata.of( Customer.class ) );
+		assertSame( metadata.findProperty( "name" ).get(), EntityClassMetadata.of( Customer.class.getDeclaredField( "name" ) ) );
+		assertSame( EntityClassMetadata.pattern( "na.*" ), EntityClassMetadata.pattern( "na.*" ) );
+
+		EntityClassMetadata.PropertyMetadata status = metadata.findProperty( "st.*" ).get();
+		assertEquals( "status", status.getName() );
+		assertTrue( status.isAlterableBaseType() );
+		assertFalse( status.isCollectionType() );
+		assertTrue( metadata.findProperty( "contacts" ).get().isCollectionType() );
+		assertFalse( metadata.findProperty( "contacts" ).get().isAlterableBaseType() );
+		assertFalse( metadata.findProperty( "unknown" ).isPresent() );
+	}
+
+	@Test
+	public void sharedByAccessorsTest() throws Exception {
+		EntityPropertyAccessor view = new EntityPropertyAccessor( Customer.class );
+		EntityPropertyAccessor popup = new EntityPropertyAccessor( Customer.class );
+		EntityProperty name = view.addProperty( "name" );
+		assertSame( name, view.addProperty( "n.me" ) );		// known property matched by pattern
+		EntityProperty popupName = popup.addProperty( "name" );
+		assertTrue( name != popupName );
+
+		view.addConfig( "name", "label:", "Name" );
+		assertEquals( "Name", name.getConfig( "label:" ) );
+		assertNull( popupName.getConfig( "label:" ) );		// configs are per view
+		assertNull( view.addProperty( "unknown" ) );
+		assertEquals( 1, view.size() );
+
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		assertEquals( "Eric Meyer", popup.getPropertyValue( c, 0 ) );
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator.Table;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning conversion of String values set through EntityProperty.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_EntityProperty {
+
+	@SuppressWarnings("unused")
+	private static class Sample {
+		private int count = 0;
+		private Double rate = null;
+		private boolean active = false;
+		private char grade = ' ';
+	}
+
+	@Test
+	public void baseTypeTest() throws Exception {
+		Sample s = new Sample();
+		property( Sample.class, "count" ).setValue( s, "42" );
+		property( Sample.class, "rate" ).setValue( s, "0.25" );
+		property( Sample.class, "active" ).setValue( s, "true" );
+		property( Sample.class, "grade" ).setValue( s, "B+" );
+		assertEquals( 42, s.count );
+		assertEquals( 0.25, s.rate, 0.0 );
+		assertEquals( true, s.active );
+		assertEquals( 'B', s.grade );
+
+		property( Sample.class, "count" ).setValue( s, 7 );		// only String values are converted and set
+		assertEquals( 42, s.count );
+	}
+
+	@Test
+	public void enumTest() throws Exception {
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		EntityProperty status = property( Customer.class, "status" );
+		status.setValue( c, "susp" );
+		assertEquals( Customer.Status.SUSP, c.getStatus() );
+		status.setValue( c, "T" );		// first constant containing "T": ACT
+		assertEquals( Customer.Status.ACT, c.getStatus() );
+		status.setValue( c, "unknown" );	// no matching constant, unchanged
+		assertEquals( Customer.Status.ACT, c.getStatus() );
+	}
+
+	@Test
+	public void dateTest() throws Exception {
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		EntityProperty created = property( Customer.class, "created" );
+		created.putConfig( Table.Column.DATEFMT, "yyyy-MM-dd" );
+		created.setValue( c, "2019-06-16" );
+		assertEquals( DateFormats.parse( "2019-06-16", "yyyy-MM-dd" ), c.getCreationDate() );
+		assertEquals( "2019-06-16", created.getValue( c ) );
+
+		created.setValue( c, "16.06.2018" );		// does not match pattern, unchanged
+		assertEquals( "2019-06-16", created.getValue( c ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static EntityProperty property( final Class<?> clazz, final String name ) throws NoSuchFieldException {
+		return new EntityProperty( clazz.getDeclaredField( name ) );
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning recording, merging, encoding and applying of updates
+ * in EntityPropertyUpdateSets.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_EntityPropertyUpdateSet {
+
+	@Test
+	public void recordTest() throws Exception {
+		Customer c = customer();
+		EntityPropertyUpdateSet updates = form( c );
+		assertFalse( updates.isAltered() );
+		updates.after( 1, " Lindenweg 1 " );	// compared and recorded trimmed
+		updates.after( 2, "susp" );
+		assertTrue( updates.isAltered() );
+		assertEquals( Arrays.asList( "address", "status" ), new ArrayList<String>( updates.getUpdatedPropertyNames() ) );
+		assertEquals( Arrays.asList( "address:Lindenweg 1", "status:susp" ), updated( updates ) );
+
+		updates.after( 2, "ACT" );		// reverted to original value
+		assertEquals( Arrays.asList( "address:Lindenweg 1" ), updated( updates ) );
+		updates.after( 7, "ignored" );	// no such slot
+
+		updates.apply( c );
+		assertEquals( "Lindenweg 1", c.getAddress() );
+		assertEquals( Customer.Status.ACT, c.getStatus() );
+	}
+
+	@Test
+	public void mergeTest() throws Exception {
+		Customer c = customer();
+		EntityPropertyUpdateSet first = form( c );
+		first.after( 0, "Anne Meyer" );
+		first.after( 2, "SUSP" );
+
+		EntityPropertyUpdateSet second = new EntityPropertyUpdateSet( new Traceable( c ), 2 );
+		second.before( property( "status" ), "SUSP" );
+		second.before( property( "name" ), "Anne Meyer" );
+		second.after( 0, "ACT" );		// back to original status of first update
+		second.after( 1, "Anne Bayer" );
+
+		EntityPropertyUpdateSet third = new EntityPropertyUpdateSet( new Traceable( c ), 1 );
+		third.before( property( "created" ), "" );
+		third.after( 0, "2019-06-16" );
+
+		first.merge( second ).merge( third );
+		assertEquals( Arrays.asList( "name:Anne Bayer", "created:2019-06-16" ), updated( first ) );
+		assertTrue( fails( () -> first.merge( form( customer() ) ) ) );
+	}
+
+	@Test
+	public void nestedMergeTest() throws Exception {
+		Customer c = customer();
+		Traceable customer = new Traceable( c );
+		Traceable contact1 = new Traceable( new StringProperty( "eric@meyer.de" ), customer, property( "contacts" ) );
+		Traceable contact2 = new Traceable( new StringProperty( "eric@gmail.com" ), customer, property( "contacts" ) );
+
+		EntityPropertyUpdateSet first = contact( contact1, "eric@meyer.de", "eric@meyer.com" );
+		first.merge( contact( contact2, "eric@gmail.com", "eric.meyer@gmail.com" ) );	// same property name "str"
+		assertEquals( Arrays.asList( "str:eric@meyer.com", "str:eric.meyer@gmail.com" ), updated( first ) );
+		assertEquals( Arrays.asList( "contacts" ), new ArrayList<String>( first.getUpdatedPropertyNames() ) );
+
+		first.merge( contact( contact1, "eric@meyer.com", "eric@meyer.de" ) );	// first contact reverted
+		assertEquals( Arrays.asList( "str:eric.meyer@gmail.com" ), updated( first ) );
+
+		EntityPropertyUpdateSet names = form( c );
+		names.after( 0, "Anne Meyer" );
+		names.merge( first );		// updates of the Customer and of a nested contact
+		assertEquals( Arrays.asList( "name:Anne Meyer", "str:eric.meyer@gmail.com" ), updated( names ) );
+		assertEquals( Arrays.asList( "name", "contacts" ), new ArrayList<String>( names.getUpdatedPropertyNames() ) );
+
+		Traceable other = new Traceable( new StringProperty( "eric@meyer.de" ), new Traceable( customer() ), property( "contacts" ) );
+		assertTrue( fails( () -> first.merge( contact( other, "eric@meyer.de", "x" ) ) ) );	// contact of another Customer
+	}
+
+	@Test
+	public void encodingTest() throws Exception {
+		Customer c = customer();
+		EntityPropertyUpdateSet updates = form( c );
+		updates.after( 0, "Anne Bayer" );
+		updates.after( 1, "Lindenweg 1" );
+
+		EntityPropertyUpdateSet decoded = EntityPropertyUpdateSet.fromBytes( updates.toBytes(), new Traceable( c ) );
+		assertEquals( updated( updates ), updated( decoded ) );
+		decoded.iterateUpdatedProperties( ( p, before, after ) -> {
+			assertEquals( p.getName().equals( "name" )? "Eric Meyer" : "", before );
+		});
+		decoded.apply( c );
+		assertEquals( "Anne Bayer", c.getName() );
+		assertEquals( "Lindenweg 1", c.getAddress() );
+
+		byte[] bytes = updates.toBytes();
+		bytes[ 0 ] = 9;		// unknown encoding version
+		assertTrue( fails( () -> EntityPropertyUpdateSet.fromBytes( bytes, new Traceable( c ) ) ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Access {
+		void run() throws Exception;
+	}
+
+	private static boolean fails( final Access access ) {
+		try {
+			access.run();
+			return false;
+
+		} catch( IOException | IllegalArgumentException e ) {
+			return true;
+
+		} catch( Exception e ) {
+			return false;
+		}
+	}
+
+	private static Customer customer() {
+		return new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+	}
+
+	private static EntityPropertyUpdateSet form( final Customer c ) throws NoSuchFieldException {
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( new Traceable( c ), 3 );
+		updates.before( property( "name" ), c.getName() );
+		updates.before( property( "address" ), c.getAddress() );
+		updates.before( property( "status" ), c.getStatus().name() );
+		return updates;
+	}
+
+	private static EntityProperty property( final String name ) throws NoSuchFieldException {
+		return new EntityProperty( Customer.class.getDeclaredField( name ) );
+	}
+
+	private static EntityPropertyUpdateSet contact( final Traceable contact, final String before, final String after )
+			throws NoSuchFieldException
+	{
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( contact, 1 );
+		updates.before( new EntityProperty( StringProperty.class.getDeclaredField( "str" ) ), before );
+		updates.after( 0, after );
+		return updates;
+	}
+
+	private static List<String> updated( final EntityPropertyUpdateSet updates ) {
+		List<String> res = new ArrayList<String>();
+		updates.iterateUpdatedProperties( ( p, before, after ) -> res.add( p.getName() + ":" + after ) );
+		return res;
+	}
+
+}
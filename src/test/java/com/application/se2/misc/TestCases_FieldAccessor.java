@@ -0,0 +1,85 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.application.se2.model.Article;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning field access through cached FieldAccessors.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_FieldAccessor {
+
+	@SuppressWarnings("unused")
+	private static class Sample {
+		private static final String Constant = "constant";
+		private static int counter = 0;
+		private int count = 1;
+		private final Date created = new Date( 0 );
+	}
+
+	@Test
+	public void getAndSetTest() throws Exception {
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		FieldAccessor name = FieldAccessor.of( Customer.class.getDeclaredField( "name" ) );
+		assertSame( name, FieldAccessor.of( Customer.class.getDeclaredField( "name" ) ) );
+		assertEquals( "Eric Meyer", name.get( c ) );
+		name.set( c, "Anne Bayer" );
+		assertEquals( "Anne Bayer", c.getName() );
+
+		Sample s = new Sample();
+		FieldAccessor count = FieldAccessor.of( Sample.class.getDeclaredField( "count" ) );
+		assertEquals( 1, count.get( s ) );
+		count.set( s, 7 );
+		assertEquals( 7, s.count );
+
+		FieldAccessor created = FieldAccessor.of( Sample.class.getDeclaredField( "created" ) );
+		created.set( s, new Date( 1000 ) );		// final instance fields are settable as with Field.set()
+		assertEquals( 1000, s.created.getTime() );
+
+		FieldAccessor counter = FieldAccessor.of( Sample.class.getDeclaredField( "counter" ) );
+		counter.set( null, 3 );
+		assertEquals( 3, counter.get( s ) );
+		assertEquals( "constant", FieldAccessor.of( Sample.class.getDeclaredField( "Constant" ) ).get( null ) );
+	}
+
+	@Test
+	public void illegalAccessTest() throws Exception {
+		FieldAccessor name = FieldAccessor.of( Customer.class.getDeclaredField( "name" ) );
+		FieldAccessor count = FieldAccessor.of( Sample.class.getDeclaredField( "count" ) );
+		assertTrue( fails( () -> name.get( new Article( "Canon", "1,00 EUR" ) ), IllegalArgumentException.class ) );
+		assertTrue( fails( () -> count.set( new Sample(), "7" ), IllegalArgumentException.class ) );
+		assertTrue( fails( () -> count.set( new Sample(), null ), IllegalArgumentException.class ) );
+		assertTrue( fails( () -> FieldAccessor.of( Sample.class.getDeclaredField( "Constant" ) ).set( null, "x" ), IllegalAccessException.class ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Access {
+		void run() throws Exception;
+	}
+
+	private static boolean fails( final Access access, final Class<? extends Exception> expected ) {
+		try {
+			access.run();
+			return false;
+
+		} catch( Exception e ) {
+			return expected.isInstance( e );
+		}
+	}
+
+}
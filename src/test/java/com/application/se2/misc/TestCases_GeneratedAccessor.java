@@ -0,0 +1,111 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.application.se2.model.Article;
+import com.application.se2.model.Customer;
+import com.application.se2.model.Note;
+
+
+/**
+ * Unit tests concerning access of ViewableProperty fields through accessors
+ * generated at compile time and the fallback to FieldAccessor.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_GeneratedAccessor {
+
+	@SuppressWarnings("unused")
+	private static class Sample {
+		private int count = 1;
+		private Set<String> tags = new HashSet<String>( Arrays.asList( "a" ) );
+	}
+
+	@Test
+	public void generatedTest() throws Exception {
+		for( Class<?> clazz : new Class<?>[] { Customer.class, Article.class, Note.class, StringProperty.class } ) {
+			assertTrue( clazz.getSimpleName(), EntityClassMetadata.of( clazz ).hasGeneratedAccessor() );
+		}
+		EntityClassMetadata metadata = EntityClassMetadata.of( Customer.class );
+		assertTrue( property( metadata, "created" ).isGenerated() );
+		assertFalse( property( metadata, "serialVersionUID" ).isGenerated() );	// not a ViewableProperty
+
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) ).addContact( "eric@gmail.com" );
+		assertEquals( "Eric Meyer", property( metadata, "name" ).get( c ) );
+		assertEquals( new Date( 0 ), property( metadata, "created" ).get( c ) );
+		assertEquals( "ACT", property( metadata, "status" ).getString( c ) );
+		assertEquals( "", property( metadata, "address" ).getString( c ) );
+		assertSame( c.getContacts(), property( metadata, "contacts" ).getList( c ) );
+		assertNull( property( metadata, "name" ).getList( c ) );
+
+		property( metadata, "name" ).set( c, "Anne Bayer" );
+		property( metadata, "status" ).set( c, Customer.Status.SUSP );
+		assertEquals( "Anne Bayer", c.getName() );
+		assertEquals( Customer.Status.SUSP, c.getStatus() );
+
+		Note n = new Note( 42L, "text" );
+		EntityClassMetadata notes = EntityClassMetadata.of( Note.class );
+		assertEquals( "42", property( notes, "timeStamp" ).getString( n ) );
+		property( notes, "noteText" ).set( n, "changed" );
+		assertEquals( "changed", n.getText() );
+		property( notes, "timeStamp" ).set( n, 7L );		// no setter, set through FieldAccessor
+		assertEquals( 7L, n.getHybridTimeStamp() );
+	}
+
+	@Test
+	public void fallbackTest() throws Exception {
+		EntityClassMetadata metadata = EntityClassMetadata.of( Sample.class );
+		assertFalse( metadata.hasGeneratedAccessor() );
+		Sample s = new Sample();
+		property( metadata, "count" ).set( s, 3 );
+		assertEquals( "3", property( metadata, "count" ).getString( s ) );
+		assertEquals( Arrays.asList( "a" ), property( metadata, "tags" ).getList( s ) );	// Set copied to List
+	}
+
+	@Test
+	public void illegalAccessTest() throws Exception {
+		EntityClassMetadata.PropertyMetadata name = property( EntityClassMetadata.of( Customer.class ), "name" );
+		EntityClassMetadata.PropertyMetadata timeStamp = property( EntityClassMetadata.of( Note.class ), "timeStamp" );
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 0 ) );
+		assertTrue( fails( () -> name.get( new Article( "Canon", "1,00 EUR" ) ) ) );
+		assertTrue( fails( () -> name.set( c, 7 ) ) );
+		assertTrue( fails( () -> timeStamp.set( new Note( 1L, "" ), null ) ) );
+		assertEquals( "Eric Meyer", c.getName() );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Access {
+		void run() throws Exception;
+	}
+
+	private static boolean fails( final Access access ) {
+		try {
+			access.run();
+			return false;
+
+		} catch( Exception e ) {
+			return e instanceof IllegalArgumentException;
+		}
+	}
+
+	private static EntityClassMetadata.PropertyMetadata property( final EntityClassMetadata metadata, final String name ) {
+		return metadata.findProperty( name ).get();
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.application.se2.AppConfigurator;
+import com.application.se2.model.Note;
+
+
+/**
+ * Unit tests concerning the hybrid logical clock that issues Note timeStamps.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_HybridLogicalClock {
+
+	@Test
+	public void concurrentTimestampsTest() throws InterruptedException {
+		HybridLogicalClock clock = new HybridLogicalClock( 3 );
+		int threads = 8;
+		int n = 20_000;
+		long[][] issued = new long[ threads ][ n ];
+		Thread[] workers = new Thread[ threads ];
+		for( int t = 0; t < threads; t++ ) {
+			long[] ts = issued[ t ];
+			workers[ t ] = new Thread( () -> {
+				for( int i = 0; i < n; i++ ) {
+					ts[ i ] = clock.now();
+				}
+			});
+			workers[ t ].start();
+		}
+		for( Thread worker : workers ) {
+			worker.join();
+		}
+		Set<Long> unique = new HashSet<Long>();
+		for( long[] ts : issued ) {
+			for( int i = 0; i < n; i++ ) {
+				assertTrue( i == 0 || ts[ i ] > ts[ i - 1 ] );		// ordered within each thread
+				assertEquals( 3, HybridLogicalClock.node( ts[ i ] ) );
+				unique.add( ts[ i ] );
+			}
+		}
+		assertEquals( threads * n, unique.size() );
+	}
+
+	@Test
+	public void observeRemoteTest() {
+		HybridLogicalClock node1 = new HybridLogicalClock( 1 );
+		HybridLogicalClock node2 = new HybridLogicalClock( 2 );
+		long remote = node1.now() + HybridLogicalClock.fromMillis( 60_000 );		// node 1 runs a minute ahead
+		node2.observe( remote );
+		long local = node2.now();
+		assertTrue( local > remote );
+		assertEquals( 2, HybridLogicalClock.node( local ) );
+		assertTrue( Math.abs( HybridLogicalClock.toMillis( local ) - System.currentTimeMillis() - 60_000 ) < 1_000 );
+	}
+
+	@Test
+	public void noteTimeStampTest() {
+		Note n1 = new Note( "first" );
+		Note n2 = new Note( "second" );
+		assertTrue( n2.getHybridTimeStamp() > n1.getHybridTimeStamp() );
+		assertTrue( Math.abs( n1.getTimeStamp().getTime() - System.currentTimeMillis() ) < 1_000 );
+
+		Note n3 = new Note( "2018-04-02, 10:16:24.868;; parsed" );
+		assertEquals( "parsed", n3.getText() );
+		assertEquals( 868, n3.getTimeStamp().getTime() % 1000 );
+	}
+
+	@Test
+	public void noteViewTest() throws Exception {
+		EntityProperty timeStamp = new EntityProperty( Note.class.getDeclaredField( "timeStamp" ) );
+		timeStamp.putConfig( AppConfigurator.Table.Column.DATEFMT, "dd-MMM-yyyy HH:mm" );	// as in the Notes view
+		Note note = new Note( "2018-04-02, 10:16:24.868;; text" );
+		String shown = new SimpleDateFormat( "dd-MMM-yyyy HH:mm" ).format( note.getTimeStamp() );
+		assertEquals( shown, timeStamp.getValue( note ) );		// clock value is shown as Date
+		assertEquals( null, timeStamp.getValue( new Note( 0L, "no timeStamp" ) ) );
+
+		timeStamp.setValue( note, "03-Apr-2018 11:00" );
+		assertEquals( "03-Apr-2018 11:00", timeStamp.getValue( note ) );
+		assertEquals( 0, HybridLogicalClock.logical( note.getHybridTimeStamp() ) );
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.application.se2.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+
+/**
+ * Unit tests concerning the collision-free IDGenerator.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_IDGenerator {
+
+	@Test
+	public void exhaustIdSpaceTest() {
+		IDGenerator generator = new IDGenerator( "K", IDGenerator.IDTYPE.NUM, 4 );
+		Set<String> ids = new HashSet<String>();
+		for( int i = 0; i < 10_000; i++ ) {
+			String id = generator.nextId();
+			assertTrue( id.matches( "K[0-9]{4}" ) );
+			assertTrue( "duplicate: " + id, ids.add( id ) );
+		}
+		try {
+			generator.nextId();
+			fail( "id space not exhausted" );
+
+		} catch( IllegalStateException e ) {
+		}
+	}
+
+	@Test
+	public void concurrentIdsTest() throws InterruptedException {
+		IDGenerator generator = new IDGenerator( "C.", IDGenerator.IDTYPE.AIRLINE, 6 );
+		Set<String> ids = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+		Thread[] workers = new Thread[ 8 ];
+		for( int t = 0; t < workers.length; t++ ) {
+			workers[ t ] = new Thread( () -> {
+				for( int i = 0; i < 50_000; i++ ) {
+					ids.add( generator.nextId() );
+				}
+			});
+			workers[ t ].start();
+		}
+		for( Thread worker : workers ) {
+			worker.join();
+		}
+		assertEquals( 8 * 50_000, ids.size() );
+	}
+
+	@Test
+	public void highWaterMarkTest() throws Exception {
+		Path dir = Files.createTempDirectory( "se2-ids" );
+		IDGenerator.setHighWaterMarkDirectory( dir );
+		try {
+			Set<String> ids = new HashSet<String>();
+			IDGenerator generator = new IDGenerator( "T", IDGenerator.IDTYPE.HEX, 8 );
+			for( int i = 0; i < 1_000; i++ ) {
+				ids.add( generator.nextId() );
+			}
+			IDGenerator restarted = new IDGenerator( "T", IDGenerator.IDTYPE.HEX, 8 );		// same id space after restart
+			for( int i = 0; i < 1_000; i++ ) {
+				assertTrue( ids.add( restarted.nextId() ) );
+			}
+		} finally {
+			IDGenerator.setHighWaterMarkDirectory( null );
+		}
+	}
+
+	@Test
+	public void observeTest() {
+		Set<String> ids = new HashSet<String>();
+		IDGenerator generator = new IDGenerator( "O", IDGenerator.IDTYPE.ALPHANUM, 5 );
+		for( int i = 0; i < 1_000; i++ ) {
+			ids.add( generator.nextId() );
+		}
+		IDGenerator restarted = new IDGenerator( "O", IDGenerator.IDTYPE.ALPHANUM, 5 );	// restart without high-water mark
+		restarted.nextId();
+		for( String id : ids ) {
+			IDGenerator.observe( id );		// e.g. ids imported from a snapshot
+		}
+		IDGenerator.observe( "O-----" );		// not an id of the generator's format
+		for( int i = 0; i < 1_000; i++ ) {
+			assertTrue( ids.add( restarted.nextId() ) );
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.application.se2.repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Benchmark that compares scans of Customers held as objects (SimpleRepositoryImpl,
+ * CustomerScan.test() per Customer) with scans over the columns of a
+ * ColumnarCustomerRepositoryImpl, e.g. counting SUSP Customers whose address
+ * contains "Berlin".
+ *
+ * Not a unit test, run with: java -Xmx2g -cp ... ColumnarCustomerBenchmark [customers]
+ *
+ * @author sgra64
+ *
+ */
+public class ColumnarCustomerBenchmark {
+	private static final int Rounds = 50;
+	private static final String[] Cities = { "10115 Berlin", "12167 Berlin-Steglitz", "79805 Aschaffenburg", "80331 Muenchen", "20095 Hamburg", "54260 Hagenow" };
+
+
+	public static void main( final String[] args ) {
+		int n = args.length > 0? Integer.parseInt( args[ 0 ] ) : 1_000_000;
+		Random random = new Random( 1 );
+		List<Customer> list = new ArrayList<Customer>( n );
+		for( int i = 0; i < n; i++ ) {
+			list.add( new Customer( String.format( "K%07d", i ), "Customer " + i, new Date( i ) )
+				.setAddress( "Lindenweg " + random.nextInt( 200 ) + ", " + Cities[ random.nextInt( Cities.length ) ] )
+				.setStatus( Customer.Status.values()[ random.nextInt( 3 ) ] ) );
+		}
+		ColumnarCustomerRepositoryImpl columnar = new ColumnarCustomerRepositoryImpl( n );
+		columnar.saveAll( list );
+		CustomerRepositoryIntf rows = new ObservedCustomerRepositoryImpl( new SimpleRepositoryImpl<Customer>( list ) );
+		list = null;
+
+		System.out.println( "Customers: " + n + ", threads: " + Runtime.getRuntime().availableProcessors() );
+		run( "status + address contains", rows, columnar, CustomerScan.where().status( Customer.Status.SUSP ).addressContains( "Berlin" ) );
+		run( "status + city contains   ", rows, columnar, CustomerScan.where().status( Customer.Status.SUSP ).cityContains( "Berlin" ) );
+		run( "created range            ", rows, columnar, CustomerScan.where().createdBetween( new Date( n / 4 ), new Date( n / 2 ) ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static void run( final String label, final CustomerRepositoryIntf rows, final ColumnarCustomerRepositoryImpl columnar, final CustomerScan scan ) {
+		long expected = rows.count( scan );
+		long t0 = System.nanoTime();
+		for( int i = 0; i < Rounds; i++ ) {
+			check( expected, rows.count( scan ) );
+		}
+		long t1 = System.nanoTime();
+		for( int i = 0; i < Rounds; i++ ) {
+			check( expected, columnar.count( scan ) );
+		}
+		long t2 = System.nanoTime();
+		System.out.println( label + ": matches=" + expected +
+			", rows " + ( t1 - t0 ) / Rounds / 1000 + " us" +
+			", columns " + ( t2 - t1 ) / Rounds / 1000 + " us per scan" );
+	}
+
+	private static void check( final long expected, final long count ) {
+		if( count != expected ) {
+			throw new IllegalStateException( "count " + count + " != " + expected );
+		}
+	}
+
+}
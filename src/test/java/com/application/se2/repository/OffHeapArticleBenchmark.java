@@ -0,0 +1,100 @@
+package com.application.se2.repository;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.application.se2.model.Article;
+
+
+/**
+ * Benchmark that compares garbage collection pauses with a large Article catalog
+ * held on the heap (SimpleRepositoryImpl) and off-heap (OffHeapArticleRepositoryImpl).
+ * Each run loads the catalog, then produces short-lived garbage and forces full
+ * collections while the catalog is live. Reported are GC counts and accumulated
+ * GC times as seen by the GarbageCollectorMXBeans.
+ *
+ * Not a unit test, run with: java -Xmx2g -cp ... OffHeapArticleBenchmark [articles]
+ *
+ * @author sgra64
+ *
+ */
+public class OffHeapArticleBenchmark {
+	private static final int FullCollections = 5;
+	private static final int GarbageRounds = 200;
+
+
+	public static void main( final String[] args ) {
+		int articles = args.length > 0? Integer.parseInt( args[ 0 ] ) : 2_000_000;
+
+		System.out.println( "Articles: " + articles );
+		run( "heap    ", () -> {
+			List<Article> list = new ArrayList<Article>( articles );
+			for( int i = 0; i < articles; i++ ) {
+				list.add( article( i ) );
+			}
+			return new SimpleRepositoryImpl<Article>( list );
+		});
+
+		run( "off-heap", () -> {
+			OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( articles );
+			for( int i = 0; i < articles; i++ ) {
+				repository.save( article( i ) );
+			}
+			return repository;
+		});
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private interface Loader {
+		RepositoryIntf<Article> load();
+	}
+
+	private static void run( final String label, final Loader loader ) {
+		System.gc();
+		RepositoryIntf<Article> repository = loader.load();
+
+		long[] before = gcStats();
+		long sink = 0;
+		for( int round = 0; round < GarbageRounds; round++ ) {
+			List<String> garbage = new ArrayList<String>();
+			for( int i = 0; i < 50_000; i++ ) {
+				garbage.add( "garbage-" + round + "-" + i );
+			}
+			sink += garbage.size();
+		}
+		long[] young = gcStats();
+
+		long t0 = System.nanoTime();
+		for( int i = 0; i < FullCollections; i++ ) {
+			System.gc();
+		}
+		long fullMs = ( System.nanoTime() - t0 ) / 1_000_000;
+		long[] after = gcStats();
+
+		System.out.println( label + ": count=" + repository.count() +
+			", churn GCs=" + ( young[ 0 ] - before[ 0 ] ) + " (" + ( young[ 1 ] - before[ 1 ] ) + " ms)" +
+			", " + FullCollections + " full GCs=" + ( after[ 1 ] - young[ 1 ] ) + " ms" +
+			" (wall " + fullMs + " ms)" + ( sink < 0? "!" : "" ) );
+	}
+
+	private static long[] gcStats() {
+		long count = 0;
+		long time = 0;
+		for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			count += Math.max( 0, gc.getCollectionCount() );
+			time += Math.max( 0, gc.getCollectionTime() );
+		}
+		return new long[] { count, time };
+	}
+
+	private static Article article( final int i ) {
+		return new Article( String.format( "P%08d", i ), "Canon Objektiv EF " + i + "mm f/1.8 STM", ( i % 20000 ) + ",00 EUR" );
+	}
+
+}
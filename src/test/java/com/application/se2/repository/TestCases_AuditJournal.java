@@ -0,0 +1,199 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.StringProperty;
+import com.application.se2.misc.Traceable;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning the audit journal of entity changes: recorded deltas,
+ * queries by time range and entity that only read relevant blocks, recovery
+ * of the journal when it is opened again and queries racing close().
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_AuditJournal {
+
+	@Test
+	public void recordTest() throws Exception {
+		AtomicLong clock = new AtomicLong( 1000 );
+		AuditJournal journal = new AuditJournal( Files.createTempDirectory( "audit" ).resolve( "audit.journal" ), "anne@0", 1024, () -> clock.get() );
+		ObservedRepositoryImpl<Customer> repository = repository();
+		repository.addListener( journal.listenerFor( Customer.class ), false );
+
+		Customer c = repository.save( new Customer( "C001", "Eric Meyer", new Date( 0 ) ).addContact( "eric@gmail.com" ) );
+		clock.set( 2000 );
+		EntityPropertyUpdateSet updates = update( c, "address", "", "Lindenweg 1" );
+		repository.save( c.setAddress( "Lindenweg 1" ), updates );
+		clock.set( 3000 );
+		EntityPropertyUpdateSet contact = new EntityPropertyUpdateSet(		// update of a contact nested in Customer
+			new Traceable( new StringProperty( "eric@gmail.com" ), new Traceable( c ), property( "contacts" ) ) );
+		contact.before( new EntityProperty( StringProperty.class.getDeclaredField( "str" ) ), "eric@gmail.com" );
+		contact.after( 0, "eric@yahoo.de" );
+		repository.save( c, contact );
+		clock.set( 500 );		// clock steps back
+		repository.deleteById( "C001" );
+
+		List<AuditJournal.Event> events = journal.query( Long.MIN_VALUE, Long.MAX_VALUE, "C001" );
+		assertEquals( Arrays.asList( AuditJournal.Op.CREATE, AuditJournal.Op.UPDATE, AuditJournal.Op.UPDATE, AuditJournal.Op.DELETE ),
+			events.stream().map( e -> e.getOp() ).collect( Collectors.toList() ) );
+		assertEquals( Customer.class.getName(), events.get( 0 ).getEntityClass() );
+		assertEquals( "anne@0", events.get( 1 ).getSession() );
+		assertEquals( Arrays.asList( "", "Lindenweg 1" ), Arrays.asList( events.get( 1 ).getDeltas().get( "address" ) ) );
+		assertEquals( "contacts", events.get( 2 ).getParentProperty() );
+		assertEquals( Arrays.asList( "eric@gmail.com", "eric@yahoo.de" ), Arrays.asList( events.get( 2 ).getDeltas().get( "str" ) ) );
+		assertTrue( events.get( 0 ).getDeltas().isEmpty() );
+		assertEquals( 3000, events.get( 3 ).getTimestamp() );
+		assertEquals( 3, journal.query( 2000, 3000 ).size() );	// delete recorded at 3000
+		journal.close();
+	}
+
+	@Test
+	public void rangeQueryTest() throws Exception {
+		AtomicLong clock = new AtomicLong( 0 );
+		AuditJournal journal = new AuditJournal( Files.createTempDirectory( "audit" ).resolve( "audit.journal" ), "s", 512, () -> clock.get() );
+		ObservedRepositoryImpl<Customer> repository = repository();
+		repository.addListener( journal.listenerFor( Customer.class ), false );
+		List<Customer> customers = new ArrayList<Customer>();
+		for( int i = 0; i < 100; i++ ) {
+			customers.add( repository.save( new Customer( String.format( "C%03d", i ), "Customer " + i, new Date( 0 ) ) ) );
+		}
+		for( int i = 0; i < 1000; i++ ) {		// customer i % 100 is updated at time 1000 + i
+			clock.set( 1000 + i );
+			Customer c = customers.get( i % 100 );
+			EntityPropertyUpdateSet updates = update( c, "name", c.getName(), "Name " + i );
+			repository.save( c.setName( "Name " + i ), updates );
+		}
+		assertEquals( 1100, journal.size() );
+		assertTrue( journal.blocks() > 50 );
+
+		List<AuditJournal.Event> events = journal.query( 1500, 1599, "C042" );
+		assertEquals( 1, events.size() );
+		assertEquals( "Name 542", events.get( 0 ).getDeltas().get( "name" )[ 1 ] );
+		assertTrue( journal.blocksRead() <= 2 );
+
+		assertEquals( 100, journal.query( 1500, 1599 ).size() );
+		assertEquals( 11, journal.query( Long.MIN_VALUE, Long.MAX_VALUE, "C007" ).size() );
+		assertEquals( 0, journal.query( 5000, 6000, "C007" ).size() );
+		journal.close();
+	}
+
+	@Test
+	public void recoveryTest() throws Exception {
+		Path path = Files.createTempDirectory( "audit" ).resolve( "audit.journal" );
+		AtomicLong clock = new AtomicLong( 1000 );
+		AuditJournal journal = new AuditJournal( path, "s1", 256, () -> clock.getAndIncrement() );
+		ObservedRepositoryImpl<Customer> repository = repository();
+		repository.addListener( journal.listenerFor( Customer.class ), false );
+		for( int i = 0; i < 20; i++ ) {
+			repository.save( new Customer( "C" + i, "Customer " + i, new Date( 0 ) ) );
+		}
+		int blocks = journal.blocks();
+		journal.close();
+
+		journal = new AuditJournal( path, "s2", 256, () -> clock.getAndIncrement() );	// all blocks indexed on close
+		assertEquals( blocks, journal.blocks() );
+		assertEquals( 20, journal.size() );
+		repository = repository();
+		repository.addListener( journal.listenerFor( Customer.class ), false );
+		repository.save( new Customer( "C20", "Customer 20", new Date( 0 ) ) );
+		Files.write( path, new byte[] { 0, 0, 0, 99, 1, 2 }, StandardOpenOption.APPEND );		// incomplete event
+		// journal is not closed as after a crash, its current block is not indexed
+
+		AuditJournal reopened = new AuditJournal( path, "s3", 256, () -> clock.getAndIncrement() );
+		assertEquals( 21, reopened.size() );
+		List<AuditJournal.Event> events = reopened.query( Long.MIN_VALUE, Long.MAX_VALUE );
+		assertEquals( "s2", events.get( 20 ).getSession() );
+		assertEquals( "C20", events.get( 20 ).getId() );
+		assertEquals( 1, reopened.query( Long.MIN_VALUE, Long.MAX_VALUE, "C7" ).size() );
+		reopened.close();
+	}
+
+
+	@Test
+	public void closeTest() throws Exception {
+		AtomicLong clock = new AtomicLong( 0 );
+		AuditJournal journal = new AuditJournal( Files.createTempDirectory( "audit" ).resolve( "audit.journal" ), "s", 512, () -> clock.getAndIncrement() );
+		ObservedRepositoryImpl<Customer> repository = repository();
+		repository.addListener( journal.listenerFor( Customer.class ), false );
+		for( int i = 0; i < 200; i++ ) {
+			repository.save( new Customer( "C" + i, "Customer " + i, new Date( 0 ) ) );
+		}
+		AtomicBoolean closed = new AtomicBoolean( false );
+		List<Throwable> failures = new ArrayList<Throwable>();
+		Thread reader = new Thread( () -> {
+			while( ! closed.get() ) {
+				try {
+					assertEquals( 200, journal.query( Long.MIN_VALUE, Long.MAX_VALUE ).size() );
+
+				} catch( IOException e ) {		// closed journal, but no channel closed under a running query
+					if( e instanceof ClosedChannelException || ! e.getMessage().endsWith( "is closed" ) ) {
+						failures.add( e );
+					}
+					return;
+
+				} catch( Throwable t ) {
+					failures.add( t );
+					return;
+				}
+			}
+		} );
+		reader.start();
+		Thread.sleep( 20 );
+		journal.close();
+		closed.set( true );
+		reader.join();
+		assertTrue( failures.toString(), failures.isEmpty() );
+
+		boolean thrown = false;
+		try {
+			journal.query( Long.MIN_VALUE, Long.MAX_VALUE, "C1" );
+
+		} catch( IOException e ) {
+			thrown = ! ( e instanceof ClosedChannelException );
+		}
+		assertTrue( thrown );
+		journal.close();		// closing again has no effect
+	}
+
+	/*
+	 * Private methods.
+	 */
+
+	private static ObservedRepositoryImpl<Customer> repository() {
+		return new ObservedRepositoryImpl<Customer>( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+	}
+
+	private static EntityProperty property( final String name ) throws Exception {
+		return new EntityProperty( Customer.class.getDeclaredField( name ) );
+	}
+
+	private static EntityPropertyUpdateSet update( final Customer c, final String property, final String before, final String after ) throws Exception {
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( new Traceable( c ), 1 );
+		updates.before( property( property ), before );
+		updates.after( 0, after );
+		return updates;
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning the columnar Customer repository and Customer scans.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_ColumnarCustomers {
+	private static final String[] Cities = { "10115 Berlin", "12167 Berlin-Steglitz", "79805 Aschaffenburg", "80331 Muenchen", "20095 Hamburg" };
+
+	@Test
+	public void addressTest() {
+		assertEquals( "Berlin-Steglitz", CustomerScan.city( "Lindenweg 86, 12167 Berlin-Steglitz" ) );
+		assertEquals( "12167", CustomerScan.postal( "Lindenweg 86, 12167 Berlin-Steglitz" ) );
+		assertEquals( "Bernburg", CustomerScan.city( "40605 Bernburg" ) );
+		assertEquals( "", CustomerScan.city( "Berliner Str. 4" ) );
+		assertEquals( "", CustomerScan.postal( null ) );
+	}
+
+	@Test
+	public void rowAccessTest() {
+		ColumnarCustomerRepositoryImpl repository = new ColumnarCustomerRepositoryImpl( 4 );
+		Customer c = new Customer( "C001", "Eric Meyer", new Date( 1000 ) )
+			.setAddress( "Lindenweg 86, 12167 Berlin-Steglitz" ).setStatus( Customer.Status.SUSP )
+			.addContact( "eric@gmail.com" ).addNote( "Zahlt Rechnung verspaetet." );
+		repository.save( c );
+
+		Customer m = repository.findById( "C001" ).get();
+		assertEquals( "Eric Meyer", m.getName() );
+		assertEquals( c.getAddress(), m.getAddress() );
+		assertEquals( Customer.Status.SUSP, m.getStatus() );
+		assertEquals( 1000, m.getCreationDate().getTime() );
+		assertEquals( c.getContacts(), m.getContacts() );
+		assertEquals( 1, m.getNotes().size() );
+
+		m.setName( "Eric Meyer-Schulze" ).addContact( "+49 170 1234" );		// longer than before, appended
+		assertEquals( "Eric Meyer", repository.findById( "C001" ).get().getName() );
+		repository.save( m );
+		assertEquals( "Eric Meyer-Schulze", repository.findById( "C001" ).get().getName() );
+		assertEquals( 2, repository.findById( "C001" ).get().getContacts().size() );
+		assertEquals( "C001", repository.findByName( "Eric.*" ).get().getId() );
+
+		repository.deleteById( "C001" );
+		assertFalse( repository.existsById( "C001" ) );
+		assertEquals( 0, repository.count() );
+		assertFalse( repository.findAll().iterator().hasNext() );
+	}
+
+	@Test
+	public void noCreationDateTest() {
+		ColumnarCustomerRepositoryImpl repository = new ColumnarCustomerRepositoryImpl( 4 );
+		repository.save( new Customer( "C001", "Eric Meyer", null ) );
+		repository.save( new Customer( "C002", "Anne Bayer", new Date( 0 ) ) );		// 1970-01-01 is a date
+
+		assertEquals( null, repository.findById( "C001" ).get().getCreationDate() );
+		assertEquals( 0, repository.findById( "C002" ).get().getCreationDate().getTime() );
+
+		CustomerScan epoch = CustomerScan.where().createdBetween( new Date( 0 ), new Date( 1 ) );
+		assertEquals( Arrays.asList( "C002" ), repository.findIds( epoch ) );
+		assertEquals( Arrays.asList( "C001", "C002" ), repository.findIds( CustomerScan.where() ) );
+		assertEquals( Arrays.asList( "C001", "C002" ), repository.findIds( CustomerScan.where().createdBetween( null, new Date( 1 ) ) ) );
+		assertFalse( epoch.test( new Customer( "C001", "Eric Meyer", null ) ) );		// same as over Customer objects
+	}
+
+	@Test
+	public void scanTest() {
+		List<Customer> customers = customers( 20_000, 42 );
+		ColumnarCustomerRepositoryImpl columnar = new ColumnarCustomerRepositoryImpl( 16 );
+		columnar.saveAll( customers );
+		CustomerRepositoryIntf rows = new ObservedCustomerRepositoryImpl( new SimpleRepositoryImpl<Customer>( customers ) );
+
+		CustomerScan[] scans = {
+			CustomerScan.where(),
+			CustomerScan.where().status( Customer.Status.SUSP ).addressContains( "Berlin" ),
+			CustomerScan.where().status( Customer.Status.SUSP, Customer.Status.TERM ).cityContains( "Berlin" ),
+			CustomerScan.where().postalPrefix( "1" ).createdBetween( new Date( 5_000 ), new Date( 15_000 ) ),
+			CustomerScan.where().nameContains( "Meyer" ).addressContains( "weg 1" ),
+		};
+		for( CustomerScan scan : scans ) {
+			assertEquals( rows.findIds( scan ), columnar.findIds( scan ) );
+			assertEquals( rows.count( scan ), columnar.count( scan ) );
+		}
+		assertTrue( columnar.count( scans[ 1 ] ) > 0 );
+
+		for( int i = 0; i < customers.size(); i += 3 ) {		// delete two thirds, compacts rows
+			columnar.deleteById( customers.get( i ).getId() );
+			columnar.deleteById( customers.get( i + 1 ).getId() );
+		}
+		List<String> expected = new ArrayList<String>();
+		for( int i = 2; i < customers.size(); i += 3 ) {
+			if( scans[ 1 ].test( customers.get( i ) ) ) {
+				expected.add( customers.get( i ).getId() );
+			}
+		}
+		assertEquals( expected, columnar.findIds( scans[ 1 ] ) );
+		assertEquals( customers.get( 2 ).getName(), columnar.findById( customers.get( 2 ).getId() ).get().getName() );
+		assertEquals( customers.size() / 3, columnar.count() );
+	}
+
+	@Test
+	public void observedScanTest() {
+		List<Customer> customers = customers( 1000, 7 );
+		ColumnarCustomerRepositoryImpl columnar = new ColumnarCustomerRepositoryImpl( 16 );
+		columnar.saveAll( customers );
+		CustomerRepositoryIntf repository = new ObservedCustomerRepositoryImpl( columnar );
+		CustomerScan scan = CustomerScan.where().status( Customer.Status.SUSP ).cityContains( "Berlin" );
+		long before = repository.count( scan );
+
+		Customer c = repository.findById( customers.get( 0 ).getId() ).get();
+		boolean matched = scan.test( c );
+		repository.save( c.setStatus( Customer.Status.SUSP ).setAddress( "Am Wall 1, 10115 Berlin" ) );
+		assertEquals( before + ( matched? 0 : 1 ), repository.count( scan ) );
+		assertTrue( repository.findIds( scan ).contains( c.getId() ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static List<Customer> customers( final int n, final long seed ) {
+		Random random = new Random( seed );
+		String[] names = { "Meyer", "Schulze", "Wolf", "Hartmann" };
+		List<Customer> list = new ArrayList<Customer>();
+		for( int i = 0; i < n; i++ ) {
+			list.add( new Customer( String.format( "C%06d", i ), "Eric " + names[ random.nextInt( names.length ) ], new Date( i ) )
+				.setAddress( ( random.nextBoolean()? "Berliner Str. " : "Lindenweg " ) + random.nextInt( 200 ) + ", " + Cities[ random.nextInt( Cities.length ) ] )
+				.setStatus( Customer.Status.values()[ random.nextInt( 3 ) ] ) );
+		}
+		return list;
+	}
+
+}
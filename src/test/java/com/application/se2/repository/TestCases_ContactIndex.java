@@ -0,0 +1,73 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning lookup of Customers by normalized contact.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_ContactIndex {
+
+	@Test
+	public void normalizeTest() {
+		assertEquals( "majortom@gmail.com", ContactIndex.normalize( " MajorTom@GMail.com " ) );
+		assertEquals( "4917082568462", ContactIndex.normalize( "cell: +49 170 82568462" ) );
+		assertEquals( "03082665204", ContactIndex.normalize( "home: 030 8266-5204" ) );
+		assertEquals( "berlin", ContactIndex.normalize( "Berlin" ) );
+	}
+
+	@Test
+	public void sharedContactTest() {
+		Customer tom = new Customer( "Tom Wolf" ).addContact( "majortom@gmail.com" ).addContact( "+491582341346" );
+		Customer emilia = new Customer( "Emilia Hartmann" ).addContact( "MajorTom@gmail.com" ).addContact( "+49 158 2341346" );
+		Customer paul = new Customer( "Paul Neumann" ).addContact( "paul.neumann@gmail.com" );
+		CustomerRepositoryIntf repository = repository();
+		repository.save( tom );
+		repository.save( emilia );
+		repository.save( paul );
+
+		Set<String> ids = repository.findIdsByContact( "majortom@gmail.com" );
+		assertEquals( 2, ids.size() );
+		assertTrue( ids.contains( tom.getId() ) && ids.contains( emilia.getId() ) );
+		assertEquals( 2, repository.findIdsByContact( "+49 158 2341346" ).size() );
+		assertEquals( 0, repository.findIdsByContact( "unknown@gmail.com" ).size() );
+	}
+
+	@Test
+	public void editAndDeleteTest() {
+		Customer tom = new Customer( "Tom Wolf" ).addContact( "majortom@gmail.com" );
+		CustomerRepositoryIntf repository = repository();
+		repository.save( tom );
+
+		tom.getContacts().set( 0, "tom.wolf@yahoo.de" );		// edit as in CustomerManager.update()
+		tom.addContact( "030 3849-5039" );
+		repository.save( tom );
+		assertEquals( 0, repository.findIdsByContact( "majortom@gmail.com" ).size() );
+		assertEquals( tom.getId(), repository.findByContact( "Tom.Wolf@yahoo.de" ).iterator().next().getId() );
+		assertEquals( 1, repository.findIdsByContact( "03038495039" ).size() );
+
+		repository.delete( tom );
+		assertEquals( 0, repository.findIdsByContact( "tom.wolf@yahoo.de" ).size() );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private CustomerRepositoryIntf repository() {
+		return new ObservedCustomerRepositoryImpl( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+	}
+
+}
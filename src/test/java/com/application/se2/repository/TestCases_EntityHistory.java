@@ -0,0 +1,102 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.application.se2.misc.EntityProperty;
+import com.application.se2.misc.EntityPropertyUpdateSet;
+import com.application.se2.misc.Traceable;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning the delta-encoded history of entities.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_EntityHistory {
+
+	@Test
+	public void deltaVersionsTest() throws Exception {
+		AtomicLong clock = new AtomicLong( 1000 );
+		ObservedRepositoryImpl<Customer> repository = repository();
+		EntityHistory<Customer> history = new EntityHistory<Customer>( new CustomerCodec(), 4, 100, () -> clock.get() );
+		repository.addListener( history, false );
+
+		Customer c = repository.save( new Customer( "C001", "Eric Meyer", new Date( 0 ) ).addContact( "eric@gmail.com" ) );
+		for( int i = 1; i <= 9; i++ ) {			// v1 full at 1000, v2..v10 at 1100..1900
+			clock.set( 1000 + i * 100 );
+			EntityPropertyUpdateSet updates = update( c, "address", c.getAddress(), "Street " + i );
+			c.setAddress( "Street " + i );
+			repository.save( c, updates );
+		}
+		List<EntityHistory.Version> versions = history.getVersions( "C001" );
+		assertEquals( 10, versions.size() );
+		assertTrue( versions.get( 0 ).isFull() );
+		assertEquals( Arrays.asList( "address" ), versions.get( 1 ).getProperties() );
+		assertTrue( versions.get( 5 ).isFull() );		// full version after 4 deltas
+		assertTrue( versions.get( 1 ).getBytes() < versions.get( 0 ).getBytes() );
+
+		assertEquals( "", history.findAsOf( "C001", 1050 ).get().getAddress() );
+		assertEquals( "Street 3", history.findAsOf( "C001", 1399 ).get().getAddress() );
+		assertEquals( "Street 9", history.findVersion( "C001", 10 ).get().getAddress() );
+		assertFalse( history.findAsOf( "C001", 999 ).isPresent() );
+
+		clock.set( 3000 );
+		repository.deleteById( "C001" );
+		assertFalse( history.findAsOf( "C001", 3000 ).isPresent() );
+		assertEquals( "Street 9", history.findAsOf( "C001", 2999 ).get().getAddress() );
+	}
+
+	@Test
+	public void collectionDeltaTest() throws Exception {
+		ObservedRepositoryImpl<Customer> repository = repository().withHistory( new CustomerCodec(), 4, 8 );
+		EntityHistory<Customer> history = repository.getHistory().get();
+		Customer c = repository.save( new Customer( "C002", "Anne Bayer", new Date( 0 ) ).addContact( "anne@gmail.com" ) );
+		for( int i = 0; i < 20; i++ ) {
+			EntityPropertyUpdateSet updates = update( c, "contacts", "", "+49 30 " + i );
+			c.addContact( "+49 30 " + i );
+			repository.save( c, updates );
+		}
+		List<EntityHistory.Version> versions = history.getVersions( "C002" );
+		assertTrue( versions.size() <= 8 + 4 );		// oldest versions dropped up to a full version
+		assertTrue( versions.get( 0 ).isFull() );
+		assertEquals( 21, versions.get( versions.size() - 1 ).getVersion() );
+		assertEquals( 21, history.findVersion( "C002", 21 ).get().getContacts().size() );
+		assertEquals( "+49 30 11", history.findVersion( "C002", 13 ).get().getContacts().get( 12 ) );
+		assertFalse( history.findVersion( "C002", 1 ).isPresent() );
+
+		repository.save( c.setStatus( Customer.Status.SUSP ) );		// save without update set records full version
+		versions = history.getVersions( "C002" );
+		assertTrue( versions.get( versions.size() - 1 ).isFull() );
+		assertEquals( Customer.Status.SUSP, history.findVersion( "C002", 22 ).get().getStatus() );
+		assertEquals( Customer.Status.ACT, history.findVersion( "C002", 21 ).get().getStatus() );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static ObservedRepositoryImpl<Customer> repository() {
+		return new ObservedRepositoryImpl<Customer>( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+	}
+
+	private static EntityPropertyUpdateSet update( final Customer c, final String property, final String before, final String after ) throws Exception {
+		EntityPropertyUpdateSet updates = new EntityPropertyUpdateSet( new Traceable( c ) );
+		updates.before( new EntityProperty( Customer.class.getDeclaredField( property ) ), before );
+		updates.after( 0, after );
+		return updates;
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning counting Bloom filters that answer lookups of absent ids.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_IdFilter {
+
+	@Test
+	public void falsePositiveRateTest() {
+		CountingBloomFilter filter = new CountingBloomFilter( 10_000, 0.01 );
+		for( int i = 0; i < 10_000; i++ ) {
+			filter.add( id( i ) );
+		}
+		int falsePositives = 0;
+		for( int i = 10_000; i < 110_000; i++ ) {
+			if( filter.mightContain( id( i ) ) ) {
+				falsePositives++;
+			}
+		}
+		assertTrue( "false positives: " + falsePositives, falsePositives < 2_000 );
+
+		for( int i = 0; i < 10_000; i += 2 ) {
+			filter.remove( id( i ) );
+		}
+		for( int i = 1; i < 10_000; i += 2 ) {
+			assertTrue( filter.mightContain( id( i ) ) );		// no false negatives after removals
+		}
+		assertEquals( 5_000, filter.size() );
+	}
+
+	@Test
+	public void negativeLookupTest() {
+		CountingRepository delegate = new CountingRepository();
+		ObservedRepositoryImpl<Customer> repository = new ObservedRepositoryImpl<Customer>( delegate ).withIdFilter( 0.01 );
+		for( int i = 0; i < 3_000; i++ ) {		// grows filter beyond its initial capacity
+			repository.save( customer( i ) );
+		}
+		assertTrue( repository.getIdFilter().get().capacity() >= 3_000 );
+
+		delegate.lookups = 0;
+		int found = 0;
+		for( int i = 0; i < 6_000; i++ ) {
+			if( repository.findById( id( i ) ).isPresent() ) {
+				found++;
+			}
+		}
+		assertEquals( 3_000, found );
+		assertTrue( "lookups: " + delegate.lookups, delegate.lookups < 3_000 + 300 );
+
+		repository.deleteById( id( 7 ) );
+		assertFalse( repository.existsById( id( 7 ) ) );
+		repository.save( customer( 7 ) );
+		assertTrue( repository.existsById( id( 7 ) ) );
+	}
+
+	@Test
+	public void snapshotTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		ObservedRepositoryImpl<Customer> repository = new ObservedRepositoryImpl<Customer>(
+			new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) ).withIdFilter( 0.01 );
+		for( int i = 0; i < 500; i++ ) {
+			repository.save( customer( i ) );
+		}
+		new RepositorySnapshot( 64, 2 ).add( Customer.class.getName(), repository, new CustomerCodec() ).export( dir );
+		assertTrue( Files.exists( dir.resolve( "Customer.filter" ) ) );
+
+		ObservedRepositoryImpl<Customer> repository2 = new ObservedRepositoryImpl<Customer>(
+			new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) ).withIdFilter( 0.01 );
+		repository2.save( customer( 9_999 ) );
+		new RepositorySnapshot( 64, 2 ).add( Customer.class.getName(), repository2, new CustomerCodec() ).restore( dir );
+		assertEquals( 500, repository2.count() );
+		assertEquals( 500, repository2.getIdFilter().get().size() );
+		assertTrue( repository2.existsById( id( 499 ) ) );
+		assertFalse( repository2.existsById( id( 9_999 ) ) );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String id( final int i ) {
+		return String.format( "C%08d", i );
+	}
+
+	private static Customer customer( final int i ) {
+		return new Customer( id( i ), "Customer " + i, new Date() );
+	}
+
+	/*
+	 * Repository that counts id lookups reaching it.
+	 */
+	private static class CountingRepository extends SimpleRepositoryImpl<Customer> {
+		private int lookups = 0;
+
+		CountingRepository() {
+			super( new ArrayList<Customer>() );
+		}
+
+		@Override
+		public Optional<Customer> findById( String id ) {
+			lookups++;
+			return super.findById( id );
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.application.se2.misc.LazyList;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning lazy loading of Customer contacts and notes from the cold tier.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_LazyCollections {
+
+	@Test
+	public void lazyContactsAndNotesTest() throws IOException {
+		try( TieredRepositoryImpl<Customer> repository = repository() ) {
+			repository.save( new Customer( "Matteo Schwarz" )
+				.addContact( "matteo.schwarz@gmail.com" ).addContact( "+49 170 2345678" ).addContact( "Berlin" )
+				.addNote( "first order" ).addNote( "second order" )
+				.setStatus( Customer.Status.TERM ) );
+
+			Customer c = repository.findByName( "Matteo Schwarz" ).get();
+			LazyList<?> contacts = (LazyList<?>)c.getContacts();
+			LazyList<?> notes = (LazyList<?>)c.getNotes();
+			assertEquals( 3, contacts.size() );
+			assertEquals( "matteo.schwarz@gmail.com", contacts.get( 0 ) );
+			assertEquals( 2, notes.size() );
+			assertEquals( "first order", c.getNotes().get( 0 ).getText() );
+			assertFalse( contacts.isLoaded() );
+			assertFalse( notes.isLoaded() );
+
+			assertEquals( "Berlin", contacts.get( 2 ) );
+			assertTrue( contacts.isLoaded() );
+			assertEquals( "second order", c.getNotes().get( 1 ).getText() );
+
+			c.addContact( "Potsdam" );
+			repository.save( c );
+			Customer c2 = repository.findById( c.getId() ).get();
+			assertEquals( 4, c2.getContacts().size() );
+			assertEquals( "Potsdam", c2.getContacts().get( 3 ) );
+			assertEquals( 2, c2.getNotes().size() );
+		}
+	}
+
+	@Test
+	public void inlineCollectionsTest() throws IOException {
+		try( TieredRepositoryImpl<Customer> repository = repository() ) {
+			Customer c = new Customer( "Paul Neumann" ).addContact( "paul.neumann@gmx.de" ).setStatus( Customer.Status.TERM );
+			repository.save( c );
+
+			Customer c2 = repository.findById( c.getId() ).get();
+			assertFalse( c2.getContacts() instanceof LazyList );		// single elements held in head
+			assertEquals( "paul.neumann@gmx.de", c2.getContacts().get( 0 ) );
+			assertEquals( 0, c2.getNotes().size() );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private TieredRepositoryImpl<Customer> repository() throws IOException {
+		return new TieredRepositoryImpl<Customer>(
+			new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ),
+			new SegmentFile( Files.createTempFile( "se2-customers", ".seg" ) ),
+			new CustomerCodec(),
+			c -> c.getStatus() == Customer.Status.TERM, 0
+		);
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.application.se2.model.Article;
+
+
+/**
+ * Unit tests concerning the off-heap Article repository: saving and finding
+ * Articles, updates in place and by appending, deletion, reuse of freed index
+ * slots and clearing the repository.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_OffHeapArticleRepository {
+
+	@Test
+	public void saveFindTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		for( int i = 0; i < 100; i++ ) {		// grows data and index beyond initial capacity
+			repository.save( article( i, "Article " + i, i + ",00 EUR" ) );
+		}
+		assertEquals( 100, repository.count() );
+		assertTrue( repository.existsById( id( 42 ) ) );
+		assertFalse( repository.existsById( id( 100 ) ) );
+		assertFalse( repository.existsById( null ) );
+
+		Article a = repository.findById( id( 42 ) ).get();
+		assertEquals( "Article 42", a.getName() );
+		assertEquals( "42,00 EUR", a.getPrice() );
+		assertFalse( repository.findById( id( 100 ) ).isPresent() );
+
+		assertEquals( id( 7 ), repository.findByName( "Article 7" ).get().getId() );
+		List<Article> found = list( repository.findByName( "Article 9[0-9]", 5 ) );
+		assertEquals( 5, found.size() );
+		assertEquals( id( 90 ), found.get( 0 ).getId() );
+		assertEquals( 2, list( repository.findAllById( Arrays.asList( id( 1 ), id( 100 ), id( 2 ) ) ) ).size() );
+
+		List<Article> all = list( repository.findAll() );		// in order of saving
+		assertEquals( 100, all.size() );
+		assertEquals( id( 0 ), all.get( 0 ).getId() );
+		assertEquals( id( 99 ), all.get( 99 ).getId() );
+
+		long[] records = { 0 };
+		repository.iterateRecords( rec -> records[ 0 ]++ );
+		assertEquals( 100, records[ 0 ] );
+	}
+
+	@Test
+	public void updateTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		for( int i = 0; i < 3; i++ ) {
+			repository.save( article( i, "Article " + i, "10,00 EUR" ) );
+		}
+		long bytes = repository.dataBytes();
+		repository.save( article( 1, "Article 1", "9,00 EUR" ) );		// fits, overwritten in place
+		assertEquals( bytes, repository.dataBytes() );
+		assertEquals( 0, repository.garbage() );
+		assertEquals( "9,00 EUR", repository.findById( id( 1 ) ).get().getPrice() );
+
+		repository.save( article( 1, "Article 1 with a much longer name", "1.049,00 EUR" ) );	// appended
+		assertTrue( repository.dataBytes() > bytes );
+		assertTrue( repository.garbage() > 0 );
+		assertEquals( 3, repository.count() );
+		Article a = repository.findById( id( 1 ) ).get();
+		assertEquals( "Article 1 with a much longer name", a.getName() );
+		assertEquals( "1.049,00 EUR", a.getPrice() );
+		assertEquals( id( 1 ), list( repository.findAll() ).get( 2 ).getId() );		// moved to the end
+	}
+
+	@Test
+	public void deleteTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		for( int i = 0; i < 10; i++ ) {
+			repository.save( article( i, "Article " + i, i + ",00 EUR" ) );
+		}
+		repository.deleteById( id( 0 ) );
+		repository.delete( repository.findById( id( 1 ) ).get() );
+		repository.deleteAllById( Arrays.asList( id( 2 ), id( 3 ), id( 100 ) ) );
+		repository.deleteAll( Arrays.asList( article( 4, "", "" ) ) );
+		repository.deleteById( id( 0 ) );		// deleted twice
+		repository.delete( null );
+
+		assertEquals( 5, repository.count() );
+		for( int i = 0; i < 5; i++ ) {
+			assertFalse( repository.existsById( id( i ) ) );
+			assertFalse( repository.findById( id( i ) ).isPresent() );
+		}
+		assertEquals( 5, list( repository.findAll() ).size() );
+		assertEquals( 0, list( repository.findByName( "Article [0-4]", 10 ) ).size() );
+		assertTrue( repository.garbage() > 0 );
+
+		repository.save( article( 2, "Article 2 again", "2,00 EUR" ) );
+		assertEquals( "Article 2 again", repository.findById( id( 2 ) ).get().getName() );
+		assertEquals( 6, repository.count() );
+	}
+
+	@Test
+	public void slotReuseTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		long capacity = repository.capacity();
+		for( int i = 0; i < 10_000; i++ ) {		// at most 4 live Articles
+			repository.save( article( i, "Article " + i, i + ",00 EUR" ) );
+			if( i >= 3 ) {
+				repository.deleteById( id( i - 3 ) );
+			}
+		}
+		assertEquals( 3, repository.count() );
+		assertTrue( repository.compact() > 0 );
+		assertEquals( 0, repository.garbage() );
+		assertEquals( capacity, repository.capacity() );		// freed index slots reused, index not grown
+		assertEquals( "9999,00 EUR", repository.findById( id( 9_999 ) ).get().getPrice() );
+		assertFalse( repository.existsById( id( 9_996 ) ) );
+	}
+
+	@Test
+	public void deleteAllTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		for( int i = 0; i < 50; i++ ) {
+			repository.save( article( i, "Article " + i, i + ",00 EUR" ) );
+		}
+		repository.deleteAll();
+		assertEquals( 0, repository.count() );
+		assertEquals( 0, repository.dataBytes() );
+		assertEquals( 0, repository.garbage() );
+		assertFalse( repository.existsById( id( 10 ) ) );
+		assertFalse( repository.findAll().iterator().hasNext() );
+
+		repository.save( article( 10, "Article 10", "10,00 EUR" ) );		// repository usable after clearing
+		assertEquals( "Article 10", repository.findById( id( 10 ) ).get().getName() );
+		assertEquals( 1, repository.count() );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String id( final int i ) {
+		return String.format( "P%08d", i );
+	}
+
+	private static Article article( final int i, final String name, final String price ) {
+		return new Article( id( i ), name, price );
+	}
+
+	private static List<Article> list( final Iterable<Article> articles ) {
+		List<Article> res = new ArrayList<Article>();
+		articles.forEach( res::add );
+		return res;
+	}
+
+}
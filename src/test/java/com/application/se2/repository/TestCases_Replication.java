@@ -0,0 +1,170 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning replication of repositories to a follower on localhost.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_Replication {
+	private static final long Timeout = 5000;
+	private static final int PrimaryNodeId = 0;
+	private static final int FollowerNodeId = 1;
+
+
+	@Test
+	public void snapshotBootstrapAndChangesTest() throws Exception {
+		ObservedRepositoryImpl<Customer> primaryRepository = repository();
+		primaryRepository.save( new Customer( "Matteo Schwarz" ) );
+		primaryRepository.save( new Customer( "Paul Neumann" ) );
+
+		RepositoryChangeLog log = new RepositoryChangeLog( 100 );
+		ObservedRepositoryImpl<Customer> replicaRepository = repository();
+		try( ReplicationPrimary primary = primary( log, primaryRepository );
+				ReplicationFollower follower = follower( primary, replicaRepository ) ) {
+
+			assertTrue( follower.awaitSeq( 0, Timeout ) );
+			assertEquals( 2, replicaRepository.count() );
+			assertEquals( 1, follower.getSnapshotCount() );
+
+			Customer c = new Customer( "Tom Wolf" );
+			primaryRepository.save( c );
+			primaryRepository.save( c.setStatus( Customer.Status.SUSP ).addContact( "tom.wolf@yahoo.de" ) );
+			primaryRepository.findByName( "Paul Neumann" ).ifPresent( p -> primaryRepository.delete( p ) );
+
+			assertTrue( follower.awaitSeq( log.lastSeq(), Timeout ) );
+			assertEquals( 2, replicaRepository.count() );
+			Customer r = replicaRepository.findById( c.getId() ).get();
+			assertEquals( Customer.Status.SUSP, r.getStatus() );
+			assertEquals( "tom.wolf@yahoo.de", r.getContacts().get( 0 ) );
+			assertEquals( 0, follower.getLag() );
+		}
+	}
+
+	@Test
+	public void sameNodeIdTest() throws Exception {
+		ObservedRepositoryImpl<Customer> primaryRepository = repository();
+		primaryRepository.save( new Customer( "Matteo Schwarz" ) );
+
+		ObservedRepositoryImpl<Customer> replicaRepository = repository();
+		try( ReplicationPrimary primary = primary( new RepositoryChangeLog( 100 ), primaryRepository );
+				ReplicationFollower follower = new ReplicationFollower( "localhost", primary.getPort(), PrimaryNodeId ) ) {
+			follower.register( Customer.class, replicaRepository, new CustomerCodec() );
+			follower.start();
+
+			assertFalse( follower.awaitSeq( 0, Timeout ) );		// returns when refused
+			assertTrue( follower.isRefused() );
+			assertEquals( 0, replicaRepository.count() );
+			assertEquals( 0, follower.getSnapshotCount() );
+			Thread.sleep( 200 );
+			assertFalse( follower.isConnected() );		// does not reconnect
+			assertEquals( 0, primary.getFollowerCount() );
+		}
+	}
+
+	@Test
+	public void replacedInstanceTest() {
+		SimpleRepositoryImpl<Customer> repository = new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() );
+		for( int i = 0; i < 5; i++ ) {
+			repository.save( new Customer( "C" + i, "Customer " + i, null ) );
+		}
+		Customer decoded = new Customer( "C2", "Replicated 2", null );		// e.g. decoded from a replicated change
+		repository.save( decoded );
+		assertTrue( repository.findById( "C2" ).get() == decoded );
+		assertEquals( "Replicated 2", name( repository, 2 ) );		// same position in list
+
+		repository.deleteAllById( Arrays.asList( "C0", "C3" ) );		// positions of remaining entities shift
+		repository.save( new Customer( "C4", "Replicated 4", null ) );
+		assertEquals( "Replicated 4", repository.findById( "C4" ).get().getName() );
+		assertEquals( "Replicated 4", name( repository, 2 ) );
+		assertEquals( 3, repository.count() );
+		repository.delete( repository.findById( "C1" ).get() );
+		repository.save( new Customer( "C2", "Replicated again", null ) );
+		assertEquals( "Replicated again", name( repository, 0 ) );
+		assertEquals( 2, repository.count() );
+	}
+
+	@Test
+	public void catchUpFromOffsetTest() throws Exception {
+		ObservedRepositoryImpl<Customer> primaryRepository = repository();
+		RepositoryChangeLog log = new RepositoryChangeLog( 100 );
+		ObservedRepositoryImpl<Customer> replicaRepository = repository();
+		try( ReplicationPrimary primary = primary( log, primaryRepository );
+				ReplicationFollower follower = follower( primary, replicaRepository ) ) {
+
+			primaryRepository.save( new Customer( "Mila Sauer" ) );
+			assertTrue( follower.awaitSeq( log.lastSeq(), Timeout ) );
+
+			follower.dropConnection();
+			primaryRepository.save( new Customer( "Clara Richter" ) );
+			primaryRepository.save( new Customer( "Henri Vogt" ) );
+
+			assertTrue( follower.awaitSeq( log.lastSeq(), Timeout ) );
+			assertEquals( 3, replicaRepository.count() );
+			assertEquals( 1, follower.getSnapshotCount() );		// caught up from log, no second snapshot
+		}
+	}
+
+	@Test
+	public void snapshotWhenLogTruncatedTest() throws Exception {
+		ObservedRepositoryImpl<Customer> primaryRepository = repository();
+		RepositoryChangeLog log = new RepositoryChangeLog( 2 );
+		ObservedRepositoryImpl<Customer> replicaRepository = repository();
+		try( ReplicationPrimary primary = primary( log, primaryRepository );
+				ReplicationFollower follower = follower( primary, replicaRepository ) ) {
+
+			assertTrue( follower.awaitSeq( 0, Timeout ) );
+			follower.dropConnection();
+			for( int i = 0; i < 5; i++ ) {
+				primaryRepository.save( new Customer( "Customer " + i ) );
+			}
+			assertTrue( follower.awaitSeq( log.lastSeq(), Timeout ) );
+			assertEquals( 5, replicaRepository.count() );
+			assertTrue( follower.getSnapshotCount() >= 2 );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String name( final RepositoryIntf<Customer> repository, final int position ) {
+		List<Customer> list = new ArrayList<Customer>();
+		repository.findAll().forEach( list::add );
+		return list.get( position ).getName();
+	}
+
+	private ObservedRepositoryImpl<Customer> repository() {
+		return new ObservedRepositoryImpl<Customer>( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+	}
+
+	private ReplicationPrimary primary( final RepositoryChangeLog log, final ObservedRepositoryImpl<Customer> repository ) throws IOException {
+		ReplicationPrimary primary = new ReplicationPrimary( log, "localhost", 0, PrimaryNodeId );
+		primary.register( Customer.class, repository, new CustomerCodec() );
+		primary.start();
+		return primary;
+	}
+
+	private ReplicationFollower follower( final ReplicationPrimary primary, final ObservedRepositoryImpl<Customer> repository ) {
+		ReplicationFollower follower = new ReplicationFollower( "localhost", primary.getPort(), FollowerNodeId );
+		follower.register( Customer.class, repository, new CustomerCodec() );
+		follower.start();
+		return follower;
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.application.se2.model.Article;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning incrementally maintained repository aggregates.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_RepositoryAggregates {
+
+	@Test
+	public void statusCountsTest() {
+		ObservedRepositoryImpl<Customer> repository =
+			new ObservedRepositoryImpl<Customer>( new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+		Customer c1 = new Customer( "Matteo Schwarz" );
+		Customer c2 = new Customer( "Paul Neumann" );
+		repository.save( c1 );
+
+		RepositoryAggregates<Customer> aggregates = new RepositoryAggregates<Customer>()
+			.groupBy( "status", Customer.Status.class, Customer::getStatus );
+		repository.addListener( aggregates );
+		repository.save( c2 );
+		assertEquals( 2, aggregates.count( "status", Customer.Status.ACT ) );
+
+		repository.save( c2.setStatus( Customer.Status.TERM ) );
+		assertEquals( 1, aggregates.count( "status", Customer.Status.ACT ) );
+		assertEquals( 1, aggregates.count( "status", Customer.Status.TERM ) );
+
+		repository.deleteById( c1.getId() );
+		repository.deleteById( c1.getId() );
+		assertEquals( 0, aggregates.count( "status", Customer.Status.ACT ) );
+		assertEquals( 1L, (long)aggregates.countBy( "status" ).get( Customer.Status.TERM ) );
+	}
+
+	@Test
+	public void priceStatisticsTest() {
+		ObservedRepositoryImpl<Article> repository =
+			new ObservedRepositoryImpl<Article>( new SimpleRepositoryImpl<Article>( new ArrayList<Article>() ) );
+		RepositoryAggregates<Article> aggregates = new RepositoryAggregates<Article>()
+			.statistics( "price", a -> RepositoryAggregates.parseDecimal( a.getPrice() ) );
+		repository.addListener( aggregates );
+
+		repository.save( new Article( "A1", "Objektiv 50mm", "1.549,00 EUR" ) );
+		repository.save( new Article( "A2", "Objektiv 40mm", "239,50 EUR" ) );
+		repository.save( new Article( "A3", "Objektiv 85mm", "479,00 EUR" ) );
+		RepositoryAggregates.Statistics s = aggregates.getStatistics( "price" );
+		assertEquals( 3, s.getCount() );
+		assertEquals( 2267.5, s.getSum(), 0.001 );
+		assertEquals( 239.5, s.getMin(), 0.001 );
+		assertEquals( 1549.0, s.getMax(), 0.001 );
+
+		repository.deleteById( "A1" );
+		s = aggregates.getStatistics( "price" );
+		assertEquals( 2, s.getCount() );
+		assertEquals( 479.0, s.getMax(), 0.001 );
+
+		repository.deleteAll();
+		s = aggregates.getStatistics( "price" );
+		assertEquals( 0, s.getCount() );
+		assertTrue( Double.isNaN( s.getMin() ) );
+	}
+
+	@Test
+	public void minMaxTest() {
+		ObservedRepositoryImpl<Article> repository =
+			new ObservedRepositoryImpl<Article>( new SimpleRepositoryImpl<Article>( new ArrayList<Article>() ) );
+		RepositoryAggregates<Article> aggregates = new RepositoryAggregates<Article>()
+			.statistics( "price", a -> RepositoryAggregates.parseDecimal( a.getPrice() ) );
+		repository.addListener( aggregates );
+
+		repository.save( new Article( "A1", "Stativ", "10,00 EUR" ) );
+		repository.save( new Article( "A2", "Stativkopf", "10,00 EUR" ) );
+		repository.save( new Article( "A3", "Blitz", "20,00 EUR" ) );
+		repository.save( new Article( "A4", "Filter", "15,00 EUR" ) );
+
+		repository.deleteById( "A1" );		// min value still present
+		assertEquals( 10.0, aggregates.getStatistics( "price" ).getMin(), 0.001 );
+		repository.deleteById( "A2" );		// last occurrence of min value
+		assertEquals( 15.0, aggregates.getStatistics( "price" ).getMin(), 0.001 );
+
+		repository.save( new Article( "A3", "Blitz", "12,00 EUR" ) );		// max value updated to new min value
+		RepositoryAggregates.Statistics s = aggregates.getStatistics( "price" );
+		assertEquals( 12.0, s.getMin(), 0.001 );
+		assertEquals( 15.0, s.getMax(), 0.001 );
+		assertEquals( 2, s.getCount() );
+		assertEquals( 27.0, s.getSum(), 0.001 );
+
+		repository.deleteAll();
+		repository.save( new Article( "A5", "Akku", "5,00 EUR" ) );		// min and max after clearing
+		assertEquals( 5.0, aggregates.getStatistics( "price" ).getMin(), 0.001 );
+		assertEquals( 5.0, aggregates.getStatistics( "price" ).getMax(), 0.001 );
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.application.se2.model.Article;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning background maintenance of repositories.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_RepositoryMaintenance {
+
+	@Test
+	public void rateLimiterTest() throws IOException {
+		RateLimiter limiter = new RateLimiter( 1024 * 1024, 64 * 1024 );
+		long t0 = System.nanoTime();
+		for( int i = 0; i < 6; i++ ) {
+			limiter.acquire( 64 * 1024 );
+		}
+		long millis = ( System.nanoTime() - t0 ) / 1_000_000;
+		assertTrue( "throttled for " + millis + " ms", millis >= 250 );
+	}
+
+	@Test
+	public void segmentCompactionTest() throws IOException {
+		Path path = Files.createTempFile( "se2-customers", ".seg" );
+		try( TieredRepositoryImpl<Customer> repository = new TieredRepositoryImpl<Customer>(
+				new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ), new SegmentFile( path ), new CustomerCodec(),
+				c -> c.getStatus() == Customer.Status.TERM, 0 ) )
+		{
+			for( int i = 0; i < 1000; i++ ) {
+				repository.save( customer( i ) );
+			}
+			Customer unchanged = repository.findById( id( 0 ) ).get();		// contacts not yet loaded
+			for( int i = 1; i < 1000; i++ ) {
+				repository.save( repository.findById( id( i ) ).get().setAddress( "Address " + i ) );
+			}
+			long size = repository.segmentSize();
+			assertTrue( repository.garbage() > 0 );
+
+			RepositoryMaintenance maintenance = new RepositoryMaintenance( new RateLimiter( 0, 1 ), 1000 )
+				.schedule( "compact", ( now, lastRunAt ) -> false, progress -> repository.compact( progress ) );
+			assertTrue( maintenance.runNow( "compact" ) );
+
+			assertEquals( 0, repository.garbage() );
+			assertTrue( repository.segmentSize() < size );
+			assertFalse( Files.exists( path ) );
+			assertEquals( "c0-2@example.com", unchanged.getContacts().get( 2 ) );		// tail read from new segment
+			assertEquals( "Address 999", repository.findById( id( 999 ) ).get().getAddress() );
+			assertEquals( 1000, repository.count() );
+
+			RepositoryMaintenance.TaskMetrics metrics = maintenance.getMetrics( "compact" ).get();
+			assertEquals( 1, metrics.getRuns() );
+			assertEquals( 1.0, metrics.getProgress(), 0.0 );
+			assertTrue( metrics.getLastBytes() > 0 );
+		}
+	}
+
+	@Test
+	public void promotedCompactionTest() throws IOException {
+		Path path = Files.createTempFile( "se2-customers", ".seg" );
+		try( TieredRepositoryImpl<Customer> repository = new TieredRepositoryImpl<Customer>(
+				new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ), new SegmentFile( path ), new CustomerCodec(),
+				c -> c.getStatus() == Customer.Status.TERM, 0 ) )
+		{
+			repository.save( customer( 0 ).addNote( "first note" ).addNote( "second note" ) );
+			repository.save( customer( 1 ).addNote( "first note" ).addNote( "second note" ) );
+			Customer promoted = repository.findById( id( 0 ) ).get();		// contacts and notes not yet loaded
+			repository.save( promoted.setStatus( Customer.Status.ACT ) );		// promoted to hot tier, cold slot freed
+			Customer deleted = repository.findById( id( 1 ) ).get();
+			repository.delete( deleted );
+
+			RepositoryMaintenance maintenance = new RepositoryMaintenance( new RateLimiter( 0, 1 ), 1000 )
+				.schedule( "compact", ( now, lastRunAt ) -> false, progress -> repository.compact( progress ) );
+			assertTrue( maintenance.runNow( "compact" ) );
+			assertFalse( Files.exists( path ) );
+
+			Customer found = repository.findById( id( 0 ) ).get();
+			assertEquals( "second note", found.getNotes().get( 1 ).getText() );
+			assertEquals( "c0-2@example.com", found.getContacts().get( 2 ) );
+			assertEquals( "second note", deleted.getNotes().get( 1 ).getText() );
+			repository.save( found.setStatus( Customer.Status.TERM ) );		// spilled again with all notes
+			assertEquals( 2, repository.findById( id( 0 ) ).get().getNotes().size() );
+			assertEquals( 1, repository.count() );
+		}
+	}
+
+	@Test
+	public void offHeapCompactionTest() {
+		OffHeapArticleRepositoryImpl repository = new OffHeapArticleRepositoryImpl( 16 );
+		for( int i = 0; i < 100; i++ ) {
+			repository.save( new Article( String.format( "P%08d", i ), "Article " + i, i + ",00 EUR" ) );
+		}
+		for( int i = 0; i < 100; i += 2 ) {
+			repository.deleteById( String.format( "P%08d", i ) );
+		}
+		Set<String> seen = new HashSet<String>();
+		Iterator<Article> it = repository.findAll().iterator();
+		for( int i = 0; i < 10; i++ ) {
+			seen.add( it.next().getId() );
+		}
+		assertTrue( repository.compact() > 0 );
+		assertEquals( 0, repository.garbage() );
+		while( it.hasNext() ) {
+			assertTrue( seen.add( it.next().getId() ) );		// iteration continues after compaction
+		}
+		assertEquals( 50, seen.size() );
+		assertEquals( "99,00 EUR", repository.findById( "P00000099" ).get().getPrice() );
+		assertFalse( repository.existsById( "P00000098" ) );
+	}
+
+	@Test
+	public void checkpointTest() throws Exception {
+		Path dir = Files.createTempDirectory( "se2-checkpoint" );
+		ObservedRepositoryImpl<Customer> repository = new ObservedRepositoryImpl<Customer>(
+			new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() ) );
+		RepositoryChangeLog log = new RepositoryChangeLog( 100 );
+		repository.addListener( log.listenerFor( Customer.class, new CustomerCodec() ), false );
+		for( int i = 0; i < 10; i++ ) {
+			repository.save( customer( i ) );
+		}
+		HashMap<String, RepositoryIntf<?>> repositoryMap = new HashMap<String, RepositoryIntf<?>>();
+		repositoryMap.put( Customer.class.getName(), repository );
+		RepositoryRunner runner = new RepositoryRunner( repositoryMap );
+		runner.putCodec( Customer.class, new CustomerCodec() );
+
+		RepositoryMaintenance maintenance = new RepositoryMaintenance( new RateLimiter( 0, 1 ), 1000 )
+			.schedule( "checkpoint", ( now, lastRunAt ) -> false, progress -> {
+				long seq = log.lastSeq();
+				runner.checkpoint( dir, progress );
+				log.truncate( seq );
+			});
+		assertTrue( maintenance.runNow( "checkpoint" ) );
+		assertTrue( Files.exists( dir.resolve( RepositorySnapshot.Manifest ) ) );
+		assertNull( log.readAfter( 5, 10, 0 ) );		// truncated, reader bootstraps from snapshot
+		assertEquals( 0, log.readAfter( 10, 10, 0 ).size() );
+
+		repository.save( customer( 10 ) );
+		assertEquals( 1, log.readAfter( 10, 10, 0 ).size() );
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static String id( final int i ) {
+		return String.format( "C%08d", i );
+	}
+
+	private static Customer customer( final int i ) {
+		return new Customer( id( i ), "Customer " + i, new Date() )
+			.addContact( "c" + i + "@example.com" ).addContact( "c" + i + "-1@example.com" ).addContact( "c" + i + "-2@example.com" )
+			.setStatus( Customer.Status.TERM );
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.application.se2.misc.IDGenerator;
+import com.application.se2.model.Article;
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning export and import of repository snapshots.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_RepositorySnapshot {
+
+	@Test
+	public void exportImportTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		RepositoryIntf<Customer> customers = customers( 1000 );
+		RepositoryIntf<Article> articles = new SimpleRepositoryImpl<Article>( new ArrayList<Article>() );
+		articles.save( new Article( "P00000001", "Canon Objektiv EF 50mm f/1.2L USM", "1.549,00 EUR" ) );
+
+		long exported = new RepositorySnapshot( 64, 4 )
+			.add( Customer.class.getName(), customers, new CustomerCodec() )
+			.add( Article.class.getName(), articles, new ArticleCodec() )
+			.export( dir );
+		assertEquals( 1001, exported );
+
+		RepositoryIntf<Customer> customers2 = customers( 3 );
+		RepositoryIntf<Article> articles2 = new SimpleRepositoryImpl<Article>( new ArrayList<Article>() );
+		long imported = new RepositorySnapshot( 64, 4 )
+			.add( Customer.class.getName(), customers2, new CustomerCodec() )
+			.add( Article.class.getName(), articles2, new ArticleCodec() )
+			.restore( dir );
+		assertEquals( 1001, imported );
+		assertEquals( 1000, customers2.count() );
+		Customer c = customers2.findById( "C00000999" ).get();
+		assertEquals( "Customer 999", c.getName() );
+		assertEquals( "c999@example.com", c.getContacts().get( 0 ) );
+		assertEquals( Customer.Status.SUSP, c.getStatus() );
+		assertEquals( "1.549,00 EUR", articles2.findById( "P00000001" ).get().getPrice() );
+	}
+
+	@Test
+	public void importedIdsTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		IDGenerator generator = new IDGenerator( "S", IDGenerator.IDTYPE.NUM, 6 );
+		RepositoryIntf<Customer> customers = new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() );
+		Set<String> ids = new HashSet<String>();
+		for( int i = 0; i < 300; i++ ) {
+			String id = generator.nextId();
+			ids.add( id );
+			customers.save( new Customer( id, "Customer " + i, new Date( 0 ) ) );
+		}
+		new RepositorySnapshot( 64, 4 ).add( Customer.class.getName(), customers, new CustomerCodec() ).export( dir );
+
+		IDGenerator restarted = new IDGenerator( "S", IDGenerator.IDTYPE.NUM, 6 );	// ids issued again after a restart
+		RepositoryIntf<Customer> customers2 = new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() );
+		new RepositorySnapshot( 64, 4 ).add( Customer.class.getName(), customers2, new CustomerCodec() ).restore( dir );
+		for( int i = 0; i < 300; i++ ) {
+			assertTrue( ids.add( restarted.nextId() ) );		// imported ids are skipped
+		}
+		assertEquals( 300, customers2.count() );
+	}
+
+	@Test
+	public void emptyRepositoryTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		new RepositorySnapshot( 64, 2 )
+			.add( Customer.class.getName(), customers( 10 ), new CustomerCodec() )
+			.add( Article.class.getName(), new SimpleRepositoryImpl<Article>( new ArrayList<Article>() ), new ArticleCodec() )
+			.export( dir );
+
+		RepositoryIntf<Article> articles = new SimpleRepositoryImpl<Article>( new ArrayList<Article>() );
+		articles.save( new Article( "P00000001", "Canon Objektiv EF 50mm f/1.2L USM", "1.549,00 EUR" ) );
+		long imported = new RepositorySnapshot( 64, 2 )
+			.add( Customer.class.getName(), customers( 3 ), new CustomerCodec() )
+			.add( Article.class.getName(), articles, new ArticleCodec() )
+			.restore( dir );
+		assertEquals( 10, imported );
+		assertEquals( 0, articles.count() );		// exported without entities
+	}
+
+	@Test
+	public void failedRefillTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		RepositoryIntf<Article> exported = new SimpleRepositoryImpl<Article>( new ArrayList<Article>() );
+		exported.save( new Article( "P00000002", "Article 2", "2,00 EUR" ) );
+		new RepositorySnapshot( 64, 2 )
+			.add( Customer.class.getName(), customers( 200 ), new CustomerCodec() )
+			.add( Article.class.getName(), exported, new ArticleCodec() )
+			.export( dir );
+
+		RepositoryIntf<Customer> customers = customers( 3 );
+		RepositoryIntf<Article> articles = new SimpleRepositoryImpl<Article>( new ArrayList<Article>() ) {
+			@Override
+			public Iterable<Article> saveAll( final Iterable<Article> entities ) {
+				for( Article a : entities ) {
+					if( a.getId().equals( "P00000002" ) ) {
+						throw new IllegalStateException( "cannot save " + a.getId() );
+					}
+				}
+				return super.saveAll( entities );
+			}
+		};
+		articles.save( new Article( "P00000001", "Article 1", "1,00 EUR" ) );
+		try {
+			new RepositorySnapshot( 64, 2 )
+				.add( Customer.class.getName(), customers, new CustomerCodec() )
+				.add( Article.class.getName(), articles, new ArticleCodec() )
+				.restore( dir );
+			fail( "failed refill not reported" );
+
+		} catch( IOException e ) {
+			assertTrue( e.getMessage().contains( "cannot refill" ) );
+		}
+		assertEquals( 3, customers.count() );		// previous contents restored
+		assertTrue( customers.existsById( "C00000002" ) );
+		assertEquals( 1, articles.count() );
+		assertTrue( articles.existsById( "P00000001" ) );
+	}
+
+	@Test
+	public void corruptChunkTest() throws IOException {
+		Path dir = Files.createTempDirectory( "se2-snapshot" );
+		new RepositorySnapshot( 64, 2 ).add( Customer.class.getName(), customers( 200 ), new CustomerCodec() ).export( dir );
+		try( FileChannel channel = FileChannel.open( dir.resolve( "Customer.chunks" ), StandardOpenOption.WRITE ) ) {
+			channel.write( ByteBuffer.wrap( new byte[] { 1, 2, 3, 4 } ), 10 );
+		}
+
+		RepositoryIntf<Customer> customers = customers( 3 );
+		try {
+			new RepositorySnapshot( 64, 2 ).add( Customer.class.getName(), customers, new CustomerCodec() ).restore( dir );
+			fail( "corrupt chunk not detected" );
+
+		} catch( IOException e ) {
+			assertTrue( e.getMessage().contains( "checksum" ) );
+		}
+		assertEquals( 3, customers.count() );		// repository not altered
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private RepositoryIntf<Customer> customers( final int n ) {
+		RepositoryIntf<Customer> repository = new SimpleRepositoryImpl<Customer>( new ArrayList<Customer>() );
+		for( int i = 0; i < n; i++ ) {
+			repository.save( new Customer( String.format( "C%08d", i ), "Customer " + i, new Date() )
+				.addContact( "c" + i + "@example.com" )
+				.addNote( "Note " + i )
+				.setStatus( i % 2 == 0? Customer.Status.ACT : Customer.Status.SUSP ) );
+		}
+		return repository;
+	}
+
+}
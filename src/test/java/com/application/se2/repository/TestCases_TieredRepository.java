@@ -0,0 +1,192 @@
+package com.application.se2.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.application.se2.model.Customer;
+
+
+/**
+ * Unit tests concerning the tiered Customer repository: spilling of cold and idle
+ * Customers to the cold segment, lookups across both tiers, promotion back to the
+ * hot tier and freeing of cold records.
+ *
+ * @author sgra64
+ *
+ */
+public class TestCases_TieredRepository {
+	private static final long ColdAfterMillis = 5_000;
+
+	@Test
+	public void spillTest() throws IOException {
+		AtomicLong clock = new AtomicLong( 10_000 );
+		SimpleRepositoryImpl<Customer> hot = hot(
+			new Customer( "C0", "Idle Customer", new Date( 1_000 ) ),		// last activity seeds access time
+			new Customer( "C1", "Terminated Customer", new Date( 9_000 ) ).setStatus( Customer.Status.TERM ),
+			new Customer( "C2", "Active Customer", new Date( 9_000 ) ),
+			new Customer( "C3", "Other Customer", new Date( 9_000 ) )
+		);
+		try( TieredRepositoryImpl<Customer> repository = repository( hot, new CustomerCodec(), clock ) ) {
+			assertEquals( 2, repository.spill() );		// C0 by idle time, C1 by predicate
+			assertFalse( hot.existsById( "C0" ) );
+			assertFalse( hot.existsById( "C1" ) );
+			assertEquals( 4, repository.count() );
+
+			clock.set( 12_000 );
+			repository.findById( "C2" );				// access keeps C2 in hot tier
+			clock.set( 16_000 );
+			assertEquals( 1, repository.spill() );		// C3 idle since 9_000
+			assertTrue( hot.existsById( "C2" ) );
+			assertFalse( hot.existsById( "C3" ) );
+			assertEquals( 0, repository.spill() );
+		}
+	}
+
+	@Test
+	public void findTest() throws IOException {
+		SimpleRepositoryImpl<Customer> hot = hot();
+		try( TieredRepositoryImpl<Customer> repository = repository( hot, new CustomerCodec(), new AtomicLong( 0 ) ) ) {
+			for( int i = 0; i < 10; i++ ) {
+				Customer c = new Customer( "C" + i, "Customer " + i, new Date( 0 ) ).addContact( "c" + i + "@example.com" );
+				repository.save( i % 2 == 0? c : c.setStatus( Customer.Status.TERM ) );
+			}
+			assertEquals( 5, hot.count() );
+			assertEquals( 10, repository.count() );
+			assertTrue( repository.existsById( "C3" ) );
+
+			Customer cold = repository.findById( "C3" ).get();		// loaded from segment
+			assertEquals( "Customer 3", cold.getName() );
+			assertEquals( "c3@example.com", cold.getContacts().get( 0 ) );
+			assertEquals( Customer.Status.TERM, cold.getStatus() );
+			assertEquals( "Customer 4", repository.findById( "C4" ).get().getName() );
+			assertFalse( repository.findById( "C10" ).isPresent() );
+
+			assertEquals( "C7", repository.findByName( "Customer 7" ).get().getId() );
+			assertEquals( "C8", repository.findByName( "Customer 8" ).get().getId() );
+			List<Customer> found = new ArrayList<Customer>();
+			repository.findByName( "Customer [5-9]", 10 ).forEach( found::add );
+			assertEquals( 5, found.size() );
+			int n = 0;
+			for( Customer c : repository.findAll() ) {
+				n += c.getName().startsWith( "Customer" )? 1 : 0;
+			}
+			assertEquals( 10, n );
+		}
+	}
+
+	@Test
+	public void promotionTest() throws IOException {
+		SimpleRepositoryImpl<Customer> hot = hot();
+		try( TieredRepositoryImpl<Customer> repository = repository( hot, new CustomerCodec(), new AtomicLong( 0 ) ) ) {
+			repository.save( new Customer( "C1", "Customer 1", new Date( 0 ) ).setStatus( Customer.Status.TERM ) );
+			assertFalse( hot.existsById( "C1" ) );
+
+			Customer c = repository.findById( "C1" ).get();
+			repository.save( c.setAddress( "Lindenweg 1" ) );		// still cold, record rewritten
+			assertFalse( hot.existsById( "C1" ) );
+			assertTrue( repository.garbage() > 0 );
+			assertEquals( "Lindenweg 1", repository.findById( "C1" ).get().getAddress() );
+
+			repository.save( repository.findById( "C1" ).get().setStatus( Customer.Status.ACT ) );
+			assertTrue( hot.existsById( "C1" ) );			// promoted to hot tier
+			assertEquals( repository.segmentSize(), repository.garbage() );
+			assertEquals( "Lindenweg 1", repository.findById( "C1" ).get().getAddress() );
+			assertEquals( 1, repository.count() );
+		}
+	}
+
+	@Test
+	public void deleteTest() throws IOException {
+		SimpleRepositoryImpl<Customer> hot = hot();
+		try( TieredRepositoryImpl<Customer> repository = repository( hot, new CustomerCodec(), new AtomicLong( 0 ) ) ) {
+			for( int i = 0; i < 4; i++ ) {
+				repository.save( new Customer( "C" + i, "Customer " + i, new Date( 0 ) ).setStatus( Customer.Status.TERM ) );
+			}
+			repository.save( new Customer( "C4", "Customer 4", new Date( 0 ) ) );
+			assertEquals( 0, repository.garbage() );
+
+			repository.deleteById( "C0" );
+			assertFalse( repository.existsById( "C0" ) );
+			assertFalse( repository.findById( "C0" ).isPresent() );
+			assertTrue( repository.garbage() > 0 );
+			assertEquals( 4, repository.count() );
+
+			List<String> ids = new ArrayList<String>();
+			ids.add( "C1" );
+			ids.add( "C4" );
+			repository.deleteAllById( ids );
+			assertEquals( 2, repository.count() );
+			assertFalse( hot.existsById( "C4" ) );
+
+			repository.deleteAll();
+			assertEquals( 0, repository.count() );
+			assertEquals( repository.segmentSize(), repository.garbage() );	// all cold records freed
+		}
+	}
+
+	@Test
+	public void encodeFailureTest() throws IOException {
+		CustomerCodec customerCodec = new CustomerCodec();
+		EntityCodec<Customer> codec = new EntityCodec<Customer>() {
+			@Override
+			public void encode( final Customer c, final DataOutput out ) throws IOException {
+				if( c.getName().startsWith( "Broken" ) ) {
+					throw new IOException( "cannot encode " + c.getName() );
+				}
+				customerCodec.encode( c, out );
+			}
+
+			@Override
+			public Customer decode( final DataInput in ) throws IOException {
+				return customerCodec.decode( in );
+			}
+		};
+		SimpleRepositoryImpl<Customer> hot = hot();
+		try( TieredRepositoryImpl<Customer> repository = repository( hot, codec, new AtomicLong( 0 ) ) ) {
+			repository.save( new Customer( "C1", "Customer 1", new Date( 0 ) ).setStatus( Customer.Status.TERM ) );
+			repository.save( new Customer( "C2", "Broken Customer", new Date( 0 ) ).setStatus( Customer.Status.TERM ) );
+			assertTrue( hot.existsById( "C2" ) );			// kept in hot tier
+			assertFalse( hot.existsById( "C1" ) );
+
+			Customer c1 = repository.findById( "C1" ).get();
+			repository.save( c1.setName( "Broken 1" ) );		// cold record cannot be rewritten, promoted
+			assertTrue( hot.existsById( "C1" ) );
+			assertEquals( "Broken 1", repository.findById( "C1" ).get().getName() );
+			assertEquals( 2, repository.count() );
+		}
+	}
+
+
+	/*
+	 * Private methods.
+	 */
+
+	private static SimpleRepositoryImpl<Customer> hot( final Customer... customers ) {
+		List<Customer> list = new ArrayList<Customer>();
+		for( Customer c : customers ) {
+			list.add( c );
+		}
+		return new SimpleRepositoryImpl<Customer>( list );
+	}
+
+	private static TieredRepositoryImpl<Customer> repository( final SimpleRepositoryImpl<Customer> hot,
+			final EntityCodec<Customer> codec, final AtomicLong clock ) throws IOException
+	{
+		return new TieredRepositoryImpl<Customer>( hot, new SegmentFile( Files.createTempFile( "se2-customers", ".seg" ) ), codec,
+			c -> c.getStatus() == Customer.Status.TERM, ColdAfterMillis,
+			c -> c.getCreationDate().getTime(), () -> clock.get() );
+	}
+
+}